@@ -0,0 +1,76 @@
+const { Client } = require('pg');
+
+// Connection-churn benchmark for PGAdapter. Each worker repeatedly opens a new connection,
+// executes one query and closes the connection again, which is what serverless applications
+// that connect per request do. The benchmark reports the number of connects per second and the
+// latency of connecting and of the first query on each connection.
+//
+// Usage: node index.js [host] [port] [database] [workers] [durationSeconds]
+const host = process.argv[2] || 'localhost';
+const port = parseInt(process.argv[3] || '5432');
+const database = process.argv[4] || 'knut-test-db';
+const numWorkers = parseInt(process.argv[5] || '32');
+const durationSeconds = parseInt(process.argv[6] || '30');
+
+function percentile(sorted, p) {
+    if (sorted.length === 0) {
+        return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p / 100))];
+}
+
+function printLatencies(name, latencies) {
+    const sorted = latencies.slice().sort((a, b) => a - b);
+    console.log(`${name}: p50 ${percentile(sorted, 50).toFixed(2)}ms, `
+        + `p95 ${percentile(sorted, 95).toFixed(2)}ms, `
+        + `p99 ${percentile(sorted, 99).toFixed(2)}ms, `
+        + `max ${percentile(sorted, 100).toFixed(2)}ms`);
+}
+
+function elapsedMillis(start) {
+    const [seconds, nanos] = process.hrtime(start);
+    return seconds * 1000 + nanos / 1000000;
+}
+
+async function worker(deadline, connectLatencies, queryLatencies, errors) {
+    while (Date.now() < deadline) {
+        const client = new Client({host, port, database});
+        try {
+            const connectStart = process.hrtime();
+            await client.connect();
+            connectLatencies.push(elapsedMillis(connectStart));
+            const queryStart = process.hrtime();
+            await client.query('SELECT 1');
+            queryLatencies.push(elapsedMillis(queryStart));
+        } catch (e) {
+            errors.push(e);
+        } finally {
+            await client.end().catch(() => {});
+        }
+    }
+}
+
+async function test() {
+    console.log(`Running ${numWorkers} workers for ${durationSeconds} seconds against ${host}:${port}`);
+    const connectLatencies = [];
+    const queryLatencies = [];
+    const errors = [];
+    const start = new Date();
+    const deadline = start.getTime() + durationSeconds * 1000;
+    const workers = [];
+    for (let i = 0; i < numWorkers; i++) {
+        workers.push(worker(deadline, connectLatencies, queryLatencies, errors));
+    }
+    await Promise.all(workers);
+    const elapsed = (new Date() - start) / 1000;
+
+    console.log(`Connections: ${connectLatencies.length}, errors: ${errors.length}`);
+    if (errors.length > 0) {
+        console.log(`First error: ${errors[0]}`);
+    }
+    console.log(`Connects per second: ${(connectLatencies.length / elapsed).toFixed(1)}`);
+    printLatencies('Connect latency', connectLatencies);
+    printLatencies('First query latency', queryLatencies);
+}
+
+test().then(() => console.log('Finished'));
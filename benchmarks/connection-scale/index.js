@@ -0,0 +1,129 @@
+const { Client } = require('pg');
+const fs = require('fs');
+
+// Connection-scale benchmark for PGAdapter. The benchmark opens a large number of connections that
+// stay open at the same time, and then executes queries on all of them. This compares the cost of
+// many mostly idle connections with and without -virtual_threads (and with the -nio_threads front
+// end). Run PGAdapter once for each configuration, and run the benchmark against each instance.
+//
+// If the process id of PGAdapter is given, the benchmark also reports the number of threads and
+// the resident memory of PGAdapter after all connections have been opened. This requires that the
+// benchmark runs on the same Linux host as PGAdapter.
+//
+// Usage: node index.js [host] [port] [database] [connectionCounts] [queryRounds] [pgadapterPid]
+// Example: node index.js localhost 5432 my-db 1000,5000,10000 5 12345
+const host = process.argv[2] || 'localhost';
+const port = parseInt(process.argv[3] || '5432');
+const database = process.argv[4] || 'knut-test-db';
+const connectionCounts = (process.argv[5] || '1000,5000,10000').split(',').map(n => parseInt(n));
+const queryRounds = parseInt(process.argv[6] || '5');
+const pgadapterPid = process.argv[7];
+// The maximum number of connections that are being opened at the same time.
+const connectBatchSize = 100;
+
+function percentile(sorted, p) {
+    if (sorted.length === 0) {
+        return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p / 100))];
+}
+
+function printLatencies(name, latencies) {
+    const sorted = latencies.slice().sort((a, b) => a - b);
+    console.log(`${name}: p50 ${percentile(sorted, 50).toFixed(2)}ms, `
+        + `p95 ${percentile(sorted, 95).toFixed(2)}ms, `
+        + `p99 ${percentile(sorted, 99).toFixed(2)}ms, `
+        + `max ${percentile(sorted, 100).toFixed(2)}ms`);
+}
+
+function elapsedMillis(start) {
+    const [seconds, nanos] = process.hrtime(start);
+    return seconds * 1000 + nanos / 1000000;
+}
+
+function printServerStats() {
+    if (!pgadapterPid) {
+        return;
+    }
+    try {
+        const status = fs.readFileSync(`/proc/${pgadapterPid}/status`, 'utf8');
+        const threads = /^Threads:\s+(\d+)/m.exec(status);
+        const rss = /^VmRSS:\s+(\d+) kB/m.exec(status);
+        console.log(`PGAdapter threads: ${threads ? threads[1] : '?'}, `
+            + `resident memory: ${rss ? (parseInt(rss[1]) / 1024).toFixed(1) : '?'} MB`);
+    } catch (e) {
+        console.log(`Could not read the stats of process ${pgadapterPid}: ${e}`);
+    }
+}
+
+async function connect(connectLatencies, errors) {
+    const client = new Client({host, port, database});
+    const start = process.hrtime();
+    try {
+        await client.connect();
+        connectLatencies.push(elapsedMillis(start));
+        return client;
+    } catch (e) {
+        errors.push(e);
+        return null;
+    }
+}
+
+async function query(client, queryLatencies, errors) {
+    const start = process.hrtime();
+    try {
+        await client.query('SELECT 1');
+        queryLatencies.push(elapsedMillis(start));
+    } catch (e) {
+        errors.push(e);
+    }
+}
+
+async function run(numConnections) {
+    console.log(`\nOpening ${numConnections} connections to ${host}:${port}`);
+    const connectLatencies = [];
+    const queryLatencies = [];
+    const errors = [];
+    const clients = [];
+    const connectStart = new Date();
+    for (let i = 0; i < numConnections; i += connectBatchSize) {
+        const batch = [];
+        for (let j = i; j < Math.min(numConnections, i + connectBatchSize); j++) {
+            batch.push(connect(connectLatencies, errors));
+        }
+        for (const client of await Promise.all(batch)) {
+            if (client) {
+                clients.push(client);
+            }
+        }
+    }
+    const connectSeconds = (new Date() - connectStart) / 1000;
+    console.log(`Open connections: ${clients.length}, errors: ${errors.length}, `
+        + `connects per second: ${(clients.length / connectSeconds).toFixed(1)}`);
+    printLatencies('Connect latency', connectLatencies);
+    printServerStats();
+
+    // Execute one query on every connection at the same time, a number of times.
+    const queryStart = new Date();
+    for (let round = 0; round < queryRounds; round++) {
+        await Promise.all(clients.map(client => query(client, queryLatencies, errors)));
+    }
+    const querySeconds = (new Date() - queryStart) / 1000;
+    console.log(`Queries: ${queryLatencies.length}, errors: ${errors.length}, `
+        + `queries per second: ${(queryLatencies.length / querySeconds).toFixed(1)}`);
+    printLatencies('Query latency', queryLatencies);
+    printServerStats();
+    if (errors.length > 0) {
+        console.log(`First error: ${errors[0]}`);
+    }
+
+    await Promise.all(clients.map(client => client.end().catch(() => {})));
+}
+
+async function test() {
+    for (const numConnections of connectionCounts) {
+        await run(numConnections);
+    }
+}
+
+test().then(() => console.log('Finished'));
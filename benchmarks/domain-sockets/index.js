@@ -0,0 +1,77 @@
+const { Client } = require('pg');
+
+// Transport latency benchmark for PGAdapter. Runs the same query repeatedly on one connection per
+// target and reports the per-query latency. Use it to compare TCP loopback, Unix domain sockets
+// that use junixsocket, and Unix domain sockets that use the JDK built-in channels. Start one
+// PGAdapter instance with the default Unix domain socket implementation and one instance with
+// -native_domain_sockets, each with its own port and socket directory (-p and -dir), for example:
+//
+//   java -jar pgadapter.jar -p my-project -i my-instance -s 5432 -dir /tmp/junix
+//   java -jar pgadapter.jar -p my-project -i my-instance -s 5433 -dir /tmp/native -native_domain_sockets
+//
+// Usage: node index.js [database] [iterations] [target...]
+// A target is name=host:port. The host is a directory for Unix domain sockets. Defaults to
+// tcp=localhost:5432 junixsocket=/tmp/junix:5432 native=/tmp/native:5433
+const database = process.argv[2] || 'knut-test-db';
+const iterations = parseInt(process.argv[3] || '10000');
+const targets = process.argv.length > 4
+    ? process.argv.slice(4)
+    : ['tcp=localhost:5432', 'junixsocket=/tmp/junix:5432', 'native=/tmp/native:5433'];
+const warmupIterations = Math.min(1000, iterations);
+
+function percentile(sorted, p) {
+    if (sorted.length === 0) {
+        return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p / 100))];
+}
+
+function printLatencies(name, latencies) {
+    const sorted = latencies.slice().sort((a, b) => a - b);
+    const avg = sorted.reduce((sum, value) => sum + value, 0) / Math.max(1, sorted.length);
+    console.log(`${name}: avg ${avg.toFixed(3)}ms, `
+        + `p50 ${percentile(sorted, 50).toFixed(3)}ms, `
+        + `p95 ${percentile(sorted, 95).toFixed(3)}ms, `
+        + `p99 ${percentile(sorted, 99).toFixed(3)}ms`);
+}
+
+function elapsedMillis(start) {
+    const [seconds, nanos] = process.hrtime(start);
+    return seconds * 1000 + nanos / 1000000;
+}
+
+async function runTarget(target) {
+    const [name, address] = target.split('=');
+    const separator = address.lastIndexOf(':');
+    const host = address.substring(0, separator);
+    const port = parseInt(address.substring(separator + 1));
+    const client = new Client({host, port, database});
+    await client.connect();
+    try {
+        for (let i = 0; i < warmupIterations; i++) {
+            await client.query('SELECT 1');
+        }
+        const latencies = [];
+        for (let i = 0; i < iterations; i++) {
+            const start = process.hrtime();
+            await client.query('SELECT 1');
+            latencies.push(elapsedMillis(start));
+        }
+        printLatencies(name, latencies);
+    } finally {
+        await client.end();
+    }
+}
+
+async function test() {
+    console.log(`Running ${iterations} queries per target`);
+    for (const target of targets) {
+        try {
+            await runTarget(target);
+        } catch (e) {
+            console.log(`${target} failed: ${e}`);
+        }
+    }
+}
+
+test().then(() => console.log('Finished'));
@@ -0,0 +1,99 @@
+const { Client } = require('pg');
+
+// SSL handshake benchmark for PGAdapter. Each worker repeatedly opens a new SSL connection,
+// executes one query and closes the connection again. The benchmark reports the number of
+// handshakes per second, the connect latency, and how many handshakes resumed a previous session.
+//
+// Start PGAdapter with SSL and a self-signed private key and certificate, for example:
+//
+//   keytool -genkey -keystore pgadapter.p12 -alias pgadapter -storetype PKCS12 \
+//     -keypass password -storepass password -keyalg RSA -dname CN=localhost \
+//     -ext "SAN=DNS:localhost"
+//   java -Djavax.net.ssl.keyStore=pgadapter.p12 -Djavax.net.ssl.keyStorePassword=password \
+//     -jar pgadapter.jar -p my-project -i my-instance -ssl require \
+//     -ssl_protocols TLSv1.3 -ssl_session_cache_size 100000
+//
+// See docs/ssl.md for more information on generating a self-signed key.
+//
+// Usage: node index.js [host] [port] [database] [workers] [durationSeconds] [resume]
+// Set resume to false to execute a full handshake for every connection.
+const host = process.argv[2] || 'localhost';
+const port = parseInt(process.argv[3] || '5432');
+const database = process.argv[4] || 'knut-test-db';
+const numWorkers = parseInt(process.argv[5] || '16');
+const durationSeconds = parseInt(process.argv[6] || '30');
+const resume = (process.argv[7] || 'true') === 'true';
+
+function percentile(sorted, p) {
+    if (sorted.length === 0) {
+        return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p / 100))];
+}
+
+function printLatencies(name, latencies) {
+    const sorted = latencies.slice().sort((a, b) => a - b);
+    console.log(`${name}: p50 ${percentile(sorted, 50).toFixed(2)}ms, `
+        + `p95 ${percentile(sorted, 95).toFixed(2)}ms, `
+        + `p99 ${percentile(sorted, 99).toFixed(2)}ms, `
+        + `max ${percentile(sorted, 100).toFixed(2)}ms`);
+}
+
+function elapsedMillis(start) {
+    const [seconds, nanos] = process.hrtime(start);
+    return seconds * 1000 + nanos / 1000000;
+}
+
+async function worker(deadline, stats) {
+    // The TLS session of the previous connection of this worker.
+    let session = undefined;
+    while (Date.now() < deadline) {
+        // The certificate is self-signed, so it is not verified.
+        const ssl = {rejectUnauthorized: false};
+        if (resume && session) {
+            ssl.session = session;
+        }
+        const client = new Client({host, port, database, ssl});
+        try {
+            const connectStart = process.hrtime();
+            await client.connect();
+            stats.connectLatencies.push(elapsedMillis(connectStart));
+            await client.query('SELECT 1');
+            const stream = client.connection.stream;
+            if (stream.isSessionReused()) {
+                stats.resumed++;
+            }
+            // TLS 1.3 session tickets are sent after the handshake, so the session is read after
+            // the first query.
+            session = stream.getSession();
+        } catch (e) {
+            stats.errors.push(e);
+        } finally {
+            await client.end().catch(() => {});
+        }
+    }
+}
+
+async function test() {
+    console.log(`Running ${numWorkers} workers for ${durationSeconds} seconds against ${host}:${port}`
+        + ` (session resumption ${resume ? 'enabled' : 'disabled'})`);
+    const stats = {connectLatencies: [], resumed: 0, errors: []};
+    const start = new Date();
+    const deadline = start.getTime() + durationSeconds * 1000;
+    const workers = [];
+    for (let i = 0; i < numWorkers; i++) {
+        workers.push(worker(deadline, stats));
+    }
+    await Promise.all(workers);
+    const elapsed = (new Date() - start) / 1000;
+
+    console.log(`Handshakes: ${stats.connectLatencies.length}, resumed: ${stats.resumed}, `
+        + `errors: ${stats.errors.length}`);
+    if (stats.errors.length > 0) {
+        console.log(`First error: ${stats.errors[0]}`);
+    }
+    console.log(`Handshakes per second: ${(stats.connectLatencies.length / elapsed).toFixed(1)}`);
+    printLatencies('Connect latency', stats.connectLatencies);
+}
+
+test().then(() => console.log('Finished'));
@@ -40,6 +40,7 @@ import com.google.cloud.spanner.pgadapter.error.SQLState;
 import com.google.cloud.spanner.pgadapter.error.Severity;
 import com.google.cloud.spanner.pgadapter.metadata.ConnectionMetadata;
 import com.google.cloud.spanner.pgadapter.metadata.DescribeResult;
+import com.google.cloud.spanner.pgadapter.metadata.DescribeResultCache;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.SslMode;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement;
@@ -49,6 +50,10 @@ import com.google.cloud.spanner.pgadapter.statements.IntermediatePreparedStateme
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
 import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector;
 import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
+import com.google.cloud.spanner.pgadapter.utils.ConnectionAdmissionController;
+import com.google.cloud.spanner.pgadapter.utils.FlushPolicy;
+import com.google.cloud.spanner.pgadapter.utils.SslEngineStreams;
+import com.google.cloud.spanner.pgadapter.utils.ThreadFactories;
 import com.google.cloud.spanner.pgadapter.wireoutput.ErrorResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.ReadyResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.TerminateResponse;
@@ -61,6 +66,7 @@ import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.spanner.admin.database.v1.InstanceName;
 import com.google.spanner.v1.DatabaseName;
 import java.io.DataOutputStream;
@@ -80,13 +86,11 @@ import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
-import javax.net.ssl.SSLSocketFactory;
 
 /**
  * Handles a connection from a client to Spanner. This {@link ConnectionHandler} uses {@link
@@ -96,6 +100,10 @@ import javax.net.ssl.SSLSocketFactory;
  *
  * <p>Each {@link ConnectionHandler} is also a {@link Thread}. Although a TCP connection does not
  * necessarily need to have its own thread, this makes the implementation more straightforward.
+ * Connections that are served by the non-blocking front end are not started as a thread. Instead,
+ * their messages are handled one at a time by {@link #handleNextMessage()} on a worker thread when
+ * a complete message has been received. Connections that use virtual threads are executed by a
+ * virtual thread that runs this handler as its {@link Runnable}.
  */
 @InternalApi
 public class ConnectionHandler extends Thread {
@@ -104,14 +112,21 @@ public class ConnectionHandler extends Thread {
   private static final String CHANNEL_PROVIDER_PROPERTY = "CHANNEL_PROVIDER";
 
   private final ProxyServer server;
-  private Socket socket;
+  private final Socket socket;
+  /** Encrypts and decrypts the data of this connection if the client requested SSL. */
+  @Nullable private SslEngineStreams sslEngineStreams;
+  /** The non-blocking connection that serves this handler, or null if it runs on its own thread. */
+  @Nullable private NioConnection nioConnection;
   private final Map<String, IntermediatePreparedStatement> statementsMap = new HashMap<>();
-  private final Cache<String, Future<DescribeResult>> autoDescribedStatementsCache =
+  private final Cache<String, ListenableFuture<DescribeResult>> autoDescribedStatementsCache =
       CacheBuilder.newBuilder()
           .expireAfterWrite(Duration.ofMinutes(30L))
           .maximumSize(5000L)
           .concurrencyLevel(1)
           .build();
+  /** The generation of the server-wide describe cache that the cache above belongs to. */
+  private long describeResultCacheGeneration;
+
   private final Map<String, IntermediatePortalStatement> portalsMap = new HashMap<>();
   private static final Map<Integer, ConnectionHandler> CONNECTION_HANDLERS =
       new ConcurrentHashMap<>();
@@ -137,6 +152,19 @@ public class ConnectionHandler extends Thread {
 
   private ExtendedQueryProtocolHandler extendedQueryProtocolHandler;
   private CopyStatement activeCopyStatement;
+  /**
+   * The thread that is currently handling messages for this connection. This is not necessarily the
+   * handler itself, as connections that use the non-blocking front end are handled by a worker
+   * thread, and connections that use virtual threads are executed by a virtual thread.
+   */
+  private volatile Thread processingThread;
+  /** Whether this connection has been admitted by the connection admission controller. */
+  private boolean admitted;
+  /**
+   * Set when the output after a Sync message has been held back, because the client had already
+   * sent more messages. The output is flushed before the connection waits for more messages.
+   */
+  private boolean outputCorked;
 
   ConnectionHandler(ProxyServer server, Socket socket) {
     this(server, socket, null);
@@ -161,13 +189,21 @@ public class ConnectionHandler extends Thread {
     this.spannerConnection = spannerConnection;
   }
 
-  void createSSLSocket() throws IOException {
-    this.socket =
-        ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(socket, null, true);
+  /**
+   * Starts encrypting the data of this connection with an {@link javax.net.ssl.SSLEngine}. The TLS
+   * handshake is executed when the first message is read from the client.
+   */
+  void startSsl() throws IOException {
+    this.sslEngineStreams =
+        new SslEngineStreams(
+            getServer().getSslEngineFactory().createServerEngine(),
+            socket.getInputStream(),
+            socket.getOutputStream());
   }
 
   @InternalApi
   public void connectToSpanner(String database, @Nullable Credentials credentials) {
+    acquireConnectionSlot();
     OptionsMetadata options = getServer().getOptions();
     String uri =
         options.hasDefaultConnectionUrl()
@@ -245,6 +281,33 @@ public class ConnectionHandler extends Thread {
     this.extendedQueryProtocolHandler = new ExtendedQueryProtocolHandler(this);
   }
 
+  /**
+   * Waits for a connection slot if the server limits the number of connections. Throws a
+   * too_many_connections error if no slot became available in time. Connections that are served by
+   * the non-blocking front end do not wait, as waiting would block a worker thread that is shared
+   * with other connections.
+   */
+  private void acquireConnectionSlot() {
+    ConnectionAdmissionController admissionController =
+        getServer().getConnectionAdmissionController();
+    if (admissionController == null || this.admitted) {
+      return;
+    }
+    if (!admissionController.tryAcquire(socket.getInetAddress(), this.nioConnection == null)) {
+      logger.log(
+          Level.WARNING,
+          () ->
+              String.format(
+                  "Connection handler with ID %s for client %s rejected: %s",
+                  getName(), socket.getInetAddress().getHostAddress(), admissionController));
+      throw PGException.newBuilder("sorry, too many clients already")
+          .setSeverity(Severity.FATAL)
+          .setSQLState(SQLState.TooManyConnections)
+          .build();
+    }
+    this.admitted = true;
+  }
+
   private String appendPropertiesToUrl(String url, Properties info) {
     if (info == null || info.isEmpty()) {
       return url;
@@ -271,24 +334,30 @@ public class ConnectionHandler extends Thread {
             String.format(
                 "Connection handler with ID %s starting for client %s",
                 getName(), socket.getInetAddress().getHostAddress()));
-    if (runConnection(false) == RunConnectionState.RESTART_WITH_SSL) {
-      logger.log(
-          Level.INFO,
-          () ->
-              String.format(
-                  "Connection handler with ID %s is restarted so it can use SSL", getName()));
-      restartConnectionWithSsl();
+    // The handler is executed by a different thread than itself if virtual threads are enabled.
+    this.processingThread = Thread.currentThread();
+    try {
+      if (runConnection(false) == RunConnectionState.RESTART_WITH_SSL) {
+        logger.log(
+            Level.INFO,
+            () ->
+                String.format(
+                    "Connection handler with ID %s is restarted so it can use SSL", getName()));
+        restartConnectionWithSsl();
+      }
+    } finally {
+      this.processingThread = null;
     }
   }
 
   void restartConnectionWithSsl() {
     try {
-      createSSLSocket();
+      startSsl();
       runConnection(true);
     } catch (IOException ioException) {
       PGException pgException =
           PGException.newBuilder(
-                  "Failed to create SSL socket: "
+                  "Failed to start SSL: "
                       + (ioException.getMessage() == null
                           ? ioException.getClass().getName()
                           : ioException.getMessage()))
@@ -315,8 +384,11 @@ public class ConnectionHandler extends Thread {
   private RunConnectionState runConnection(boolean ssl) {
     RunConnectionState result = RunConnectionState.TERMINATED;
     try (ConnectionMetadata connectionMetadata =
-        new ConnectionMetadata(this.socket.getInputStream(), this.socket.getOutputStream())) {
+        this.sslEngineStreams == null
+            ? ConnectionMetadata.createForSocket(this.socket)
+            : ConnectionMetadata.createForSsl(this.socket, this.sslEngineStreams)) {
       this.connectionMetadata = connectionMetadata;
+      countSocketWrites(connectionMetadata);
 
       try {
         this.message = this.server.recordMessage(BootstrapMessage.create(this));
@@ -347,6 +419,15 @@ public class ConnectionHandler extends Thread {
             break;
           }
         }
+        // Read ahead from the client while we are executing statements. This is only started
+        // after the startup phase, so any SSL handshake has already been completed.
+        OptionsMetadata options = getServer().getOptions();
+        if (options.getReadAheadBytes() > 0 && this.status != ConnectionStatus.TERMINATED) {
+          connectionMetadata.startReadAhead(
+              options.getReadAheadBytes(),
+              ThreadFactories.createDaemon(
+                  getName() + "-read-ahead-", options.useVirtualThreads()));
+        }
         while (this.status != ConnectionStatus.TERMINATED) {
           handleMessages();
         }
@@ -369,27 +450,144 @@ public class ConnectionHandler extends Thread {
                   getName(), socket.getInetAddress().getHostAddress(), e));
     } finally {
       if (result != RunConnectionState.RESTART_WITH_SSL) {
-        logger.log(
-            Level.INFO, () -> String.format("Closing connection handler with ID %s", getName()));
-        try {
-          if (this.spannerConnection != null) {
-            this.spannerConnection.close();
+        closeConnection();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Prepares this handler for a connection that is served by the non-blocking front end. The
+   * handler is not started as a thread. Instead, {@link #handleNextMessage()} is called each time a
+   * complete message has been received from the client.
+   */
+  void initNonBlocking(NioConnection nioConnection, ConnectionMetadata connectionMetadata) {
+    logger.log(
+        Level.INFO,
+        () ->
+            String.format(
+                "Connection handler with ID %s starting in non-blocking mode for client %s",
+                getName(), socket.getInetAddress().getHostAddress()));
+    this.nioConnection = nioConnection;
+    this.connectionMetadata = connectionMetadata;
+    countSocketWrites(connectionMetadata);
+  }
+
+  /** Counts the writes to the client of the given connection in the flush statistics. */
+  private void countSocketWrites(ConnectionMetadata connectionMetadata) {
+    FlushPolicy flushPolicy = server.getFlushPolicy();
+    if (flushPolicy != null) {
+      connectionMetadata.getOutputBuffer().setWriteCounter(flushPolicy.getSocketWriteCounter());
+    }
+  }
+
+  /**
+   * Returns true if the next message from the client is a bootstrap message. Bootstrap messages do
+   * not start with a message type byte.
+   */
+  boolean isExpectingBootstrapMessage() {
+    return this.message == null || this.message instanceof SSLMessage;
+  }
+
+  /**
+   * Handles exactly one message from the client on the calling thread. This is the non-blocking
+   * equivalent of one iteration of the loops in {@link #runConnection(boolean)}. The connection is
+   * closed if the message terminated the connection.
+   *
+   * @return true if the connection is still open, and false if it has been closed.
+   */
+  boolean handleNextMessage() {
+    this.processingThread = Thread.currentThread();
+    try {
+      try {
+        if (this.message == null) {
+          this.message = this.server.recordMessage(BootstrapMessage.create(this));
+          if (this.sslEngineStreams == null
+              && getServer().getOptions().getSslMode().isSslEnabled()
+              && this.message instanceof SSLMessage) {
+            // Accept the SSL request and continue with a new bootstrap message that is encrypted.
+            this.message.send();
+            this.sslEngineStreams =
+                this.nioConnection.startSsl(getServer().getSslEngineFactory().createServerEngine());
+            this.connectionMetadata =
+                ConnectionMetadata.createForBufferedInputStream(
+                    this.sslEngineStreams.getInputStream(),
+                    this.sslEngineStreams.getOutputStream(),
+                    NioConnection.OUTPUT_BUFFER_SIZE);
+            countSocketWrites(this.connectionMetadata);
+            this.message = null;
+          } else if (checkValidConnection(this.sslEngineStreams != null)) {
+            this.message.send();
+          } else {
+            this.status = ConnectionStatus.TERMINATED;
           }
-          this.socket.close();
-        } catch (SpannerException | IOException e) {
-          logger.log(
-              Level.WARNING,
-              e,
-              () ->
-                  String.format(
-                      "Exception while closing connection handler with ID %s", getName()));
+        } else if (this.status == ConnectionStatus.UNAUTHENTICATED) {
+          try {
+            message.nextHandler();
+            message.send();
+          } catch (EOFException eofException) {
+            // The frontend terminated the connection before we got authenticated.
+            this.status = ConnectionStatus.TERMINATED;
+          }
+        } else {
+          handleMessages();
         }
-        this.server.deregister(this);
-        logger.log(
-            Level.INFO, () -> String.format("Connection handler with ID %s closed", getName()));
+      } catch (PGException pgException) {
+        this.handleError(pgException);
+        this.status = ConnectionStatus.TERMINATED;
+      } catch (Exception exception) {
+        this.handleError(
+            PGException.newBuilder(exception)
+                .setSeverity(Severity.FATAL)
+                .setSQLState(SQLState.InternalError)
+                .build());
+        this.status = ConnectionStatus.TERMINATED;
       }
+    } catch (Exception e) {
+      this.status = ConnectionStatus.TERMINATED;
+      logger.log(
+          Level.WARNING,
+          e,
+          () ->
+              String.format(
+                  "Exception on connection handler with ID %s for client %s: %s",
+                  getName(), socket.getInetAddress().getHostAddress(), e));
+    } finally {
+      this.processingThread = null;
     }
-    return result;
+    if (this.status == ConnectionStatus.TERMINATED) {
+      try {
+        this.connectionMetadata.close();
+      } catch (Exception ignore) {
+        // Closing the socket below will also close the streams.
+      }
+      closeConnection();
+      return false;
+    }
+    return true;
+  }
+
+  /** Closes the Spanner connection and the socket of this handler and deregisters the handler. */
+  private void closeConnection() {
+    logger.log(Level.INFO, () -> String.format("Closing connection handler with ID %s", getName()));
+    try {
+      if (this.spannerConnection != null) {
+        this.spannerConnection.close();
+      }
+      this.socket.close();
+    } catch (SpannerException | IOException e) {
+      logger.log(
+          Level.WARNING,
+          e,
+          () -> String.format("Exception while closing connection handler with ID %s", getName()));
+    } finally {
+      if (this.admitted) {
+        this.admitted = false;
+        this.server.getConnectionAdmissionController().release();
+      }
+    }
+    this.server.deregister(this);
+    logger.log(Level.INFO, () -> String.format("Connection handler with ID %s closed", getName()));
   }
 
   boolean checkValidConnection(boolean ssl) throws Exception {
@@ -440,6 +638,44 @@ public class ConnectionHandler extends Thread {
     } catch (Exception exception) {
       this.handleError(PGExceptionFactory.toPGException(exception));
     }
+    // Flush any output that was held back before waiting for the next message from the client.
+    if (this.outputCorked
+        && this.status != ConnectionStatus.TERMINATED
+        && this.connectionMetadata.getInputStream().available() == 0) {
+      flushCorkedOutput();
+    }
+  }
+
+  /**
+   * Flushes any output that was held back after a Sync message. This is also called before
+   * statements are executed on Cloud Spanner, so the client does not have to wait for the round
+   * trip of the next pipelined query before it receives the results of the previous query.
+   */
+  public void flushCorkedOutput() throws IOException {
+    if (this.outputCorked) {
+      this.outputCorked = false;
+      this.connectionMetadata.getOutputStream().flush();
+    }
+  }
+
+  /**
+   * Flushes the output to the client after a Sync message. The output is held back if the client
+   * has already sent more messages and the flush policy allows corking. The responses to multiple
+   * pipelined Sync messages are then sent to the client with a single write. Any output that is
+   * held back is flushed by {@link #flushCorkedOutput()} before the connection executes statements
+   * on Cloud Spanner or waits for more messages.
+   */
+  public void flushAfterSync() throws IOException {
+    FlushPolicy flushPolicy = this.server.getFlushPolicy();
+    if (flushPolicy != null
+        && flushPolicy.isCorkPipelinedSyncs()
+        && this.connectionMetadata.getInputStream().available() > 0) {
+      this.outputCorked = true;
+      flushPolicy.recordCorkedSync();
+    } else {
+      this.outputCorked = false;
+      this.connectionMetadata.getOutputStream().flush();
+    }
   }
 
   /** Called when a Terminate message is received. This closes this {@link ConnectionHandler}. */
@@ -583,7 +819,12 @@ public class ConnectionHandler extends Thread {
     // otherwise)
     try {
       connectionToCancel.getSpannerConnection().cancel();
-      connectionToCancel.interrupt();
+      Thread processingThread = connectionToCancel.processingThread;
+      if (processingThread != null) {
+        processingThread.interrupt();
+      } else {
+        connectionToCancel.interrupt();
+      }
       return true;
     } catch (Throwable ignore) {
     }
@@ -604,15 +845,60 @@ public class ConnectionHandler extends Thread {
 
   /**
    * Returns the parameter types of a cached auto-described statement, or null if none is available
-   * in the cache.
+   * in the cache. Statements that have been described by this connection are taken from the cache
+   * of this connection, and statements that have been described by any other connection to the same
+   * database are taken from the server-wide cache.
    */
-  public Future<DescribeResult> getAutoDescribedStatement(String sql) {
-    return this.autoDescribedStatementsCache.getIfPresent(sql);
+  public ListenableFuture<DescribeResult> getAutoDescribedStatement(
+      String sql, int[] givenParameterTypes) {
+    DescribeResultCache describeResultCache = getDescribeResultCache();
+    if (describeResultCache == null) {
+      return this.autoDescribedStatementsCache.getIfPresent(sql);
+    }
+    long generation = describeResultCache.getGeneration();
+    if (generation != this.describeResultCacheGeneration) {
+      // The schema has been changed through another connection.
+      this.autoDescribedStatementsCache.invalidateAll();
+      this.describeResultCacheGeneration = generation;
+    }
+    ListenableFuture<DescribeResult> result = this.autoDescribedStatementsCache.getIfPresent(sql);
+    if (result == null) {
+      result = describeResultCache.get(this.databaseId, sql, givenParameterTypes);
+      if (result != null) {
+        // Keep the shared result in the cache of this connection, so later executions on this
+        // connection do not need to look it up (and count it as a saved round trip) again.
+        this.autoDescribedStatementsCache.put(sql, result);
+      }
+    }
+    return result;
   }
 
   /** Stores the parameter types of an auto-described statement in the cache. */
-  public void registerAutoDescribedStatement(String sql, Future<DescribeResult> describeResult) {
+  public void registerAutoDescribedStatement(
+      String sql, int[] givenParameterTypes, ListenableFuture<DescribeResult> describeResult) {
     this.autoDescribedStatementsCache.put(sql, describeResult);
+    DescribeResultCache describeResultCache = getDescribeResultCache();
+    if (describeResultCache != null) {
+      describeResultCache.put(this.databaseId, sql, givenParameterTypes, describeResult);
+    }
+  }
+
+  /**
+   * Invalidates all cached describe results for the database of this connection. This is called
+   * when the schema of the database is changed through this connection.
+   */
+  public void invalidateDescribeResults() {
+    this.autoDescribedStatementsCache.invalidateAll();
+    DescribeResultCache describeResultCache = getDescribeResultCache();
+    if (describeResultCache != null) {
+      describeResultCache.invalidate(this.databaseId);
+      this.describeResultCacheGeneration = describeResultCache.getGeneration();
+    }
+  }
+
+  @Nullable
+  private DescribeResultCache getDescribeResultCache() {
+    return this.server == null ? null : this.server.getDescribeResultCache();
   }
 
   public void closeStatement(String statementName) {
@@ -642,6 +928,25 @@ public class ConnectionHandler extends Thread {
     this.activeCopyStatement = null;
   }
 
+  /**
+   * Called when this connection starts to receive COPY data from the client. A connection that is
+   * served by the non-blocking front end keeps its worker thread until the COPY operation has
+   * finished, so the worker pool is given an additional thread until {@link #endCopyIn()} is
+   * called.
+   */
+  public void beginCopyIn() {
+    if (this.nioConnection != null) {
+      this.nioConnection.beginBlockingOperation();
+    }
+  }
+
+  /** Called when a COPY operation that was started with {@link #beginCopyIn()} has finished. */
+  public void endCopyIn() {
+    if (this.nioConnection != null) {
+      this.nioConnection.endBlockingOperation();
+    }
+  }
+
   public boolean hasStatement(String statementName) {
     return this.statementsMap.containsKey(statementName);
   }
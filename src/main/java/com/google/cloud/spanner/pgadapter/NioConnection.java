@@ -0,0 +1,538 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import com.google.cloud.spanner.pgadapter.metadata.ConnectionMetadata;
+import com.google.cloud.spanner.pgadapter.utils.SslEngineStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLEngine;
+
+/**
+ * A client connection that is served by a {@link NioEventLoop}. Incoming bytes are buffered in
+ * memory by the event loop, and the connection is handed to a worker thread when the buffer
+ * contains at least one complete wire-protocol message. The worker thread then runs the normal
+ * message handling logic of the {@link ConnectionHandler} against an {@link InputStream} that reads
+ * from the in-memory buffer. An idle connection therefore only costs its (small) buffers, and not a
+ * thread.
+ *
+ * <p>A worker thread that needs more data than a single message, for example during a COPY
+ * operation, will block until the event loop has received more data. The worker pool is given an
+ * additional thread while a connection is in a COPY operation, so connections that are copying data
+ * do not reduce the number of workers that are available for other connections.
+ *
+ * <p>The input of an SSL connection is encrypted, so the event loop cannot see where a message
+ * ends. The event loop hands the connection to a worker when it has received any data, and the
+ * worker decrypts the data that has been received without waiting for the client. The worker only
+ * handles the next message when it has been decrypted completely. A client that sends a partial
+ * TLS record or message therefore does not block a worker thread.
+ */
+final class NioConnection {
+  /** The initial size of the input buffer. The buffer is shrunk back to this size when idle. */
+  private static final int INITIAL_BUFFER_SIZE = 1 << 12;
+  /** The buffer size of the output stream that is created for the {@link ConnectionHandler}. */
+  static final int OUTPUT_BUFFER_SIZE = 1 << 13;
+  /**
+   * The event loop stops reading from the socket if the buffer contains more than this number of
+   * bytes and at least one complete message. Reading resumes when the buffer has been drained to
+   * less than half of this size.
+   */
+  private static final int MAX_BUFFERED_BYTES = 1 << 20;
+  /**
+   * The maximum number of messages that a worker handles for a connection before it gives other
+   * connections a chance to run.
+   */
+  private static final int MAX_MESSAGES_PER_RUN = 64;
+
+  private final SocketChannel channel;
+  private final NioEventLoop eventLoop;
+  private final ThreadPoolExecutor workers;
+  private final ConnectionHandler handler;
+  /** Only accessed by the event loop thread. */
+  private SelectionKey selectionKey;
+
+  /** Set when the connection has been handed to a worker thread. */
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  /** Set when the handler has closed the connection. */
+  private volatile boolean closed;
+
+  private volatile boolean expectingBootstrapMessage = true;
+  /** Decrypts the input of this connection if the client requested SSL. */
+  @Nullable private volatile SslEngineStreams sslEngineStreams;
+  /** The header of the next decrypted message. Only used by the worker of this connection. */
+  private final byte[] decryptedHeader = new byte[5];
+
+  private final Object inputLock = new Object();
+  private byte[] input = new byte[INITIAL_BUFFER_SIZE];
+  private int readPosition;
+  private int writePosition;
+  /** The position of the current mark of the input stream, or -1 if there is no mark. */
+  private int markPosition = -1;
+
+  private int markLimit;
+  private boolean endOfStream;
+  private boolean readSuspended;
+
+  private final Object writeLock = new Object();
+  private boolean writable = true;
+
+  NioConnection(
+      SocketChannel channel,
+      NioEventLoop eventLoop,
+      ThreadPoolExecutor workers,
+      ConnectionHandler handler) {
+    this.channel = channel;
+    this.eventLoop = eventLoop;
+    this.workers = workers;
+    this.handler = handler;
+    handler.initNonBlocking(
+        this,
+        ConnectionMetadata.createForBufferedInputStream(
+            new ChannelInputStream(), new ChannelOutputStream(), OUTPUT_BUFFER_SIZE));
+  }
+
+  /**
+   * Starts encrypting this connection with the given engine. Returns the streams that decrypt the
+   * input and encrypt the output of this connection.
+   */
+  SslEngineStreams startSsl(SSLEngine engine) {
+    SslEngineStreams streams =
+        new SslEngineStreams(engine, new ChannelInputStream(), new ChannelOutputStream());
+    this.sslEngineStreams = streams;
+    return streams;
+  }
+
+  /**
+   * Called when the handler starts an operation that keeps the current worker thread busy until
+   * the client has sent all data for the operation, such as COPY FROM STDIN. The worker pool is
+   * given an additional thread until {@link #endBlockingOperation()} is called.
+   */
+  void beginBlockingOperation() {
+    resizeWorkers(1);
+  }
+
+  /** Called when an operation that was started with {@link #beginBlockingOperation()} ends. */
+  void endBlockingOperation() {
+    resizeWorkers(-1);
+  }
+
+  private void resizeWorkers(int delta) {
+    // All connections of a server share the same pool.
+    synchronized (workers) {
+      int size = workers.getCorePoolSize() + delta;
+      // The core pool size may not exceed the maximum pool size.
+      if (delta > 0) {
+        workers.setMaximumPoolSize(size);
+        workers.setCorePoolSize(size);
+      } else {
+        workers.setCorePoolSize(size);
+        workers.setMaximumPoolSize(size);
+      }
+    }
+  }
+
+  SocketChannel getChannel() {
+    return channel;
+  }
+
+  void setSelectionKey(SelectionKey selectionKey) {
+    this.selectionKey = selectionKey;
+  }
+
+  /** Called by the event loop when the socket has data available. */
+  void onReadable(ByteBuffer buffer) {
+    int read;
+    buffer.clear();
+    try {
+      read = channel.read(buffer);
+    } catch (IOException ioException) {
+      read = -1;
+    }
+    if (read == -1) {
+      selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_READ);
+      closeInput();
+      return;
+    }
+    if (read == 0) {
+      return;
+    }
+    buffer.flip();
+    synchronized (inputLock) {
+      ensureCapacity(read);
+      buffer.get(input, writePosition, read);
+      writePosition += read;
+      if (writePosition - readPosition >= MAX_BUFFERED_BYTES && hasCompleteMessage()) {
+        selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_READ);
+        readSuspended = true;
+      }
+      inputLock.notifyAll();
+    }
+    maybeSchedule();
+  }
+
+  /** Called by the event loop when the socket can accept more outgoing data. */
+  void onWritable() {
+    selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_WRITE);
+    signalWritable();
+  }
+
+  /** Marks the input of this connection as closed and wakes up any waiting worker. */
+  void closeInput() {
+    synchronized (inputLock) {
+      endOfStream = true;
+      inputLock.notifyAll();
+    }
+    signalWritable();
+    maybeSchedule();
+  }
+
+  private void signalWritable() {
+    synchronized (writeLock) {
+      writable = true;
+      writeLock.notifyAll();
+    }
+  }
+
+  private void ensureCapacity(int length) {
+    if (writePosition + length <= input.length) {
+      return;
+    }
+    // Keep any marked data in the buffer.
+    int start = markPosition >= 0 ? markPosition : readPosition;
+    int buffered = writePosition - start;
+    byte[] target = input;
+    if (buffered + length > input.length) {
+      target = new byte[Math.max(input.length * 2, buffered + length)];
+    }
+    System.arraycopy(input, start, target, 0, buffered);
+    input = target;
+    readPosition -= start;
+    if (markPosition >= 0) {
+      markPosition = 0;
+    }
+    writePosition = buffered;
+  }
+
+  /**
+   * Returns true if the buffer contains at least one complete message. For an SSL connection, this
+   * returns true if the buffer contains any data, as that data must first be decrypted by a worker.
+   */
+  private boolean hasCompleteMessage() {
+    synchronized (inputLock) {
+      if (sslEngineStreams != null) {
+        return writePosition > readPosition;
+      }
+      int buffered = writePosition - readPosition;
+      return isCompleteMessage(input, readPosition, buffered, buffered);
+    }
+  }
+
+  /**
+   * Returns true if the given header belongs to a complete message.
+   *
+   * @param header the buffer that contains the header of the message
+   * @param offset the offset of the header in the buffer
+   * @param headerBytes the number of bytes of the header that are in the buffer
+   * @param buffered the number of bytes of the message that have been received
+   */
+  private boolean isCompleteMessage(byte[] header, int offset, int headerBytes, int buffered) {
+    // Bootstrap messages do not start with a message type byte.
+    int headerLength = expectingBootstrapMessage ? 4 : 5;
+    if (headerBytes < headerLength) {
+      return false;
+    }
+    int lengthPosition = offset + headerLength - 4;
+    int length =
+        ((header[lengthPosition] & 0xff) << 24)
+            | ((header[lengthPosition + 1] & 0xff) << 16)
+            | ((header[lengthPosition + 2] & 0xff) << 8)
+            | (header[lengthPosition + 3] & 0xff);
+    if (length < 4 || (expectingBootstrapMessage && length > MAX_BUFFERED_BYTES)) {
+      // Let the handler deal with the invalid message.
+      return true;
+    }
+    return buffered >= (long) headerLength - 4 + length;
+  }
+
+  /** Returns true if the next decrypted message has been decrypted completely. */
+  private boolean hasCompleteDecryptedMessage(SslEngineStreams streams) {
+    if (streams.isInputFinished()) {
+      // Let the handler deal with the end of the stream or the TLS error.
+      return true;
+    }
+    int headerBytes = streams.peekDecryptedInput(decryptedHeader);
+    return isCompleteMessage(decryptedHeader, 0, headerBytes, streams.getDecryptedAvailable());
+  }
+
+  private boolean isReadyForProcessing() {
+    synchronized (inputLock) {
+      return endOfStream || hasCompleteMessage();
+    }
+  }
+
+  /**
+   * Returns true if the worker can handle the next message without waiting for the client. The
+   * input of an SSL connection is decrypted up to the end of the next message.
+   */
+  private boolean isReadyForNextMessage() {
+    SslEngineStreams streams = this.sslEngineStreams;
+    if (streams == null) {
+      return isReadyForProcessing();
+    }
+    while (!hasCompleteDecryptedMessage(streams) && streams.tryDecrypt()) {
+      // Continue decrypting until the next message is complete or more data is needed.
+    }
+    synchronized (inputLock) {
+      if (endOfStream) {
+        return true;
+      }
+    }
+    return hasCompleteDecryptedMessage(streams);
+  }
+
+  private void maybeSchedule() {
+    if (!closed && isReadyForProcessing() && scheduled.compareAndSet(false, true)) {
+      submit();
+    }
+  }
+
+  private void submit() {
+    try {
+      workers.execute(this::processMessages);
+    } catch (RejectedExecutionException rejectedExecutionException) {
+      // The server is shutting down.
+      scheduled.set(false);
+    }
+  }
+
+  /** Handles all complete messages in the buffer. This method is executed by a worker thread. */
+  private void processMessages() {
+    int handled = 0;
+    while (true) {
+      while (isReadyForNextMessage()) {
+        if (handled == MAX_MESSAGES_PER_RUN) {
+          // Re-submit this connection to give other connections a chance to run.
+          submit();
+          return;
+        }
+        boolean open = handler.handleNextMessage();
+        // Clear any interrupt that was raised by a cancel request for this connection, so it is not
+        // carried over to another connection that is handled by this worker.
+        Thread.interrupted();
+        if (!open) {
+          closed = true;
+          closeInput();
+          return;
+        }
+        expectingBootstrapMessage = handler.isExpectingBootstrapMessage();
+        handled++;
+      }
+      scheduled.set(false);
+      // Check again to prevent a lost wakeup if data was received after the last check.
+      if (!isReadyForProcessing() || !scheduled.compareAndSet(false, true)) {
+        return;
+      }
+    }
+  }
+
+  private void resumeReading() {
+    if (selectionKey != null && selectionKey.isValid()) {
+      selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_READ);
+    }
+  }
+
+  private void enableWriteInterest() {
+    if (selectionKey != null && selectionKey.isValid()) {
+      selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
+    } else {
+      signalWritable();
+    }
+  }
+
+  /**
+   * {@link InputStream} that reads from the in-memory buffer of this connection. The stream
+   * supports mark/reset, so it does not need to be wrapped in a buffered stream.
+   */
+  private final class ChannelInputStream extends InputStream
+      implements ConnectionMetadata.InputWaiter {
+    @Override
+    public int read() throws IOException {
+      synchronized (inputLock) {
+        if (!awaitInput()) {
+          return -1;
+        }
+        int result = input[readPosition++] & 0xff;
+        afterRead();
+        return result;
+      }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      synchronized (inputLock) {
+        if (!awaitInput()) {
+          return -1;
+        }
+        int result = Math.min(length, writePosition - readPosition);
+        System.arraycopy(input, readPosition, buffer, offset, result);
+        readPosition += result;
+        afterRead();
+        return result;
+      }
+    }
+
+    @Override
+    public int available() {
+      synchronized (inputLock) {
+        return writePosition - readPosition;
+      }
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+      synchronized (inputLock) {
+        markPosition = readPosition;
+        markLimit = readLimit;
+      }
+    }
+
+    @Override
+    public void reset() throws IOException {
+      synchronized (inputLock) {
+        if (markPosition < 0) {
+          throw new IOException("Resetting to invalid mark");
+        }
+        readPosition = markPosition;
+      }
+    }
+
+    @Override
+    public boolean awaitInput(long maxWaitMillis) throws InterruptedIOException {
+      synchronized (inputLock) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (writePosition == readPosition && !endOfStream) {
+          long remainingNanos = deadline - System.nanoTime();
+          if (remainingNanos <= 0L) {
+            return false;
+          }
+          try {
+            TimeUnit.NANOSECONDS.timedWait(inputLock, remainingNanos);
+          } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data from the client");
+          }
+        }
+        return writePosition > readPosition;
+      }
+    }
+
+    /** Waits until data is available. Returns false if the end of the stream has been reached. */
+    private boolean awaitInput() throws InterruptedIOException {
+      while (writePosition == readPosition) {
+        if (endOfStream) {
+          return false;
+        }
+        try {
+          inputLock.wait();
+        } catch (InterruptedException interruptedException) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for data from the client");
+        }
+      }
+      return true;
+    }
+
+    private void afterRead() {
+      if (markPosition >= 0 && readPosition - markPosition > markLimit) {
+        markPosition = -1;
+      }
+      if (readPosition == writePosition && markPosition < 0) {
+        readPosition = 0;
+        writePosition = 0;
+        if (input.length > INITIAL_BUFFER_SIZE) {
+          input = new byte[INITIAL_BUFFER_SIZE];
+        }
+      }
+      if (readSuspended && writePosition - readPosition < MAX_BUFFERED_BYTES / 2) {
+        readSuspended = false;
+        eventLoop.execute(NioConnection.this::resumeReading);
+      }
+    }
+  }
+
+  /**
+   * {@link OutputStream} that writes directly to the non-blocking channel of this connection. The
+   * calling thread waits for the event loop to signal that the channel is writable if the socket
+   * send buffer is full.
+   */
+  private final class ChannelOutputStream extends OutputStream {
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+      ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, offset, length);
+      synchronized (writeLock) {
+        while (byteBuffer.hasRemaining()) {
+          if (channel.write(byteBuffer) == 0) {
+            awaitWritable();
+          }
+        }
+      }
+    }
+
+    private void awaitWritable() throws IOException {
+      writable = false;
+      eventLoop.execute(NioConnection.this::enableWriteInterest);
+      while (!writable) {
+        try {
+          writeLock.wait();
+        } catch (InterruptedException interruptedException) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for the client");
+        }
+      }
+      if (!channel.isOpen()) {
+        throw new ClosedChannelException();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Selector-based I/O thread for connections that are served using non-blocking I/O. Each event loop
+ * serves a set of {@link NioConnection}s. The event loop only reads incoming bytes into the buffer
+ * of the connection and writes outgoing bytes when the socket becomes writable again. The actual
+ * handling of the messages is done by a worker thread once a complete message has been received.
+ */
+final class NioEventLoop implements Runnable {
+  private static final Logger logger = Logger.getLogger(NioEventLoop.class.getName());
+  private static final int READ_BUFFER_SIZE = 1 << 16;
+
+  private final Selector selector;
+  private final Thread thread;
+  /** Tasks that must be executed on the event loop thread, such as changing the interest set. */
+  private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  /** Buffer that is shared by all connections of this event loop for reading from a socket. */
+  private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+  private volatile boolean running = true;
+
+  NioEventLoop(String name) throws IOException {
+    this.selector = Selector.open();
+    this.thread = new Thread(this, name);
+    this.thread.setDaemon(true);
+  }
+
+  void start() {
+    this.thread.start();
+  }
+
+  /** Stops this event loop and signals end-of-stream to all connections that it is serving. */
+  void shutdown() {
+    this.running = false;
+    this.selector.wakeup();
+  }
+
+  /** Registers a connection with this event loop and starts reading from it. */
+  void register(NioConnection connection) {
+    execute(
+        () -> {
+          try {
+            connection.setSelectionKey(
+                connection.getChannel().register(selector, SelectionKey.OP_READ, connection));
+          } catch (ClosedChannelException closedChannelException) {
+            connection.closeInput();
+          }
+        });
+  }
+
+  /** Executes the given task on the event loop thread. */
+  void execute(Runnable task) {
+    tasks.add(task);
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (running) {
+        selector.select();
+        runTasks();
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+          SelectionKey key = iterator.next();
+          iterator.remove();
+          NioConnection connection = (NioConnection) key.attachment();
+          try {
+            if (key.isValid() && key.isWritable()) {
+              connection.onWritable();
+            }
+            if (key.isValid() && key.isReadable()) {
+              connection.onReadable(readBuffer);
+            }
+          } catch (CancelledKeyException ignore) {
+            // The connection was closed by a worker thread.
+            connection.closeInput();
+          }
+        }
+      }
+    } catch (IOException | ClosedSelectorException exception) {
+      logger.log(
+          Level.WARNING,
+          exception,
+          () ->
+              String.format("Event loop %s stopped by exception: %s", thread.getName(), exception));
+    } finally {
+      close();
+    }
+  }
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      try {
+        task.run();
+      } catch (CancelledKeyException ignore) {
+        // The channel was closed after the task was submitted.
+      }
+    }
+  }
+
+  private void close() {
+    try {
+      for (SelectionKey key : selector.keys()) {
+        ((NioConnection) key.attachment()).closeInput();
+      }
+      selector.close();
+    } catch (IOException | ClosedSelectorException ignore) {
+      // Ignore, the event loop is stopping.
+    }
+  }
+}
@@ -21,17 +21,34 @@ import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.connection.SpannerPool;
 import com.google.cloud.spanner.pgadapter.ConnectionHandler.QueryMode;
+import com.google.cloud.spanner.pgadapter.metadata.DescribeResultCache;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.TextFormat;
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
+import com.google.cloud.spanner.pgadapter.statements.ParsedStatementCache;
+import com.google.cloud.spanner.pgadapter.utils.ConnectionAdmissionController;
+import com.google.cloud.spanner.pgadapter.utils.CopyCommitExecutor;
+import com.google.cloud.spanner.pgadapter.utils.FlushPolicy;
+import com.google.cloud.spanner.pgadapter.utils.ResultPrefetcher;
+import com.google.cloud.spanner.pgadapter.utils.SslEngineFactory;
+import com.google.cloud.spanner.pgadapter.utils.ThreadFactories;
+import com.google.cloud.spanner.pgadapter.utils.UnixDomainSocketChannels;
 import com.google.cloud.spanner.pgadapter.wireprotocol.WireMessage;
 import com.google.common.collect.ImmutableList;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketOption;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -39,10 +56,14 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import org.newsclub.net.unix.AFUNIXServerSocket;
 import org.newsclub.net.unix.AFUNIXSocketAddress;
 
@@ -68,12 +89,56 @@ public class ProxyServer extends AbstractApiService {
    * of each type.
    */
   private final List<ServerSocket> serverSockets = Collections.synchronizedList(new LinkedList<>());
+  /**
+   * List of server socket channels accepting connections that do not have a {@link ServerSocket}.
+   * This contains the Unix domain socket if the JDK built-in Unix domain sockets are used.
+   */
+  private final List<ServerSocketChannel> serverSocketChannels =
+      Collections.synchronizedList(new LinkedList<>());
 
   private int localPort;
 
+  /**
+   * The selector threads and the worker pool that are used to serve TCP connections using
+   * non-blocking I/O. These are only created if non-blocking I/O has been enabled.
+   */
+  private ImmutableList<NioEventLoop> nioEventLoops = ImmutableList.of();
+
+  private ThreadPoolExecutor nioWorkers;
+
+  /**
+   * The factory that is used to create the threads for connection handlers if virtual threads have
+   * been enabled. Connection handlers are started as platform threads if this is null.
+   */
+  private final ThreadFactory connectionThreadFactory;
+  /** Server-wide cache of parsed SQL strings, or null if the cache has been disabled. */
+  @Nullable private final ParsedStatementCache parsedStatementCache;
+  /**
+   * Server-wide cache of auto-describe results, or null if describe results are only cached per
+   * connection.
+   */
+  @Nullable private final DescribeResultCache describeResultCache;
+  /**
+   * Limits the number of connections that can be connected to Cloud Spanner at the same time, or
+   * null if there is no limit.
+   */
+  @Nullable private final ConnectionAdmissionController connectionAdmissionController;
+  /** Decides when the output of a connection is flushed, and keeps statistics on writes. */
+  private final FlushPolicy flushPolicy;
+  /** Reads query results ahead on background threads, or null if this has been disabled. */
+  @Nullable private final ResultPrefetcher resultPrefetcher;
+  /** Executes the COPY operations and their commits for all connections. */
+  private final CopyCommitExecutor copyCommitExecutor;
+  /** Creates the SSL engines for SSL connections. This is created for the first SSL connection. */
+  private volatile SslEngineFactory sslEngineFactory;
+
+  private final AtomicInteger nextNioEventLoop = new AtomicInteger();
+
   /** The server will keep track of all messages it receives if it started in DEBUG mode. */
   private static final int MAX_DEBUG_MESSAGES = 100_000;
 
+  private static final long DESCRIBE_RESULT_CACHE_SIZE = 10_000L;
+
   private final boolean debugMode;
   private final ConcurrentLinkedQueue<WireMessage> debugMessages = new ConcurrentLinkedQueue<>();
   private final AtomicInteger debugMessageCount = new AtomicInteger();
@@ -88,6 +153,27 @@ public class ProxyServer extends AbstractApiService {
     this.localPort = optionsMetadata.getProxyPort();
     this.properties = new Properties();
     this.debugMode = optionsMetadata.isDebugMode();
+    this.connectionThreadFactory =
+        optionsMetadata.useVirtualThreads()
+            ? ThreadFactories.createDaemon("spanner-postgres-adapter-connection-", true)
+            : null;
+    this.parsedStatementCache =
+        optionsMetadata.getStatementCacheSize() > 0
+            ? new ParsedStatementCache(optionsMetadata, optionsMetadata.getStatementCacheSize())
+            : null;
+    this.describeResultCache =
+        optionsMetadata.isDescribeCacheEnabled()
+            ? new DescribeResultCache(
+                DESCRIBE_RESULT_CACHE_SIZE,
+                Duration.ofSeconds(optionsMetadata.getDescribeCacheTtlSeconds()))
+            : null;
+    this.connectionAdmissionController = createConnectionAdmissionController(optionsMetadata);
+    this.flushPolicy = FlushPolicy.create(optionsMetadata);
+    this.resultPrefetcher = ResultPrefetcher.create(optionsMetadata);
+    this.copyCommitExecutor = CopyCommitExecutor.create(optionsMetadata);
+    if (optionsMetadata.getSslMode().isSslEnabled()) {
+      SslEngineFactory.checkSessionTickets(optionsMetadata.getSslSessionTickets());
+    }
     addConnectionProperties();
   }
 
@@ -104,9 +190,42 @@ public class ProxyServer extends AbstractApiService {
     this.localPort = optionsMetadata.getProxyPort();
     this.properties = properties;
     this.debugMode = optionsMetadata.isDebugMode();
+    this.connectionThreadFactory =
+        optionsMetadata.useVirtualThreads()
+            ? ThreadFactories.createDaemon("spanner-postgres-adapter-connection-", true)
+            : null;
+    this.parsedStatementCache =
+        optionsMetadata.getStatementCacheSize() > 0
+            ? new ParsedStatementCache(optionsMetadata, optionsMetadata.getStatementCacheSize())
+            : null;
+    this.describeResultCache =
+        optionsMetadata.isDescribeCacheEnabled()
+            ? new DescribeResultCache(
+                DESCRIBE_RESULT_CACHE_SIZE,
+                Duration.ofSeconds(optionsMetadata.getDescribeCacheTtlSeconds()))
+            : null;
+    this.connectionAdmissionController = createConnectionAdmissionController(optionsMetadata);
+    this.flushPolicy = FlushPolicy.create(optionsMetadata);
+    this.resultPrefetcher = ResultPrefetcher.create(optionsMetadata);
+    this.copyCommitExecutor = CopyCommitExecutor.create(optionsMetadata);
+    if (optionsMetadata.getSslMode().isSslEnabled()) {
+      SslEngineFactory.checkSessionTickets(optionsMetadata.getSslSessionTickets());
+    }
     addConnectionProperties();
   }
 
+  @Nullable
+  private static ConnectionAdmissionController createConnectionAdmissionController(
+      OptionsMetadata options) {
+    if (options.getMaxConnections() == 0) {
+      return null;
+    }
+    return new ConnectionAdmissionController(
+        options.getMaxConnections(),
+        options.getMaxConnectionQueue(),
+        Duration.ofMillis(options.getMaxConnectionWaitMillis()));
+  }
+
   private void addConnectionProperties() {
     for (Map.Entry<String, String> entry : options.getPropertyMap().entrySet()) {
       properties.setProperty(entry.getKey(), entry.getValue());
@@ -128,6 +247,9 @@ public class ProxyServer extends AbstractApiService {
   @Override
   protected void doStart() {
     try {
+      if (options.isNonBlockingIOEnabled() || useUnixDomainSocketChannels()) {
+        startNonBlockingIO();
+      }
       ImmutableList.Builder<ServerRunnable> serverSocketsBuilder = ImmutableList.builder();
       boolean allowRemoteConnections =
           options.disableLocalhostCheck() || options.getSslMode().isSslEnabled();
@@ -201,9 +323,31 @@ public class ProxyServer extends AbstractApiService {
             () -> String.format("Closing server socket %s failed: %s", serverSocket, exception));
       }
     }
+    for (ServerSocketChannel serverSocketChannel : this.serverSocketChannels) {
+      try {
+        serverSocketChannel.close();
+      } catch (IOException exception) {
+        logger.log(
+            Level.WARNING,
+            exception,
+            () ->
+                String.format(
+                    "Closing server socket channel %s failed: %s", serverSocketChannel, exception));
+      }
+    }
     for (ConnectionHandler handler : getConnectionHandlers()) {
       handler.terminate();
     }
+    for (NioEventLoop eventLoop : this.nioEventLoops) {
+      eventLoop.shutdown();
+    }
+    if (this.nioWorkers != null) {
+      this.nioWorkers.shutdown();
+    }
+    if (this.resultPrefetcher != null) {
+      this.resultPrefetcher.shutdown();
+    }
+    this.copyCommitExecutor.shutdown();
     try {
       SpannerPool.closeSpannerPool();
     } catch (Throwable ignore) {
@@ -234,19 +378,129 @@ public class ProxyServer extends AbstractApiService {
       throw SpannerExceptionFactory.newSpannerException(
           ErrorCode.DEADLINE_EXCEEDED, "Timeout while waiting for TCP server to start");
     }
-    ServerSocket tcpSocket =
-        new ServerSocket(
-            this.localPort == 0 ? this.options.getProxyPort() : this.localPort,
-            this.options.getMaxBacklog(),
-            address);
-    // Optimize for latency (2), then bandwidth (1) and then connection time (0).
-    tcpSocket.setPerformancePreferences(0, 2, 1);
-    this.serverSockets.add(tcpSocket);
+    int port = this.localPort == 0 ? this.options.getProxyPort() : this.localPort;
+    int acceptorThreads = options.getNumAcceptorThreads();
+    List<ServerSocket> tcpSockets = createTcpServerSockets(address, port, acceptorThreads);
+    for (ServerSocket tcpSocket : tcpSockets) {
+      // Optimize for latency (2), then bandwidth (1) and then connection time (0).
+      tcpSocket.setPerformancePreferences(0, 2, 1);
+      this.serverSockets.add(tcpSocket);
+    }
+    ServerSocket tcpSocket = tcpSockets.get(0);
     this.localPort = tcpSocket.getLocalPort();
     tcpStartedLatch.countDown();
+    // Start the additional acceptors. These either use their own socket, or share the first socket
+    // if the operating system does not support SO_REUSEPORT.
+    for (int i = 1; i < acceptorThreads; i++) {
+      ServerSocket acceptorSocket = tcpSockets.get(i < tcpSockets.size() ? i : 0);
+      Thread acceptorThread =
+          new Thread("spanner-postgres-adapter-proxy-acceptor-" + i) {
+            @Override
+            public void run() {
+              try {
+                acceptConnections(acceptorSocket);
+              } catch (Exception exception) {
+                logger.log(
+                    Level.WARNING,
+                    exception,
+                    () ->
+                        String.format(
+                            "Acceptor on socket %s stopped by exception: %s",
+                            acceptorSocket, exception));
+              }
+            }
+          };
+      acceptorThread.start();
+    }
     runServer(tcpSocket, startupLatch, stoppedLatch);
   }
 
+  /**
+   * Creates and binds the server sockets for a TCP address. This returns one socket per acceptor
+   * thread if more than one acceptor thread is requested and the operating system supports
+   * SO_REUSEPORT. Otherwise, a single socket is returned that is shared by all acceptor threads.
+   * SO_REUSEPORT is only enabled if more than one acceptor thread is requested, as it also allows
+   * other processes of the same user to bind to the same port. All sockets that have already been
+   * created are closed if one of them cannot be bound.
+   */
+  private List<ServerSocket> createTcpServerSockets(
+      @Nullable InetAddress address, int port, int acceptorThreads) throws IOException {
+    if (acceptorThreads > 1) {
+      ServerSocketChannel first = ServerSocketChannel.open();
+      SocketOption<Boolean> reusePort = getReusePortOption(first);
+      if (reusePort != null) {
+        List<ServerSocket> result = new ArrayList<>(acceptorThreads);
+        result.add(first.socket());
+        try {
+          first.setOption(reusePort, true);
+          bindTcpServerSocket(first.socket(), address, port);
+          for (int i = 1; i < acceptorThreads; i++) {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            result.add(channel.socket());
+            channel.setOption(reusePort, true);
+            bindTcpServerSocket(channel.socket(), address, first.socket().getLocalPort());
+          }
+        } catch (IOException | RuntimeException exception) {
+          closeAll(result, exception);
+          throw exception;
+        }
+        return result;
+      }
+      first.close();
+    }
+    ServerSocket tcpSocket;
+    if (options.isNonBlockingIOEnabled()) {
+      // Sockets that are accepted by a channel-based server socket have an associated channel that
+      // can be served by a NioEventLoop.
+      tcpSocket = ServerSocketChannel.open().socket();
+    } else {
+      tcpSocket = new ServerSocket();
+    }
+    try {
+      bindTcpServerSocket(tcpSocket, address, port);
+    } catch (IOException | RuntimeException exception) {
+      closeAll(ImmutableList.of(tcpSocket), exception);
+      throw exception;
+    }
+    return ImmutableList.of(tcpSocket);
+  }
+
+  /**
+   * Closes the given sockets after an error. Any error that occurs while closing a socket is added
+   * as a suppressed exception to the original error.
+   */
+  private static void closeAll(List<ServerSocket> sockets, Exception exception) {
+    for (ServerSocket socket : sockets) {
+      try {
+        socket.close();
+      } catch (IOException closeException) {
+        exception.addSuppressed(closeException);
+      }
+    }
+  }
+
+  private void bindTcpServerSocket(ServerSocket socket, @Nullable InetAddress address, int port)
+      throws IOException {
+    socket.bind(
+        address == null ? new InetSocketAddress(port) : new InetSocketAddress(address, port),
+        this.options.getMaxBacklog());
+  }
+
+  /**
+   * Returns the SO_REUSEPORT socket option if it is supported by the given channel, and otherwise
+   * null. The option is looked up by name, as it is only defined in Java 9 and higher.
+   */
+  @SuppressWarnings("unchecked")
+  @Nullable
+  static SocketOption<Boolean> getReusePortOption(ServerSocketChannel channel) {
+    for (SocketOption<?> option : channel.supportedOptions()) {
+      if ("SO_REUSEPORT".equals(option.name()) && option.type() == Boolean.class) {
+        return (SocketOption<Boolean>) option;
+      }
+    }
+    return null;
+  }
+
   void runDomainSocketServer(CountDownLatch startupLatch, CountDownLatch stoppedLatch)
       throws IOException, InterruptedException {
     // Wait until the TCP server has started if it is using a dynamic port, so we can get the port
@@ -260,6 +514,26 @@ public class ProxyServer extends AbstractApiService {
       if (tempDir.getParentFile() != null && !tempDir.getParentFile().exists()) {
         tempDir.mkdirs();
       }
+      if (options.useNativeDomainSockets()) {
+        if (useUnixDomainSocketChannels()) {
+          ServerSocketChannel domainSocketChannel;
+          try {
+            domainSocketChannel =
+                UnixDomainSocketChannels.openServerSocketChannel(
+                    tempDir, this.options.getMaxBacklog());
+          } catch (IOException ioException) {
+            // Also catch exceptions from deleting a file that was left behind by another process.
+            throw new SocketException(ioException.getMessage());
+          }
+          this.serverSocketChannels.add(domainSocketChannel);
+          runServer(domainSocketChannel, startupLatch, stoppedLatch);
+          return;
+        }
+        logger.log(
+            Level.WARNING,
+            "Unix domain socket channels are not supported on this JVM. "
+                + "Falling back to junixsocket.");
+      }
       AFUNIXServerSocket domainSocket = AFUNIXServerSocket.newInstance();
       domainSocket.bind(AFUNIXSocketAddress.of(tempDir), this.options.getMaxBacklog());
       // Optimize for latency (2), then bandwidth (1) and then connection time (0).
@@ -277,10 +551,62 @@ public class ProxyServer extends AbstractApiService {
     }
   }
 
+  /**
+   * Returns true if the Unix domain socket is opened as a server socket channel of the JDK.
+   * Connections on these channels are always served by the non-blocking front end, as the channels
+   * do not support the read timeouts and {@link java.io.InputStream#available()} checks that are
+   * used by the thread-per-connection handlers.
+   */
+  private boolean useUnixDomainSocketChannels() {
+    return options.isDomainSocketEnabled()
+        && options.useNativeDomainSockets()
+        && UnixDomainSocketChannels.isSupported();
+  }
+
   void runServer(
       ServerSocket serverSocket, CountDownLatch startupLatch, CountDownLatch stoppedLatch)
       throws IOException {
     startupLatch.countDown();
+    try {
+      acceptConnections(serverSocket);
+    } finally {
+      logger.log(Level.INFO, () -> String.format("Socket %s stopped", serverSocket));
+      stoppedLatch.countDown();
+    }
+  }
+
+  /**
+   * Accepts connections on a Unix domain server socket channel until the server is stopped. The
+   * accepted channels are wrapped in a {@link UnixDomainChannelSocket} and are served by the
+   * non-blocking front end.
+   */
+  void runServer(
+      ServerSocketChannel serverSocketChannel,
+      CountDownLatch startupLatch,
+      CountDownLatch stoppedLatch)
+      throws IOException {
+    startupLatch.countDown();
+    awaitRunning();
+    try {
+      while (isRunning()) {
+        createConnectionHandler(new UnixDomainChannelSocket(serverSocketChannel.accept()));
+      }
+    } catch (ClosedChannelException e) {
+      // This is a normal exception, as this will occur when Server#stopServer() is called.
+      logger.log(
+          Level.INFO,
+          () ->
+              String.format(
+                  "Channel %s closed: %s. This is normal when the server is stopped.",
+                  serverSocketChannel, e));
+    } finally {
+      logger.log(Level.INFO, () -> String.format("Channel %s stopped", serverSocketChannel));
+      stoppedLatch.countDown();
+    }
+  }
+
+  /** Accepts connections on the given server socket until the server is stopped. */
+  private void acceptConnections(ServerSocket serverSocket) throws IOException {
     awaitRunning();
     try {
       while (isRunning()) {
@@ -294,9 +620,6 @@ public class ProxyServer extends AbstractApiService {
               String.format(
                   "Socket exception on socket %s: %s. This is normal when the server is stopped.",
                   serverSocket, e));
-    } finally {
-      logger.log(Level.INFO, () -> String.format("Socket %s stopped", serverSocket));
-      stoppedLatch.countDown();
     }
   }
 
@@ -307,14 +630,69 @@ public class ProxyServer extends AbstractApiService {
    * @throws SpannerException if the {@link ConnectionHandler} is unable to connect to Cloud Spanner
    *     or if the dialect of the database is not PostgreSQL.
    */
-  void createConnectionHandler(Socket socket) throws SocketException {
+  void createConnectionHandler(Socket socket) throws IOException {
     // Optimize for latency (2), then bandwidth (1) and then connection time (0).
     socket.setPerformancePreferences(0, 2, 1);
     // Turn on TCP_NODELAY to optimize for chatty protocol that prefers low latency.
     socket.setTcpNoDelay(true);
     ConnectionHandler handler = new ConnectionHandler(this, socket);
     register(handler);
-    handler.start();
+    SocketChannel channel = socket.getChannel();
+    if (channel != null && !this.nioEventLoops.isEmpty()) {
+      channel.configureBlocking(false);
+      NioEventLoop eventLoop =
+          this.nioEventLoops.get(
+              Math.floorMod(nextNioEventLoop.getAndIncrement(), this.nioEventLoops.size()));
+      eventLoop.register(new NioConnection(channel, eventLoop, this.nioWorkers, handler));
+    } else if (this.connectionThreadFactory != null) {
+      this.connectionThreadFactory.newThread(handler).start();
+    } else {
+      handler.start();
+    }
+  }
+
+  /**
+   * Starts the selector threads and the worker pool for non-blocking I/O. One selector thread is
+   * started if non-blocking I/O is only used for Unix domain socket channels.
+   */
+  private void startNonBlockingIO() throws IOException {
+    // The pool has a fixed size, except while connections are executing a COPY operation.
+    this.nioWorkers =
+        new ThreadPoolExecutor(
+            options.getNumNioWorkerThreads(),
+            options.getNumNioWorkerThreads(),
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            ThreadFactories.createDaemon(
+                "spanner-postgres-adapter-nio-worker-", options.useVirtualThreads()));
+    ImmutableList.Builder<NioEventLoop> builder = ImmutableList.builder();
+    for (int i = 0; i < Math.max(1, options.getNumNioThreads()); i++) {
+      NioEventLoop eventLoop = new NioEventLoop("spanner-postgres-adapter-nio-" + i);
+      eventLoop.start();
+      builder.add(eventLoop);
+    }
+    this.nioEventLoops = builder.build();
+  }
+
+  /**
+   * Returns the factory for the SSL engines of incoming SSL connections. The factory is created when
+   * the first SSL connection is accepted, so an invalid keystore only causes SSL connections to
+   * fail.
+   */
+  SslEngineFactory getSslEngineFactory() throws IOException {
+    if (this.sslEngineFactory == null) {
+      synchronized (this) {
+        if (this.sslEngineFactory == null) {
+          try {
+            this.sslEngineFactory = SslEngineFactory.create(this.options);
+          } catch (GeneralSecurityException | IllegalArgumentException exception) {
+            throw new IOException(exception.getMessage(), exception);
+          }
+        }
+      }
+    }
+    return this.sslEngineFactory;
   }
 
   /** Returns an immutable copy of the current connection handlers at this server. */
@@ -344,6 +722,51 @@ public class ProxyServer extends AbstractApiService {
     return this.options;
   }
 
+  /**
+   * Returns the server-wide cache of parsed SQL strings, or null if the cache has been disabled.
+   */
+  @Nullable
+  public ParsedStatementCache getParsedStatementCache() {
+    return this.parsedStatementCache;
+  }
+
+  /**
+   * Returns the server-wide cache of auto-describe results, or null if describe results are only
+   * cached per connection.
+   */
+  @Nullable
+  public DescribeResultCache getDescribeResultCache() {
+    return this.describeResultCache;
+  }
+
+  /**
+   * Returns the controller that limits the number of connections that can be connected to Cloud
+   * Spanner at the same time, or null if there is no limit.
+   */
+  @Nullable
+  public ConnectionAdmissionController getConnectionAdmissionController() {
+    return this.connectionAdmissionController;
+  }
+
+  /** Returns the policy that decides when the output of a connection is flushed. */
+  public FlushPolicy getFlushPolicy() {
+    return this.flushPolicy;
+  }
+
+  /** Returns the executor for the COPY operations and their commits of all connections. */
+  public CopyCommitExecutor getCopyCommitExecutor() {
+    return this.copyCommitExecutor;
+  }
+
+  /**
+   * Returns the component that reads query results ahead on background threads, or null if query
+   * results are not prefetched.
+   */
+  @Nullable
+  public ResultPrefetcher getResultPrefetcher() {
+    return this.resultPrefetcher;
+  }
+
   /** @return the JDBC connection properties that are used by this server */
   public Properties getProperties() {
     return (Properties) this.properties.clone();
@@ -0,0 +1,278 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketImpl;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import javax.annotation.Nullable;
+
+/**
+ * {@link Socket} view of a Unix domain {@link SocketChannel}. The JDK does not support {@link
+ * SocketChannel#socket()} for Unix domain socket channels, so this class implements the subset of
+ * {@link Socket} that is used by {@link ProxyServer} and {@link ConnectionHandler}. The data of the
+ * connection is read and written by a {@link NioConnection} on the channel, so this class does not
+ * support streams.
+ *
+ * <p>Methods for options that do not apply to Unix domain sockets throw a {@link SocketException}.
+ */
+final class UnixDomainChannelSocket extends Socket {
+  private final SocketChannel channel;
+
+  UnixDomainChannelSocket(SocketChannel channel) throws SocketException {
+    super((SocketImpl) null);
+    this.channel = channel;
+  }
+
+  private static SocketException unsupported(String operation) {
+    return new SocketException(operation + " is not supported for Unix domain socket channels");
+  }
+
+  @Override
+  public SocketChannel getChannel() {
+    return channel;
+  }
+
+  /** Connections on Unix domain socket channels are served by the non-blocking front end. */
+  @Override
+  public InputStream getInputStream() throws IOException {
+    throw unsupported("getInputStream");
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws IOException {
+    throw unsupported("getOutputStream");
+  }
+
+  /**
+   * Unix domain sockets are only reachable from the local host, so the client is reported as the
+   * loopback address.
+   */
+  @Override
+  public InetAddress getInetAddress() {
+    return InetAddress.getLoopbackAddress();
+  }
+
+  @Override
+  public InetAddress getLocalAddress() {
+    return InetAddress.getLoopbackAddress();
+  }
+
+  @Override
+  public int getPort() {
+    return 0;
+  }
+
+  @Override
+  public int getLocalPort() {
+    return 0;
+  }
+
+  @Override
+  @Nullable
+  public SocketAddress getRemoteSocketAddress() {
+    try {
+      return channel.getRemoteAddress();
+    } catch (IOException ignore) {
+      return null;
+    }
+  }
+
+  @Override
+  @Nullable
+  public SocketAddress getLocalSocketAddress() {
+    try {
+      return channel.getLocalAddress();
+    } catch (IOException ignore) {
+      return null;
+    }
+  }
+
+  @Override
+  public boolean isConnected() {
+    return channel.isConnected();
+  }
+
+  @Override
+  public boolean isBound() {
+    return true;
+  }
+
+  @Override
+  public boolean isClosed() {
+    return !channel.isOpen();
+  }
+
+  @Override
+  public void connect(SocketAddress endpoint) throws IOException {
+    throw unsupported("connect");
+  }
+
+  @Override
+  public void connect(SocketAddress endpoint, int timeout) throws IOException {
+    throw unsupported("connect");
+  }
+
+  @Override
+  public void bind(SocketAddress bindpoint) throws IOException {
+    throw unsupported("bind");
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  @Override
+  public void shutdownInput() throws IOException {
+    channel.shutdownInput();
+  }
+
+  @Override
+  public void shutdownOutput() throws IOException {
+    channel.shutdownOutput();
+  }
+
+  /** TCP options do not apply to Unix domain sockets. */
+  @Override
+  public void setTcpNoDelay(boolean on) {}
+
+  @Override
+  public boolean getTcpNoDelay() {
+    return false;
+  }
+
+  @Override
+  public void setPerformancePreferences(int connectionTime, int latency, int bandwidth) {}
+
+  /** Read timeouts are not supported by socket channels. */
+  @Override
+  public synchronized void setSoTimeout(int timeout) throws SocketException {
+    throw unsupported("SO_TIMEOUT");
+  }
+
+  @Override
+  public synchronized int getSoTimeout() {
+    return 0;
+  }
+
+  @Override
+  public synchronized void setSendBufferSize(int size) throws SocketException {
+    setChannelOption(StandardSocketOptions.SO_SNDBUF, size);
+  }
+
+  @Override
+  public synchronized int getSendBufferSize() throws SocketException {
+    return getChannelOption(StandardSocketOptions.SO_SNDBUF);
+  }
+
+  @Override
+  public synchronized void setReceiveBufferSize(int size) throws SocketException {
+    setChannelOption(StandardSocketOptions.SO_RCVBUF, size);
+  }
+
+  @Override
+  public synchronized int getReceiveBufferSize() throws SocketException {
+    return getChannelOption(StandardSocketOptions.SO_RCVBUF);
+  }
+
+  @Override
+  public void setKeepAlive(boolean on) throws SocketException {
+    throw unsupported("SO_KEEPALIVE");
+  }
+
+  @Override
+  public boolean getKeepAlive() throws SocketException {
+    throw unsupported("SO_KEEPALIVE");
+  }
+
+  @Override
+  public void setSoLinger(boolean on, int linger) throws SocketException {
+    throw unsupported("SO_LINGER");
+  }
+
+  @Override
+  public int getSoLinger() throws SocketException {
+    throw unsupported("SO_LINGER");
+  }
+
+  @Override
+  public void setReuseAddress(boolean on) throws SocketException {
+    throw unsupported("SO_REUSEADDR");
+  }
+
+  @Override
+  public boolean getReuseAddress() throws SocketException {
+    throw unsupported("SO_REUSEADDR");
+  }
+
+  @Override
+  public void setOOBInline(boolean on) throws SocketException {
+    throw unsupported("SO_OOBINLINE");
+  }
+
+  @Override
+  public boolean getOOBInline() throws SocketException {
+    throw unsupported("SO_OOBINLINE");
+  }
+
+  @Override
+  public void sendUrgentData(int data) throws IOException {
+    throw unsupported("sendUrgentData");
+  }
+
+  @Override
+  public void setTrafficClass(int tc) throws SocketException {
+    throw unsupported("IP_TOS");
+  }
+
+  @Override
+  public int getTrafficClass() throws SocketException {
+    throw unsupported("IP_TOS");
+  }
+
+  private void setChannelOption(SocketOption<Integer> option, int value) throws SocketException {
+    try {
+      channel.setOption(option, value);
+    } catch (SocketException socketException) {
+      throw socketException;
+    } catch (IOException | UnsupportedOperationException exception) {
+      throw new SocketException(option.name() + ": " + exception.getMessage());
+    }
+  }
+
+  private int getChannelOption(SocketOption<Integer> option) throws SocketException {
+    try {
+      return channel.getOption(option);
+    } catch (SocketException socketException) {
+      throw socketException;
+    } catch (IOException | UnsupportedOperationException exception) {
+      throw new SocketException(option.name() + ": " + exception.getMessage());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "UnixDomainChannelSocket[" + channel + "]";
+  }
+}
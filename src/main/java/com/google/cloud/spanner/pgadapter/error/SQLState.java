@@ -149,6 +149,13 @@ public enum SQLState {
   InFailedSqlTransaction("25P02"),
   IdleInTransactionSessionTimeout("25P03"),
 
+  // Class 53 — Insufficient Resources
+  InsufficientResources("53000"),
+  DiskFull("53100"),
+  OutOfMemory("53200"),
+  TooManyConnections("53300"),
+  ConfigurationLimitExceeded("53400"),
+
   // Class 42 — Syntax Error or Access Rule Violation
   SyntaxErrorOrAccessRuleViolation("42000"),
   SyntaxError("42601"),
@@ -15,23 +15,45 @@
 package com.google.cloud.spanner.pgadapter.metadata;
 
 import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.pgadapter.utils.SslEngineStreams;
+import com.google.cloud.spanner.pgadapter.wireoutput.OutputBuffer;
+import com.google.cloud.spanner.pgadapter.wireprotocol.MessageFrame;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Stopwatch;
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.concurrent.TimeUnit;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLSocket;
 
 @InternalApi
 public class ConnectionMetadata implements AutoCloseable {
   private static final int SOCKET_BUFFER_SIZE = 1 << 16;
 
+  /**
+   * Waits for a limited time for data from the client to become available, without consuming any of
+   * the data. Implementations must block without spinning.
+   */
+  @InternalApi
+  public interface InputWaiter {
+    /**
+     * Waits at most maxWaitMillis milliseconds for data to become available. Returns true if data
+     * is available, and false if the wait timed out or if the end of the stream has been reached.
+     */
+    boolean awaitInput(long maxWaitMillis) throws IOException;
+  }
+
   private final DataInputStream inputStream;
+  private final OutputBuffer outputBuffer;
   private final DataOutputStream outputStream;
+  @Nullable private final InputWaiter inputWaiter;
+  @Nullable private final ReadAheadInputStream readAheadInputStream;
+  private final MessageFrame messageFrame = new MessageFrame();
   private boolean markedForRestart;
 
   /**
@@ -39,14 +61,101 @@ public class ConnectionMetadata implements AutoCloseable {
    * pushes these as the current streams to use for communication for a connection.
    */
   public ConnectionMetadata(InputStream rawInputStream, OutputStream rawOutputStream) {
-    this.inputStream =
+    this(
         new DataInputStream(
             new BufferedInputStream(
-                Preconditions.checkNotNull(rawInputStream), SOCKET_BUFFER_SIZE));
-    this.outputStream =
-        new DataOutputStream(
-            new BufferedOutputStream(
-                Preconditions.checkNotNull(rawOutputStream), SOCKET_BUFFER_SIZE));
+                Preconditions.checkNotNull(rawInputStream), SOCKET_BUFFER_SIZE)),
+        new OutputBuffer(Preconditions.checkNotNull(rawOutputStream), SOCKET_BUFFER_SIZE),
+        null,
+        null);
+  }
+
+  /**
+   * Creates a {@link ConnectionMetadata} for the given socket. {@link #peekNextByte(long)} waits
+   * for data from the socket with a blocking read that times out, instead of polling the socket.
+   * The connection can read ahead from the socket on a separate thread after {@link
+   * #startReadAhead(int, ThreadFactory)} has been called.
+   */
+  public static ConnectionMetadata createForSocket(Socket socket) throws IOException {
+    // A read timeout on an SSL socket can leave the SSL connection in an invalid state, so we
+    // only look at data that has already been received and decrypted for SSL sockets.
+    return createForStreams(
+        socket,
+        socket.getInputStream(),
+        socket.getOutputStream(),
+        !(socket instanceof SSLSocket));
+  }
+
+  /**
+   * Creates a {@link ConnectionMetadata} for an SSL connection on the given socket. The data is
+   * decrypted and encrypted by the given {@link SslEngineStreams}. These keep their state
+   * consistent if a read from the socket times out, so {@link #peekNextByte(long)} can wait for data
+   * with a blocking read that times out.
+   */
+  public static ConnectionMetadata createForSsl(Socket socket, SslEngineStreams sslEngineStreams) {
+    return createForStreams(
+        socket, sslEngineStreams.getInputStream(), sslEngineStreams.getOutputStream(), true);
+  }
+
+  private static ConnectionMetadata createForStreams(
+      Socket socket,
+      InputStream rawInputStream,
+      OutputStream rawOutputStream,
+      boolean supportsReadTimeout) {
+    ReadAheadInputStream readAheadInputStream = new ReadAheadInputStream(rawInputStream);
+    DataInputStream inputStream =
+        new DataInputStream(new BufferedInputStream(readAheadInputStream, SOCKET_BUFFER_SIZE));
+    return new ConnectionMetadata(
+        inputStream,
+        new OutputBuffer(rawOutputStream, SOCKET_BUFFER_SIZE),
+        supportsReadTimeout ? new SocketInputWaiter(socket, inputStream) : null,
+        readAheadInputStream);
+  }
+
+  private ConnectionMetadata(
+      DataInputStream inputStream,
+      OutputBuffer outputBuffer,
+      @Nullable InputWaiter inputWaiter,
+      @Nullable ReadAheadInputStream readAheadInputStream) {
+    this.inputStream = inputStream;
+    this.outputBuffer = outputBuffer;
+    this.outputStream = new DataOutputStream(outputBuffer);
+    this.inputWaiter = inputWaiter;
+    this.readAheadInputStream = readAheadInputStream;
+  }
+
+  /**
+   * Creates a {@link ConnectionMetadata} for a raw input stream that is already backed by an
+   * in-memory buffer. The input stream must support mark/reset, and is not wrapped in an additional
+   * buffer, as a read-ahead buffer would hide data that the owner of the in-memory buffer still
+   * needs to see. The output stream is buffered using the given buffer size. {@link
+   * #peekNextByte(long)} uses the input stream to wait for data if it implements {@link
+   * InputWaiter}.
+   */
+  public static ConnectionMetadata createForBufferedInputStream(
+      InputStream bufferedInputStream, OutputStream rawOutputStream, int outputBufferSize) {
+    Preconditions.checkArgument(
+        bufferedInputStream.markSupported(), "The input stream must support mark/reset");
+    return new ConnectionMetadata(
+        new DataInputStream(bufferedInputStream),
+        new OutputBuffer(Preconditions.checkNotNull(rawOutputStream), outputBufferSize),
+        bufferedInputStream instanceof InputWaiter ? (InputWaiter) bufferedInputStream : null,
+        null);
+  }
+
+  /**
+   * Starts reading ahead from the client on a thread that is created by the given factory. The
+   * thread reads at most maxBytes bytes ahead of the messages that have been handled, which allows
+   * pipelining clients to keep sending messages while the connection is waiting for Cloud Spanner.
+   * This method must be called from the thread that handles the messages of the connection, and
+   * should only be called after the startup phase, as a connection that is restarted with SSL must
+   * not have consumed any of the SSL handshake. This method is a no-op for connections that do not
+   * read from a socket.
+   */
+  public void startReadAhead(int maxBytes, ThreadFactory threadFactory) {
+    if (readAheadInputStream != null) {
+      readAheadInputStream.start(maxBytes, threadFactory);
+    }
   }
 
   public void markForRestart() {
@@ -71,24 +180,76 @@ public class ConnectionMetadata implements AutoCloseable {
     return outputStream;
   }
 
+  /**
+   * Returns the reusable {@link MessageFrame} that incoming messages on this connection read their
+   * payload into.
+   */
+  public MessageFrame getMessageFrame() {
+    return messageFrame;
+  }
+
+  /**
+   * Returns the {@link OutputBuffer} that backs the {@link DataOutputStream} of this connection.
+   * Messages can be encoded directly into this buffer instead of being written to the {@link
+   * DataOutputStream}.
+   */
+  public OutputBuffer getOutputBuffer() {
+    return outputBuffer;
+  }
+
   /**
    * Returns the next byte in the input stream without removing it. Returns zero if no bytes are
-   * available. This method will wait for up to maxWaitMillis milliseconds to allow pending data to
-   * become available in the buffer.
+   * available. This method will wait for up to maxWaitMillis milliseconds for data to arrive if no
+   * data is available yet. The wait blocks the calling thread without spinning. Connections that do
+   * not support waiting for data only look at the data that has already been received.
    */
   public char peekNextByte(long maxWaitMillis) throws IOException {
-    Stopwatch stopwatch = Stopwatch.createStarted();
-    while (inputStream.available() == 0
-        && stopwatch.elapsed(TimeUnit.MILLISECONDS) < maxWaitMillis) {
-      Thread.yield();
+    // The socket can only be read by the read-ahead thread once it has started.
+    InputWaiter waiter =
+        readAheadInputStream != null && readAheadInputStream.isStarted()
+            ? readAheadInputStream
+            : inputWaiter;
+    if (inputStream.available() == 0
+        && (maxWaitMillis <= 0L || waiter == null || !waiter.awaitInput(maxWaitMillis))) {
+      return 0;
+    }
+    inputStream.mark(1);
+    char result = (char) inputStream.readUnsignedByte();
+    inputStream.reset();
+
+    return result;
+  }
+
+  /**
+   * Waits for data from a socket by temporarily setting a read timeout on the socket and reading
+   * one byte into the buffer of the input stream. The byte is not consumed, as the read is wrapped
+   * in a mark/reset.
+   */
+  private static final class SocketInputWaiter implements InputWaiter {
+    private final Socket socket;
+    private final DataInputStream inputStream;
+
+    private SocketInputWaiter(Socket socket, DataInputStream inputStream) {
+      this.socket = socket;
+      this.inputStream = inputStream;
     }
-    if (inputStream.available() > 0) {
-      inputStream.mark(1);
-      char result = (char) inputStream.readUnsignedByte();
-      inputStream.reset();
 
-      return result;
+    @Override
+    public boolean awaitInput(long maxWaitMillis) throws IOException {
+      int originalTimeout = socket.getSoTimeout();
+      socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, maxWaitMillis));
+      try {
+        inputStream.mark(1);
+        if (inputStream.read() == -1) {
+          return false;
+        }
+        inputStream.reset();
+        return true;
+      } catch (SocketTimeoutException timeoutException) {
+        return false;
+      } finally {
+        socket.setSoTimeout(originalTimeout);
+      }
     }
-    return 0;
   }
 }
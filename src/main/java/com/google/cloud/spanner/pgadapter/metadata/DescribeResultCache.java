@@ -0,0 +1,165 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Server-wide cache of the results of auto-describing statements. Auto-describing a statement
+ * requires a round trip to Cloud Spanner, and the result only depends on the database, the SQL
+ * string and the parameter types that were given by the client. The result can therefore be shared
+ * by all connections to the same database. Only results that have finished successfully are shared,
+ * as a pending describe result can only be completed by the connection that requested it.
+ *
+ * <p>All results for a database are invalidated when a DDL statement is executed on that database
+ * through PGAdapter. Each invalidation also increases the generation of the cache, which tells
+ * connections to clear their own cache of pending describe results. Results can also expire after
+ * a fixed time, so schema changes that are made outside PGAdapter are eventually picked up.
+ */
+@InternalApi
+public class DescribeResultCache {
+  private static final class Key {
+    @Nullable private final DatabaseId databaseId;
+    private final String sql;
+    private final int[] parameterTypes;
+
+    private Key(@Nullable DatabaseId databaseId, String sql, int[] parameterTypes) {
+      this.databaseId = databaseId;
+      this.sql = sql;
+      this.parameterTypes = parameterTypes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Objects.equals(this.databaseId, other.databaseId)
+          && this.sql.equals(other.sql)
+          && Arrays.equals(this.parameterTypes, other.parameterTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * Objects.hashCode(databaseId) + sql.hashCode())
+          + Arrays.hashCode(parameterTypes);
+    }
+  }
+
+  private final Cache<Key, ListenableFuture<DescribeResult>> cache;
+  private final AtomicLong savedRoundTrips = new AtomicLong();
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * Creates a describe result cache. A timeToLive of zero means that results do not expire, and are
+   * only removed when the cache is invalidated or full.
+   */
+  public DescribeResultCache(long maximumSize, Duration timeToLive) {
+    Preconditions.checkArgument(maximumSize > 0, "maximumSize must be > 0");
+    Preconditions.checkArgument(!timeToLive.isNegative(), "timeToLive must be >= 0");
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(maximumSize);
+    if (!timeToLive.isZero()) {
+      builder.expireAfterWrite(timeToLive);
+    }
+    this.cache = builder.build();
+  }
+
+  /**
+   * Returns the cached describe result for the given SQL string and given parameter types on the
+   * given database, or null if there is none.
+   */
+  @Nullable
+  public ListenableFuture<DescribeResult> get(
+      @Nullable DatabaseId databaseId, String sql, int[] givenParameterTypes) {
+    ListenableFuture<DescribeResult> result =
+        cache.getIfPresent(new Key(databaseId, sql, givenParameterTypes));
+    if (result != null) {
+      savedRoundTrips.incrementAndGet();
+    }
+    return result;
+  }
+
+  /**
+   * Adds a describe result to the cache once it has finished successfully. Results that fail are
+   * not added to the cache.
+   */
+  public void put(
+      @Nullable DatabaseId databaseId,
+      String sql,
+      int[] givenParameterTypes,
+      ListenableFuture<DescribeResult> describeResult) {
+    Key key = new Key(databaseId, sql, givenParameterTypes.clone());
+    long generationAtStart = generation.get();
+    Futures.addCallback(
+        describeResult,
+        new FutureCallback<DescribeResult>() {
+          @Override
+          public void onSuccess(DescribeResult result) {
+            // Skip results that were requested before the schema was changed.
+            if (generation.get() == generationAtStart) {
+              cache.put(key, Futures.immediateFuture(result));
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable t) {}
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /** Removes all describe results for the given database from the cache. */
+  public void invalidate(@Nullable DatabaseId databaseId) {
+    generation.incrementAndGet();
+    cache.asMap().keySet().removeIf(key -> Objects.equals(key.databaseId, databaseId));
+  }
+
+  /** Removes all describe results from the cache. */
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  /**
+   * Returns the current generation of this cache. The generation is increased each time the cache
+   * is invalidated.
+   */
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  /** Returns the number of describe round trips to Cloud Spanner that were saved by this cache. */
+  public long getSavedRoundTrips() {
+    return savedRoundTrips.get();
+  }
+
+  /** Returns the approximate number of describe results in this cache. */
+  public long size() {
+    return cache.size();
+  }
+}
@@ -24,6 +24,7 @@ import com.google.cloud.spanner.pgadapter.Server;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.spanner.v1.DatabaseName;
 import java.io.File;
 import java.io.IOException;
@@ -31,6 +32,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -94,6 +96,26 @@ public class OptionsMetadata {
   private static final String OPTION_SERVER_PORT = "s";
   private static final String OPTION_SOCKET_DIR = "dir";
   private static final String OPTION_MAX_BACKLOG = "max_backlog";
+  private static final String OPTION_NIO_THREADS = "nio_threads";
+  private static final String OPTION_NIO_WORKER_THREADS = "nio_worker_threads";
+  private static final String OPTION_ACCEPTOR_THREADS = "acceptor_threads";
+  private static final String OPTION_VIRTUAL_THREADS = "virtual_threads";
+  private static final String OPTION_NATIVE_DOMAIN_SOCKETS = "native_domain_sockets";
+  private static final String OPTION_STATEMENT_CACHE_SIZE = "statement_cache_size";
+  private static final String OPTION_DESCRIBE_CACHE = "describe_cache";
+  private static final String OPTION_DESCRIBE_CACHE_TTL = "describe_cache_ttl";
+  private static final String OPTION_FLUSH_LOOKAHEAD_MILLIS = "flush_lookahead_ms";
+  private static final String OPTION_READ_AHEAD_BYTES = "read_ahead_bytes";
+  private static final String OPTION_OUTPUT_CORKING = "output_corking";
+  private static final String OPTION_EARLY_FLUSH_ROWS = "early_flush_rows";
+  private static final String OPTION_EARLY_FLUSH_MILLIS = "early_flush_ms";
+  private static final String OPTION_RESULT_PREFETCH_ROWS = "result_prefetch_rows";
+  private static final String OPTION_RESULT_PREFETCH_BYTES = "result_prefetch_bytes";
+  private static final String OPTION_MAX_CONNECTIONS = "max_connections";
+  private static final String OPTION_MAX_CONNECTION_QUEUE = "max_connection_queue";
+  private static final String OPTION_MAX_CONNECTION_WAIT_MILLIS = "max_connection_wait_ms";
+  private static final String OPTION_MAX_COPY_COMMITS = "max_copy_commits";
+  private static final String OPTION_MAX_COPY_COMMIT_BYTES = "max_copy_commit_bytes";
   private static final String OPTION_PROJECT_ID = "p";
   private static final String OPTION_INSTANCE_ID = "i";
   private static final String OPTION_DATABASE_NAME = "d";
@@ -101,6 +123,11 @@ public class OptionsMetadata {
   private static final String OPTION_BINARY_FORMAT = "b";
   private static final String OPTION_AUTHENTICATE = "a";
   private static final String OPTION_SSL = "ssl";
+  private static final String OPTION_SSL_PROTOCOLS = "ssl_protocols";
+  private static final String OPTION_SSL_CIPHERS = "ssl_ciphers";
+  private static final String OPTION_SSL_SESSION_CACHE_SIZE = "ssl_session_cache_size";
+  private static final String OPTION_SSL_SESSION_TIMEOUT = "ssl_session_timeout";
+  private static final String OPTION_SSL_SESSION_TICKETS = "ssl_session_tickets";
   private static final String OPTION_DISABLE_AUTO_DETECT_CLIENT = "disable_auto_detect_client";
   private static final String OPTION_DISABLE_DEFAULT_LOCAL_STATEMENTS =
       "disable_default_local_statements";
@@ -119,6 +146,23 @@ public class OptionsMetadata {
   private static final String DEFAULT_SOCKET_DIR = "/tmp";
   private static final String SOCKET_FILE_NAME = ".s.PGSQL.%d";
   private static final int DEFAULT_MAX_BACKLOG = 1000;
+  private static final int DEFAULT_NIO_THREADS = 0;
+  private static final int DEFAULT_ACCEPTOR_THREADS = 1;
+  private static final int DEFAULT_NIO_WORKER_THREADS =
+      Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+  private static final int DEFAULT_STATEMENT_CACHE_SIZE = 10000;
+  private static final int DEFAULT_DESCRIBE_CACHE_TTL_SECONDS = 0;
+  private static final int DEFAULT_FLUSH_LOOKAHEAD_MILLIS = 2;
+  private static final int DEFAULT_READ_AHEAD_BYTES = 0;
+  private static final int DEFAULT_EARLY_FLUSH_ROWS = 0;
+  private static final int DEFAULT_EARLY_FLUSH_MILLIS = 0;
+  private static final int DEFAULT_RESULT_PREFETCH_ROWS = 0;
+  private static final int DEFAULT_RESULT_PREFETCH_BYTES = 1 << 22;
+  private static final int DEFAULT_MAX_CONNECTIONS = 0;
+  private static final int DEFAULT_MAX_CONNECTION_QUEUE = 1000;
+  private static final int DEFAULT_MAX_CONNECTION_WAIT_MILLIS = 10_000;
+  private static final int DEFAULT_MAX_COPY_COMMITS = 128;
+  private static final int DEFAULT_MAX_COPY_COMMIT_BYTES = 1 << 28;
   /*Note: this is a private preview feature, not meant for GA version. */
   private static final String OPTION_SPANNER_ENDPOINT = "e";
   private static final String OPTION_JDBC_PROPERTIES = "r";
@@ -135,10 +179,35 @@ public class OptionsMetadata {
   private final int proxyPort;
   private final String socketFile;
   private final int maxBacklog;
+  private final int nioThreads;
+  private final int nioWorkerThreads;
+  private final int acceptorThreads;
+  private final boolean useVirtualThreads;
+  private final boolean useNativeDomainSockets;
+  private final int statementCacheSize;
+  private final boolean describeCacheEnabled;
+  private final int describeCacheTtlSeconds;
+  private final int flushLookaheadMillis;
+  private final int readAheadBytes;
+  private final boolean outputCorkingEnabled;
+  private final int earlyFlushRows;
+  private final int earlyFlushMillis;
+  private final int resultPrefetchRows;
+  private final int resultPrefetchBytes;
+  private final int maxConnections;
+  private final int maxConnectionQueue;
+  private final int maxConnectionWaitMillis;
+  private final int maxCopyCommits;
+  private final int maxCopyCommitBytes;
   private final TextFormat textFormat;
   private final boolean binaryFormat;
   private final boolean authenticate;
   private final SslMode sslMode;
+  private final ImmutableList<String> sslProtocols;
+  private final ImmutableList<String> sslCipherSuites;
+  private final int sslSessionCacheSize;
+  private final int sslSessionTimeoutSeconds;
+  @Nullable private final Boolean sslSessionTickets;
   private final boolean disableAutoDetectClient;
   private final boolean disableDefaultLocalStatements;
   private final boolean disablePgCatalogReplacements;
@@ -188,10 +257,113 @@ public class OptionsMetadata {
     this.proxyPort = buildProxyPort(commandLine);
     this.socketFile = buildSocketFile(commandLine);
     this.maxBacklog = buildMaxBacklog(commandLine);
+    this.nioThreads =
+        buildNonNegativeInt(
+            commandLine,
+            OPTION_NIO_THREADS,
+            DEFAULT_NIO_THREADS,
+            "Number of non-blocking I/O threads");
+    this.nioWorkerThreads =
+        buildPositiveInt(
+            commandLine,
+            OPTION_NIO_WORKER_THREADS,
+            DEFAULT_NIO_WORKER_THREADS,
+            "Number of non-blocking I/O workers");
+    this.acceptorThreads =
+        buildPositiveInt(
+            commandLine,
+            OPTION_ACCEPTOR_THREADS,
+            DEFAULT_ACCEPTOR_THREADS,
+            "Number of acceptor threads");
+    this.useVirtualThreads = commandLine.hasOption(OPTION_VIRTUAL_THREADS);
+    this.useNativeDomainSockets = commandLine.hasOption(OPTION_NATIVE_DOMAIN_SOCKETS);
+    this.statementCacheSize =
+        buildNonNegativeInt(
+            commandLine,
+            OPTION_STATEMENT_CACHE_SIZE,
+            DEFAULT_STATEMENT_CACHE_SIZE,
+            "Statement cache size");
+    this.describeCacheEnabled = commandLine.hasOption(OPTION_DESCRIBE_CACHE);
+    this.describeCacheTtlSeconds =
+        buildNonNegativeInt(
+            commandLine,
+            OPTION_DESCRIBE_CACHE_TTL,
+            DEFAULT_DESCRIBE_CACHE_TTL_SECONDS,
+            "Describe cache TTL");
+    this.flushLookaheadMillis =
+        buildNonNegativeInt(
+            commandLine,
+            OPTION_FLUSH_LOOKAHEAD_MILLIS,
+            DEFAULT_FLUSH_LOOKAHEAD_MILLIS,
+            "Flush lookahead");
+    this.readAheadBytes =
+        buildNonNegativeInt(
+            commandLine, OPTION_READ_AHEAD_BYTES, DEFAULT_READ_AHEAD_BYTES, "Read ahead bytes");
+    this.outputCorkingEnabled = commandLine.hasOption(OPTION_OUTPUT_CORKING);
+    this.earlyFlushRows =
+        buildNonNegativeInt(
+            commandLine, OPTION_EARLY_FLUSH_ROWS, DEFAULT_EARLY_FLUSH_ROWS, "Early flush rows");
+    this.earlyFlushMillis =
+        buildNonNegativeInt(
+            commandLine,
+            OPTION_EARLY_FLUSH_MILLIS,
+            DEFAULT_EARLY_FLUSH_MILLIS,
+            "Early flush milliseconds");
+    this.resultPrefetchRows =
+        buildNonNegativeInt(
+            commandLine,
+            OPTION_RESULT_PREFETCH_ROWS,
+            DEFAULT_RESULT_PREFETCH_ROWS,
+            "Result prefetch rows");
+    this.resultPrefetchBytes =
+        buildNonNegativeInt(
+            commandLine,
+            OPTION_RESULT_PREFETCH_BYTES,
+            DEFAULT_RESULT_PREFETCH_BYTES,
+            "Result prefetch bytes");
+    this.maxConnections =
+        buildNonNegativeInt(
+            commandLine, OPTION_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS, "Max connections");
+    this.maxConnectionQueue =
+        buildNonNegativeInt(
+            commandLine,
+            OPTION_MAX_CONNECTION_QUEUE,
+            DEFAULT_MAX_CONNECTION_QUEUE,
+            "Max connection queue");
+    this.maxConnectionWaitMillis =
+        buildNonNegativeInt(
+            commandLine,
+            OPTION_MAX_CONNECTION_WAIT_MILLIS,
+            DEFAULT_MAX_CONNECTION_WAIT_MILLIS,
+            "Max connection wait");
+    this.maxCopyCommits =
+        buildNonNegativeInt(
+            commandLine, OPTION_MAX_COPY_COMMITS, DEFAULT_MAX_COPY_COMMITS, "Max COPY commits");
+    this.maxCopyCommitBytes =
+        buildNonNegativeInt(
+            commandLine,
+            OPTION_MAX_COPY_COMMIT_BYTES,
+            DEFAULT_MAX_COPY_COMMIT_BYTES,
+            "Max COPY commit bytes");
     this.textFormat = TextFormat.POSTGRESQL;
     this.binaryFormat = commandLine.hasOption(OPTION_BINARY_FORMAT);
     this.authenticate = commandLine.hasOption(OPTION_AUTHENTICATE);
     this.sslMode = parseSslMode(commandLine.getOptionValue(OPTION_SSL));
+    this.sslProtocols = parseCommaSeparatedList(commandLine.getOptionValue(OPTION_SSL_PROTOCOLS));
+    this.sslCipherSuites = parseCommaSeparatedList(commandLine.getOptionValue(OPTION_SSL_CIPHERS));
+    this.sslSessionCacheSize =
+        commandLine.hasOption(OPTION_SSL_SESSION_CACHE_SIZE)
+            ? buildNonNegativeInt(
+                commandLine, OPTION_SSL_SESSION_CACHE_SIZE, 0, "SSL session cache size")
+            : -1;
+    this.sslSessionTimeoutSeconds =
+        commandLine.hasOption(OPTION_SSL_SESSION_TIMEOUT)
+            ? buildNonNegativeInt(commandLine, OPTION_SSL_SESSION_TIMEOUT, 0, "SSL session timeout")
+            : -1;
+    this.sslSessionTickets =
+        commandLine.hasOption(OPTION_SSL_SESSION_TICKETS)
+            ? Boolean.valueOf(commandLine.getOptionValue(OPTION_SSL_SESSION_TICKETS).trim())
+            : null;
     this.disableAutoDetectClient = commandLine.hasOption(OPTION_DISABLE_AUTO_DETECT_CLIENT);
     this.disableDefaultLocalStatements =
         commandLine.hasOption(OPTION_DISABLE_DEFAULT_LOCAL_STATEMENTS);
@@ -248,10 +420,35 @@ public class OptionsMetadata {
     this.proxyPort = proxyPort;
     this.socketFile = isWindows() ? "" : DEFAULT_SOCKET_DIR + File.separatorChar + SOCKET_FILE_NAME;
     this.maxBacklog = DEFAULT_MAX_BACKLOG;
+    this.nioThreads = DEFAULT_NIO_THREADS;
+    this.nioWorkerThreads = DEFAULT_NIO_WORKER_THREADS;
+    this.acceptorThreads = DEFAULT_ACCEPTOR_THREADS;
+    this.useVirtualThreads = false;
+    this.useNativeDomainSockets = false;
+    this.statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    this.describeCacheEnabled = false;
+    this.describeCacheTtlSeconds = DEFAULT_DESCRIBE_CACHE_TTL_SECONDS;
+    this.flushLookaheadMillis = DEFAULT_FLUSH_LOOKAHEAD_MILLIS;
+    this.readAheadBytes = DEFAULT_READ_AHEAD_BYTES;
+    this.outputCorkingEnabled = false;
+    this.earlyFlushRows = DEFAULT_EARLY_FLUSH_ROWS;
+    this.earlyFlushMillis = DEFAULT_EARLY_FLUSH_MILLIS;
+    this.resultPrefetchRows = DEFAULT_RESULT_PREFETCH_ROWS;
+    this.resultPrefetchBytes = DEFAULT_RESULT_PREFETCH_BYTES;
+    this.maxConnections = DEFAULT_MAX_CONNECTIONS;
+    this.maxConnectionQueue = DEFAULT_MAX_CONNECTION_QUEUE;
+    this.maxConnectionWaitMillis = DEFAULT_MAX_CONNECTION_WAIT_MILLIS;
+    this.maxCopyCommits = DEFAULT_MAX_COPY_COMMITS;
+    this.maxCopyCommitBytes = DEFAULT_MAX_COPY_COMMIT_BYTES;
     this.textFormat = textFormat;
     this.binaryFormat = forceBinary;
     this.authenticate = authenticate;
     this.sslMode = SslMode.Disable;
+    this.sslProtocols = ImmutableList.of();
+    this.sslCipherSuites = ImmutableList.of();
+    this.sslSessionCacheSize = -1;
+    this.sslSessionTimeoutSeconds = -1;
+    this.sslSessionTickets = null;
     this.disableAutoDetectClient = false;
     this.disableDefaultLocalStatements = false;
     this.disablePgCatalogReplacements = false;
@@ -281,6 +478,19 @@ public class OptionsMetadata {
     return properties;
   }
 
+  static ImmutableList<String> parseCommaSeparatedList(@Nullable String value) {
+    if (Strings.isNullOrEmpty(value)) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<String> builder = ImmutableList.builder();
+    for (String element : value.split(",")) {
+      if (!element.trim().isEmpty()) {
+        builder.add(element.trim());
+      }
+    }
+    return builder.build();
+  }
+
   static SslMode parseSslMode(String value) {
     if (value == null) {
       return SslMode.Disable;
@@ -346,6 +556,26 @@ public class OptionsMetadata {
     return backlog;
   }
 
+  private static int buildNonNegativeInt(
+      CommandLine commandLine, String option, int defaultValue, String description) {
+    int value =
+        Integer.parseInt(commandLine.getOptionValue(option, String.valueOf(defaultValue)).trim());
+    if (value < 0) {
+      throw new IllegalArgumentException(description + " must be >= 0");
+    }
+    return value;
+  }
+
+  private static int buildPositiveInt(
+      CommandLine commandLine, String option, int defaultValue, String description) {
+    int value =
+        Integer.parseInt(commandLine.getOptionValue(option, String.valueOf(defaultValue)).trim());
+    if (value <= 0) {
+      throw new IllegalArgumentException(description + " must be greater than 0");
+    }
+    return value;
+  }
+
   /**
    * Get credential file path from either command line or application default. If neither throw
    * error.
@@ -519,6 +749,192 @@ public class OptionsMetadata {
         true,
         String.format(
             "Maximum queue length of incoming connections. Defaults to %d.", DEFAULT_MAX_BACKLOG));
+    options.addOption(
+        null,
+        OPTION_NIO_THREADS,
+        true,
+        "Number of selector threads that should be used to serve TCP connections using "
+            + "non-blocking I/O. Setting this option to a value greater than 0 enables the "
+            + "non-blocking front end, where a small fixed set of I/O threads reads incoming "
+            + "messages for all connections, and complete messages are handled by a bounded pool "
+            + "of worker threads. Idle connections then do not occupy a thread. "
+            + "Defaults to 0, which means that each connection is served by its own thread. "
+            + "Unix domain socket connections use one thread per connection, unless -"
+            + OPTION_NATIVE_DOMAIN_SOCKETS
+            + " has been set.");
+    options.addOption(
+        null,
+        OPTION_NIO_WORKER_THREADS,
+        true,
+        String.format(
+            "Maximum number of worker threads that handle messages for connections that are "
+                + "served using non-blocking I/O. This is also the maximum number of connections "
+                + "that can execute a statement at the same time, not counting connections that "
+                + "are executing a COPY FROM STDIN operation. Only used if -%s is greater than 0 "
+                + "or if -%s is set. Defaults to %d.",
+            OPTION_NIO_THREADS, OPTION_NATIVE_DOMAIN_SOCKETS, DEFAULT_NIO_WORKER_THREADS));
+    options.addOption(
+        null,
+        OPTION_ACCEPTOR_THREADS,
+        true,
+        "Number of threads that accept incoming TCP connections for each listening address. "
+            + "Each thread gets its own listening socket with SO_REUSEPORT if the operating "
+            + "system supports it, so the kernel distributes new connections over the threads. "
+            + "Otherwise all threads accept connections from the same socket. SO_REUSEPORT is "
+            + "only enabled if this is larger than 1. Note that SO_REUSEPORT also allows other "
+            + "processes of the same user, such as a second PGAdapter, to bind to the same port "
+            + "and receive a share of the connections, instead of failing with 'address already "
+            + "in use'. Defaults to 1.");
+    options.addOption(
+        null,
+        OPTION_VIRTUAL_THREADS,
+        false,
+        "Use virtual threads for connection handlers, COPY operations and partitioned queries. "
+            + "This reduces the number of operating system threads that are needed for a large "
+            + "number of concurrent connections. Virtual threads require Java 21 or higher. "
+            + "PGAdapter falls back to platform threads if the JVM does not support virtual "
+            + "threads.");
+    options.addOption(
+        null,
+        OPTION_NATIVE_DOMAIN_SOCKETS,
+        false,
+        "Use the built-in Unix domain socket support of the JDK instead of junixsocket. "
+            + "Connections on the Unix domain socket are then always served by the non-blocking "
+            + "front end. Requires Java 16 or higher. PGAdapter falls back to junixsocket if the "
+            + "JVM does not support Unix domain socket channels.");
+    options.addOption(
+        null,
+        OPTION_STATEMENT_CACHE_SIZE,
+        true,
+        String.format(
+            "Maximum number of parsed SQL strings that are cached by the server. The cache is "
+                + "shared by all connections, so a SQL string that is executed many times is "
+                + "only parsed and classified once. Set to 0 to disable the cache. Defaults to %d.",
+            DEFAULT_STATEMENT_CACHE_SIZE));
+    options.addOption(
+        null,
+        OPTION_DESCRIBE_CACHE,
+        false,
+        "Share the parameter types and result columns of auto-described statements between all "
+            + "connections to the same database. Cached results are invalidated when DDL is "
+            + "executed through PGAdapter. Describe results are only cached per connection if "
+            + "this option is not set.");
+    options.addOption(
+        null,
+        OPTION_DESCRIBE_CACHE_TTL,
+        true,
+        "Number of seconds that a describe result is kept in the shared describe cache. Use this "
+            + "to pick up schema changes that are made outside PGAdapter. Only used if "
+            + "-describe_cache has been set. Defaults to 0, which means that cached results are "
+            + "only invalidated when DDL is executed through PGAdapter.");
+    options.addOption(
+        null,
+        OPTION_FLUSH_LOOKAHEAD_MILLIS,
+        true,
+        String.format(
+            "Maximum number of milliseconds that PGAdapter waits after a Flush message to see "
+                + "whether the client sends a Sync message directly after it. The Flush is then "
+                + "handled as a Sync, which allows PGAdapter to for example use a read-only "
+                + "transaction. Set to 0 to only look at data that has already been received. "
+                + "Defaults to %d.",
+            DEFAULT_FLUSH_LOOKAHEAD_MILLIS));
+    options.addOption(
+        null,
+        OPTION_READ_AHEAD_BYTES,
+        true,
+        String.format(
+            "Maximum number of bytes that PGAdapter reads ahead from a connection while it is "
+                + "executing the messages that it has already received. This allows clients that "
+                + "pipeline their messages to keep sending while PGAdapter waits for Cloud "
+                + "Spanner. Each connection then uses an additional thread and buffer. Set to 0 "
+                + "to disable reading ahead. Defaults to %d.",
+            DEFAULT_READ_AHEAD_BYTES));
+    options.addOption(
+        null,
+        OPTION_OUTPUT_CORKING,
+        false,
+        "Hold back the output to the client after a Sync message if the client has already sent "
+            + "more messages, and send the responses to pipelined Sync messages to the client at "
+            + "once. Output that has been held back is always flushed before PGAdapter executes "
+            + "the next statement on Cloud Spanner. By default, the output is flushed after each "
+            + "Sync message.");
+    options.addOption(
+        null,
+        OPTION_EARLY_FLUSH_ROWS,
+        true,
+        String.format(
+            "Number of rows of a query result after which PGAdapter flushes the output to the "
+                + "client, so the client can start to process the first rows of a large result. "
+                + "Set to 0 to disable. Defaults to %d.",
+            DEFAULT_EARLY_FLUSH_ROWS));
+    options.addOption(
+        null,
+        OPTION_EARLY_FLUSH_MILLIS,
+        true,
+        String.format(
+            "Number of milliseconds that a query result can be streamed before PGAdapter flushes "
+                + "the output to the client, if -%s has not yet been reached. Set to 0 to disable. "
+                + "Defaults to %d.",
+            OPTION_EARLY_FLUSH_ROWS, DEFAULT_EARLY_FLUSH_MILLIS));
+    options.addOption(
+        null,
+        OPTION_RESULT_PREFETCH_ROWS,
+        true,
+        "Maximum number of rows of a query result that a background thread reads ahead from "
+            + "Cloud Spanner while the rows are being sent to the client. Set to 0 to disable "
+            + "prefetching. Defaults to 0.");
+    options.addOption(
+        null,
+        OPTION_RESULT_PREFETCH_BYTES,
+        true,
+        String.format(
+            "Maximum approximate number of bytes of a query result that a background thread "
+                + "reads ahead from Cloud Spanner, if -%s is enabled. Defaults to %d.",
+            OPTION_RESULT_PREFETCH_ROWS, DEFAULT_RESULT_PREFETCH_BYTES));
+    options.addOption(
+        null,
+        OPTION_MAX_CONNECTIONS,
+        true,
+        "Maximum number of client connections that can be connected to Cloud Spanner at the "
+            + "same time. Additional connections wait in a queue until a connection is closed, and "
+            + "are rejected with error code 53300 (too_many_connections) if the queue is full or "
+            + "if they have waited too long. Set to 0 for no limit. Defaults to 0.");
+    options.addOption(
+        null,
+        OPTION_MAX_CONNECTION_QUEUE,
+        true,
+        String.format(
+            "Maximum number of connections that can wait for a connection slot when "
+                + "-max_connections has been reached. Defaults to %d.",
+            DEFAULT_MAX_CONNECTION_QUEUE));
+    options.addOption(
+        null,
+        OPTION_MAX_CONNECTION_WAIT_MILLIS,
+        true,
+        String.format(
+            "Maximum number of milliseconds that a connection waits for a connection slot when "
+                + "-max_connections has been reached. Connections that are served by the "
+                + "non-blocking front end (-nio_threads) are rejected immediately instead. "
+                + "Defaults to %d.",
+            DEFAULT_MAX_CONNECTION_WAIT_MILLIS));
+    options.addOption(
+        null,
+        OPTION_MAX_COPY_COMMITS,
+        true,
+        String.format(
+            "Maximum number of COPY commits that are executed at the same time for all connections "
+                + "together. Additional commits wait in a queue, and each COPY operation gets a "
+                + "turn in round-robin order. Set to 0 for no limit. Defaults to %d.",
+            DEFAULT_MAX_COPY_COMMITS));
+    options.addOption(
+        null,
+        OPTION_MAX_COPY_COMMIT_BYTES,
+        true,
+        String.format(
+            "Maximum approximate number of bytes of COPY data in commits that are waiting or "
+                + "executing for all connections together. COPY operations stop receiving data "
+                + "when this limit is reached. Set to 0 for no limit. Defaults to %d.",
+            DEFAULT_MAX_COPY_COMMIT_BYTES));
     options.addOption(
         OPTION_PROJECT_ID,
         "project",
@@ -559,6 +975,42 @@ public class OptionsMetadata {
             + "have also configured a keystore for the Java Virtual Machine.\n"
             + "See https://github.com/GoogleCloudPlatform/pgadapter/blob/postgresql-dialect/docs/ssl.md "
             + "for more information.");
+    options.addOption(
+        null,
+        OPTION_SSL_PROTOCOLS,
+        true,
+        "Comma-separated list of TLS protocols that are accepted for SSL connections, "
+            + "for example TLSv1.3,TLSv1.2. Defaults to the protocols that are enabled in the JVM.");
+    options.addOption(
+        null,
+        OPTION_SSL_CIPHERS,
+        true,
+        "Comma-separated list of cipher suites that are accepted for SSL connections, in order of "
+            + "preference. The server chooses the first cipher suite in this list that is also "
+            + "supported by the client. Defaults to the cipher suites that are enabled in the JVM.");
+    options.addOption(
+        null,
+        OPTION_SSL_SESSION_CACHE_SIZE,
+        true,
+        "Maximum number of SSL sessions that are cached by the server. Clients that reconnect can "
+            + "resume a cached session instead of executing a full handshake. 0 means no limit. "
+            + "Defaults to the session cache size of the JVM.");
+    options.addOption(
+        null,
+        OPTION_SSL_SESSION_TIMEOUT,
+        true,
+        "Number of seconds that a cached SSL session can be resumed. 0 means no limit. "
+            + "Defaults to the session timeout of the JVM.");
+    options.addOption(
+        null,
+        OPTION_SSL_SESSION_TICKETS,
+        true,
+        "Whether TLS session tickets should be enabled (true) or disabled (false) for SSL "
+            + "connections. Session tickets allow clients to resume a session without a "
+            + "server-side cache entry. The JVM only supports setting this with the system "
+            + "property jdk.tls.server.enableSessionTicketExtension on the command line of the "
+            + "JVM. PGAdapter logs a warning at startup if that property does not match this "
+            + "option. Defaults to the setting of the JVM.");
     options.addOption(
         null,
         OPTION_DISABLE_AUTO_DETECT_CLIENT,
@@ -840,6 +1292,149 @@ public class OptionsMetadata {
     return this.maxBacklog;
   }
 
+  /** Returns true if TCP connections should be served using non-blocking I/O. */
+  public boolean isNonBlockingIOEnabled() {
+    return this.nioThreads > 0;
+  }
+
+  /** Returns the number of selector threads that are used for non-blocking I/O. */
+  public int getNumNioThreads() {
+    return this.nioThreads;
+  }
+
+  /** Returns the maximum number of worker threads that are used for non-blocking I/O. */
+  public int getNumNioWorkerThreads() {
+    return this.nioWorkerThreads;
+  }
+
+  /** Returns the number of threads that accept incoming TCP connections for each address. */
+  public int getNumAcceptorThreads() {
+    return this.acceptorThreads;
+  }
+
+  /**
+   * Returns true if connection handlers, COPY operations and partitioned queries should use virtual
+   * threads.
+   */
+  public boolean useVirtualThreads() {
+    return this.useVirtualThreads;
+  }
+
+  /**
+   * Returns true if the Unix domain socket should use the built-in Unix domain socket channels of
+   * the JDK instead of junixsocket.
+   */
+  public boolean useNativeDomainSockets() {
+    return this.useNativeDomainSockets;
+  }
+
+  /** Returns the maximum number of parsed statements in the server-wide statement cache. */
+  public int getStatementCacheSize() {
+    return this.statementCacheSize;
+  }
+
+  /**
+   * Returns true if describe results should be shared by all connections to the same database, and
+   * false if describe results are only cached per connection.
+   */
+  public boolean isDescribeCacheEnabled() {
+    return this.describeCacheEnabled;
+  }
+
+  /**
+   * Returns the number of seconds that describe results are kept in the shared describe cache, or 0
+   * if they are only invalidated when DDL is executed through PGAdapter.
+   */
+  public int getDescribeCacheTtlSeconds() {
+    return this.describeCacheTtlSeconds;
+  }
+
+  /**
+   * Returns the maximum number of milliseconds to wait for a Sync message after a Flush message.
+   */
+  public int getFlushLookaheadMillis() {
+    return this.flushLookaheadMillis;
+  }
+
+  /**
+   * Returns the maximum number of bytes that a connection reads ahead from the client, or 0 if
+   * connections do not read ahead.
+   */
+  public int getReadAheadBytes() {
+    return this.readAheadBytes;
+  }
+
+  /**
+   * Returns true if the output after a Sync message may be held back when the client has already
+   * sent more messages.
+   */
+  public boolean isOutputCorkingEnabled() {
+    return this.outputCorkingEnabled;
+  }
+
+  /**
+   * Returns the number of rows of a query result after which the output is flushed, or 0 if the
+   * output is not flushed after a number of rows.
+   */
+  public int getEarlyFlushRows() {
+    return this.earlyFlushRows;
+  }
+
+  /**
+   * Returns the number of milliseconds that a query result can be streamed before the output is
+   * flushed, or 0 if the output is not flushed after a time.
+   */
+  public int getEarlyFlushMillis() {
+    return this.earlyFlushMillis;
+  }
+
+  /**
+   * Returns the maximum number of rows of a query result that are read ahead from Cloud Spanner, or
+   * 0 if query results are not prefetched.
+   */
+  public int getResultPrefetchRows() {
+    return this.resultPrefetchRows;
+  }
+
+  /** Returns the maximum approximate number of bytes of a query result that are read ahead. */
+  public int getResultPrefetchBytes() {
+    return this.resultPrefetchBytes;
+  }
+
+  /**
+   * Returns the maximum number of connections that can be connected to Cloud Spanner at the same
+   * time, or 0 if there is no limit.
+   */
+  public int getMaxConnections() {
+    return this.maxConnections;
+  }
+
+  /** Returns the maximum number of connections that can wait for a connection slot. */
+  public int getMaxConnectionQueue() {
+    return this.maxConnectionQueue;
+  }
+
+  /** Returns the maximum number of milliseconds that a connection waits for a connection slot. */
+  public int getMaxConnectionWaitMillis() {
+    return this.maxConnectionWaitMillis;
+  }
+
+  /**
+   * Returns the maximum number of COPY commits that are executed at the same time for all
+   * connections, or 0 if there is no limit.
+   */
+  public int getMaxCopyCommits() {
+    return this.maxCopyCommits;
+  }
+
+  /**
+   * Returns the maximum approximate number of bytes in COPY commits that are waiting or executing
+   * for all connections, or 0 if there is no limit.
+   */
+  public int getMaxCopyCommitBytes() {
+    return this.maxCopyCommitBytes;
+  }
+
   public TextFormat getTextFormat() {
     return this.textFormat;
   }
@@ -852,6 +1447,47 @@ public class OptionsMetadata {
     return this.sslMode;
   }
 
+  /**
+   * Returns the TLS protocols that are accepted for SSL connections. An empty list means that the
+   * protocols that are enabled by default in the JVM are accepted.
+   */
+  public ImmutableList<String> getSslProtocols() {
+    return this.sslProtocols;
+  }
+
+  /**
+   * Returns the cipher suites that are accepted for SSL connections in order of preference. An
+   * empty list means that the cipher suites that are enabled by default in the JVM are accepted.
+   */
+  public ImmutableList<String> getSslCipherSuites() {
+    return this.sslCipherSuites;
+  }
+
+  /**
+   * Returns the maximum number of SSL sessions that are cached by the server, or -1 if the default
+   * of the JVM should be used.
+   */
+  public int getSslSessionCacheSize() {
+    return this.sslSessionCacheSize;
+  }
+
+  /**
+   * Returns the number of seconds that a cached SSL session can be resumed, or -1 if the default of
+   * the JVM should be used.
+   */
+  public int getSslSessionTimeoutSeconds() {
+    return this.sslSessionTimeoutSeconds;
+  }
+
+  /**
+   * Returns whether TLS session tickets should be enabled, or null if the default of the JVM should
+   * be used.
+   */
+  @Nullable
+  public Boolean getSslSessionTickets() {
+    return this.sslSessionTickets;
+  }
+
   public boolean shouldAutoDetectClient() {
     return !this.disableAutoDetectClient;
   }
@@ -0,0 +1,224 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import com.google.cloud.spanner.pgadapter.metadata.ConnectionMetadata.InputWaiter;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InputStream} that can read ahead from the underlying stream on a separate thread. The
+ * stream reads directly from the underlying stream until {@link #start(int, ThreadFactory)} is
+ * called. After that, a background thread continuously reads from the underlying stream into a
+ * bounded ring buffer, while the connection is executing the messages that it has already received.
+ * Pipelining clients that send the next batch of messages before the results of the previous batch
+ * have been returned can therefore keep sending, and the next batch is already in memory when the
+ * connection is ready to handle it.
+ *
+ * <p>The bytes are returned in the same order as they were received. Any error or end-of-stream
+ * that is encountered by the background thread is only returned after all data that was read before
+ * it has been consumed.
+ */
+final class ReadAheadInputStream extends InputStream implements InputWaiter {
+  private final InputStream source;
+  private final Object lock = new Object();
+  private volatile boolean started;
+  private byte[] buffer;
+  private int readPosition;
+  private int count;
+  private boolean endOfStream;
+  private IOException failure;
+  private boolean closed;
+
+  ReadAheadInputStream(InputStream source) {
+    this.source = Preconditions.checkNotNull(source);
+  }
+
+  /**
+   * Starts reading ahead from the underlying stream on a background thread that is created by the
+   * given factory. The thread reads at most maxBytes bytes ahead of the consumer of this stream.
+   * This method must be called by the thread that consumes this stream, and only while it is not
+   * reading.
+   */
+  void start(int maxBytes, ThreadFactory threadFactory) {
+    Preconditions.checkArgument(maxBytes > 0, "maxBytes must be > 0");
+    synchronized (lock) {
+      if (started || closed) {
+        return;
+      }
+      this.buffer = new byte[maxBytes];
+      this.started = true;
+    }
+    threadFactory.newThread(this::readAhead).start();
+  }
+
+  /** Returns true if this stream is reading ahead on a background thread. */
+  boolean isStarted() {
+    return started;
+  }
+
+  private void readAhead() {
+    try {
+      while (true) {
+        int writePosition;
+        int length;
+        synchronized (lock) {
+          while (count == buffer.length && !closed) {
+            lock.wait();
+          }
+          if (closed) {
+            return;
+          }
+          writePosition = (readPosition + count) % buffer.length;
+          length = Math.min(buffer.length - count, buffer.length - writePosition);
+        }
+        // The free part of the buffer is only written by this thread, so it can be filled without
+        // holding the lock.
+        int read = source.read(buffer, writePosition, length);
+        synchronized (lock) {
+          if (read == -1) {
+            endOfStream = true;
+            lock.notifyAll();
+            return;
+          }
+          count += read;
+          lock.notifyAll();
+        }
+      }
+    } catch (IOException ioException) {
+      synchronized (lock) {
+        failure = ioException;
+        lock.notifyAll();
+      }
+    } catch (InterruptedException interruptedException) {
+      synchronized (lock) {
+        failure = new IOException("Reading ahead was interrupted", interruptedException);
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Waits until data is available or no more data will become available. Interrupts are not handled
+   * while waiting, as a blocking socket read does not react to interrupts either. The interrupted
+   * flag of the thread is restored before returning.
+   *
+   * @return true if data is available.
+   */
+  private boolean awaitData(long deadlineNanos) throws IOException {
+    boolean interrupted = false;
+    try {
+      while (count == 0) {
+        if (failure != null) {
+          throw failure;
+        }
+        if (closed) {
+          throw new IOException("Stream closed");
+        }
+        if (endOfStream) {
+          return false;
+        }
+        try {
+          if (deadlineNanos == Long.MAX_VALUE) {
+            lock.wait();
+          } else {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0L) {
+              return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+          }
+        } catch (InterruptedException interruptedException) {
+          interrupted = true;
+        }
+      }
+      return true;
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!started) {
+      return source.read();
+    }
+    synchronized (lock) {
+      if (!awaitData(Long.MAX_VALUE)) {
+        return -1;
+      }
+      int result = buffer[readPosition] & 0xff;
+      consume(1);
+      return result;
+    }
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (!started) {
+      return source.read(b, off, len);
+    }
+    Preconditions.checkPositionIndexes(off, off + len, b.length);
+    if (len == 0) {
+      return 0;
+    }
+    synchronized (lock) {
+      if (!awaitData(Long.MAX_VALUE)) {
+        return -1;
+      }
+      int result = Math.min(len, Math.min(count, buffer.length - readPosition));
+      System.arraycopy(buffer, readPosition, b, off, result);
+      consume(result);
+      return result;
+    }
+  }
+
+  private void consume(int length) {
+    readPosition = (readPosition + length) % buffer.length;
+    count -= length;
+    lock.notifyAll();
+  }
+
+  @Override
+  public int available() throws IOException {
+    if (!started) {
+      return source.available();
+    }
+    synchronized (lock) {
+      return count;
+    }
+  }
+
+  @Override
+  public boolean awaitInput(long maxWaitMillis) throws IOException {
+    synchronized (lock) {
+      return awaitData(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis));
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (lock) {
+      closed = true;
+      lock.notifyAll();
+    }
+    source.close();
+  }
+}
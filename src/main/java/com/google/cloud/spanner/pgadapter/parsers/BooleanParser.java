@@ -77,11 +77,16 @@ public class BooleanParser extends Parser<Boolean> {
 
   /** Converts the given binary data to a boolean value. */
   public static boolean toBoolean(@Nonnull byte[] data) {
-    if (data.length == 0) {
+    return toBoolean(data, 0, data.length);
+  }
+
+  /** Converts the binary data with the given length at the given offset to a boolean value. */
+  public static boolean toBoolean(@Nonnull byte[] data, int offset, int length) {
+    if (length == 0) {
       throw SpannerExceptionFactory.newSpannerException(
-          ErrorCode.INVALID_ARGUMENT, "Invalid length for bool: " + data.length);
+          ErrorCode.INVALID_ARGUMENT, "Invalid length for bool: " + length);
     }
-    return ByteConverter.bool(data, 0);
+    return ByteConverter.bool(data, offset);
   }
 
   /** Converts the string to a boolean value according to the PostgreSQL specs. */
@@ -58,7 +58,10 @@ public class DateParser extends Parser<Date> {
           String stringValue = new String(item, UTF8);
           // Use the first 10 characters of the date string, as the string might contain a timezone
           // identifier, which is not supported by parseDate(String).
-          if (stringValue.length() >= 10) {
+          Date date = DateTimeScanner.parseDatePrefix(stringValue);
+          if (date != null) {
+            this.item = date;
+          } else if (stringValue.length() >= 10) {
             this.item = Date.parseDate(stringValue.substring(0, 10));
           } else {
             throw PGExceptionFactory.newPGException("Invalid date value: " + stringValue);
@@ -75,11 +78,16 @@ public class DateParser extends Parser<Date> {
 
   /** Converts the binary data to a {@link Date}. */
   public static Date toDate(@Nonnull byte[] data) {
-    if (data.length < 4) {
+    return toDate(data, 0, data.length);
+  }
+
+  /** Converts the binary data with the given length at the given offset to a {@link Date}. */
+  public static Date toDate(@Nonnull byte[] data, int offset, int length) {
+    if (length < 4) {
       throw SpannerExceptionFactory.newSpannerException(
-          ErrorCode.INVALID_ARGUMENT, "Invalid length for date: " + data.length);
+          ErrorCode.INVALID_ARGUMENT, "Invalid length for date: " + length);
     }
-    long days = ByteConverter.int4(data, 0) + PG_EPOCH_DAYS;
+    long days = ByteConverter.int4(data, offset) + PG_EPOCH_DAYS;
     LocalDate localDate = LocalDate.ofEpochDay(validateRange(days));
     return Date.fromYearMonthDay(
         localDate.getYear(), localDate.getMonthValue(), localDate.getDayOfMonth());
@@ -0,0 +1,256 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.parsers;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Single-pass scanner for the date and timestamp literals that clients normally send, for example
+ * '2022-10-09', '2022-10-09 10:09:18.123456' and '2022-10-09T10:09:18+02:00'. The scanner does not
+ * throw any exceptions. It returns null for any value that it does not recognize, and the caller
+ * then falls back to the {@link java.time.format.DateTimeFormatter} based parsing, which also
+ * handles exotic inputs and returns the correct error for invalid values. The scanner accepts any
+ * {@link CharSequence}, so it can also be used for values that have not been converted to a String.
+ *
+ * <p>The recognized formats are:
+ *
+ * <ul>
+ *   <li>Dates: 'yyyy-MM-dd'
+ *   <li>Timestamps: 'yyyy-MM-dd[( |T)HH:mm[:ss[.f]][offset]]', where the fraction has 1 to 9 digits
+ *       and the offset is 'Z', '+HH', '+HH:mm' or '+HH:mm:ss'. The offset may only be used if the
+ *       timestamp contains seconds.
+ * </ul>
+ *
+ * <p>Values that would be adjusted by the lenient formatters, such as 2022-02-30 or 24:00, are not
+ * recognized by this scanner, so the formatters determine the result for those values.
+ */
+@InternalApi
+public final class DateTimeScanner {
+  private static final long MIN_EPOCH_SECONDS = Timestamp.MIN_VALUE.getSeconds();
+  private static final long MAX_EPOCH_SECONDS = Timestamp.MAX_VALUE.getSeconds();
+  private static final int MAX_OFFSET_SECONDS = 18 * 3600;
+  private static final int[] NANO_MULTIPLIERS = {
+    100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1
+  };
+
+  private DateTimeScanner() {}
+
+  /**
+   * Parses a date in the format 'yyyy-MM-dd' at the start of the given value, and returns null if
+   * the value does not start with a valid date in that format.
+   */
+  @Nullable
+  public static Date parseDatePrefix(@Nonnull CharSequence value) {
+    if (value.length() < 10) {
+      return null;
+    }
+    int year = parseDate(value);
+    if (year < 0) {
+      return null;
+    }
+    return Date.fromYearMonthDay(year, digits(value, 5, 2), digits(value, 8, 2));
+  }
+
+  /**
+   * Parses a timestamp literal in one of the recognized formats. The given timezone is used if the
+   * value does not contain an offset. Returns null if the value is not in one of the recognized
+   * formats, or if the value is outside the range of a {@link Timestamp}.
+   */
+  @Nullable
+  public static Timestamp parseTimestamp(@Nonnull CharSequence value, @Nonnull ZoneId timezone) {
+    int length = value.length();
+    if (length < 10) {
+      return null;
+    }
+    int year = parseDate(value);
+    if (year < 0) {
+      return null;
+    }
+    int month = digits(value, 5, 2);
+    int day = digits(value, 8, 2);
+    int hour = 0;
+    int minute = 0;
+    int second = 0;
+    int nano = 0;
+    boolean hasOffset = false;
+    int offsetSeconds = 0;
+
+    int pos = 10;
+    if (pos < length) {
+      char separator = value.charAt(pos);
+      if ((separator != ' ' && separator != 'T')
+          || length < pos + 6
+          || value.charAt(pos + 3) != ':') {
+        return null;
+      }
+      hour = digits(value, pos + 1, 2);
+      minute = digits(value, pos + 4, 2);
+      if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+        return null;
+      }
+      pos += 6;
+      if (pos < length) {
+        if (value.charAt(pos) != ':' || length < pos + 3) {
+          return null;
+        }
+        second = digits(value, pos + 1, 2);
+        if (second < 0 || second > 59) {
+          return null;
+        }
+        pos += 3;
+        if (pos < length && value.charAt(pos) == '.') {
+          int start = ++pos;
+          while (pos < length && pos - start < 9 && isDigit(value.charAt(pos))) {
+            nano = nano * 10 + (value.charAt(pos) - '0');
+            pos++;
+          }
+          if (pos == start) {
+            return null;
+          }
+          nano *= NANO_MULTIPLIERS[pos - start - 1];
+        }
+        if (pos < length) {
+          offsetSeconds = parseOffset(value, pos);
+          if (offsetSeconds == Integer.MIN_VALUE) {
+            return null;
+          }
+          hasOffset = true;
+        }
+      }
+    }
+
+    long epochSeconds;
+    if (hasOffset) {
+      long epochDay = toEpochDay(year, month, day);
+      epochSeconds = epochDay * 86400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+    } else {
+      epochSeconds =
+          LocalDateTime.of(year, month, day, hour, minute, second).atZone(timezone).toEpochSecond();
+    }
+    if (epochSeconds < MIN_EPOCH_SECONDS || epochSeconds > MAX_EPOCH_SECONDS) {
+      return null;
+    }
+    return Timestamp.ofTimeSecondsAndNanos(epochSeconds, nano);
+  }
+
+  /**
+   * Parses the date part 'yyyy-MM-dd' at the start of the value and returns the year, or -1 if the
+   * value does not start with a valid date.
+   */
+  private static int parseDate(CharSequence value) {
+    if (value.charAt(4) != '-' || value.charAt(7) != '-') {
+      return -1;
+    }
+    int year = digits(value, 0, 4);
+    int month = digits(value, 5, 2);
+    int day = digits(value, 8, 2);
+    if (year < 1 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+      return -1;
+    }
+    return year;
+  }
+
+  /**
+   * Parses an offset in the format 'Z', '+HH', '+HH:mm' or '+HH:mm:ss' that runs until the end of
+   * the value. Returns the offset in seconds, or {@link Integer#MIN_VALUE} if the offset is
+   * invalid.
+   */
+  private static int parseOffset(CharSequence value, int pos) {
+    int length = value.length();
+    char sign = value.charAt(pos);
+    if (sign == 'Z') {
+      return pos + 1 == length ? 0 : Integer.MIN_VALUE;
+    }
+    if ((sign != '+' && sign != '-') || length < pos + 3) {
+      return Integer.MIN_VALUE;
+    }
+    int hours = digits(value, pos + 1, 2);
+    int minutes = 0;
+    int seconds = 0;
+    pos += 3;
+    if (pos < length) {
+      if (value.charAt(pos) != ':' || length < pos + 3) {
+        return Integer.MIN_VALUE;
+      }
+      minutes = digits(value, pos + 1, 2);
+      pos += 3;
+      if (pos < length) {
+        if (value.charAt(pos) != ':' || length != pos + 3) {
+          return Integer.MIN_VALUE;
+        }
+        seconds = digits(value, pos + 1, 2);
+      }
+    }
+    if (hours < 0 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+      return Integer.MIN_VALUE;
+    }
+    int offset = hours * 3600 + minutes * 60 + seconds;
+    if (offset > MAX_OFFSET_SECONDS) {
+      return Integer.MIN_VALUE;
+    }
+    return sign == '-' ? -offset : offset;
+  }
+
+  /** Returns the value of the given number of digits at the given position, or -1 if invalid. */
+  private static int digits(CharSequence value, int pos, int count) {
+    int result = 0;
+    for (int i = pos; i < pos + count; i++) {
+      char c = value.charAt(i);
+      if (!isDigit(c)) {
+        return -1;
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * Returns the number of days since 1970-01-01 for the given date in the proleptic Gregorian
+   * calendar. This is the 'days from civil' algorithm from
+   * http://howardhinnant.github.io/date_algorithms.html.
+   */
+  private static long toEpochDay(int year, int month, int day) {
+    long y = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv(y, 400L);
+    long yearOfEra = y - era * 400L;
+    long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2L) / 5L + day - 1L;
+    long dayOfEra = yearOfEra * 365L + yearOfEra / 4L - yearOfEra / 100L + dayOfYear;
+    return era * 146097L + dayOfEra - 719468L;
+  }
+}
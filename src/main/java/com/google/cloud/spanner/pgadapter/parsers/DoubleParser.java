@@ -59,11 +59,16 @@ public class DoubleParser extends Parser<Double> {
 
   /** Converts the binary data to a double value. */
   public static double toDouble(@Nonnull byte[] data) {
-    if (data.length < 8) {
+    return toDouble(data, 0, data.length);
+  }
+
+  /** Converts the binary data with the given length at the given offset to a double value. */
+  public static double toDouble(@Nonnull byte[] data, int offset, int length) {
+    if (length < 8) {
       throw SpannerExceptionFactory.newSpannerException(
-          ErrorCode.INVALID_ARGUMENT, "Invalid length for float8: " + data.length);
+          ErrorCode.INVALID_ARGUMENT, "Invalid length for float8: " + length);
     }
-    return ByteConverter.float8(data, 0);
+    return ByteConverter.float8(data, offset);
   }
 
   @Override
@@ -23,7 +23,6 @@ import com.google.cloud.spanner.pgadapter.error.PGException;
 import com.google.cloud.spanner.pgadapter.error.SQLState;
 import com.google.cloud.spanner.pgadapter.error.Severity;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import javax.annotation.Nonnull;
 
 /** Translate from wire protocol to jsonb. */
@@ -54,11 +53,16 @@ public class JsonbParser extends Parser<String> {
 
   /** Converts the binary data to an UTF8 string. */
   public static String toString(@Nonnull byte[] data) {
-    if (data.length > 0) {
-      if (data[0] == 1) {
-        return new String(Arrays.copyOfRange(data, 1, data.length), StandardCharsets.UTF_8);
+    return toString(data, 0, data.length);
+  }
+
+  /** Converts the binary data with the given length at the given offset to an UTF8 string. */
+  public static String toString(@Nonnull byte[] data, int offset, int length) {
+    if (length > 0) {
+      if (data[offset] == 1) {
+        return new String(data, offset + 1, length - 1, StandardCharsets.UTF_8);
       } else {
-        throw PGException.newBuilder("Unknown version in binary jsonb value: " + data[0])
+        throw PGException.newBuilder("Unknown version in binary jsonb value: " + data[offset])
             .setSQLState(SQLState.RaiseException)
             .setSeverity(Severity.ERROR)
             .build();
@@ -62,17 +62,22 @@ public class LongParser extends Parser<Long> {
 
   /** Converts the binary data to a long value. */
   public static long toLong(@Nonnull byte[] data) {
-    if (data.length >= 8) {
-      return ByteConverter.int8(data, 0);
-    } else if (data.length == 4) {
+    return toLong(data, 0, data.length);
+  }
+
+  /** Converts the binary data with the given length at the given offset to a long value. */
+  public static long toLong(@Nonnull byte[] data, int offset, int length) {
+    if (length >= 8) {
+      return ByteConverter.int8(data, offset);
+    } else if (length == 4) {
       // We allow 4-byte values for bigint as well, because Spangres allows the use of the int type
       // in create table statements. This is automatically converted to a bigint column, but it
       // could be that someone uses the same DDL statement to create a table in both real
       // PostgresSQL and Spangres, and this keeps copying data between them possible.
-      return ByteConverter.int4(data, 0);
+      return ByteConverter.int4(data, offset);
     } else {
       throw SpannerExceptionFactory.newSpannerException(
-          ErrorCode.INVALID_ARGUMENT, "Invalid length for int8: " + data.length);
+          ErrorCode.INVALID_ARGUMENT, "Invalid length for int8: " + length);
     }
   }
 
@@ -62,11 +62,19 @@ public class NumericParser extends Parser<String> {
    * valid numeric string or 'NaN'.
    */
   public static String toNumericString(@Nonnull byte[] data) {
-    if (data.length < 8) {
+    return toNumericString(data, 0, data.length);
+  }
+
+  /**
+   * Converts the binary data with the given length at the given offset to a string representation
+   * of the numeric value.
+   */
+  public static String toNumericString(@Nonnull byte[] data, int offset, int length) {
+    if (length < 8) {
       throw SpannerExceptionFactory.newSpannerException(
-          ErrorCode.INVALID_ARGUMENT, "Invalid length for numeric: " + data.length);
+          ErrorCode.INVALID_ARGUMENT, "Invalid length for numeric: " + length);
     }
-    Number number = ByteConverter.numeric(data, 0, data.length);
+    Number number = ByteConverter.numeric(data, offset, length);
     return number == null ? null : number.toString();
   }
 
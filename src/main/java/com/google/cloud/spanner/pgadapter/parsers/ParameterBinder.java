@@ -0,0 +1,281 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.parsers;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.pgadapter.parsers.Parser.FormatCode;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import javax.annotation.Nullable;
+import org.postgresql.core.Oid;
+import org.postgresql.util.ByteConverter;
+
+/**
+ * Binds a parameter value in the wire-protocol format to a {@link Statement.Builder}. A binder is
+ * resolved once for each combination of parameter type and format code, and can then be used for
+ * all executions of a prepared statement. The binders for the most common types decode the value
+ * directly from the bytes that were received from the client, without creating a {@link Parser} and
+ * without creating any intermediate objects. All other types are bound by the {@link Parser} for
+ * the type.
+ *
+ * <p>The binders produce the same values and errors as the {@link Parser} for the same type and
+ * format code.
+ */
+@InternalApi
+public abstract class ParameterBinder {
+  private static final String[] PARAMETER_NAMES = new String[64];
+
+  static {
+    for (int i = 0; i < PARAMETER_NAMES.length; i++) {
+      PARAMETER_NAMES[i] = "p" + (i + 1);
+    }
+  }
+
+  /** Returns the name of the parameter at the given (zero-based) index, e.g. 'p1'. */
+  public static String getParameterName(int index) {
+    return index < PARAMETER_NAMES.length ? PARAMETER_NAMES[index] : "p" + (index + 1);
+  }
+
+  /** Returns a binder for parameters with the given type and format code. */
+  public static ParameterBinder create(int oid, FormatCode formatCode) {
+    switch (oid) {
+      case Oid.BOOL:
+        return formatCode == FormatCode.BINARY ? BOOL_BINARY : BOOL_TEXT;
+      case Oid.INT2:
+        return formatCode == FormatCode.BINARY ? INT2_BINARY : new IntTextBinder(oid);
+      case Oid.INT4:
+        return formatCode == FormatCode.BINARY ? INT4_BINARY : new IntTextBinder(oid);
+      case Oid.INT8:
+        return formatCode == FormatCode.BINARY ? INT8_BINARY : new IntTextBinder(oid);
+      case Oid.FLOAT8:
+        return formatCode == FormatCode.BINARY ? FLOAT8_BINARY : FLOAT8_TEXT;
+      case Oid.TEXT:
+      case Oid.VARCHAR:
+        return STRING;
+      case Oid.UNSPECIFIED:
+        return UNSPECIFIED;
+      default:
+        return new ParserBinder(oid, formatCode);
+    }
+  }
+
+  /**
+   * Binds the given value to the parameter with the given name.
+   *
+   * @param builder the builder of the statement that the value should be bound to
+   * @param name the name of the parameter
+   * @param value the value in wire-protocol format, or null for a null value
+   * @param sessionState the session state of the connection, which is used for types that depend on
+   *     session settings, such as timestamps
+   */
+  public abstract void bind(
+      Statement.Builder builder, String name, @Nullable byte[] value, SessionState sessionState);
+
+  /**
+   * Returns true if the values that are bound by this binder only depend on the bytes of the value,
+   * and not on the session state of the connection.
+   */
+  public boolean isIndependentOfSessionState() {
+    return true;
+  }
+
+  private static final ParameterBinder BOOL_BINARY =
+      new ParameterBinder() {
+        @Override
+        public void bind(
+            Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+          builder.bind(name).to(value == null ? null : BooleanParser.toBoolean(value));
+        }
+      };
+
+  private static final ParameterBinder BOOL_TEXT =
+      new ParameterBinder() {
+        @Override
+        public void bind(
+            Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+          builder
+              .bind(name)
+              .to(
+                  value == null
+                      ? null
+                      : BooleanParser.toBoolean(
+                          new String(value, StandardCharsets.UTF_8).toLowerCase(Locale.ENGLISH)));
+        }
+      };
+
+  private static final ParameterBinder INT2_BINARY =
+      new ParameterBinder() {
+        @Override
+        public void bind(
+            Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+          builder.bind(name).to(value == null ? null : (long) ByteConverter.int2(value, 0));
+        }
+      };
+
+  private static final ParameterBinder INT4_BINARY =
+      new ParameterBinder() {
+        @Override
+        public void bind(
+            Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+          builder.bind(name).to(value == null ? null : (long) ByteConverter.int4(value, 0));
+        }
+      };
+
+  private static final ParameterBinder INT8_BINARY =
+      new ParameterBinder() {
+        @Override
+        public void bind(
+            Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+          builder.bind(name).to(value == null ? null : LongParser.toLong(value));
+        }
+      };
+
+  private static final ParameterBinder FLOAT8_BINARY =
+      new ParameterBinder() {
+        @Override
+        public void bind(
+            Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+          builder.bind(name).to(value == null ? null : DoubleParser.toDouble(value));
+        }
+      };
+
+  private static final ParameterBinder FLOAT8_TEXT =
+      new ParameterBinder() {
+        @Override
+        public void bind(
+            Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+          builder
+              .bind(name)
+              .to(value == null ? null : new DoubleParser(value, FormatCode.TEXT).item);
+        }
+      };
+
+  private static final ParameterBinder STRING =
+      new ParameterBinder() {
+        @Override
+        public void bind(
+            Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+          builder.bind(name).to(value == null ? null : StringParser.toString(value));
+        }
+      };
+
+  private static final ParameterBinder UNSPECIFIED =
+      new ParameterBinder() {
+        @Override
+        public void bind(
+            Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+          builder
+              .bind(name)
+              .to(
+                  value == null
+                      ? null
+                      : Value.untyped(
+                          com.google.protobuf.Value.newBuilder()
+                              .setStringValue(new String(value, StandardCharsets.UTF_8))
+                              .build()));
+        }
+      };
+
+  /**
+   * Binds integer values in text format. Values that only consist of digits with an optional minus
+   * sign are decoded directly from the bytes. All other values are handled by the {@link Parser}
+   * for the type, which also accepts values like '1.5' and '1e3', and returns the correct error for
+   * invalid values.
+   */
+  private static final class IntTextBinder extends ParameterBinder {
+    private final int oid;
+    private final long minValue;
+    private final long maxValue;
+
+    private IntTextBinder(int oid) {
+      this.oid = oid;
+      switch (oid) {
+        case Oid.INT2:
+          this.minValue = Short.MIN_VALUE;
+          this.maxValue = Short.MAX_VALUE;
+          break;
+        case Oid.INT4:
+          this.minValue = Integer.MIN_VALUE;
+          this.maxValue = Integer.MAX_VALUE;
+          break;
+        default:
+          this.minValue = Long.MIN_VALUE;
+          this.maxValue = Long.MAX_VALUE;
+      }
+    }
+
+    @Override
+    public void bind(
+        Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+      if (value == null) {
+        builder.bind(name).to((Long) null);
+        return;
+      }
+      long result = parseDigits(value);
+      if (result == Long.MIN_VALUE || result < minValue || result > maxValue) {
+        Parser.create(sessionState, value, oid, FormatCode.TEXT).bind(builder, name);
+      } else {
+        builder.bind(name).to(result);
+      }
+    }
+
+    /**
+     * Parses a value that consists of at most 18 digits and an optional leading minus sign. Returns
+     * {@link Long#MIN_VALUE} if the value has any other format.
+     */
+    private static long parseDigits(byte[] value) {
+      int length = value.length;
+      boolean negative = length > 0 && value[0] == '-';
+      int start = negative ? 1 : 0;
+      if (length == start || length - start > 18) {
+        return Long.MIN_VALUE;
+      }
+      long result = 0L;
+      for (int i = start; i < length; i++) {
+        int digit = value[i] - '0';
+        if (digit < 0 || digit > 9) {
+          return Long.MIN_VALUE;
+        }
+        result = result * 10L + digit;
+      }
+      return negative ? -result : result;
+    }
+  }
+
+  /** Binds values using the {@link Parser} for the type. */
+  private static final class ParserBinder extends ParameterBinder {
+    private final int oid;
+    private final FormatCode formatCode;
+
+    private ParserBinder(int oid, FormatCode formatCode) {
+      this.oid = oid;
+      this.formatCode = formatCode;
+    }
+
+    @Override
+    public void bind(
+        Statement.Builder builder, String name, byte[] value, SessionState sessionState) {
+      Parser.create(sessionState, value, oid, formatCode).bind(builder, name);
+    }
+
+    @Override
+    public boolean isIndependentOfSessionState() {
+      return false;
+    }
+  }
+}
@@ -43,6 +43,11 @@ public class StringParser extends Parser<String> {
     return new String(data, UTF8);
   }
 
+  /** Converts the binary data with the given length at the given offset to an UTF8 string. */
+  public static String toString(@Nonnull byte[] data, int offset, int length) {
+    return new String(data, offset, length, UTF8);
+  }
+
   @Override
   public String stringParse() {
     return this.item;
@@ -109,11 +109,16 @@ public class TimestampParser extends Parser<Timestamp> {
 
   /** Converts the binary data to a {@link Timestamp}. */
   public static Timestamp toTimestamp(@Nonnull byte[] data) {
-    if (data.length < 8) {
+    return toTimestamp(data, 0, data.length);
+  }
+
+  /** Converts the binary data with the given length at the given offset to a {@link Timestamp}. */
+  public static Timestamp toTimestamp(@Nonnull byte[] data, int offset, int length) {
+    if (length < 8) {
       throw SpannerExceptionFactory.newSpannerException(
-          ErrorCode.INVALID_ARGUMENT, "Invalid length for timestamptz: " + data.length);
+          ErrorCode.INVALID_ARGUMENT, "Invalid length for timestamptz: " + length);
     }
-    long pgMicros = ByteConverter.int8(data, 0);
+    long pgMicros = ByteConverter.int8(data, offset);
     com.google.cloud.Timestamp ts = com.google.cloud.Timestamp.ofTimeMicroseconds(pgMicros);
     long javaSeconds = ts.getSeconds() + PG_EPOCH_SECONDS;
     int javaNanos = ts.getNanos();
@@ -126,6 +131,18 @@ public class TimestampParser extends Parser<Timestamp> {
    */
   public static Timestamp toTimestamp(@Nonnull String value, @Nonnull ZoneId timezone) {
     value = stripBracketsAndQuotes(value);
+    Timestamp timestamp = DateTimeScanner.parseTimestamp(value, timezone);
+    if (timestamp != null) {
+      return timestamp;
+    }
+    return parseWithFormatter(value, timezone);
+  }
+
+  /**
+   * Parses the given timestamp string using the lenient {@link DateTimeFormatter}s. This is only
+   * used for values that are not recognized by {@link DateTimeScanner}.
+   */
+  static Timestamp parseWithFormatter(@Nonnull String value, @Nonnull ZoneId timezone) {
     try {
       String stringValue = toPGString(value);
       TemporalAccessor temporalAccessor = TIMESTAMPTZ_INPUT_FORMATTER.parse(stringValue);
@@ -233,7 +250,11 @@ public class TimestampParser extends Parser<Timestamp> {
     return value.replace(TIMESTAMP_SEPARATOR, EMPTY_SPACE).replace(ZERO_TIMEZONE, PG_ZERO_TIMEZONE);
   }
 
-  private static String toPGString(Timestamp value, ZoneId zoneId) {
+  /**
+   * Converts the given {@link Timestamp} to a timestamptz text value in the given timezone, for
+   * example '2022-02-16 14:18:02.123456+01'.
+   */
+  public static String toPGString(Timestamp value, ZoneId zoneId) {
     OffsetDateTime offsetDateTime =
         OffsetDateTime.ofInstant(
             Instant.ofEpochSecond(value.getSeconds(), value.getNanos()), zoneId);
@@ -88,6 +88,23 @@ public class CopySettings {
     return sessionState.getIntegerSetting("spanner", "copy_max_parallelism", 128);
   }
 
+  /**
+   * Returns the number of threads that parse the data of a single COPY operation. The data is
+   * parsed by the thread that also batches the mutations if this is 1.
+   */
+  public int getParseParallelism() {
+    return sessionState.getIntegerSetting("spanner", "copy_parse_parallelism", 1);
+  }
+
+  /**
+   * Returns whether a non-atomic COPY operation that uses multiple parse threads should write the
+   * rows in the order that they were received. Setting this to false allows the rows of a chunk of
+   * data to be batched as soon as that chunk has been parsed.
+   */
+  public boolean isCommitInOrder() {
+    return sessionState.getBoolSetting("spanner", "copy_commit_in_order", true);
+  }
+
   /** Returns the commit timeout for COPY operations in seconds. */
   public int getCommitTimeoutSeconds() {
     return sessionState.getIntegerSetting("spanner", "copy_commit_timeout", 300);
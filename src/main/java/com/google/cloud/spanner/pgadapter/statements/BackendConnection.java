@@ -238,7 +238,11 @@ public class BackendConnection {
           if (transactionMode == TransactionMode.DDL_BATCH) {
             try {
               if (isCommit(parsedStatement)) {
-                spannerConnection.runBatch();
+                try {
+                  spannerConnection.runBatch();
+                } finally {
+                  schemaChanged();
+                }
               } else {
                 spannerConnection.abortBatch();
               }
@@ -666,6 +670,7 @@ public class BackendConnection {
   private final Connection spannerConnection;
   private final DatabaseId databaseId;
   private final DdlExecutor ddlExecutor;
+  private final Runnable schemaChangeListener;
 
   /** Creates a PG backend connection that uses the given Spanner {@link Connection} and options. */
   BackendConnection(
@@ -674,6 +679,22 @@ public class BackendConnection {
       Supplier<WellKnownClient> wellKnownClient,
       OptionsMetadata optionsMetadata,
       Supplier<ImmutableList<LocalStatement>> localStatements) {
+    this(
+        databaseId, spannerConnection, wellKnownClient, optionsMetadata, localStatements, () -> {});
+  }
+
+  /**
+   * Creates a PG backend connection that uses the given Spanner {@link Connection} and options. The
+   * given listener is called each time that DDL has been executed on the database.
+   */
+  BackendConnection(
+      DatabaseId databaseId,
+      Connection spannerConnection,
+      Supplier<WellKnownClient> wellKnownClient,
+      OptionsMetadata optionsMetadata,
+      Supplier<ImmutableList<LocalStatement>> localStatements,
+      Runnable schemaChangeListener) {
+    this.schemaChangeListener = schemaChangeListener;
     this.sessionState = new SessionState(optionsMetadata);
     this.pgCatalog =
         Suppliers.memoize(
@@ -881,6 +902,7 @@ public class BackendConnection {
             throw exception;
           } finally {
             transactionMode = TransactionMode.EXPLICIT;
+            schemaChanged();
           }
           spannerConnection.beginTransaction();
         }
@@ -1156,6 +1178,11 @@ public class BackendConnection {
         .anyMatch(BufferedStatement::isUpdate);
   }
 
+  /** Returns true if this connection has statements that have not yet been executed. */
+  public boolean hasBufferedStatements() {
+    return !bufferedStatements.isEmpty();
+  }
+
   private int getStatementCount() {
     return bufferedStatements.size();
   }
@@ -1249,10 +1276,22 @@ public class BackendConnection {
     } catch (Throwable exception) {
       bufferedStatements.get(fromIndex).result.setException(exception);
       throw exception;
+    } finally {
+      if (batchType == StatementType.DDL) {
+        schemaChanged();
+      }
     }
     return index - fromIndex;
   }
 
+  /**
+   * Notifies the listener of this connection that DDL has been executed, so any cached metadata for
+   * the database can be invalidated.
+   */
+  void schemaChanged() {
+    schemaChangeListener.run();
+  }
+
   /**
    * Extracts the update count for a list of DDL statements. It could be that the DdlExecutor
    * decided to skip some DDL statements. This is indicated by the executor returning a {@link
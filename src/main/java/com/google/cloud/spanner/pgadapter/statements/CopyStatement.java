@@ -24,6 +24,7 @@ import com.google.cloud.spanner.connection.AbstractStatementParser.ParsedStateme
 import com.google.cloud.spanner.connection.AbstractStatementParser.StatementType;
 import com.google.cloud.spanner.connection.AutocommitDmlMode;
 import com.google.cloud.spanner.pgadapter.ConnectionHandler;
+import com.google.cloud.spanner.pgadapter.ProxyServer;
 import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
 import com.google.cloud.spanner.pgadapter.error.PGException;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
@@ -32,17 +33,17 @@ import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.parsers.BooleanParser;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement.ParsedCopyStatement.Direction;
 import com.google.cloud.spanner.pgadapter.statements.SimpleParser.TableOrIndexName;
+import com.google.cloud.spanner.pgadapter.utils.CopyCommitExecutor;
 import com.google.cloud.spanner.pgadapter.utils.CopyDataReceiver;
 import com.google.cloud.spanner.pgadapter.utils.MutationWriter;
 import com.google.cloud.spanner.pgadapter.utils.MutationWriter.CopyTransactionMode;
+import com.google.cloud.spanner.pgadapter.utils.ThreadFactories;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.apache.commons.csv.CSVFormat;
@@ -110,7 +111,11 @@ public class CopyStatement extends IntermediatePortalStatement {
   // The two are kept separate to allow each to execute at the maximum speed that it can.
   // The link between them is a piped output/input stream that ensures that backpressure is applied
   // to the client if the client is sending data at a higher speed than that the writer can handle.
-  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  // The writer runs on the threads of the COPY commit executor of the server. This executor also
+  // executes the commits of all COPY operations on the server.
+  private final CopyCommitExecutor commitExecutor;
+  /** True if the commit executor was created for only this statement. */
+  private final boolean ownsCommitExecutor;
 
   public CopyStatement(
       ConnectionHandler connectionHandler,
@@ -132,6 +137,19 @@ public class CopyStatement extends IntermediatePortalStatement {
         ImmutableList.of(),
         ImmutableList.of());
     this.parsedCopyStatement = parsedCopyStatement;
+    ProxyServer server = connectionHandler == null ? null : connectionHandler.getServer();
+    CopyCommitExecutor serverCommitExecutor =
+        server == null ? null : server.getCopyCommitExecutor();
+    this.ownsCommitExecutor = serverCommitExecutor == null;
+    this.commitExecutor =
+        serverCommitExecutor == null
+            ? new CopyCommitExecutor(
+                0,
+                0L,
+                ThreadFactories.create(
+                    "spanner-postgres-adapter-copy-",
+                    options != null && options.useVirtualThreads()))
+            : serverCommitExecutor;
   }
 
   @Override
@@ -153,7 +171,9 @@ public class CopyStatement extends IntermediatePortalStatement {
     if (this.mutationWriter != null) {
       this.mutationWriter.close();
     }
-    this.executor.shutdown();
+    if (this.ownsCommitExecutor) {
+      this.commitExecutor.getExecutor().shutdown();
+    }
     super.close();
   }
 
@@ -427,14 +447,18 @@ public class CopyStatement extends IntermediatePortalStatement {
               indexedColumnsCount,
               parsedCopyStatement.format,
               getParserFormat(),
-              hasHeader());
+              hasHeader(),
+              ThreadFactories.create(
+                  "spanner-postgres-adapter-copy-parse-",
+                  options != null && options.useVirtualThreads()),
+              commitExecutor);
       setFutureStatementResult(
           backendConnection.executeCopy(
               parsedStatement,
               statement,
               new CopyDataReceiver(this, this.connectionHandler),
               mutationWriter,
-              executor));
+              commitExecutor.getExecutor()));
     } catch (Exception e) {
       handleExecutionException(PGExceptionFactory.toPGException(e));
     }
@@ -178,7 +178,11 @@ class DdlExecutor {
   StatementResult execute(ParsedStatement parsedStatement, Statement statement) {
     Statement translated = translate(parsedStatement, statement);
     if (translated != null) {
-      return connection.execute(translated);
+      try {
+        return connection.execute(translated);
+      } finally {
+        backendConnection.schemaChanged();
+      }
     }
     return NOT_EXECUTED;
   }
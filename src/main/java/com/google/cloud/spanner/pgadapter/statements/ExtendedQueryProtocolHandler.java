@@ -15,14 +15,19 @@
 package com.google.cloud.spanner.pgadapter.statements;
 
 import com.google.cloud.spanner.pgadapter.ConnectionHandler;
+import com.google.cloud.spanner.pgadapter.ProxyServer;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
+import com.google.cloud.spanner.pgadapter.utils.FlushPolicy;
 import com.google.cloud.spanner.pgadapter.wireprotocol.AbstractQueryProtocolMessage;
+import com.google.cloud.spanner.pgadapter.wireprotocol.ExecuteMessage;
 import com.google.cloud.spanner.pgadapter.wireprotocol.SyncMessage;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * Handles the message flow for the extended query protocol. Wire-protocol messages are buffered in
@@ -32,6 +37,8 @@ public class ExtendedQueryProtocolHandler {
   private final LinkedList<AbstractQueryProtocolMessage> messages = new LinkedList<>();
   private final ConnectionHandler connectionHandler;
   private final BackendConnection backendConnection;
+  private final long flushLookaheadMillis;
+  @Nullable private final FlushPolicy flushPolicy;
 
   /** Creates an {@link ExtendedQueryProtocolHandler} for the given connection. */
   public ExtendedQueryProtocolHandler(ConnectionHandler connectionHandler) {
@@ -42,7 +49,10 @@ public class ExtendedQueryProtocolHandler {
             connectionHandler.getSpannerConnection(),
             connectionHandler::getWellKnownClient,
             connectionHandler.getServer().getOptions(),
-            () -> connectionHandler.getWellKnownClient().getLocalStatements(connectionHandler));
+            () -> connectionHandler.getWellKnownClient().getLocalStatements(connectionHandler),
+            connectionHandler::invalidateDescribeResults);
+    this.flushLookaheadMillis = getFlushLookaheadMillis(connectionHandler);
+    this.flushPolicy = getFlushPolicy(connectionHandler);
   }
 
   /** Constructor only intended for testing. */
@@ -51,6 +61,22 @@ public class ExtendedQueryProtocolHandler {
       ConnectionHandler connectionHandler, BackendConnection backendConnection) {
     this.connectionHandler = Preconditions.checkNotNull(connectionHandler);
     this.backendConnection = Preconditions.checkNotNull(backendConnection);
+    this.flushLookaheadMillis = getFlushLookaheadMillis(connectionHandler);
+    this.flushPolicy = getFlushPolicy(connectionHandler);
+  }
+
+  private static long getFlushLookaheadMillis(ConnectionHandler connectionHandler) {
+    ProxyServer server = connectionHandler.getServer();
+    if (server == null || server.getOptions() == null) {
+      return 0L;
+    }
+    return server.getOptions().getFlushLookaheadMillis();
+  }
+
+  @Nullable
+  private static FlushPolicy getFlushPolicy(ConnectionHandler connectionHandler) {
+    ProxyServer server = connectionHandler.getServer();
+    return server == null ? null : server.getFlushPolicy();
   }
 
   /** Returns the backend PG connection for this query handler. */
@@ -91,9 +117,10 @@ public class ExtendedQueryProtocolHandler {
    */
   public void flush() throws Exception {
     if (isExtendedProtocol()) {
-      // Wait at most 2 milliseconds for the next message to arrive. The method will just return 0
-      // if no message could be found in the buffer within this timeframe.
-      char nextMessage = connectionHandler.getConnectionMetadata().peekNextByte(2L);
+      // Wait a short time for the next message to arrive. The method will just return 0 if no
+      // message could be found in the buffer within this timeframe.
+      char nextMessage =
+          connectionHandler.getConnectionMetadata().peekNextByte(flushLookaheadMillis);
       if (nextMessage == SyncMessage.IDENTIFIER) {
         // Do a sync instead of a flush, as the next message is a sync. This tells the backend
         // connection that it is safe to for example use a read-only transaction if the buffer only
@@ -108,24 +135,45 @@ public class ExtendedQueryProtocolHandler {
   }
 
   private void internalFlush() throws Exception {
+    flushCorkedOutput();
     backendConnection.flush();
-    flushMessages();
+    flushMessages(true);
   }
 
   /**
    * Flushes the current queue of messages and commits the implicit transaction (if any). Any
    * pending database statements are first executed, before sending the wire-protocol responses to
    * the frontend.
+   *
+   * <p>The responses are not flushed to the frontend, as a sync is always followed by a
+   * ReadyForQuery response that is flushed together with these responses.
    */
   public void sync() throws Exception {
+    flushCorkedOutput();
     backendConnection.sync();
-    flushMessages();
+    flushMessages(false);
   }
 
-  /** Flushes the wire-protocol messages to the frontend. */
-  private void flushMessages() throws Exception {
+  /**
+   * Sends any output that was held back after a previous Sync to the frontend if the buffered
+   * statements require a round trip to Cloud Spanner.
+   */
+  private void flushCorkedOutput() throws IOException {
+    if (backendConnection.hasBufferedStatements()) {
+      connectionHandler.flushCorkedOutput();
+    }
+  }
+
+  /**
+   * Writes the wire-protocol responses of the buffered messages, and flushes them to the frontend
+   * if flush is true.
+   */
+  private void flushMessages(boolean flush) throws Exception {
     try {
       for (AbstractQueryProtocolMessage message : messages) {
+        if (flushPolicy != null && message instanceof ExecuteMessage) {
+          flushPolicy.recordQuery();
+        }
         message.flush();
         if (message.isReturnedErrorResponse()) {
           break;
@@ -135,7 +183,9 @@ public class ExtendedQueryProtocolHandler {
         throw PGExceptionFactory.newQueryCancelledException();
       }
     } finally {
-      connectionHandler.getConnectionMetadata().getOutputStream().flush();
+      if (flush) {
+        connectionHandler.getConnectionMetadata().getOutputStream().flush();
+      }
       messages.clear();
     }
   }
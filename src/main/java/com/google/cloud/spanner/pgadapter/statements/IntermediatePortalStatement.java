@@ -18,8 +18,6 @@ import com.google.api.core.InternalApi;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.connection.StatementResult;
 import com.google.cloud.spanner.connection.StatementResult.ResultType;
-import com.google.cloud.spanner.pgadapter.parsers.Parser;
-import com.google.cloud.spanner.pgadapter.parsers.Parser.FormatCode;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection.NoResult;
 import java.util.List;
 import java.util.concurrent.Future;
@@ -61,12 +59,16 @@ public class IntermediatePortalStatement extends IntermediatePreparedStatement {
   }
 
   public short getParameterFormatCode(int index) {
-    if (this.parameterFormatCodes.size() == 0) {
+    return getParameterFormatCode(this.parameterFormatCodes, index);
+  }
+
+  static short getParameterFormatCode(List<Short> parameterFormatCodes, int index) {
+    if (parameterFormatCodes.size() == 0) {
       return 0;
-    } else if (index >= this.parameterFormatCodes.size()) {
-      return this.parameterFormatCodes.get(0);
+    } else if (index >= parameterFormatCodes.size()) {
+      return parameterFormatCodes.get(0);
     } else {
-      return this.parameterFormatCodes.get(index);
+      return parameterFormatCodes.get(index);
     }
   }
 
@@ -108,22 +110,7 @@ public class IntermediatePortalStatement extends IntermediatePreparedStatement {
     // Make sure the results from any Describe message are propagated to the prepared statement
     // before using it to bind the parameter values.
     preparedStatement.describe();
-    Statement.Builder builder = statement.toBuilder();
-    for (int index = 0; index < parameters.length; index++) {
-      short formatCode = getParameterFormatCode(index);
-      int type = preparedStatement.getParameterDataType(index);
-      Parser<?> parser =
-          Parser.create(
-              connectionHandler
-                  .getExtendedQueryProtocolHandler()
-                  .getBackendConnection()
-                  .getSessionState(),
-              parameters[index],
-              type,
-              FormatCode.of(formatCode));
-      parser.bind(builder, "p" + (index + 1));
-    }
-    return builder.build();
+    return preparedStatement.bindParameters(statement, parameters, parameterFormatCodes);
   }
 
   @Override
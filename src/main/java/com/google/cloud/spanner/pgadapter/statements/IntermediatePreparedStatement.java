@@ -23,6 +23,10 @@ import com.google.cloud.spanner.pgadapter.ConnectionHandler;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.metadata.DescribeResult;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.parsers.ParameterBinder;
+import com.google.cloud.spanner.pgadapter.parsers.Parser.FormatCode;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.statements.ParsedStatementCache.CachedStatement;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -42,7 +46,22 @@ public class IntermediatePreparedStatement extends IntermediateStatement {
   private final String name;
   protected final int[] givenParameterDataTypes;
   protected Statement statement;
-  private Future<DescribeResult> describeResult;
+  private ListenableFuture<DescribeResult> describeResult;
+
+  /**
+   * The binders for the parameters of this statement. The binders are resolved for the parameter
+   * format codes in {@link #parameterBinderFormatCodes}, and for the parameter types that were
+   * known at the time, which depends on whether the statement had been described.
+   */
+  private ParameterBinder[] parameterBinders;
+
+  private List<Short> parameterBinderFormatCodes;
+  private boolean parameterBindersDescribed;
+  /** The last bound statement, which is reused if the same values are bound again. */
+  private Statement lastUnboundStatement;
+
+  private byte[][] lastParameters;
+  private Statement lastBoundStatement;
 
   public IntermediatePreparedStatement(
       ConnectionHandler connectionHandler,
@@ -57,6 +76,19 @@ public class IntermediatePreparedStatement extends IntermediateStatement {
     this.statement = originalStatement;
   }
 
+  public IntermediatePreparedStatement(
+      ConnectionHandler connectionHandler,
+      OptionsMetadata options,
+      String name,
+      int[] givenParameterDataTypes,
+      CachedStatement cachedStatement,
+      Statement originalStatement) {
+    super(connectionHandler, options, cachedStatement, originalStatement);
+    this.name = name;
+    this.givenParameterDataTypes = givenParameterDataTypes;
+    this.statement = originalStatement;
+  }
+
   public int[] getGivenParameterDataTypes() {
     return this.givenParameterDataTypes;
   }
@@ -81,6 +113,79 @@ public class IntermediatePreparedStatement extends IntermediateStatement {
     }
   }
 
+  /**
+   * Binds the given parameter values to the given statement, using the given format codes for the
+   * parameters. The binders for the parameters are only resolved once for all executions of this
+   * statement that use the same format codes. The previously bound statement is returned if the
+   * same values are bound to the same statement again, as long as the values do not depend on the
+   * session state of the connection.
+   */
+  Statement bindParameters(
+      Statement statement, byte[][] parameters, List<Short> parameterFormatCodes) {
+    if (parameters.length == 0) {
+      return statement;
+    }
+    ParameterBinder[] binders = getParameterBinders(parameters.length, parameterFormatCodes);
+    if (statement == lastUnboundStatement && sameValues(parameters, lastParameters)) {
+      return lastBoundStatement;
+    }
+    SessionState sessionState =
+        connectionHandler
+            .getExtendedQueryProtocolHandler()
+            .getBackendConnection()
+            .getSessionState();
+    Statement.Builder builder = statement.toBuilder();
+    boolean reusable = true;
+    for (int index = 0; index < parameters.length; index++) {
+      binders[index].bind(
+          builder, ParameterBinder.getParameterName(index), parameters[index], sessionState);
+      reusable &= binders[index].isIndependentOfSessionState();
+    }
+    Statement result = builder.build();
+    this.lastUnboundStatement = reusable ? statement : null;
+    this.lastParameters = reusable ? parameters : null;
+    this.lastBoundStatement = reusable ? result : null;
+    return result;
+  }
+
+  private ParameterBinder[] getParameterBinders(
+      int parameterCount, List<Short> parameterFormatCodes) {
+    if (parameterBinders == null
+        || parameterBinders.length != parameterCount
+        || parameterBindersDescribed != this.described
+        || !parameterFormatCodes.equals(parameterBinderFormatCodes)) {
+      ParameterBinder[] binders = new ParameterBinder[parameterCount];
+      for (int index = 0; index < parameterCount; index++) {
+        binders[index] =
+            ParameterBinder.create(
+                getParameterDataType(index),
+                FormatCode.of(
+                    IntermediatePortalStatement.getParameterFormatCode(
+                        parameterFormatCodes, index)));
+      }
+      this.parameterBinders = binders;
+      this.parameterBinderFormatCodes = parameterFormatCodes;
+      this.parameterBindersDescribed = this.described;
+      // The previously bound statement might have used different binders.
+      this.lastUnboundStatement = null;
+      this.lastParameters = null;
+      this.lastBoundStatement = null;
+    }
+    return parameterBinders;
+  }
+
+  private static boolean sameValues(byte[][] parameters, byte[][] otherParameters) {
+    if (otherParameters == null || parameters.length != otherParameters.length) {
+      return false;
+    }
+    for (int index = 0; index < parameters.length; index++) {
+      if (!Arrays.equals(parameters[index], otherParameters[index])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Creates a portal from this statement.
    *
@@ -165,8 +270,10 @@ public class IntermediatePreparedStatement extends IntermediateStatement {
 
       // As this describe-request is an auto-describe request, we can safely try to look it up in a
       // cache.
-      Future<DescribeResult> cachedDescribeResult =
-          getConnectionHandler().getAutoDescribedStatement(this.originalStatement.getSql());
+      ListenableFuture<DescribeResult> cachedDescribeResult =
+          getConnectionHandler()
+              .getAutoDescribedStatement(
+                  this.originalStatement.getSql(), this.givenParameterDataTypes);
       if (cachedDescribeResult != null) {
         this.described = true;
         this.describeResult = cachedDescribeResult;
@@ -175,7 +282,8 @@ public class IntermediatePreparedStatement extends IntermediateStatement {
       // No cached result found. Add a describe-statement message to the queue.
       describeAsync(backendConnection);
       getConnectionHandler()
-          .registerAutoDescribedStatement(this.originalStatement.getSql(), this.describeResult);
+          .registerAutoDescribedStatement(
+              this.originalStatement.getSql(), this.givenParameterDataTypes, this.describeResult);
     }
   }
 
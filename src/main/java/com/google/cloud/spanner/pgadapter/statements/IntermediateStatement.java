@@ -33,6 +33,7 @@ import com.google.cloud.spanner.pgadapter.error.PGException;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.metadata.DescribeResult;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.statements.ParsedStatementCache.CachedStatement;
 import com.google.cloud.spanner.pgadapter.utils.Converter;
 import com.google.cloud.spanner.pgadapter.wireoutput.DataRowResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.WireOutput;
@@ -113,6 +114,25 @@ public class IntermediateStatement {
     this.outputStream = connectionHandler.getConnectionMetadata().getOutputStream();
   }
 
+  /**
+   * Creates a statement from a {@link CachedStatement}, which already contains the replaced query
+   * and the command of the statement.
+   */
+  protected IntermediateStatement(
+      ConnectionHandler connectionHandler,
+      OptionsMetadata options,
+      CachedStatement cachedStatement,
+      Statement originalStatement) {
+    this.connectionHandler = connectionHandler;
+    this.options = options;
+    this.originalStatement = cachedStatement.getStatement(originalStatement);
+    this.parsedStatement = cachedStatement.getParsedStatement();
+    this.connection = connectionHandler.getSpannerConnection();
+    this.command = cachedStatement.getCommand();
+    this.commandTag = this.command;
+    this.outputStream = connectionHandler.getConnectionMetadata().getOutputStream();
+  }
+
   /**
    * Whether this is a bound statement (i.e.: ready to execute)
    *
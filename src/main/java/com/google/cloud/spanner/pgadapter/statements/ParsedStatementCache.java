@@ -0,0 +1,228 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.statements;
+
+import static com.google.cloud.spanner.pgadapter.statements.SimpleParser.isCommand;
+import static com.google.cloud.spanner.pgadapter.statements.SimpleParser.parseCommand;
+import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.COPY;
+import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.DEALLOCATE;
+import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.EXECUTE;
+import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.PREPARE;
+import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.RELEASE;
+import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.ROLLBACK;
+import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.SAVEPOINT;
+import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.TRUNCATE;
+import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.VACUUM;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.connection.AbstractStatementParser;
+import com.google.cloud.spanner.connection.AbstractStatementParser.ParsedStatement;
+import com.google.cloud.spanner.connection.AbstractStatementParser.StatementType;
+import com.google.cloud.spanner.pgadapter.ConnectionHandler;
+import com.google.cloud.spanner.pgadapter.ProxyServer;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import javax.annotation.Nullable;
+
+/**
+ * Server-wide cache of parsed SQL strings. Applications normally execute the same set of SQL
+ * strings over and over again on many different connections. Each of these SQL strings is parsed,
+ * checked for known unsupported queries, and classified as a specific type of statement. The result
+ * of this only depends on the SQL string, the {@link WellKnownClient} of the connection and the
+ * options of the server, so the result can be shared by all connections of a server.
+ *
+ * <p>The cache is bounded by the number of SQL strings that it contains, and records the number of
+ * hits and misses.
+ */
+@InternalApi
+public class ParsedStatementCache {
+  private static final AbstractStatementParser PARSER =
+      AbstractStatementParser.getInstance(Dialect.POSTGRESQL);
+
+  /** The type of statement, which determines the {@link IntermediateStatement} that is used. */
+  public enum StatementKind {
+    COPY,
+    PREPARE,
+    EXECUTE,
+    DEALLOCATE,
+    VACUUM,
+    TRUNCATE,
+    SAVEPOINT,
+    RELEASE,
+    ROLLBACK_TO,
+    OTHER,
+  }
+
+  /** The parse result of a SQL string for a specific {@link WellKnownClient}. */
+  @InternalApi
+  public static final class CachedStatement {
+    private final ParsedStatement originalParsedStatement;
+    private final ParsedStatement parsedStatement;
+    private final Statement replacedStatement;
+    private final String command;
+    private final StatementKind kind;
+
+    private CachedStatement(WellKnownClient client, OptionsMetadata options, String sql) {
+      this.originalParsedStatement = PARSER.parse(Statement.of(sql));
+      this.parsedStatement =
+          SimpleQueryStatement.replaceKnownUnsupportedQueries(
+              client, options, originalParsedStatement);
+      this.replacedStatement =
+          parsedStatement == originalParsedStatement
+              ? null
+              : Statement.of(parsedStatement.getSqlWithoutComments());
+      this.command = parseCommand(parsedStatement.getSqlWithoutComments());
+      this.kind = classify(sql, originalParsedStatement);
+    }
+
+    /** Returns the result of parsing the SQL string as-is. */
+    public ParsedStatement getOriginalParsedStatement() {
+      return originalParsedStatement;
+    }
+
+    /** Returns the parsed statement after replacing any known unsupported query. */
+    public ParsedStatement getParsedStatement() {
+      return parsedStatement;
+    }
+
+    /** Returns true if the SQL string was replaced by a different query. */
+    public boolean isReplaced() {
+      return replacedStatement != null;
+    }
+
+    /**
+     * Returns the statement that should be sent to Cloud Spanner. This is the given original
+     * statement, unless the SQL string was replaced by a different query.
+     */
+    public Statement getStatement(Statement originalStatement) {
+      return replacedStatement == null ? originalStatement : replacedStatement;
+    }
+
+    /** Returns the command of the (replaced) statement, e.g. SELECT or INSERT. */
+    public String getCommand() {
+      return command;
+    }
+
+    public StatementKind getKind() {
+      return kind;
+    }
+  }
+
+  private static final class Key {
+    private final WellKnownClient client;
+    private final String sql;
+
+    private Key(WellKnownClient client, String sql) {
+      this.client = client;
+      this.sql = sql;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return this.client == other.client && this.sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * client.ordinal() + sql.hashCode();
+    }
+  }
+
+  private final OptionsMetadata options;
+  private final Cache<Key, CachedStatement> cache;
+
+  public ParsedStatementCache(OptionsMetadata options, int maximumSize) {
+    Preconditions.checkArgument(maximumSize > 0, "maximumSize must be > 0");
+    this.options = Preconditions.checkNotNull(options);
+    this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  /**
+   * Returns the parse result for the given SQL string on the given connection. The result is taken
+   * from the server-wide cache if the server has one, and otherwise the SQL string is parsed
+   * directly with the given options.
+   */
+  public static CachedStatement parse(
+      ConnectionHandler connectionHandler, OptionsMetadata options, String sql) {
+    ProxyServer server = connectionHandler.getServer();
+    ParsedStatementCache cache = server == null ? null : server.getParsedStatementCache();
+    WellKnownClient client = connectionHandler.getWellKnownClient();
+    if (cache == null || client == null) {
+      return new CachedStatement(client, options, sql);
+    }
+    return cache.get(client, sql);
+  }
+
+  /** Returns the parse result for the given SQL string and client. */
+  public CachedStatement get(WellKnownClient client, String sql) {
+    Key key = new Key(client, sql);
+    CachedStatement result = cache.getIfPresent(key);
+    if (result == null) {
+      // Parsing the same statement twice if two connections miss at the same time is harmless,
+      // and cheaper than locking the cache.
+      result = new CachedStatement(client, options, sql);
+      cache.put(key, result);
+    }
+    return result;
+  }
+
+  /** Returns the hit and miss statistics of this cache. */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /** Returns the approximate number of SQL strings in this cache. */
+  public long size() {
+    return cache.size();
+  }
+
+  /** Classifies the given SQL string as one of the statement types that PGAdapter handles. */
+  public static StatementKind classify(String sql, @Nullable ParsedStatement parsedStatement) {
+    if (isCommand(COPY, sql)) {
+      return StatementKind.COPY;
+    } else if (isCommand(PREPARE, sql)) {
+      return StatementKind.PREPARE;
+    } else if (isCommand(EXECUTE, sql)) {
+      return StatementKind.EXECUTE;
+    } else if (isCommand(DEALLOCATE, sql)) {
+      return StatementKind.DEALLOCATE;
+    } else if (isCommand(VACUUM, sql)) {
+      return StatementKind.VACUUM;
+    } else if (isCommand(TRUNCATE, sql)) {
+      return StatementKind.TRUNCATE;
+    } else if (isCommand(SAVEPOINT, sql)) {
+      return StatementKind.SAVEPOINT;
+    } else if (isCommand(RELEASE, sql)) {
+      return StatementKind.RELEASE;
+    } else if (isCommand(ROLLBACK, sql)
+        && parsedStatement != null
+        && parsedStatement.getType() == StatementType.UNKNOWN) {
+      // ROLLBACK [WORK | TRANSACTION] TO [SAVEPOINT] savepoint_name is not recognized by the
+      // Connection API as any known statement.
+      return StatementKind.ROLLBACK_TO;
+    }
+    return StatementKind.OTHER;
+  }
+}
@@ -27,6 +27,7 @@ import com.google.cloud.spanner.pgadapter.ConnectionHandler;
 import com.google.cloud.spanner.pgadapter.commands.Command;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection.ConnectionState;
+import com.google.cloud.spanner.pgadapter.statements.ParsedStatementCache.CachedStatement;
 import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
 import com.google.cloud.spanner.pgadapter.wireprotocol.BindMessage;
 import com.google.cloud.spanner.pgadapter.wireprotocol.ControlMessage.ManuallyCreatedToken;
@@ -68,18 +69,23 @@ public class SimpleQueryStatement {
     for (Statement originalStatement : this.statements) {
       boolean isFirst = this.statements.get(0) == originalStatement;
       try {
-        ParsedStatement originalParsedStatement = PARSER.parse(originalStatement);
+        CachedStatement cachedStatement =
+            ParsedStatementCache.parse(connectionHandler, options, originalStatement.getSql());
+        ParsedStatement originalParsedStatement = cachedStatement.getOriginalParsedStatement();
         ParsedStatement parsedStatement = originalParsedStatement;
         if (options.requiresMatcher()
             || connectionHandler.getWellKnownClient() == WellKnownClient.PSQL) {
           parsedStatement = translatePotentialMetadataCommand(parsedStatement, connectionHandler);
         }
-        parsedStatement =
-            replaceKnownUnsupportedQueries(
-                this.connectionHandler.getWellKnownClient(), this.options, parsedStatement);
-        if (parsedStatement != originalParsedStatement) {
-          // The original statement was replaced.
+        boolean isTranslated = parsedStatement != originalParsedStatement;
+        if (isTranslated) {
+          parsedStatement =
+              replaceKnownUnsupportedQueries(
+                  this.connectionHandler.getWellKnownClient(), this.options, parsedStatement);
           originalStatement = Statement.of(parsedStatement.getSqlWithoutComments());
+        } else {
+          parsedStatement = cachedStatement.getParsedStatement();
+          originalStatement = cachedStatement.getStatement(originalStatement);
         }
         // We need to flush the entire pipeline if we encounter a COPY statement, as COPY statements
         // require additional messages to be sent back and forth, and this ensures that we get
@@ -95,7 +101,11 @@ public class SimpleQueryStatement {
             break;
           }
         }
-        new ParseMessage(connectionHandler, parsedStatement, originalStatement).send();
+        if (isTranslated || cachedStatement.isReplaced()) {
+          new ParseMessage(connectionHandler, parsedStatement, originalStatement).send();
+        } else {
+          new ParseMessage(connectionHandler, cachedStatement, originalStatement).send();
+        }
         new BindMessage(connectionHandler, ManuallyCreatedToken.MANUALLY_CREATED_TOKEN).send();
         new DescribeMessage(connectionHandler, ManuallyCreatedToken.MANUALLY_CREATED_TOKEN).send();
         new ExecuteMessage(connectionHandler, ManuallyCreatedToken.MANUALLY_CREATED_TOKEN).send();
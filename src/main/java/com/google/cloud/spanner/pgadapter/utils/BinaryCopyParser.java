@@ -31,11 +31,9 @@ import com.google.cloud.spanner.pgadapter.parsers.NumericParser;
 import com.google.cloud.spanner.pgadapter.parsers.StringParser;
 import com.google.cloud.spanner.pgadapter.parsers.TimestampParser;
 import com.google.common.base.Preconditions;
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.PipedInputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -48,17 +46,54 @@ import java.util.logging.Logger;
  * This class parses a stream of copy data in the PostgreSQL binary format
  * (https://www.postgresql.org/docs/current/sql-copy.html) and converts them to a stream of {@link
  * CopyRecord}s.
+ *
+ * <p>The parser reads the data into a single buffer and decodes the values directly from that
+ * buffer. The iterator returns the same {@link CopyRecord} instance for each row, and a record is
+ * only valid until the next call to {@link Iterator#next()}.
  */
 class BinaryCopyParser implements CopyInParser {
   private static final Logger logger = Logger.getLogger(BinaryCopyParser.class.getName());
+  static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+  /** The maximum size of the buffer. Some VMs cannot allocate arrays of Integer.MAX_VALUE. */
+  private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+  private final InputStream inputStream;
+  private byte[] buffer;
+  /** The position of the next byte that will be read from the buffer. */
+  private int position;
+  /** The number of valid bytes in the buffer. */
+  private int limit;
+  /**
+   * The start of the data in the buffer that must be kept when the buffer is compacted. This is
+   * the start of the row that was last returned by the iterator.
+   */
+  private int retainFrom;
+  /** The record that is returned for each row. The record refers to the data in the buffer. */
+  private BinaryRecord record;
 
-  private final DataInputStream dataInputStream;
   private boolean containsOids;
   private boolean calledIterator = false;
   private short firstRowFieldCount = -1;
+  /** The number of the first row in the stream. */
+  private final long firstRowNumber;
+
+  BinaryCopyParser(InputStream inputStream) {
+    this(inputStream, 1L);
+  }
+
+  /**
+   * Creates a parser for a stream that starts at the given row number of the COPY data. The stream
+   * must start with the binary COPY header.
+   */
+  BinaryCopyParser(InputStream inputStream, long firstRowNumber) {
+    this(inputStream, firstRowNumber, DEFAULT_BUFFER_SIZE);
+  }
 
-  BinaryCopyParser(PipedInputStream inputStream) {
-    this.dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+  BinaryCopyParser(InputStream inputStream, long firstRowNumber, int bufferSize) {
+    Preconditions.checkArgument(bufferSize > 0, "bufferSize must be > 0");
+    this.inputStream = inputStream;
+    this.buffer = new byte[bufferSize];
+    this.firstRowNumber = firstRowNumber;
   }
 
   @Override
@@ -75,14 +110,19 @@ class BinaryCopyParser implements CopyInParser {
       // 2. header extension length: Currently zero, but if anything else is encountered, this
       // parser just skips it. This is according to spec, as a reader should skip any extension it
       // does not know.
-      int flags = this.dataInputStream.readInt();
+      int flags = readInt();
       this.containsOids = ((flags & (1L << 16)) != 0);
       // This should according to the current spec always be zero.
       // But if it happens not to be so, we should just skip the following bytes.
-      int headerExtensionLength = this.dataInputStream.readInt();
+      int headerExtensionLength = readInt();
       while (headerExtensionLength > 0) {
-        headerExtensionLength -= this.dataInputStream.skip(headerExtensionLength);
+        int skip = Math.min(headerExtensionLength, buffer.length);
+        require(skip);
+        position += skip;
+        headerExtensionLength -= skip;
+        retainFrom = position;
       }
+      retainFrom = position;
     } catch (IOException ioException) {
       throw SpannerExceptionFactory.newSpannerException(
           ErrorCode.INTERNAL, "Failed to read binary file header", ioException);
@@ -97,8 +137,9 @@ class BinaryCopyParser implements CopyInParser {
   void verifyBinaryHeader() throws IOException {
     // Binary COPY files should have the following 11-bytes fixed header:
     // PGCOPY\n\377\r\n\0
-    byte[] header = new byte[11];
-    this.dataInputStream.readFully(header);
+    require(COPY_BINARY_HEADER.length);
+    byte[] header = Arrays.copyOfRange(buffer, position, position + COPY_BINARY_HEADER.length);
+    position += COPY_BINARY_HEADER.length;
     if (!Arrays.equals(COPY_BINARY_HEADER, header)) {
       throw new IOException(
           String.format(
@@ -108,6 +149,79 @@ class BinaryCopyParser implements CopyInParser {
     }
   }
 
+  /**
+   * Makes sure that the buffer contains at least the given number of unread bytes. Returns false if
+   * the end of the stream is reached before that.
+   */
+  private boolean request(int length) throws IOException {
+    if (limit - position >= length) {
+      return true;
+    }
+    if ((long) position - retainFrom + length > MAX_BUFFER_SIZE) {
+      throw SpannerExceptionFactory.newSpannerException(
+          ErrorCode.FAILED_PRECONDITION, "COPY row is too large: " + length);
+    }
+    int needed = position - retainFrom + length;
+    if (needed > buffer.length) {
+      // Grow the buffer and move the retained data to the start of the new buffer.
+      int size = (int) Math.min(MAX_BUFFER_SIZE, Math.max((long) buffer.length * 2, needed));
+      byte[] newBuffer = new byte[size];
+      System.arraycopy(buffer, retainFrom, newBuffer, 0, limit - retainFrom);
+      buffer = newBuffer;
+      shift(retainFrom);
+    } else if (position + length > buffer.length) {
+      // Move the retained data to the start of the buffer to make room for the new data.
+      System.arraycopy(buffer, retainFrom, buffer, 0, limit - retainFrom);
+      shift(retainFrom);
+    }
+    // Only read as much as is available. The stream could block if we try to read more data than
+    // what the client has sent so far.
+    while (limit - position < length) {
+      int read = inputStream.read(buffer, limit, buffer.length - limit);
+      if (read == -1) {
+        return false;
+      }
+      limit += read;
+    }
+    return true;
+  }
+
+  /** Same as {@link #request(int)}, but throws an {@link EOFException} at the end of the stream. */
+  private void require(int length) throws IOException {
+    if (!request(length)) {
+      throw new EOFException();
+    }
+  }
+
+  /** Moves all positions in the buffer the given number of bytes to the start of the buffer. */
+  private void shift(int offset) {
+    position -= offset;
+    limit -= offset;
+    retainFrom -= offset;
+    if (record != null) {
+      record.data = buffer;
+      record.base -= offset;
+    }
+  }
+
+  private short readShort() throws IOException {
+    require(2);
+    short value = (short) (((buffer[position] & 0xff) << 8) | (buffer[position + 1] & 0xff));
+    position += 2;
+    return value;
+  }
+
+  private int readInt() throws IOException {
+    require(4);
+    int value =
+        ((buffer[position] & 0xff) << 24)
+            | ((buffer[position + 1] & 0xff) << 16)
+            | ((buffer[position + 2] & 0xff) << 8)
+            | (buffer[position + 3] & 0xff);
+    position += 4;
+    return value;
+  }
+
   /** Tri-value enum for the hasNext() call. */
   enum HasNext {
     UNKNOWN,
@@ -116,8 +230,11 @@ class BinaryCopyParser implements CopyInParser {
   }
 
   class BinaryIterator implements Iterator<CopyRecord> {
-    private BinaryField[] currentRow;
     private HasNext hasNext = HasNext.UNKNOWN;
+    /** The start of the next row in the buffer, relative to {@link #retainFrom}. */
+    private int rowStart;
+
+    private long rowNumber = firstRowNumber;
 
     @Override
     public boolean hasNext() {
@@ -127,15 +244,16 @@ class BinaryCopyParser implements CopyInParser {
         if (hasNext == HasNext.UNKNOWN) {
           // The first value in a row is the number of fields in that row. The value will be -1 for
           // the last tuple (this is the file trailer). The value should be the same for all other
-          // rows.
-          short fieldCount = dataInputStream.readShort();
+          // rows. The data of the previous row is kept in the buffer until next() is called.
+          rowStart = position - retainFrom;
+          short fieldCount = readShort();
           if (fieldCount == -1) {
             logger.log(Level.FINE, "End of copy file: -1");
             hasNext = HasNext.NO;
           } else if (fieldCount > -1) {
             if (firstRowFieldCount == -1) {
               firstRowFieldCount = fieldCount;
-              currentRow = new BinaryField[fieldCount];
+              record = new BinaryRecord(fieldCount);
             } else if (firstRowFieldCount != fieldCount) {
               throw SpannerExceptionFactory.newSpannerException(
                   ErrorCode.FAILED_PRECONDITION,
@@ -174,36 +292,45 @@ class BinaryCopyParser implements CopyInParser {
         }
         // Reset the hasNext status.
         hasNext = HasNext.UNKNOWN;
+        // The previous record is no longer valid from this point, so the buffer only needs to keep
+        // the data of this row.
+        retainFrom += rowStart;
+        record.base = retainFrom;
         // The header flags could indicate that the file contains oids. If so, we just read and
         // ignore them.
         if (containsOids) {
-          int length = dataInputStream.readInt();
+          int length = readInt();
           if (length != 4) {
             throw SpannerExceptionFactory.newSpannerException(
                 ErrorCode.FAILED_PRECONDITION, "Invalid length for OID: " + length);
           }
           // Read and ignore the oid.
-          dataInputStream.readInt();
+          readInt();
         }
         // Each row consists of:
         // 1. The number of fields (this should be the same for all rows)
         // 2. For each field:
         // 2.1. The length of the field.
         // 2.2. The actual data of that field.
+        // The record only stores the offset and the length of each field. The values are decoded
+        // directly from the buffer when they are requested.
         for (int field = 0; field < firstRowFieldCount; field++) {
-          int length = dataInputStream.readInt();
+          int length = readInt();
           if (length == -1) {
-            currentRow[field] = new BinaryField(null);
+            record.lengths[field] = -1;
           } else if (length > -1) {
-            byte[] data = new byte[length];
-            dataInputStream.readFully(data);
-            currentRow[field] = new BinaryField(data);
+            require(length);
+            record.offsets[field] = position - record.base;
+            record.lengths[field] = length;
+            position += length;
           } else {
             throw SpannerExceptionFactory.newSpannerException(
                 ErrorCode.FAILED_PRECONDITION, "Invalid field length: " + length);
           }
         }
-        return new BinaryRecord(currentRow);
+        record.data = buffer;
+        record.rowNumber = rowNumber++;
+        return record;
       } catch (IOException ioException) {
         logger.log(Level.WARNING, "Failed to read binary COPY record", ioException);
         throw SpannerExceptionFactory.newSpannerException(
@@ -212,24 +339,32 @@ class BinaryCopyParser implements CopyInParser {
     }
   }
 
-  static class BinaryField {
-    private final byte[] data;
+  /**
+   * A row in a binary COPY stream. The record does not contain a copy of the data, but refers to
+   * the offset and the length of each field in the buffer of the parser.
+   */
+  static class BinaryRecord implements CopyRecord {
+    private byte[] data;
+    /** The start of the row in {@link #data}. The field offsets are relative to this position. */
+    private int base;
 
-    BinaryField(byte[] data) {
-      this.data = data;
-    }
-  }
+    private final int[] offsets;
+    /** The length of each field, or -1 for null values. */
+    private final int[] lengths;
 
-  static class BinaryRecord implements CopyRecord {
-    private final BinaryField[] fields;
+    private long rowNumber;
 
-    BinaryRecord(BinaryField[] fields) {
-      this.fields = fields;
+    /** Creates a record with the given number of columns that are all null. */
+    BinaryRecord(int numColumns) {
+      this.data = new byte[0];
+      this.offsets = new int[numColumns];
+      this.lengths = new int[numColumns];
+      Arrays.fill(this.lengths, -1);
     }
 
     @Override
     public int numColumns() {
-      return fields.length;
+      return lengths.length;
     }
 
     @Override
@@ -242,12 +377,17 @@ class BinaryCopyParser implements CopyInParser {
       return false;
     }
 
+    @Override
+    public long getLineNumber() {
+      return rowNumber;
+    }
+
     @Override
     public boolean isNull(int columnIndex) {
       Preconditions.checkArgument(
           columnIndex >= 0 && columnIndex < numColumns(),
           "columnIndex must be >= 0 && < numColumns");
-      return fields[columnIndex].data == null;
+      return lengths[columnIndex] == -1;
     }
 
     @Override
@@ -261,48 +401,56 @@ class BinaryCopyParser implements CopyInParser {
       Preconditions.checkArgument(
           columnIndex >= 0 && columnIndex < numColumns(),
           "columnIndex must be >= 0 && < numColumns");
-      BinaryField field = fields[columnIndex];
+      int length = lengths[columnIndex];
+      boolean isNull = length == -1;
+      int offset = base + offsets[columnIndex];
       switch (type.getCode()) {
         case BOOL:
-          return Value.bool(field.data == null ? null : BooleanParser.toBoolean(field.data));
+          return isNull
+              ? Value.bool(null)
+              : Value.bool(BooleanParser.toBoolean(data, offset, length));
         case INT64:
-          return Value.int64(field.data == null ? null : LongParser.toLong(field.data));
+          return isNull ? Value.int64(null) : Value.int64(LongParser.toLong(data, offset, length));
         case PG_NUMERIC:
           return Value.pgNumeric(
-              field.data == null ? null : NumericParser.toNumericString(field.data));
+              isNull ? null : NumericParser.toNumericString(data, offset, length));
         case FLOAT64:
-          return Value.float64(field.data == null ? null : DoubleParser.toDouble(field.data));
+          return isNull
+              ? Value.float64(null)
+              : Value.float64(DoubleParser.toDouble(data, offset, length));
         case STRING:
-          return Value.string(field.data == null ? null : StringParser.toString(field.data));
+          return Value.string(isNull ? null : StringParser.toString(data, offset, length));
         case PG_JSONB:
-          return Value.pgJsonb(field.data == null ? null : JsonbParser.toString(field.data));
+          return Value.pgJsonb(isNull ? null : JsonbParser.toString(data, offset, length));
         case BYTES:
-          return Value.bytes(field.data == null ? null : BinaryParser.toByteArray(field.data));
+          return Value.bytes(
+              isNull ? null : BinaryParser.toByteArray(copyOfField(offset, length)));
         case TIMESTAMP:
           return Value.timestamp(
-              field.data == null ? null : TimestampParser.toTimestamp(field.data));
+              isNull ? null : TimestampParser.toTimestamp(data, offset, length));
         case DATE:
-          return Value.date(field.data == null ? null : DateParser.toDate(field.data));
+          return Value.date(isNull ? null : DateParser.toDate(data, offset, length));
         case ARRAY:
+          byte[] array = isNull ? null : copyOfField(offset, length);
           switch (type.getArrayElementType().getCode()) {
             case STRING:
-              return Value.stringArray(cast(ArrayParser.binaryArrayToList(field.data, true)));
+              return Value.stringArray(cast(ArrayParser.binaryArrayToList(array, true)));
             case PG_JSONB:
-              return Value.pgJsonbArray(cast(ArrayParser.binaryArrayToList(field.data, true)));
+              return Value.pgJsonbArray(cast(ArrayParser.binaryArrayToList(array, true)));
             case BOOL:
-              return Value.boolArray(cast(ArrayParser.binaryArrayToList(field.data, true)));
+              return Value.boolArray(cast(ArrayParser.binaryArrayToList(array, true)));
             case INT64:
-              return Value.int64Array(cast(ArrayParser.binaryArrayToList(field.data, true)));
+              return Value.int64Array(cast(ArrayParser.binaryArrayToList(array, true)));
             case FLOAT64:
-              return Value.float64Array(cast(ArrayParser.binaryArrayToList(field.data, true)));
+              return Value.float64Array(cast(ArrayParser.binaryArrayToList(array, true)));
             case PG_NUMERIC:
-              return Value.pgNumericArray(cast(ArrayParser.binaryArrayToList(field.data, true)));
+              return Value.pgNumericArray(cast(ArrayParser.binaryArrayToList(array, true)));
             case BYTES:
-              return Value.bytesArray(cast(ArrayParser.binaryArrayToList(field.data, true)));
+              return Value.bytesArray(cast(ArrayParser.binaryArrayToList(array, true)));
             case DATE:
-              return Value.dateArray(cast(ArrayParser.binaryArrayToList(field.data, true)));
+              return Value.dateArray(cast(ArrayParser.binaryArrayToList(array, true)));
             case TIMESTAMP:
-              return Value.timestampArray(cast(ArrayParser.binaryArrayToList(field.data, true)));
+              return Value.timestampArray(cast(ArrayParser.binaryArrayToList(array, true)));
           }
         case STRUCT:
         case NUMERIC:
@@ -312,6 +460,14 @@ class BinaryCopyParser implements CopyInParser {
           throw SpannerExceptionFactory.newSpannerException(ErrorCode.INVALID_ARGUMENT, message);
       }
     }
+
+    /**
+     * Returns a copy of the data of a field. This is only used for variable-length values that are
+     * kept by the {@link Value} that is created for the field.
+     */
+    private byte[] copyOfField(int offset, int length) {
+      return Arrays.copyOfRange(data, offset, offset + length);
+    }
   }
 
   @SuppressWarnings("unchecked")
@@ -0,0 +1,278 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.Date;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
+import com.google.cloud.spanner.pgadapter.parsers.ArrayParser;
+import com.google.cloud.spanner.pgadapter.parsers.BinaryParser;
+import com.google.cloud.spanner.pgadapter.parsers.BooleanParser;
+import com.google.cloud.spanner.pgadapter.parsers.DateParser;
+import com.google.cloud.spanner.pgadapter.parsers.NumericParser;
+import com.google.cloud.spanner.pgadapter.parsers.TimestampParser;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.wireoutput.OutputBuffer;
+import java.io.IOException;
+import java.time.ZoneId;
+
+/**
+ * Encodes the non-null values of one column of a {@link ResultSet} into an {@link OutputBuffer}.
+ * The column types and the result formats of a query are fixed once the row description has been
+ * sent, so a {@link Converter} creates one encoder per column for the first row of a result, and
+ * then only iterates over those encoders for each row. Each encoder is specialized for one
+ * combination of Spanner type and {@link DataFormat}.
+ */
+@InternalApi
+public abstract class ColumnEncoder {
+
+  /** Returns an encoder for values of the given type in the given format. */
+  public static ColumnEncoder create(Type type, DataFormat format, SessionState sessionState) {
+    switch (type.getCode()) {
+      case BOOL:
+        switch (format) {
+          case POSTGRESQL_TEXT:
+            return new BoolTextEncoder();
+          case SPANNER:
+            return new BoolSpannerEncoder();
+          default:
+            return new BoolEncoder(format);
+        }
+      case BYTES:
+        return new BytesEncoder(format);
+      case DATE:
+        return format == DataFormat.POSTGRESQL_BINARY
+            ? new DateEncoder(format)
+            : new DateTextEncoder();
+      case FLOAT64:
+        return format == DataFormat.POSTGRESQL_BINARY
+            ? new Float64BinaryEncoder()
+            : new Float64TextEncoder();
+      case INT64:
+        return format == DataFormat.POSTGRESQL_BINARY
+            ? new Int64BinaryEncoder()
+            : new Int64TextEncoder();
+      case PG_NUMERIC:
+        return new NumericEncoder(format);
+      case STRING:
+        return new StringEncoder();
+      case TIMESTAMP:
+        return format == DataFormat.POSTGRESQL_TEXT
+            ? new TimestampTextEncoder(sessionState.getTimezone())
+            : new TimestampEncoder(format, sessionState.getTimezone());
+      case PG_JSONB:
+        return format == DataFormat.POSTGRESQL_BINARY
+            ? new JsonbBinaryEncoder()
+            : new JsonbTextEncoder();
+      case ARRAY:
+        return new ArrayEncoder(format, sessionState);
+      case NUMERIC:
+      case JSON:
+      case STRUCT:
+      default:
+        throw new IllegalArgumentException("Illegal or unknown element type: " + type);
+    }
+  }
+
+  /**
+   * Writes the value of the given column of the current row to the buffer. The value may not be
+   * null. The length of the value is written by the caller.
+   */
+  public abstract void encode(ResultSet resultSet, int position, OutputBuffer buffer)
+      throws IOException;
+
+  static final class StringEncoder extends ColumnEncoder {
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.writeUtf8(resultSet.getString(position));
+    }
+  }
+
+  static final class Int64TextEncoder extends ColumnEncoder {
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.writeAsciiLong(resultSet.getLong(position));
+    }
+  }
+
+  static final class Int64BinaryEncoder extends ColumnEncoder {
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.writeLong(resultSet.getLong(position));
+    }
+  }
+
+  /**
+   * Writes FLOAT64 values in the same format as {@link Double#toString(double)}. Integral values
+   * that {@link Double#toString(double)} would write in plain notation are written directly as
+   * digits. Other values are formatted by {@link Double#toString(double)} and written as ASCII.
+   */
+  static final class Float64TextEncoder extends ColumnEncoder {
+    /** {@link Double#toString(double)} uses computerized scientific notation from this value. */
+    private static final double PLAIN_NOTATION_LIMIT = 1e7d;
+
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      double value = resultSet.getDouble(position);
+      if (value == 0d) {
+        buffer.writeAscii(Double.doubleToRawLongBits(value) == 0L ? "0.0" : "-0.0");
+      } else if (value == (long) value && Math.abs(value) < PLAIN_NOTATION_LIMIT) {
+        buffer.writeAsciiLong((long) value);
+        buffer.write('.');
+        buffer.write('0');
+      } else {
+        buffer.writeAscii(Double.toString(value));
+      }
+    }
+  }
+
+  static final class Float64BinaryEncoder extends ColumnEncoder {
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.writeLong(Double.doubleToRawLongBits(resultSet.getDouble(position)));
+    }
+  }
+
+  static final class JsonbTextEncoder extends ColumnEncoder {
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.writeUtf8(resultSet.getPgJsonb(position));
+    }
+  }
+
+  static final class JsonbBinaryEncoder extends ColumnEncoder {
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      // Version 1 of the binary JSONB format is the text value prefixed by the version number.
+      buffer.write(1);
+      buffer.writeUtf8(resultSet.getPgJsonb(position));
+    }
+  }
+
+  static final class BoolTextEncoder extends ColumnEncoder {
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.write(resultSet.getBoolean(position) ? 't' : 'f');
+    }
+  }
+
+  static final class BoolSpannerEncoder extends ColumnEncoder {
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.writeAscii(resultSet.getBoolean(position) ? "true" : "false");
+    }
+  }
+
+  static final class BoolEncoder extends ColumnEncoder {
+    private final DataFormat format;
+
+    BoolEncoder(DataFormat format) {
+      this.format = format;
+    }
+
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.write(BooleanParser.convertToPG(resultSet, position, format));
+    }
+  }
+
+  static final class BytesEncoder extends ColumnEncoder {
+    private final DataFormat format;
+
+    BytesEncoder(DataFormat format) {
+      this.format = format;
+    }
+
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.write(BinaryParser.convertToPG(resultSet, position, format));
+    }
+  }
+
+  /** Writes DATE values in ISO format. Years beyond 9999 are prefixed with a plus sign. */
+  static final class DateTextEncoder extends ColumnEncoder {
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      Date date = resultSet.getDate(position);
+      int year = date.getYear();
+      if (year > 9999) {
+        buffer.write('+');
+      }
+      buffer.writeAsciiDigits(year, 4);
+      buffer.write('-');
+      buffer.writeAsciiDigits(date.getMonth(), 2);
+      buffer.write('-');
+      buffer.writeAsciiDigits(date.getDayOfMonth(), 2);
+    }
+  }
+
+  static final class DateEncoder extends ColumnEncoder {
+    private final DataFormat format;
+
+    DateEncoder(DataFormat format) {
+      this.format = format;
+    }
+
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.write(DateParser.convertToPG(resultSet, position, format));
+    }
+  }
+
+  static final class NumericEncoder extends ColumnEncoder {
+    private final DataFormat format;
+
+    NumericEncoder(DataFormat format) {
+      this.format = format;
+    }
+
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.write(NumericParser.convertToPG(resultSet, position, format));
+    }
+  }
+
+  static final class TimestampEncoder extends ColumnEncoder {
+    private final DataFormat format;
+    private final ZoneId zoneId;
+
+    TimestampEncoder(DataFormat format, ZoneId zoneId) {
+      this.format = format;
+      this.zoneId = zoneId;
+    }
+
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.write(TimestampParser.convertToPG(resultSet, position, format, zoneId));
+    }
+  }
+
+  static final class ArrayEncoder extends ColumnEncoder {
+    private final DataFormat format;
+    private final SessionState sessionState;
+
+    ArrayEncoder(DataFormat format, SessionState sessionState) {
+      this.format = format;
+      this.sessionState = sessionState;
+    }
+
+    @Override
+    public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+      buffer.write(new ArrayParser(resultSet, position, sessionState).parse(format));
+    }
+  }
+}
@@ -0,0 +1,256 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.common.base.Preconditions;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+
+/**
+ * Limits the number of connections that can be connected to Cloud Spanner at the same time. A
+ * connection that arrives when the limit has been reached waits in a bounded queue until another
+ * connection is closed, or until a timeout has passed. Connections that cannot be admitted within
+ * the timeout, and connections that arrive while the queue is full, are rejected. This prevents a
+ * reconnect storm from creating thousands of Cloud Spanner connections at once.
+ *
+ * <p>Waiting connections are admitted in FIFO order per client address, and in round-robin order
+ * across client addresses. A single client that opens many connections at once can therefore not
+ * starve the other clients.
+ */
+@InternalApi
+public class ConnectionAdmissionController {
+  private static final class Waiter {
+    private final Condition condition;
+    private final long queuedAtNanos = System.nanoTime();
+    private boolean admitted;
+
+    private Waiter(Condition condition) {
+      this.condition = condition;
+    }
+  }
+
+  private final int maxConnections;
+  private final int maxQueueSize;
+  private final long maxWaitNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  /**
+   * The waiting connections per client address. The order of the map determines which client is
+   * served next, and a client is moved to the end of the map each time one of its connections has
+   * been admitted.
+   */
+  private final LinkedHashMap<InetAddress, ArrayDeque<Waiter>> waiters = new LinkedHashMap<>();
+
+  private int activeConnections;
+  private int queueDepth;
+
+  private final AtomicLong admittedConnections = new AtomicLong();
+  private final AtomicLong rejectedConnections = new AtomicLong();
+  private final AtomicLong queuedConnections = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  private final AtomicLong maxObservedWaitNanos = new AtomicLong();
+
+  public ConnectionAdmissionController(int maxConnections, int maxQueueSize, Duration maxWait) {
+    Preconditions.checkArgument(maxConnections > 0, "maxConnections must be > 0");
+    Preconditions.checkArgument(maxQueueSize >= 0, "maxQueueSize must be >= 0");
+    Preconditions.checkArgument(!maxWait.isNegative(), "maxWait must be >= 0");
+    this.maxConnections = maxConnections;
+    this.maxQueueSize = maxQueueSize;
+    this.maxWaitNanos = maxWait.toNanos();
+  }
+
+  /**
+   * Tries to admit a connection from the given client address. Waits until a connection slot
+   * becomes available if the maximum number of connections has been reached and the queue is not
+   * full. Returns true if the connection was admitted. Each connection that is admitted must call
+   * {@link #release()} when it is closed.
+   */
+  public boolean tryAcquire(@Nullable InetAddress clientAddress) {
+    return tryAcquire(clientAddress, true);
+  }
+
+  /**
+   * Tries to admit a connection from the given client address. The connection is rejected
+   * immediately if no connection slot is available and wait is false. This is used for
+   * connections that must not block the calling thread, such as connections that are handled by
+   * the worker threads of the non-blocking front end.
+   */
+  public boolean tryAcquire(@Nullable InetAddress clientAddress, boolean wait) {
+    lock.lock();
+    try {
+      if (activeConnections < maxConnections && queueDepth == 0) {
+        activeConnections++;
+        admittedConnections.incrementAndGet();
+        return true;
+      }
+      if (!wait || queueDepth >= maxQueueSize || maxWaitNanos == 0L) {
+        rejectedConnections.incrementAndGet();
+        return false;
+      }
+      Waiter waiter = new Waiter(lock.newCondition());
+      waiters.computeIfAbsent(clientAddress, ignore -> new ArrayDeque<>()).add(waiter);
+      queueDepth++;
+      queuedConnections.incrementAndGet();
+      awaitAdmission(waiter);
+      recordWaitTime(System.nanoTime() - waiter.queuedAtNanos);
+      if (waiter.admitted) {
+        admittedConnections.incrementAndGet();
+        return true;
+      }
+      removeWaiter(clientAddress, waiter);
+      rejectedConnections.incrementAndGet();
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until the waiter has been admitted or the maximum wait time has passed. Interrupts do not
+   * stop the wait, but are restored before returning.
+   */
+  private void awaitAdmission(Waiter waiter) {
+    boolean interrupted = false;
+    long remaining = maxWaitNanos;
+    while (!waiter.admitted && remaining > 0L) {
+      try {
+        remaining = waiter.condition.awaitNanos(remaining);
+      } catch (InterruptedException interruptedException) {
+        interrupted = true;
+        remaining = maxWaitNanos - (System.nanoTime() - waiter.queuedAtNanos);
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void removeWaiter(@Nullable InetAddress clientAddress, Waiter waiter) {
+    ArrayDeque<Waiter> queue = waiters.get(clientAddress);
+    if (queue != null && queue.remove(waiter)) {
+      queueDepth--;
+      if (queue.isEmpty()) {
+        waiters.remove(clientAddress);
+      }
+    }
+  }
+
+  private void recordWaitTime(long waitNanos) {
+    totalWaitNanos.addAndGet(waitNanos);
+    maxObservedWaitNanos.accumulateAndGet(waitNanos, Math::max);
+  }
+
+  /**
+   * Releases the slot of a connection that was admitted. The slot is given to the next waiting
+   * connection, if any.
+   */
+  public void release() {
+    lock.lock();
+    try {
+      Iterator<Map.Entry<InetAddress, ArrayDeque<Waiter>>> iterator = waiters.entrySet().iterator();
+      if (iterator.hasNext()) {
+        Map.Entry<InetAddress, ArrayDeque<Waiter>> entry = iterator.next();
+        Waiter waiter = entry.getValue().poll();
+        iterator.remove();
+        if (!entry.getValue().isEmpty()) {
+          // Move the client to the end of the queue.
+          waiters.put(entry.getKey(), entry.getValue());
+        }
+        queueDepth--;
+        waiter.admitted = true;
+        waiter.condition.signal();
+      } else {
+        activeConnections--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns the maximum number of connections that can be active at the same time. */
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  /** Returns the number of connections that are currently admitted. */
+  public int getActiveConnections() {
+    lock.lock();
+    try {
+      return activeConnections;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns the number of connections that are currently waiting to be admitted. */
+  public int getQueueDepth() {
+    lock.lock();
+    try {
+      return queueDepth;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns the total number of connections that have been admitted. */
+  public long getAdmittedConnections() {
+    return admittedConnections.get();
+  }
+
+  /** Returns the total number of connections that have been rejected. */
+  public long getRejectedConnections() {
+    return rejectedConnections.get();
+  }
+
+  /** Returns the total number of connections that have had to wait in the queue. */
+  public long getQueuedConnections() {
+    return queuedConnections.get();
+  }
+
+  /** Returns the total time that connections have spent waiting in the queue. */
+  public Duration getTotalWaitTime() {
+    return Duration.ofNanos(totalWaitNanos.get());
+  }
+
+  /** Returns the longest time that a connection has spent waiting in the queue. */
+  public Duration getMaxWaitTime() {
+    return Duration.ofNanos(maxObservedWaitNanos.get());
+  }
+
+  /** Returns the maximum time that a connection waits in the queue before it is rejected. */
+  public Duration getMaxWait() {
+    return Duration.ofNanos(maxWaitNanos);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "ConnectionAdmissionController[active: %d/%d, queued: %d, admitted: %d, rejected: %d]",
+        getActiveConnections(),
+        maxConnections,
+        getQueueDepth(),
+        getAdmittedConnections(),
+        getRejectedConnections());
+  }
+}
@@ -21,6 +21,7 @@ import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.Type;
 import com.google.cloud.spanner.pgadapter.ConnectionHandler.QueryMode;
 import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
+import com.google.cloud.spanner.pgadapter.metadata.ConnectionMetadata;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.parsers.ArrayParser;
 import com.google.cloud.spanner.pgadapter.parsers.BinaryParser;
@@ -35,21 +36,33 @@ import com.google.cloud.spanner.pgadapter.parsers.TimestampParser;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.statements.CopyToStatement;
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
+import com.google.cloud.spanner.pgadapter.wireoutput.OutputBuffer;
 import com.google.common.base.Preconditions;
-import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
 /** Utility class for converting between generic PostgreSQL conversions. */
 @InternalApi
 public class Converter implements AutoCloseable {
-  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
-  private final DataOutputStream outputStream = new DataOutputStream(buffer);
+  private static final int ROW_BUFFER_SIZE = 256;
+
   private final IntermediateStatement statement;
   private final QueryMode mode;
   private final OptionsMetadata options;
   private final ResultSet resultSet;
   private final SessionState sessionState;
+  private final ConnectionMetadata connectionMetadata;
+  /**
+   * Buffer for rows that are written to a different output stream than the output stream of the
+   * connection. Rows that are written to the output stream of the connection are encoded directly
+   * into the output buffer of the connection.
+   */
+  private OutputBuffer rowBuffer;
+
+  private DataOutputStream rowBufferOutputStream;
+  /** The encoders for the columns of the result. These are created for the first row. */
+  private ColumnEncoder[] columnEncoders;
+
   private boolean includeBinaryCopyHeaderInFirstRow;
   private boolean firstRow = true;
 
@@ -69,6 +82,7 @@ public class Converter implements AutoCloseable {
             .getExtendedQueryProtocolHandler()
             .getBackendConnection()
             .getSessionState();
+    this.connectionMetadata = statement.getConnectionHandler().getConnectionMetadata();
     this.includeBinaryCopyHeaderInFirstRow = includeBinaryCopyHeaderInFirstRow;
   }
 
@@ -83,50 +97,95 @@ public class Converter implements AutoCloseable {
 
   @Override
   public void close() throws Exception {
-    buffer.close();
-    outputStream.close();
+    this.rowBuffer = null;
+    this.rowBufferOutputStream = null;
   }
 
   public ResultSet getResultSet() {
     return resultSet;
   }
 
-  public int convertResultSetRowToDataRowResponse() throws IOException {
-    DataFormat fixedFormat = null;
-    if (statement instanceof CopyToStatement) {
-      fixedFormat =
-          ((CopyToStatement) statement).isBinary()
-              ? DataFormat.POSTGRESQL_BINARY
-              : DataFormat.POSTGRESQL_TEXT;
+  /**
+   * Writes the current row of the {@link ResultSet} as a complete message with the given identifier
+   * to the given output stream. The row is encoded directly into the output buffer of the
+   * connection if the output stream is the output stream of the connection. The length of the
+   * message and the length of each column value are back-patched after the value has been encoded.
+   */
+  public void writeRow(byte identifier, DataOutputStream outputStream) throws IOException {
+    OutputBuffer buffer = getOutputBuffer(outputStream);
+    buffer.beginMessage(identifier);
+    try {
+      convertResultSetRowToDataRowResponse(buffer);
+    } catch (Throwable throwable) {
+      buffer.abortMessage();
+      throw throwable;
+    }
+    buffer.endMessage();
+    if (buffer == rowBuffer) {
+      buffer.drain();
+    }
+  }
+
+  private OutputBuffer getOutputBuffer(DataOutputStream outputStream) {
+    if (connectionMetadata != null
+        && connectionMetadata.getOutputBuffer() != null
+        && connectionMetadata.getOutputStream() == outputStream) {
+      return connectionMetadata.getOutputBuffer();
+    }
+    if (rowBuffer == null || rowBufferOutputStream != outputStream) {
+      rowBuffer = new OutputBuffer(outputStream, ROW_BUFFER_SIZE);
+      rowBufferOutputStream = outputStream;
     }
-    buffer.reset();
+    return rowBuffer;
+  }
+
+  private void convertResultSetRowToDataRowResponse(OutputBuffer buffer) throws IOException {
     if (includeBinaryCopyHeaderInFirstRow && firstRow) {
-      outputStream.write(COPY_BINARY_HEADER);
-      outputStream.writeInt(0); // flags
-      outputStream.writeInt(0); // header extension area length
+      buffer.write(COPY_BINARY_HEADER);
+      buffer.writeInt(0); // flags
+      buffer.writeInt(0); // header extension area length
     }
     firstRow = false;
-    outputStream.writeShort(resultSet.getColumnCount());
+    ColumnEncoder[] encoders = getColumnEncoders();
+    buffer.writeShort(encoders.length);
     for (int column_index = 0; /* column indices start at 0 */
-        column_index < resultSet.getColumnCount();
+        column_index < encoders.length;
         column_index++) {
       if (resultSet.isNull(column_index)) {
-        outputStream.writeInt(-1);
+        buffer.writeInt(-1);
       } else {
+        int lengthPosition = buffer.reserveInt();
+        encoders[column_index].encode(resultSet, column_index, buffer);
+        buffer.patchInt(lengthPosition, buffer.bytesSince(lengthPosition) - 4);
+      }
+    }
+  }
+
+  /**
+   * Returns the encoders for the columns of the result. The encoders are created for the first row,
+   * as the column types and the result formats do not change during the result.
+   */
+  private ColumnEncoder[] getColumnEncoders() {
+    if (columnEncoders == null) {
+      DataFormat fixedFormat = null;
+      if (statement instanceof CopyToStatement) {
+        fixedFormat =
+            ((CopyToStatement) statement).isBinary()
+                ? DataFormat.POSTGRESQL_BINARY
+                : DataFormat.POSTGRESQL_TEXT;
+      }
+      ColumnEncoder[] encoders = new ColumnEncoder[resultSet.getColumnCount()];
+      for (int index = 0; index < encoders.length; index++) {
         DataFormat format =
             fixedFormat == null
-                ? DataFormat.getDataFormat(column_index, statement, mode, options)
+                ? DataFormat.getDataFormat(index, statement, mode, options)
                 : fixedFormat;
-        byte[] column = Converter.convertToPG(this.resultSet, column_index, format, sessionState);
-        outputStream.writeInt(column.length);
-        outputStream.write(column);
+        encoders[index] =
+            ColumnEncoder.create(resultSet.getColumnType(index), format, sessionState);
       }
+      columnEncoders = encoders;
     }
-    return buffer.size();
-  }
-
-  public void writeBuffer(DataOutputStream outputStream) throws IOException {
-    buffer.writeTo(outputStream);
+    return columnEncoders;
   }
 
   /**
@@ -0,0 +1,413 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.cloud.spanner.pgadapter.statements.CopyStatement.Format;
+import com.google.common.base.Preconditions;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.apache.commons.csv.CSVFormat;
+
+/**
+ * Splits a stream of COPY data into chunks that only contain complete records, so the chunks can
+ * be parsed independently of each other. Each chunk starts with the header of the COPY data, which
+ * means that a chunk can be parsed by a normal {@link CopyInParser}:
+ *
+ * <ul>
+ *   <li>TEXT and CSV: The data is scanned for line breaks that are not quoted or escaped. A chunk
+ *       always ends directly after such a LF character, or after a CR that is not followed by a
+ *       LF. The header record, if any, is added to the start of all chunks after the first chunk.
+ *   <li>BINARY: The splitter walks over the length words of the tuples. The file header is added to
+ *       the start of all chunks. The chunks do not contain the file trailer.
+ * </ul>
+ *
+ * The splitter stops at the end-of-data marker (TEXT/CSV) or the file trailer (BINARY). The
+ * splitter does not validate the data, except for what it needs to find the record boundaries.
+ * Invalid data is passed on to the parser, which reports the error.
+ */
+class CopyChunkSplitter {
+  static final int DEFAULT_CHUNK_SIZE = 1 << 17;
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+  /** The length of the fixed part of the binary header: signature, flags and extension length. */
+  private static final int BINARY_HEADER_LENGTH = 19;
+
+  private static final byte DELIMITER = 1;
+  private static final byte QUOTE = 2;
+  private static final byte ESCAPE = 3;
+  private static final byte END_OF_LINE = 4;
+
+  /** A part of the COPY data that contains a number of complete records. */
+  static final class CopyChunk {
+    private final byte[] data;
+    private final long firstLineNumber;
+
+    private CopyChunk(byte[] data, long firstLineNumber) {
+      this.data = data;
+      this.firstLineNumber = firstLineNumber;
+    }
+
+    /** Returns the data of this chunk, including the header of the COPY data. */
+    InputStream getInputStream() {
+      return new ByteArrayInputStream(data);
+    }
+
+    int size() {
+      return data.length;
+    }
+
+    /**
+     * Returns the line number (TEXT/CSV) or row number (BINARY) of the first byte in the stream of
+     * this chunk, which should be used as the first line number for the parser of this chunk.
+     */
+    long getFirstLineNumber() {
+      return firstLineNumber;
+    }
+  }
+
+  private final InputStream inputStream;
+  private final boolean binary;
+  private final int chunkSize;
+  private final byte[] classes = new byte[256];
+
+  private byte[] buffer;
+  /** The number of bytes in the buffer. */
+  private int length;
+  /** The number of bytes in the buffer that have been scanned. */
+  private int scanned;
+  /** The end of the last complete record in the buffer. */
+  private int recordEnd;
+  /** The start of the record that is currently being scanned. */
+  private int recordStart;
+  /** The end of the stream has been reached. */
+  private boolean endOfStream;
+  /** The buffer contains data that has not yet been scanned. */
+  private boolean hasUnscannedData;
+  /** The end-of-data marker or file trailer has been found. */
+  private boolean stopped;
+  /** The binary data is invalid, and the remaining data is returned as one chunk. */
+  private boolean invalid;
+
+  /** The line or row number of the next line or row that is scanned. */
+  private long lineNumber = 1L;
+  /** The line or row number of the first line or row after recordEnd. */
+  private long recordEndLineNumber = 1L;
+  /** The line or row number of the first line or row of the next chunk. */
+  private long chunkLineNumber = 1L;
+
+  /** The header bytes that are added to the start of the next chunk. */
+  private byte[] prefix = new byte[0];
+  /** The header of the COPY data, or null if the header has not yet been read. */
+  private byte[] header;
+  /** The number of lines in the header. */
+  private long headerLines;
+
+  // The state of the TEXT and CSV scanner.
+  private boolean inQuotes;
+  private boolean quotePending;
+  private boolean escapePending;
+  private boolean crPending;
+  /** The record ended at the pending CR. The record boundary depends on the next byte. */
+  private boolean crEndedRecord;
+  private boolean atFieldStart = true;
+
+  /**
+   * Returns true if COPY data in the given format can be split into chunks. TEXT and CSV data can
+   * only be split if the special characters of the format are single-byte characters.
+   */
+  static boolean isSupported(Format format, @Nullable CSVFormat csvFormat) {
+    return format == Format.BINARY || (csvFormat != null && CsvCopyScanner.isSupported(csvFormat));
+  }
+
+  CopyChunkSplitter(Format format, @Nullable CSVFormat csvFormat, InputStream inputStream) {
+    this(format, csvFormat, inputStream, DEFAULT_CHUNK_SIZE);
+  }
+
+  CopyChunkSplitter(
+      Format format, @Nullable CSVFormat csvFormat, InputStream inputStream, int chunkSize) {
+    Preconditions.checkArgument(isSupported(format, csvFormat), "Unsupported COPY format");
+    Preconditions.checkArgument(chunkSize > 0, "chunkSize must be > 0");
+    this.inputStream = inputStream;
+    this.binary = format == Format.BINARY;
+    this.chunkSize = chunkSize;
+    this.buffer = new byte[Math.max(chunkSize * 2, 64)];
+    if (!binary) {
+      // Use the same character classes as CsvCopyScanner.
+      int quote = csvFormat.getQuoteCharacter() == null ? -1 : csvFormat.getQuoteCharacter();
+      int escape =
+          csvFormat.getEscapeCharacter() == null || csvFormat.getEscapeCharacter() == quote
+              ? -1
+              : csvFormat.getEscapeCharacter();
+      this.classes[CR] = END_OF_LINE;
+      this.classes[LF] = END_OF_LINE;
+      this.classes[csvFormat.getDelimiterString().charAt(0)] = DELIMITER;
+      if (quote > -1) {
+        this.classes[quote] = QUOTE;
+      }
+      if (escape > -1) {
+        this.classes[escape] = ESCAPE;
+      }
+      // The first record is a header record if the column names should be read from the data, or
+      // if the header record should be skipped. See also CsvCopyParser#readHeader.
+      String[] columnNames = csvFormat.getHeader();
+      if (columnNames == null || (columnNames.length > 0 && !csvFormat.getSkipHeaderRecord())) {
+        this.header = new byte[0];
+      }
+    }
+  }
+
+  /**
+   * Returns the next chunk of COPY data, or null if there is no more data. This method blocks until
+   * enough data has been received to fill a chunk, or until the end of the stream is reached.
+   */
+  @Nullable
+  CopyChunk nextChunk() throws IOException {
+    while (!stopped && recordEnd < chunkSize) {
+      if (hasUnscannedData) {
+        // Scanning stops when the chunk is full, or when all the data in the buffer has been
+        // scanned.
+        hasUnscannedData = false;
+        if (binary) {
+          scanBinary();
+        } else {
+          scanText();
+        }
+        continue;
+      }
+      if (endOfStream) {
+        // Pass the remaining data to the parser, also if it is not a complete record. The parser
+        // will report an error if the data is invalid.
+        recordEnd = length;
+        recordEndLineNumber = lineNumber;
+        break;
+      }
+      if (length == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      int read = inputStream.read(buffer, length, buffer.length - length);
+      if (read == -1) {
+        endOfStream = true;
+      } else {
+        length += read;
+        hasUnscannedData = true;
+      }
+    }
+    if (recordEnd == 0) {
+      return null;
+    }
+    byte[] data = new byte[prefix.length + recordEnd];
+    System.arraycopy(prefix, 0, data, 0, prefix.length);
+    System.arraycopy(buffer, 0, data, prefix.length, recordEnd);
+    CopyChunk chunk =
+        new CopyChunk(data, chunkLineNumber - (prefix.length == 0 || binary ? 0L : headerLines));
+
+    // Remove the chunk from the buffer.
+    System.arraycopy(buffer, recordEnd, buffer, 0, length - recordEnd);
+    length -= recordEnd;
+    scanned -= recordEnd;
+    recordStart -= recordEnd;
+    recordEnd = 0;
+    hasUnscannedData = scanned < length;
+    chunkLineNumber = recordEndLineNumber;
+    if (header != null) {
+      prefix = header;
+    }
+    return chunk;
+  }
+
+  /** Scans the new TEXT or CSV data in the buffer for record boundaries. */
+  private void scanText() {
+    for (; scanned < length && !stopped && recordEnd < chunkSize; scanned++) {
+      byte b = buffer[scanned];
+      byte type = classes[b & 0xff];
+      boolean cr = crPending;
+      crPending = false;
+      if (crEndedRecord) {
+        crEndedRecord = false;
+        if (b != LF) {
+          // The record ended with a bare CR, so the next record starts at this byte.
+          recordEnd = scanned;
+          recordEndLineNumber = lineNumber;
+          if (recordEnd >= chunkSize) {
+            break;
+          }
+        }
+      }
+      if (escapePending) {
+        // Escaped characters, including line breaks, are literals.
+        escapePending = false;
+        atFieldStart = false;
+        continue;
+      }
+      if (quotePending) {
+        quotePending = false;
+        if (type == QUOTE) {
+          // A doubled quote is an escaped quote.
+          inQuotes = true;
+          continue;
+        }
+      }
+      if (type == END_OF_LINE) {
+        // A CR is a line break if it is not followed by a LF. A LF is a line break if it is not
+        // preceded by a CR. This is the same as the way CsvCopyScanner counts lines.
+        if (b == CR) {
+          crPending = true;
+          lineNumber++;
+        } else if (!cr) {
+          lineNumber++;
+        }
+        if (!inQuotes) {
+          if (b == LF && cr) {
+            // The LF of a CRLF sequence. The record already ended at the CR.
+            recordStart = scanned + 1;
+            markRecordBoundary();
+          } else {
+            endRecord();
+          }
+        }
+      } else if (inQuotes) {
+        if (type == ESCAPE) {
+          escapePending = true;
+        } else if (type == QUOTE) {
+          inQuotes = false;
+          quotePending = true;
+        }
+      } else if (type == ESCAPE) {
+        escapePending = true;
+      } else if (type == DELIMITER) {
+        atFieldStart = true;
+      } else {
+        // A quote that is not at the start of a field is an ordinary character.
+        inQuotes = type == QUOTE && atFieldStart;
+        atFieldStart = false;
+      }
+    }
+  }
+
+  /** Registers the end of a TEXT or CSV record at the current position. */
+  private void endRecord() {
+    int end = scanned + 1;
+    if (header == null) {
+      header = Arrays.copyOf(buffer, end);
+      headerLines = lineNumber - 1L;
+    } else if (end - recordStart == 3
+        && buffer[recordStart] == '\\'
+        && buffer[recordStart + 1] == '.') {
+      // The end-of-data marker. Any data after the marker is ignored.
+      stopped = true;
+      recordEnd = end;
+      recordEndLineNumber = lineNumber;
+      return;
+    }
+    atFieldStart = true;
+    recordStart = end;
+    if (buffer[scanned] == LF) {
+      markRecordBoundary();
+    } else {
+      // The record ends at a CR. This is only a chunk boundary if the CR is not followed by a LF,
+      // which is not known until the next byte has been scanned.
+      crEndedRecord = true;
+    }
+  }
+
+  /** Marks the position after the current LF as a possible chunk boundary. */
+  private void markRecordBoundary() {
+    recordEnd = scanned + 1;
+    recordEndLineNumber = lineNumber;
+  }
+
+  /** Walks over the complete tuples in the buffer. */
+  private void scanBinary() {
+    if (invalid) {
+      return;
+    }
+    if (header == null) {
+      if (length < BINARY_HEADER_LENGTH) {
+        return;
+      }
+      int headerLength = BINARY_HEADER_LENGTH + readInt(buffer, BINARY_HEADER_LENGTH - 4);
+      if (headerLength < BINARY_HEADER_LENGTH) {
+        invalid = true;
+        return;
+      }
+      if (length < headerLength) {
+        return;
+      }
+      header = Arrays.copyOf(buffer, headerLength);
+      prefix = header;
+      System.arraycopy(buffer, headerLength, buffer, 0, length - headerLength);
+      length -= headerLength;
+    }
+    boolean containsOids = (readInt(header, 11) & (1 << 16)) != 0;
+    while (!stopped && recordEnd < chunkSize) {
+      int position = scanned;
+      if (position + 2 > length) {
+        return;
+      }
+      int fieldCount = (short) ((buffer[position] & 0xff) << 8 | buffer[position + 1] & 0xff);
+      position += 2;
+      if (fieldCount == -1) {
+        // The file trailer.
+        stopped = true;
+        return;
+      }
+      if (fieldCount < 0) {
+        markInvalid();
+        return;
+      }
+      for (int field = 0; field < fieldCount + (containsOids ? 1 : 0); field++) {
+        if (position + 4 > length) {
+          return;
+        }
+        int fieldLength = readInt(buffer, position);
+        position += 4;
+        if (fieldLength < -1) {
+          markInvalid();
+          return;
+        }
+        if (fieldLength > 0) {
+          position += fieldLength;
+          if (position > length || position < 0) {
+            return;
+          }
+        }
+      }
+      scanned = position;
+      lineNumber++;
+      recordEnd = position;
+      recordEndLineNumber = lineNumber;
+    }
+  }
+
+  /** Reads a big-endian int from the given array. */
+  private static int readInt(byte[] source, int position) {
+    return (source[position] & 0xff) << 24
+        | (source[position + 1] & 0xff) << 16
+        | (source[position + 2] & 0xff) << 8
+        | source[position + 3] & 0xff;
+  }
+
+  /**
+   * Stops looking for record boundaries in invalid binary data. The data of the current chunk and
+   * the remaining data in the stream are returned as one chunk, so the parser can report the error.
+   */
+  private void markInvalid() {
+    invalid = true;
+    recordEnd = 0;
+  }
+}
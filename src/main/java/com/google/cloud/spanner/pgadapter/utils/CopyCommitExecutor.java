@@ -0,0 +1,377 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Executes the commits of COPY operations. One instance is shared by all connections of a server,
+ * so the number of commits that are executed at the same time is limited for the server as a
+ * whole, and not only per COPY operation.
+ *
+ * <p>Each COPY operation submits its commits to its own {@link CommitQueue}. The commits of one
+ * queue are started in the order that they were submitted, and the queues that have waiting
+ * commits get a turn in round-robin order. A COPY operation with many commits can therefore not
+ * starve the other COPY operations.
+ *
+ * <p>The executor also limits the approximate number of bytes in commits that are waiting or
+ * executing. A COPY operation that submits a commit when this limit has been reached waits until
+ * other commits have finished. A single commit is always accepted if no other commits are waiting
+ * or executing, also if it is larger than the limit.
+ */
+@InternalApi
+public class CopyCommitExecutor {
+  private final int maxConcurrentCommits;
+  private final long maxBytes;
+  /** Executes both the commits and the COPY operations that submit the commits. */
+  private final ExecutorService executor;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  /** Signalled when commits have finished and there could be room for more bytes. */
+  private final Condition bytesReleased = lock.newCondition();
+  /** The queues that have waiting commits, in the order that they will be served. */
+  private final ArrayDeque<CommitQueue> readyQueues = new ArrayDeque<>();
+
+  private int queuedCommits;
+  private int inFlightCommits;
+  private long queuedBytes;
+  private long inFlightBytes;
+  /** True if no more commits can be accepted without waiting. Read without holding the lock. */
+  private volatile boolean budgetExhausted;
+
+  private final LongAdder commits = new LongAdder();
+  private final LongAdder committedBytes = new LongAdder();
+  private final LongAdder backpressureWaits = new LongAdder();
+
+  /** Creates a COPY commit executor for the settings in the given options. */
+  public static CopyCommitExecutor create(OptionsMetadata options) {
+    return new CopyCommitExecutor(
+        options.getMaxCopyCommits(),
+        options.getMaxCopyCommitBytes(),
+        ThreadFactories.create("spanner-postgres-adapter-copy-", options.useVirtualThreads()));
+  }
+
+  /**
+   * Creates a COPY commit executor.
+   *
+   * @param maxConcurrentCommits the maximum number of commits that are executed at the same time,
+   *     or 0 for no limit
+   * @param maxBytes the maximum approximate number of bytes in commits that are waiting or
+   *     executing, or 0 for no limit
+   * @param threadFactory the factory for the threads that execute the commits and COPY operations
+   */
+  public CopyCommitExecutor(int maxConcurrentCommits, long maxBytes, ThreadFactory threadFactory) {
+    Preconditions.checkArgument(maxConcurrentCommits >= 0, "maxConcurrentCommits must be >= 0");
+    Preconditions.checkArgument(maxBytes >= 0L, "maxBytes must be >= 0");
+    this.maxConcurrentCommits =
+        maxConcurrentCommits == 0 ? Integer.MAX_VALUE : maxConcurrentCommits;
+    this.maxBytes = maxBytes == 0L ? Long.MAX_VALUE : maxBytes;
+    this.executor = Executors.newCachedThreadPool(threadFactory);
+  }
+
+  /**
+   * Returns the executor that runs the COPY operations. The threads of this executor are shared
+   * with the commits, but the COPY operations themselves are not limited by this executor.
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /** Creates a new queue for the commits of one COPY operation. */
+  public CommitQueue newQueue() {
+    return new CommitQueue();
+  }
+
+  /**
+   * Stops all threads that are executing commits or COPY operations. Commits that are still waiting
+   * fail with a {@link RejectedExecutionException}.
+   */
+  public void shutdown() {
+    lock.lock();
+    try {
+      executor.shutdownNow();
+      for (CommitQueue queue : readyQueues) {
+        Commit commit;
+        while ((commit = queue.commits.poll()) != null) {
+          queuedCommits--;
+          queuedBytes -= commit.bytes;
+          queue.pendingCommits--;
+          commit.future.setException(
+              new RejectedExecutionException("COPY commit executor has been shut down"));
+        }
+        queue.ready = false;
+      }
+      readyQueues.clear();
+      updateBudget();
+      bytesReleased.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns true if a commit with the given size can be accepted. Must hold the lock. */
+  private boolean hasRoomFor(long bytes) {
+    long usedBytes = queuedBytes + inFlightBytes;
+    return usedBytes == 0L || usedBytes + bytes <= maxBytes;
+  }
+
+  private void updateBudget() {
+    budgetExhausted = queuedBytes + inFlightBytes >= maxBytes;
+  }
+
+  /** Starts waiting commits as long as the concurrency limit allows it. Must hold the lock. */
+  private void dispatch() {
+    while (inFlightCommits < maxConcurrentCommits && !readyQueues.isEmpty()) {
+      CommitQueue queue = readyQueues.poll();
+      Commit commit = queue.commits.poll();
+      if (queue.commits.isEmpty()) {
+        queue.ready = false;
+      } else {
+        // Move the queue to the back of the line, so all other queues get a turn first.
+        readyQueues.add(queue);
+      }
+      queuedCommits--;
+      queuedBytes -= commit.bytes;
+      inFlightCommits++;
+      inFlightBytes += commit.bytes;
+      try {
+        executor.execute(commit);
+      } catch (RejectedExecutionException exception) {
+        release(commit);
+        commit.future.setException(exception);
+      }
+    }
+  }
+
+  /** Releases the slot and the bytes of a commit that has finished. Must hold the lock. */
+  private void release(Commit commit) {
+    inFlightCommits--;
+    inFlightBytes -= commit.bytes;
+    commit.queue.pendingCommits--;
+    updateBudget();
+    bytesReleased.signalAll();
+  }
+
+  /** A commit that has been submitted to a {@link CommitQueue}. */
+  private final class Commit implements Runnable {
+    private final CommitQueue queue;
+    private final Callable<Void> callable;
+    private final long bytes;
+    private final SettableFuture<Void> future = SettableFuture.create();
+
+    private Commit(CommitQueue queue, Callable<Void> callable, long bytes) {
+      this.queue = queue;
+      this.callable = callable;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public void run() {
+      Throwable error = null;
+      try {
+        callable.call();
+      } catch (Throwable throwable) {
+        error = throwable;
+      }
+      lock.lock();
+      try {
+        release(this);
+        dispatch();
+      } finally {
+        lock.unlock();
+      }
+      commits.increment();
+      committedBytes.add(bytes);
+      // Complete the future after the commit has released its slot, so a COPY operation that
+      // waits for this commit can immediately submit a new commit.
+      if (error == null) {
+        future.set(null);
+      } else {
+        future.setException(error);
+      }
+    }
+  }
+
+  /** The commits of one COPY operation. */
+  public final class CommitQueue {
+    private final ArrayDeque<Commit> commits = new ArrayDeque<>();
+    /** True if this queue is in the list of queues that have waiting commits. */
+    private boolean ready;
+    /** The number of commits of this queue that are waiting or executing. */
+    private int pendingCommits;
+
+    private CommitQueue() {}
+
+    /**
+     * Submits a commit with the given approximate size in bytes. The commit is executed when both
+     * the concurrency limit of the executor and the other queues allow it. This method blocks while
+     * the byte limit of the executor has been reached.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for room
+     */
+    public ListenableFuture<Void> submit(Callable<Void> callable, long bytes)
+        throws InterruptedException {
+      Commit commit = new Commit(this, callable, bytes);
+      lock.lockInterruptibly();
+      try {
+        if (!hasRoomFor(bytes)) {
+          backpressureWaits.increment();
+          do {
+            bytesReleased.await();
+          } while (!hasRoomFor(bytes));
+        }
+        commits.add(commit);
+        pendingCommits++;
+        queuedCommits++;
+        queuedBytes += bytes;
+        updateBudget();
+        if (!ready) {
+          ready = true;
+          readyQueues.add(this);
+        }
+        dispatch();
+      } finally {
+        lock.unlock();
+      }
+      return commit.future;
+    }
+
+    /**
+     * Waits until the byte limit of the executor allows new data. This is called before more COPY
+     * data is accepted from the client, so the client is slowed down when the commits of all
+     * connections cannot keep up with the incoming data.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitCapacity() throws InterruptedException {
+      if (!budgetExhausted) {
+        return;
+      }
+      lock.lockInterruptibly();
+      try {
+        if (queuedBytes + inFlightBytes >= maxBytes) {
+          backpressureWaits.increment();
+          do {
+            bytesReleased.await();
+          } while (queuedBytes + inFlightBytes >= maxBytes);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Waits until all commits of this queue have finished. Returns false if the timeout elapsed
+     * before that.
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+      long remainingNanos = unit.toNanos(timeout);
+      lock.lockInterruptibly();
+      try {
+        while (pendingCommits > 0) {
+          if (remainingNanos <= 0L) {
+            return false;
+          }
+          remainingNanos = bytesReleased.awaitNanos(remainingNanos);
+        }
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /** Returns the maximum number of commits that are executed at the same time. */
+  public int getMaxConcurrentCommits() {
+    return maxConcurrentCommits;
+  }
+
+  /** Returns the maximum approximate number of bytes in commits that are waiting or executing. */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** Returns the number of commits that are waiting to be executed. */
+  public int getQueuedCommitCount() {
+    lock.lock();
+    try {
+      return queuedCommits;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns the number of commits that are currently executing. */
+  public int getInFlightCommitCount() {
+    lock.lock();
+    try {
+      return inFlightCommits;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns the approximate number of bytes in commits that are waiting to be executed. */
+  public long getQueuedBytes() {
+    lock.lock();
+    try {
+      return queuedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns the approximate number of bytes in commits that are currently executing. */
+  public long getInFlightBytes() {
+    lock.lock();
+    try {
+      return inFlightBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns the number of commits that have finished, including commits that failed. */
+  public long getCommitCount() {
+    return commits.sum();
+  }
+
+  /** Returns the approximate number of bytes in commits that have finished. */
+  public long getCommittedBytes() {
+    return committedBytes.sum();
+  }
+
+  /**
+   * Returns the number of times that a COPY operation had to wait because the byte limit had been
+   * reached. A high number means that Cloud Spanner cannot keep up with the incoming COPY data.
+   */
+  public long getBackpressureWaitCount() {
+    return backpressureWaits.sum();
+  }
+}
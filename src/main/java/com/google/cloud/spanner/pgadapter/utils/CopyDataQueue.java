@@ -0,0 +1,250 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded single-producer/single-consumer queue of the payloads of CopyData messages. The thread
+ * that receives the CopyData messages adds the payloads to the queue without copying them, and the
+ * thread that parses the COPY data reads the queue as an {@link InputStream}.
+ *
+ * <p>The queue is limited both by the number of bytes and by the number of payloads in the queue.
+ * A payload is always accepted if the queue is empty, also if it is larger than the byte limit. The
+ * producer and the consumer do not take any locks. A thread that has to wait for the other thread
+ * is parked until the other thread has added or removed a payload.
+ */
+@InternalApi
+public class CopyDataQueue extends InputStream {
+  /** The default maximum number of payloads in the queue. */
+  static final int DEFAULT_MAX_CHUNKS = 4096;
+  /**
+   * The number of times that a thread yields before it parks while it waits for the other thread.
+   * This prevents a park/unpark for each payload when both threads are equally fast.
+   */
+  private static final int SPINS = 64;
+
+  private final long maxBytes;
+  private final byte[][] chunks;
+  private final int mask;
+
+  /** The index of the next payload that will be read. This is only updated by the consumer. */
+  private final AtomicLong head = new AtomicLong();
+  /** The index of the next payload that will be added. This is only updated by the producer. */
+  private final AtomicLong tail = new AtomicLong();
+  /** The total number of bytes that have been added. This is only updated by the producer. */
+  private volatile long bytesAdded;
+  /** The total number of bytes that have been taken. This is only updated by the consumer. */
+  private volatile long bytesTaken;
+
+  /** The producer will not add any more data. */
+  private volatile boolean finished;
+  /** The consumer will not read any more data. */
+  private volatile boolean closed;
+
+  private volatile Thread waitingProducer;
+  private volatile Thread waitingConsumer;
+
+  /** The payload that the consumer is currently reading. */
+  private byte[] current;
+
+  private int position;
+
+  /** Creates a queue that holds at most the given number of bytes. */
+  public CopyDataQueue(int maxBytes) {
+    this(maxBytes, DEFAULT_MAX_CHUNKS);
+  }
+
+  CopyDataQueue(long maxBytes, int maxChunks) {
+    Preconditions.checkArgument(maxBytes > 0L, "maxBytes must be > 0");
+    Preconditions.checkArgument(maxChunks > 0, "maxChunks must be > 0");
+    this.maxBytes = maxBytes;
+    // Round the number of slots up to a power of two, so the slot of an index can be calculated
+    // with a mask.
+    int slots = Integer.highestOneBit(maxChunks);
+    if (slots < maxChunks) {
+      slots <<= 1;
+    }
+    this.chunks = new byte[slots][];
+    this.mask = slots - 1;
+  }
+
+  /**
+   * Adds the given payload to the queue. The queue takes ownership of the payload, which may not be
+   * modified by the caller after calling this method. This method blocks until there is room in the
+   * queue.
+   *
+   * @throws InterruptedIOException if the thread is interrupted while waiting for room in the queue
+   * @throws IOException if the queue has been closed by the consumer, or if {@link #finish()} has
+   *     been called
+   */
+  public void add(byte[] payload) throws IOException {
+    if (finished) {
+      throw new IOException("COPY data queue has been finished");
+    }
+    if (payload.length == 0) {
+      return;
+    }
+    long index = tail.get();
+    for (int spins = 0; spins < SPINS && !hasRoom(index, payload.length); spins++) {
+      Thread.yield();
+    }
+    while (!hasRoom(index, payload.length)) {
+      if (closed) {
+        throw new IOException("COPY data queue has been closed");
+      }
+      waitingProducer = Thread.currentThread();
+      // Check again after registering as waiting to prevent a lost wakeup.
+      if (!closed && !hasRoom(index, payload.length)) {
+        LockSupport.park(this);
+      }
+      waitingProducer = null;
+      if (Thread.interrupted()) {
+        throw new InterruptedIOException("Interrupted while adding COPY data");
+      }
+    }
+    if (closed) {
+      throw new IOException("COPY data queue has been closed");
+    }
+    chunks[(int) index & mask] = payload;
+    bytesAdded += payload.length;
+    tail.set(index + 1);
+    LockSupport.unpark(waitingConsumer);
+  }
+
+  private boolean hasRoom(long index, int length) {
+    if (index - head.get() >= chunks.length) {
+      return false;
+    }
+    long bytes = bytesAdded - bytesTaken;
+    return bytes == 0L || bytes + length <= maxBytes;
+  }
+
+  /** Indicates that no more data will be added. The consumer reads the remaining data. */
+  public void finish() {
+    finished = true;
+    LockSupport.unpark(waitingConsumer);
+  }
+
+  /** Returns the number of bytes that are waiting to be read, including the current payload. */
+  public long getQueuedBytes() {
+    return bytesAdded - bytesTaken + (current == null ? 0 : current.length - position);
+  }
+
+  /**
+   * Moves to the next payload in the queue. Returns false if the queue is empty and no more data
+   * will be added. Blocks if the queue is empty and the producer has not called {@link #finish()}
+   * if wait is true.
+   */
+  private boolean nextChunk(boolean wait) throws IOException {
+    int spins = 0;
+    while (true) {
+      if (closed) {
+        throw new IOException("COPY data queue has been closed");
+      }
+      long index = head.get();
+      if (index < tail.get()) {
+        int slot = (int) index & mask;
+        current = chunks[slot];
+        position = 0;
+        chunks[slot] = null;
+        bytesTaken += current.length;
+        head.set(index + 1);
+        LockSupport.unpark(waitingProducer);
+        return true;
+      }
+      if (finished) {
+        // Check the queue once more, as the producer could have added data before it finished.
+        if (index < tail.get()) {
+          continue;
+        }
+        return false;
+      }
+      if (!wait) {
+        return false;
+      }
+      if (spins < SPINS) {
+        spins++;
+        Thread.yield();
+        continue;
+      }
+      waitingConsumer = Thread.currentThread();
+      // Check again after registering as waiting to prevent a lost wakeup.
+      if (!closed && !finished && index == tail.get()) {
+        LockSupport.park(this);
+      }
+      waitingConsumer = null;
+      if (Thread.interrupted()) {
+        throw new InterruptedIOException("Interrupted while waiting for COPY data");
+      }
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if ((current == null || position == current.length) && !nextChunk(true)) {
+      return -1;
+    }
+    return current[position++] & 0xff;
+  }
+
+  /**
+   * Reads up to len bytes. This method blocks until at least one byte is available, and then also
+   * reads the data of all payloads that are already in the queue.
+   */
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    Preconditions.checkPositionIndexes(offset, offset + length, buffer.length);
+    if (length == 0) {
+      return 0;
+    }
+    if ((current == null || position == current.length) && !nextChunk(true)) {
+      return -1;
+    }
+    int read = 0;
+    while (read < length) {
+      if (position == current.length && !nextChunk(false)) {
+        break;
+      }
+      int count = Math.min(length - read, current.length - position);
+      System.arraycopy(current, position, buffer, offset + read, count);
+      position += count;
+      read += count;
+    }
+    return read;
+  }
+
+  @Override
+  public int available() {
+    return (int) Math.min(Integer.MAX_VALUE, getQueuedBytes());
+  }
+
+  /**
+   * Closes the queue for the consumer. The producer fails with an {@link IOException} if it tries
+   * to add more data.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    current = null;
+    LockSupport.unpark(waitingProducer);
+  }
+}
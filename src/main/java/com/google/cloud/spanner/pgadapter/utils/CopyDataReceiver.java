@@ -22,9 +22,10 @@ import com.google.cloud.spanner.pgadapter.ConnectionHandler.ConnectionStatus;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement;
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement.ResultNotReadyBehavior;
-import com.google.cloud.spanner.pgadapter.wireoutput.CommandCompleteResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.CopyInResponse;
+import com.google.cloud.spanner.pgadapter.wireoutput.ResponseWriter;
 import com.google.common.annotations.VisibleForTesting;
+import java.io.DataOutputStream;
 import java.util.concurrent.Callable;
 
 /**
@@ -69,6 +70,7 @@ public class CopyDataReceiver implements Callable<Void> {
               copyStatement.getFormatCode())
           .send();
       ConnectionStatus initialConnectionStatus = this.connectionHandler.getStatus();
+      this.connectionHandler.beginCopyIn();
       try {
         this.connectionHandler.setStatus(ConnectionStatus.COPY_IN);
         // Loop here until COPY_IN mode has finished.
@@ -83,10 +85,10 @@ public class CopyDataReceiver implements Callable<Void> {
         // respond with an ErrorResponse. That is why we do not check for COPY_FAILED here, and do
         // not return an ErrorResponse.
         if (connectionHandler.getStatus() == ConnectionStatus.COPY_DONE) {
-          new CommandCompleteResponse(
-                  this.connectionHandler.getConnectionMetadata().getOutputStream(),
-                  "COPY " + copyStatement.getUpdateCount(ResultNotReadyBehavior.BLOCK))
-              .send();
+          DataOutputStream output = this.connectionHandler.getConnectionMetadata().getOutputStream();
+          ResponseWriter.writeCommandComplete(
+              output, "COPY", copyStatement.getUpdateCount(ResultNotReadyBehavior.BLOCK));
+          output.flush();
         }
         // Throw an exception if the COPY failed. This ensures that the BackendConnection receives
         // an error and marks the current (implicit) transaction as aborted.
@@ -100,6 +102,7 @@ public class CopyDataReceiver implements Callable<Void> {
           }
         }
       } finally {
+        this.connectionHandler.endCopyIn();
         this.connectionHandler.clearActiveCopyStatement();
         this.copyStatement.close();
         this.connectionHandler.setStatus(initialConnectionStatus);
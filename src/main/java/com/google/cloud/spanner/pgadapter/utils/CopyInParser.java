@@ -20,7 +20,7 @@ import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement.Format;
 import java.io.IOException;
-import java.io.PipedInputStream;
+import java.io.InputStream;
 import java.util.Iterator;
 import javax.annotation.Nullable;
 import org.apache.commons.csv.CSVFormat;
@@ -36,7 +36,7 @@ public interface CopyInParser {
       SessionState sessionState,
       Format format,
       @Nullable CSVFormat csvFormat,
-      PipedInputStream inputStream,
+      InputStream inputStream,
       boolean hasHeader)
       throws IOException {
     switch (format) {
@@ -51,6 +51,30 @@ public interface CopyInParser {
     }
   }
 
+  /**
+   * Creates a {@link CopyInParser} for a part of the COPY data that starts at the given line number
+   * (TEXT and CSV) or row number (BINARY). The part must start with the header of the COPY data.
+   */
+  static CopyInParser create(
+      SessionState sessionState,
+      Format format,
+      @Nullable CSVFormat csvFormat,
+      InputStream inputStream,
+      boolean hasHeader,
+      long firstLineNumber)
+      throws IOException {
+    switch (format) {
+      case TEXT:
+      case CSV:
+        return new CsvCopyParser(sessionState, csvFormat, inputStream, hasHeader, firstLineNumber);
+      case BINARY:
+        return new BinaryCopyParser(inputStream, firstLineNumber);
+      default:
+        throw SpannerExceptionFactory.newSpannerException(
+            ErrorCode.INVALID_ARGUMENT, "Unsupported COPY format: " + format);
+    }
+  }
+
   /** Returns an iterator of COPY records. */
   Iterator<CopyRecord> iterator();
 
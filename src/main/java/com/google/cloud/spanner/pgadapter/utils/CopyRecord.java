@@ -54,4 +54,13 @@ public interface CopyRecord {
    * where it is being inserted. This method is supported for all types of {@link CopyRecord}.
    */
   Value getValue(Type type, int columnIndex);
+
+  /**
+   * Returns the line number in the COPY data where this record starts. Formats that are not line
+   * based return the number of the row in the COPY data. Returns 0 if the position of the record is
+   * not known.
+   */
+  default long getLineNumber() {
+    return 0L;
+  }
 }
@@ -24,17 +24,22 @@ import com.google.cloud.spanner.Type;
 import com.google.cloud.spanner.Value;
 import com.google.cloud.spanner.pgadapter.parsers.ArrayParser;
 import com.google.cloud.spanner.pgadapter.parsers.BooleanParser;
+import com.google.cloud.spanner.pgadapter.parsers.DateTimeScanner;
 import com.google.cloud.spanner.pgadapter.parsers.TimestampParser;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterators;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PipedInputStream;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
 import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -44,39 +49,127 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.postgresql.core.Oid;
 
-/** Implementation of {@link CopyInParser} for the TEXT and CSV formats. */
+/**
+ * Implementation of {@link CopyInParser} for the TEXT and CSV formats. The data is parsed by a
+ * {@link CsvCopyScanner} that works directly on the UTF-8 bytes of the stream. Formats that use
+ * special characters that cannot be handled by the scanner are parsed with a commons-csv {@link
+ * CSVParser}.
+ */
 class CsvCopyParser implements CopyInParser {
   private static final Logger logger = Logger.getLogger(CsvCopyParser.class.getName());
 
   private final SessionState sessionState;
   private final CSVFormat format;
   private final boolean hasHeader;
+  private final InputStream inputStream;
+  private final CsvCopyScanner scanner;
   private final CSVParser parser;
 
   CsvCopyParser(
       SessionState sessionState,
       CSVFormat csvFormat,
-      PipedInputStream inputStream,
+      InputStream inputStream,
       boolean hasHeader)
       throws IOException {
+    this(sessionState, csvFormat, inputStream, hasHeader, 1L);
+  }
+
+  /**
+   * Creates a parser for a stream that starts at the given line number of the COPY data. The line
+   * numbers are only registered if the format is supported by {@link CsvCopyScanner}.
+   */
+  CsvCopyParser(
+      SessionState sessionState,
+      CSVFormat csvFormat,
+      InputStream inputStream,
+      boolean hasHeader,
+      long firstLineNumber)
+      throws IOException {
     this.sessionState = sessionState;
     this.format = csvFormat;
     this.hasHeader = hasHeader;
-    this.parser = createParser(inputStream);
+    this.inputStream = inputStream;
+    if (CsvCopyScanner.isSupported(csvFormat)) {
+      this.scanner =
+          new CsvCopyScanner(
+              csvFormat, inputStream, CsvCopyScanner.DEFAULT_BUFFER_SIZE, firstLineNumber);
+      this.parser = null;
+    } else {
+      this.scanner = null;
+      this.parser = createParser(inputStream);
+    }
   }
 
+  /**
+   * Returns an iterator of the records in the stream. The iterator of a parser that uses a {@link
+   * CsvCopyScanner} returns the same {@link CopyRecord} instance for each record, and the values of
+   * a record can only be read until the next call to {@link Iterator#hasNext()}.
+   */
   @Override
   public Iterator<CopyRecord> iterator() {
-    return Iterators.transform(
-        parser.iterator(), record -> new CsvCopyRecord(this.sessionState, record, this.hasHeader));
+    if (scanner == null) {
+      return Iterators.transform(
+          parser.iterator(),
+          record -> new CsvCopyRecord(this.sessionState, record, this.hasHeader));
+    }
+    ScannedCopyRecord record =
+        new ScannedCopyRecord(this.sessionState, this.scanner, this.hasHeader);
+    return new AbstractIterator<CopyRecord>() {
+      private boolean headerRead;
+
+      @Override
+      protected CopyRecord computeNext() {
+        try {
+          if (!headerRead) {
+            headerRead = true;
+            if (!readHeader(record)) {
+              return endOfData();
+            }
+          }
+          return scanner.nextRecord() ? record : endOfData();
+        } catch (IOException ioException) {
+          throw SpannerExceptionFactory.newSpannerException(
+              ErrorCode.INTERNAL, ioException.getMessage(), ioException);
+        }
+      }
+    };
+  }
+
+  /**
+   * Reads the header record if the format specifies that the first record contains the column
+   * names, and registers the column names in the given record. Returns false if the stream ended
+   * before the header record.
+   */
+  private boolean readHeader(ScannedCopyRecord record) throws IOException {
+    String[] header = format.getHeader();
+    if (header == null) {
+      return true;
+    }
+    if (header.length == 0) {
+      if (!scanner.nextRecord()) {
+        return false;
+      }
+      header = new String[scanner.getFieldCount()];
+      for (int i = 0; i < header.length; i++) {
+        header[i] = scanner.getString(i);
+      }
+    } else if (format.getSkipHeaderRecord() && !scanner.nextRecord()) {
+      return false;
+    }
+    record.setColumnNames(header);
+    return true;
   }
 
   @Override
   public void close() throws IOException {
-    parser.close();
+    if (parser != null) {
+      parser.close();
+    } else {
+      inputStream.close();
+    }
   }
 
-  CSVParser createParser(PipedInputStream inputStream) throws IOException {
+  CSVParser createParser(InputStream inputStream) throws IOException {
     // Construct the CSVParser directly on the stream of incoming CopyData messages, so we don't
     // store more data in memory than necessary. Loading all data into memory first before starting
     // to parse and write the CSVRecords could otherwise cause an out-of-memory exception for large
@@ -233,6 +326,291 @@ class CsvCopyParser implements CopyInParser {
     }
   }
 
+  /**
+   * {@link CopyRecord} for the current record of a {@link CsvCopyScanner}. The values are converted
+   * directly from the bytes in the record buffer of the scanner for the most common types, and
+   * through {@link CsvCopyRecord#getSpannerValue(SessionState, Type, String)} for all other types
+   * and for values that are not in the most common format of the type.
+   */
+  static class ScannedCopyRecord implements CopyRecord {
+    /** The number of significant digits that can always be represented exactly by a double. */
+    private static final int MAX_EXACT_DOUBLE_DIGITS = 15;
+    /** Powers of ten that can be represented exactly by a double. */
+    private static final double[] EXACT_POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+      1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final SessionState sessionState;
+    private final CsvCopyScanner scanner;
+    private final boolean hasHeader;
+    private final AsciiSequence sequence = new AsciiSequence();
+    private Map<String, Integer> columnIndices;
+    private ZoneId timezone;
+
+    /** The result of the last successful call to {@link #parseLong(byte[], int, int)}. */
+    private long longValue;
+    /** The result of the last successful call to {@link #parseDouble(byte[], int, int)}. */
+    private double doubleValue;
+
+    ScannedCopyRecord(SessionState sessionState, CsvCopyScanner scanner, boolean hasHeader) {
+      this.sessionState = sessionState;
+      this.scanner = scanner;
+      this.hasHeader = hasHeader;
+    }
+
+    void setColumnNames(String[] columnNames) {
+      this.columnIndices = new HashMap<>(columnNames.length);
+      for (int i = 0; i < columnNames.length; i++) {
+        if (columnNames[i] != null) {
+          this.columnIndices.put(columnNames[i], i);
+        }
+      }
+    }
+
+    @Override
+    public int numColumns() {
+      return scanner.getFieldCount();
+    }
+
+    @Override
+    public boolean isEndRecord() {
+      // See CsvCopyRecord#isEndRecord().
+      return scanner.getFieldCount() == 1
+          && !scanner.isQuoted(0)
+          && scanner.getFieldLength(0) == 2
+          && scanner.getRecordBuffer()[scanner.getFieldStart(0)] == '\\'
+          && scanner.getRecordBuffer()[scanner.getFieldStart(0) + 1] == '.';
+    }
+
+    @Override
+    public boolean hasColumnNames() {
+      return this.hasHeader;
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+      return scanner.isNull(columnIndex);
+    }
+
+    @Override
+    public long getLineNumber() {
+      return scanner.getLineNumber();
+    }
+
+    @Override
+    public Value getValue(Type type, String columnName) throws SpannerException {
+      Integer index = columnIndices == null ? null : columnIndices.get(columnName);
+      if (index == null) {
+        throw SpannerExceptionFactory.newSpannerException(
+            ErrorCode.INVALID_ARGUMENT,
+            String.format("Column %s not found in COPY header", columnName));
+      }
+      return getValue(type, index);
+    }
+
+    @Override
+    public Value getValue(Type type, int columnIndex) throws SpannerException {
+      if (scanner.isNull(columnIndex)) {
+        return CsvCopyRecord.getSpannerValue(sessionState, type, null);
+      }
+      byte[] data = scanner.getRecordBuffer();
+      int offset = scanner.getFieldStart(columnIndex);
+      int length = scanner.getFieldLength(columnIndex);
+      switch (type.getCode()) {
+        case STRING:
+          return Value.string(new String(data, offset, length, StandardCharsets.UTF_8));
+        case INT64:
+          if (parseLong(data, offset, length)) {
+            return Value.int64(longValue);
+          }
+          break;
+        case FLOAT64:
+          if (parseDouble(data, offset, length)) {
+            return Value.float64(doubleValue);
+          }
+          break;
+        case BOOL:
+          int bool = parseBool(data, offset, length);
+          if (bool > -1) {
+            return Value.bool(bool == 1);
+          }
+          break;
+        case DATE:
+          if (length == 10) {
+            Date date = DateTimeScanner.parseDatePrefix(sequence.set(data, offset, length));
+            if (date != null) {
+              return Value.date(date);
+            }
+          }
+          break;
+        case TIMESTAMP:
+          if (timezone == null) {
+            timezone = sessionState.getTimezone();
+          }
+          Timestamp timestamp =
+              DateTimeScanner.parseTimestamp(sequence.set(data, offset, length), timezone);
+          if (timestamp != null) {
+            return Value.timestamp(timestamp);
+          }
+          break;
+        default:
+          break;
+      }
+      return CsvCopyRecord.getSpannerValue(sessionState, type, scanner.getString(columnIndex));
+    }
+
+    /**
+     * Parses a decimal integer without a plus sign. Returns false if the value is not in that
+     * format or does not fit in a long.
+     */
+    private boolean parseLong(byte[] data, int offset, int length) {
+      int end = offset + length;
+      boolean negative = length > 0 && data[offset] == '-';
+      int pos = negative ? offset + 1 : offset;
+      if (pos == end || end - pos > 19) {
+        return false;
+      }
+      // Accumulate the value as a negative number, as the range of negative numbers is larger.
+      long result = 0L;
+      for (; pos < end; pos++) {
+        int digit = data[pos] - '0';
+        if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+          return false;
+        }
+        result = result * 10 - digit;
+      }
+      if (!negative && result == Long.MIN_VALUE) {
+        return false;
+      }
+      longValue = negative ? result : -result;
+      return true;
+    }
+
+    /**
+     * Parses a decimal number in the format '[-]digits[.digits]'. Returns false if the value is not
+     * in that format, or if it has more significant digits than can be converted exactly. The
+     * conversion of those values is exact, because both the digits and the power of ten are exact
+     * doubles, and a division of two doubles is correctly rounded.
+     */
+    private boolean parseDouble(byte[] data, int offset, int length) {
+      int end = offset + length;
+      boolean negative = length > 0 && data[offset] == '-';
+      int pos = negative ? offset + 1 : offset;
+      long digits = 0L;
+      int numDigits = 0;
+      int fractionDigits = -1;
+      for (; pos < end; pos++) {
+        byte b = data[pos];
+        if (b == '.' && fractionDigits == -1) {
+          fractionDigits = 0;
+          continue;
+        }
+        int digit = b - '0';
+        if (digit < 0 || digit > 9) {
+          return false;
+        }
+        if (digits > 0L || digit > 0) {
+          numDigits++;
+        }
+        digits = digits * 10 + digit;
+        if (fractionDigits > -1) {
+          fractionDigits++;
+        }
+      }
+      if (pos == (negative ? offset + 1 : offset)
+          || numDigits > MAX_EXACT_DOUBLE_DIGITS
+          || fractionDigits == 0
+          || fractionDigits >= EXACT_POWERS_OF_TEN.length) {
+        return false;
+      }
+      double result = fractionDigits > 0 ? digits / EXACT_POWERS_OF_TEN[fractionDigits] : digits;
+      doubleValue = negative ? -result : result;
+      return true;
+    }
+
+    /**
+     * Parses the boolean literals that are accepted by {@link BooleanParser#toBoolean(String)}.
+     * Returns 1 for true, 0 for false and -1 if the value is not a valid boolean literal.
+     */
+    private static int parseBool(byte[] data, int offset, int length) {
+      if (length == 0) {
+        return -1;
+      }
+      switch (data[offset]) {
+        case 't':
+          return isPrefix(data, offset, length, "true") ? 1 : -1;
+        case 'y':
+          return isPrefix(data, offset, length, "yes") ? 1 : -1;
+        case '1':
+          return length == 1 ? 1 : -1;
+        case 'f':
+          return isPrefix(data, offset, length, "false") ? 0 : -1;
+        case 'n':
+          return isPrefix(data, offset, length, "no") ? 0 : -1;
+        case '0':
+          return length == 1 ? 0 : -1;
+        case 'o':
+          if (isPrefix(data, offset, length, "on") && length == 2) {
+            return 1;
+          }
+          return length > 1 && isPrefix(data, offset, length, "off") ? 0 : -1;
+        default:
+          return -1;
+      }
+    }
+
+    private static boolean isPrefix(byte[] data, int offset, int length, String literal) {
+      if (length > literal.length()) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (data[offset + i] != literal.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Reusable {@link CharSequence} view of a range of bytes, which is used to scan date and
+   * timestamp values without creating a String. Bytes that are not ASCII are returned as characters
+   * that are not recognized by {@link DateTimeScanner}.
+   */
+  private static final class AsciiSequence implements CharSequence {
+    private byte[] data;
+    private int offset;
+    private int length;
+
+    AsciiSequence set(byte[] data, int offset, int length) {
+      this.data = data;
+      this.offset = offset;
+      this.length = length;
+      return this;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (data[offset + index] & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return new String(data, offset, length, StandardCharsets.UTF_8);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private static <T> List<T> cast(List<?> list) {
     return (List<T>) list;
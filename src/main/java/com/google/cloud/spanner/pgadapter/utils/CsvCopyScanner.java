@@ -0,0 +1,424 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.cloud.spanner.pgadapter.error.PGException;
+import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
+import com.google.cloud.spanner.pgadapter.error.SQLState;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.apache.commons.csv.CSVFormat;
+
+/**
+ * Byte-level scanner for the PostgreSQL TEXT and CSV COPY formats. The scanner reads UTF-8 encoded
+ * data directly from an {@link InputStream} and splits it into records and fields without decoding
+ * the data to characters. The content of the fields of the current record is copied into one
+ * reusable buffer, and the boundaries of the fields are registered in reusable offset arrays, so
+ * scanning a record does not allocate any objects.
+ *
+ * <p>The scanner uses the delimiter, quote, escape and null string of a {@link CSVFormat}, and
+ * applies the same quoting and escaping rules as the commons-csv parser for the PostgreSQL formats.
+ * A field is null if it is not quoted, does not contain any escaped characters and is equal to the
+ * null string. All special characters must be single-byte (ASCII) characters, which means that they
+ * can never be part of a multibyte UTF-8 character. Use {@link #isSupported(CSVFormat)} to check
+ * whether a format can be handled by this scanner.
+ */
+class CsvCopyScanner {
+  static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+
+  /** Byte classes that are used to quickly find the end of a run of ordinary bytes. */
+  private static final byte NORMAL = 0;
+
+  private static final byte DELIMITER = 1;
+  private static final byte QUOTE = 2;
+  private static final byte ESCAPE = 3;
+  private static final byte END_OF_LINE = 4;
+
+  private final InputStream inputStream;
+  private final byte delimiter;
+  private final int quote;
+  private final int escape;
+  private final byte[] nullBytes;
+  private final byte[] classes = new byte[256];
+
+  private final byte[] buffer;
+  private int position;
+  private int limit;
+  private boolean endOfStream;
+
+  /** The line number of the next line in the stream. */
+  private long nextLineNumber;
+  /** The line number where the current record starts. */
+  private long lineNumber;
+
+  private byte[] record = new byte[256];
+  private int recordLength;
+  private int fieldCount;
+  private int[] fieldStarts = new int[16];
+  private int[] fieldEnds = new int[16];
+  private boolean[] fieldQuoted = new boolean[16];
+  private boolean[] fieldEscaped = new boolean[16];
+
+  /** Returns true if all the special characters of the given format can be handled as bytes. */
+  static boolean isSupported(CSVFormat format) {
+    String delimiter = format.getDelimiterString();
+    return delimiter.length() == 1
+        && isSingleByte(delimiter.charAt(0))
+        && delimiter.charAt(0) != CR
+        && delimiter.charAt(0) != LF
+        && (format.getQuoteCharacter() == null || isSingleByte(format.getQuoteCharacter()))
+        && (format.getEscapeCharacter() == null || isSingleByte(format.getEscapeCharacter()))
+        && format.getCommentMarker() == null
+        && !format.getIgnoreEmptyLines()
+        && !format.getIgnoreSurroundingSpaces()
+        && !format.getTrim()
+        && !format.getTrailingDelimiter();
+  }
+
+  private static boolean isSingleByte(char c) {
+    return c > 0 && c < 0x80;
+  }
+
+  CsvCopyScanner(CSVFormat format, InputStream inputStream) {
+    this(format, inputStream, DEFAULT_BUFFER_SIZE, 1L);
+  }
+
+  /**
+   * Creates a scanner for the given format. The firstLineNumber is the line number of the first
+   * line in the stream, which is used for streams that contain a part of the COPY data.
+   */
+  CsvCopyScanner(CSVFormat format, InputStream inputStream, int bufferSize, long firstLineNumber) {
+    this.inputStream = inputStream;
+    this.nextLineNumber = firstLineNumber;
+    this.buffer = new byte[bufferSize];
+    this.delimiter = (byte) format.getDelimiterString().charAt(0);
+    this.quote = format.getQuoteCharacter() == null ? -1 : format.getQuoteCharacter();
+    // An escape character that is equal to the quote character means that quotes are escaped by
+    // doubling them, which is also the behavior without an escape character.
+    this.escape =
+        format.getEscapeCharacter() == null || format.getEscapeCharacter() == this.quote
+            ? -1
+            : format.getEscapeCharacter();
+    this.nullBytes =
+        format.getNullString() == null
+            ? null
+            : format.getNullString().getBytes(StandardCharsets.UTF_8);
+    this.classes[CR] = END_OF_LINE;
+    this.classes[LF] = END_OF_LINE;
+    this.classes[this.delimiter] = DELIMITER;
+    if (this.quote > -1) {
+      this.classes[this.quote] = QUOTE;
+    }
+    if (this.escape > -1) {
+      this.classes[this.escape] = ESCAPE;
+    }
+  }
+
+  /**
+   * Reads the next record from the stream. Returns false if the end of the stream has been reached
+   * and there are no more records. This method blocks until a complete record is available.
+   */
+  boolean nextRecord() throws IOException {
+    if (position == limit && !fill()) {
+      return false;
+    }
+    lineNumber = nextLineNumber;
+    recordLength = 0;
+    fieldCount = 0;
+    while (true) {
+      boolean quoted = (position < limit || fill()) && classes[buffer[position] & 0xff] == QUOTE;
+      boolean escaped;
+      int start = recordLength;
+      int terminator;
+      if (quoted) {
+        position++;
+        escaped = scanQuotedField();
+        terminator = readTerminatorAfterQuote();
+      } else {
+        escaped = scanSimpleField();
+        terminator = position == limit ? -1 : buffer[position++];
+      }
+      addField(start, quoted, escaped);
+      if (terminator != delimiter) {
+        if (terminator == CR && (position < limit || fill()) && buffer[position] == LF) {
+          position++;
+        }
+        if (terminator != -1) {
+          nextLineNumber++;
+        }
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Copies the bytes of an unquoted field to the record buffer. Stops at the delimiter or end of
+   * line that terminates the field, or at the end of the stream. Returns true if the field
+   * contained escaped characters.
+   */
+  private boolean scanSimpleField() throws IOException {
+    boolean escaped = false;
+    while (position < limit || fill()) {
+      int runStart = position;
+      while (position < limit && classes[buffer[position] & 0xff] == NORMAL) {
+        position++;
+      }
+      append(runStart, position - runStart);
+      if (position == limit) {
+        continue;
+      }
+      byte type = classes[buffer[position] & 0xff];
+      if (type == ESCAPE) {
+        position++;
+        escaped |= readEscape();
+      } else if (type == QUOTE) {
+        // A quote that is not at the start of a field is an ordinary character.
+        append(position++, 1);
+      } else {
+        return escaped;
+      }
+    }
+    return escaped;
+  }
+
+  /**
+   * Copies the content of a quoted field to the record buffer. The opening quote has already been
+   * read. This method stops after the closing quote.
+   */
+  private boolean scanQuotedField() throws IOException {
+    boolean escaped = false;
+    while (position < limit || fill()) {
+      int runStart = position;
+      while (position < limit) {
+        byte type = classes[buffer[position] & 0xff];
+        if (type == QUOTE || type == ESCAPE) {
+          break;
+        }
+        if (type == END_OF_LINE && isLineBreak(position)) {
+          nextLineNumber++;
+        }
+        position++;
+      }
+      append(runStart, position - runStart);
+      if (position == limit) {
+        continue;
+      }
+      position++;
+      if (classes[buffer[position - 1] & 0xff] == ESCAPE) {
+        escaped |= readEscape();
+      } else if ((position < limit || fill()) && classes[buffer[position] & 0xff] == QUOTE) {
+        // A doubled quote is an escaped quote.
+        append(position++, 1);
+        escaped = true;
+      } else {
+        return escaped;
+      }
+    }
+    throw newInvalidDataException("EOF reached before quoted field finished");
+  }
+
+  /**
+   * Returns true if the end-of-line character at the given position ends a line. The CR of a CRLF
+   * sequence does not end a line.
+   */
+  private boolean isLineBreak(int index) {
+    return buffer[index] == LF || (index + 1 < limit && buffer[index + 1] != LF);
+  }
+
+  /**
+   * Reads the delimiter or end of line after the closing quote of a field and returns it. Returns
+   * -1 if the end of the stream has been reached. Whitespace between the closing quote and the
+   * delimiter is ignored.
+   */
+  private int readTerminatorAfterQuote() throws IOException {
+    while (position < limit || fill()) {
+      byte b = buffer[position++];
+      if (b == delimiter || b == CR || b == LF) {
+        return b;
+      }
+      if (!Character.isWhitespace(b)) {
+        throw newInvalidDataException("Invalid character between quoted field and delimiter");
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Reads the character after an escape character and appends the result to the record buffer.
+   * Returns true if the escape sequence was replaced by the character that it represents, and false
+   * if the escape sequence is not recognized and both characters were added to the record.
+   */
+  private boolean readEscape() throws IOException {
+    if (position == limit && !fill()) {
+      throw newInvalidDataException("EOF reached while processing escape sequence");
+    }
+    byte b = buffer[position++];
+    switch (b) {
+      case 'r':
+        appendByte(CR);
+        return true;
+      case 'n':
+        appendByte(LF);
+        return true;
+      case 't':
+        appendByte((byte) '\t');
+        return true;
+      case 'b':
+        appendByte((byte) '\b');
+        return true;
+      case 'f':
+        appendByte((byte) '\f');
+        return true;
+      case CR:
+      case LF:
+      case '\t':
+      case '\b':
+      case '\f':
+        appendByte(b);
+        return true;
+      default:
+        if (classes[b & 0xff] != NORMAL) {
+          // Escaped delimiters, quotes and escape characters are literals.
+          appendByte(b);
+          return true;
+        }
+        appendByte((byte) escape);
+        appendByte(b);
+        return false;
+    }
+  }
+
+  /** Reads more data from the stream. Returns false if the end of the stream has been reached. */
+  private boolean fill() throws IOException {
+    if (endOfStream) {
+      return false;
+    }
+    int read = inputStream.read(buffer, 0, buffer.length);
+    if (read == -1) {
+      endOfStream = true;
+      position = limit = 0;
+      return false;
+    }
+    position = 0;
+    limit = read;
+    return true;
+  }
+
+  private void append(int offset, int length) {
+    if (length == 0) {
+      return;
+    }
+    ensureRecordCapacity(length);
+    System.arraycopy(buffer, offset, record, recordLength, length);
+    recordLength += length;
+  }
+
+  private void appendByte(byte b) {
+    ensureRecordCapacity(1);
+    record[recordLength++] = b;
+  }
+
+  private void ensureRecordCapacity(int length) {
+    if (recordLength + length > record.length) {
+      record = Arrays.copyOf(record, Math.max(record.length * 2, recordLength + length));
+    }
+  }
+
+  private void addField(int start, boolean quoted, boolean escaped) {
+    if (fieldCount == fieldStarts.length) {
+      int newLength = fieldCount * 2;
+      fieldStarts = Arrays.copyOf(fieldStarts, newLength);
+      fieldEnds = Arrays.copyOf(fieldEnds, newLength);
+      fieldQuoted = Arrays.copyOf(fieldQuoted, newLength);
+      fieldEscaped = Arrays.copyOf(fieldEscaped, newLength);
+    }
+    fieldStarts[fieldCount] = start;
+    fieldEnds[fieldCount] = recordLength;
+    fieldQuoted[fieldCount] = quoted;
+    fieldEscaped[fieldCount] = escaped;
+    fieldCount++;
+  }
+
+  private PGException newInvalidDataException(String message) {
+    return PGExceptionFactory.newPGException(
+        String.format("Invalid COPY data at line %d: %s", nextLineNumber, message),
+        SQLState.DataException);
+  }
+
+  /** Returns the line number where the current record starts. */
+  long getLineNumber() {
+    return lineNumber;
+  }
+
+  /** Returns the number of fields in the current record. */
+  int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * Returns the buffer that contains the content of the fields of the current record. The buffer is
+   * reused for the next record.
+   */
+  byte[] getRecordBuffer() {
+    return record;
+  }
+
+  /** Returns the offset of the given field in the record buffer. */
+  int getFieldStart(int field) {
+    return fieldStarts[field];
+  }
+
+  /** Returns the length in bytes of the given field. */
+  int getFieldLength(int field) {
+    return fieldEnds[field] - fieldStarts[field];
+  }
+
+  /** Returns true if the given field is null. */
+  boolean isNull(int field) {
+    if (nullBytes == null || fieldQuoted[field] || fieldEscaped[field]) {
+      return false;
+    }
+    int length = getFieldLength(field);
+    if (length != nullBytes.length) {
+      return false;
+    }
+    int start = fieldStarts[field];
+    for (int i = 0; i < length; i++) {
+      if (record[start + i] != nullBytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns true if the given field is quoted. */
+  boolean isQuoted(int field) {
+    return fieldQuoted[field];
+  }
+
+  /** Returns the value of the given field as a string, or null if the field is null. */
+  @Nullable
+  String getString(int field) {
+    if (isNull(field)) {
+      return null;
+    }
+    return new String(record, fieldStarts[field], getFieldLength(field), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,144 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when the output of a connection is flushed to the client, and keeps statistics on the
+ * number of writes to the client per query. The policy has two parts:
+ *
+ * <ol>
+ *   <li>Corking: The output after a Sync message is not flushed if the client has already sent more
+ *       messages. The responses to multiple pipelined Sync messages are then sent to the client
+ *       with a single write. Corked output is always flushed before the connection executes
+ *       statements on Cloud Spanner, and before it waits for more messages from the client.
+ *   <li>Early flush: The output of a large query result is flushed once after the first rows have
+ *       been encoded, or after the result has been streaming for a given time. The client can then
+ *       start to process the first rows, instead of waiting until the output buffer is full.
+ * </ol>
+ *
+ * <p>Both parts are disabled by default. One instance is shared by all connections of a server.
+ */
+@InternalApi
+public class FlushPolicy {
+  private final boolean corkPipelinedSyncs;
+  private final long earlyFlushRows;
+  private final long earlyFlushNanos;
+
+  private final LongAdder queries = new LongAdder();
+  private final LongAdder socketWrites = new LongAdder();
+  private final LongAdder corkedSyncs = new LongAdder();
+  private final LongAdder earlyFlushes = new LongAdder();
+
+  /** Creates a flush policy for the settings in the given options. */
+  public static FlushPolicy create(OptionsMetadata options) {
+    return new FlushPolicy(
+        options.isOutputCorkingEnabled(),
+        options.getEarlyFlushRows(),
+        Duration.ofMillis(options.getEarlyFlushMillis()));
+  }
+
+  /**
+   * Creates a flush policy.
+   *
+   * @param corkPipelinedSyncs whether to hold back the output after a Sync if the client has
+   *     already sent more messages
+   * @param earlyFlushRows the number of rows of a result after which the output is flushed, or 0 to
+   *     not flush after a number of rows
+   * @param earlyFlushTime the time that a result can be streamed before the output is flushed, or
+   *     zero to not flush after a time
+   */
+  public FlushPolicy(boolean corkPipelinedSyncs, long earlyFlushRows, Duration earlyFlushTime) {
+    Preconditions.checkArgument(earlyFlushRows >= 0L, "earlyFlushRows must be >= 0");
+    Preconditions.checkArgument(!earlyFlushTime.isNegative(), "earlyFlushTime must be >= 0");
+    this.corkPipelinedSyncs = corkPipelinedSyncs;
+    this.earlyFlushRows = earlyFlushRows;
+    this.earlyFlushNanos = earlyFlushTime.toNanos();
+  }
+
+  /** Returns true if the output after a Sync may be held back while more messages are available. */
+  public boolean isCorkPipelinedSyncs() {
+    return corkPipelinedSyncs;
+  }
+
+  /**
+   * Returns true if a result that has sent the given number of rows, and that started streaming at
+   * the given {@link System#nanoTime()}, should be flushed now. The caller flushes a result at most
+   * once.
+   */
+  public boolean shouldFlushEarly(long rows, long startNanos) {
+    return (earlyFlushRows > 0L && rows >= earlyFlushRows)
+        || (earlyFlushNanos > 0L && System.nanoTime() - startNanos >= earlyFlushNanos);
+  }
+
+  /** Returns true if this policy can flush the output of a result before it has finished. */
+  public boolean isEarlyFlushEnabled() {
+    return earlyFlushRows > 0L || earlyFlushNanos > 0L;
+  }
+
+  /**
+   * Returns the counter for writes to the client. The output buffers of all connections increase
+   * this counter each time they write data to the underlying stream.
+   */
+  public LongAdder getSocketWriteCounter() {
+    return socketWrites;
+  }
+
+  /** Records that a query has been executed. */
+  public void recordQuery() {
+    queries.increment();
+  }
+
+  /** Records that the output after a Sync message was held back. */
+  public void recordCorkedSync() {
+    corkedSyncs.increment();
+  }
+
+  /** Records that the output of a result was flushed before the result had finished. */
+  public void recordEarlyFlush() {
+    earlyFlushes.increment();
+  }
+
+  /** Returns the number of queries that have been executed. */
+  public long getQueryCount() {
+    return queries.sum();
+  }
+
+  /** Returns the number of times that data has been written to a client. */
+  public long getSocketWriteCount() {
+    return socketWrites.sum();
+  }
+
+  /** Returns the number of Sync messages whose output was held back. */
+  public long getCorkedSyncCount() {
+    return corkedSyncs.sum();
+  }
+
+  /** Returns the number of results that were flushed before they had finished. */
+  public long getEarlyFlushCount() {
+    return earlyFlushes.sum();
+  }
+
+  /** Returns the average number of writes to a client per query. */
+  public double getSocketWritesPerQuery() {
+    long queryCount = getQueryCount();
+    return queryCount == 0L ? 0d : (double) getSocketWriteCount() / queryCount;
+  }
+}
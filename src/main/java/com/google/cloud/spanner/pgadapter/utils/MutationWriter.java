@@ -41,35 +41,43 @@ import com.google.cloud.spanner.pgadapter.session.CopySettings;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection.UpdateCount;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement.Format;
+import com.google.cloud.spanner.pgadapter.utils.CopyChunkSplitter.CopyChunk;
+import com.google.cloud.spanner.pgadapter.utils.CopyCommitExecutor.CommitQueue;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import io.grpc.Context;
 import io.grpc.MethodDescriptor;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import org.apache.commons.csv.CSVFormat;
 import org.threeten.bp.Duration;
@@ -109,15 +117,21 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
   private final Format copyFormat;
   private final CSVFormat csvFormat;
   private final boolean hasHeader;
-  private final CountDownLatch pipeCreatedLatch = new CountDownLatch(1);
   private final CountDownLatch dataReceivedLatch = new CountDownLatch(1);
   private final AtomicLong bytesReceived = new AtomicLong();
-  private final PipedOutputStream payload = new PipedOutputStream();
+  private final CopyDataQueue payload;
   private final AtomicBoolean commit = new AtomicBoolean(false);
   private final AtomicBoolean rollback = new AtomicBoolean(false);
   private final CountDownLatch closedLatch = new CountDownLatch(1);
-  private final ListeningExecutorService executorService =
-      MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+  /** Executes the commits of this COPY operation. This is shared with other COPY operations. */
+  private final CopyCommitExecutor commitExecutor;
+  /** True if the commit executor was created by, and only is used by, this writer. */
+  private final boolean ownsCommitExecutor;
+
+  private final CommitQueue commitQueue;
+  private final ThreadFactory threadFactory;
+  /** Set when this writer has stopped reading COPY data. */
+  private volatile boolean finished;
 
   private final Object lock = new Object();
 
@@ -135,11 +149,75 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
       CSVFormat format,
       boolean hasHeader)
       throws IOException {
+    this(
+        sessionState,
+        transactionMode,
+        connection,
+        qualifiedTableName,
+        tableColumns,
+        indexedColumnsCount,
+        copyFormat,
+        format,
+        hasHeader,
+        Executors.defaultThreadFactory());
+  }
+
+  public MutationWriter(
+      SessionState sessionState,
+      CopyTransactionMode transactionMode,
+      Connection connection,
+      String qualifiedTableName,
+      Map<String, Type> tableColumns,
+      int indexedColumnsCount,
+      Format copyFormat,
+      CSVFormat format,
+      boolean hasHeader,
+      ThreadFactory threadFactory)
+      throws IOException {
+    this(
+        sessionState,
+        transactionMode,
+        connection,
+        qualifiedTableName,
+        tableColumns,
+        indexedColumnsCount,
+        copyFormat,
+        format,
+        hasHeader,
+        threadFactory,
+        null);
+  }
+
+  /**
+   * Creates a writer that executes its commits on the given executor. The writer creates its own
+   * executor if commitExecutor is null.
+   */
+  public MutationWriter(
+      SessionState sessionState,
+      CopyTransactionMode transactionMode,
+      Connection connection,
+      String qualifiedTableName,
+      Map<String, Type> tableColumns,
+      int indexedColumnsCount,
+      Format copyFormat,
+      CSVFormat format,
+      boolean hasHeader,
+      ThreadFactory threadFactory,
+      @Nullable CopyCommitExecutor commitExecutor)
+      throws IOException {
+    this.threadFactory = threadFactory;
     this.transactionMode = transactionMode;
     this.connection = connection;
     this.qualifiedTableName = qualifiedTableName;
     this.tableColumns = tableColumns;
     this.copySettings = new CopySettings(sessionState);
+    this.ownsCommitExecutor = commitExecutor == null;
+    this.commitExecutor =
+        commitExecutor == null
+            ? new CopyCommitExecutor(copySettings.getMaxParallelism(), 0L, threadFactory)
+            : commitExecutor;
+    this.commitQueue = this.commitExecutor.newQueue();
+    this.payload = new CopyDataQueue(copySettings.getPipeBufferSize());
     int atomicMutationLimit = copySettings.getMaxAtomicMutationsLimit();
     this.maxAtomicBatchSize =
         Math.max(atomicMutationLimit / (tableColumns.size() + indexedColumnsCount), 1);
@@ -166,20 +244,22 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
       }
     }
     try {
-      pipeCreatedLatch.await();
+      // Wait until the commits of all COPY operations on this server allow more data. This stops
+      // reading data from the client when Cloud Spanner cannot keep up.
+      commitQueue.awaitCapacity();
       bytesReceived.addAndGet(payload.length);
       dataReceivedLatch.countDown();
-      this.payload.write(payload);
-    } catch (InterruptedException | InterruptedIOException interruptedIOException) {
+      this.payload.add(payload);
+    } catch (InterruptedException | InterruptedIOException interruptedException) {
       // The IO operation was interrupted. This indicates that the user wants to cancel the COPY
       // operation. Re-instate the interrupted flag on the current thread and throw an exception to
       // indicate that the operation should be cancelled.
       Thread.currentThread().interrupt();
       throw PGExceptionFactory.newQueryCancelledException();
     } catch (IOException e) {
-      // Ignore the exception if the executor has already been shutdown. That means that an error
-      // occurred that ended the COPY operation while we were writing data to the buffer.
-      if (!executorService.isShutdown()) {
+      // Ignore the exception if the writer has already finished. That means that an error occurred
+      // that ended the COPY operation while we were writing data to the buffer.
+      if (!finished) {
         PGException pgException =
             PGException.newBuilder("Could not write copy data to buffer")
                 .setSQLState(SQLState.InternalError)
@@ -207,18 +287,23 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
 
   @Override
   public void close() throws IOException {
-    this.payload.close();
+    this.payload.finish();
     this.closedLatch.countDown();
     this.dataReceivedLatch.countDown();
   }
 
   @Override
   public StatementResult call() throws Exception {
-    PipedInputStream inputStream = new PipedInputStream(payload, copySettings.getPipeBufferSize());
-    pipeCreatedLatch.countDown();
+    // Use a separate stage for parsing the COPY data if multiple parse threads have been configured
+    // and the data can be split into chunks.
+    final boolean parseInParallel =
+        copySettings.getParseParallelism() > 1
+            && CopyChunkSplitter.isSupported(copyFormat, csvFormat);
     final CopyInParser parser =
-        CopyInParser.create(
-            copySettings.getSessionState(), copyFormat, csvFormat, inputStream, hasHeader);
+        parseInParallel
+            ? null
+            : CopyInParser.create(
+                copySettings.getSessionState(), copyFormat, csvFormat, payload, hasHeader);
     // This LinkedBlockingDeque holds a reference to all transactions that are currently active. The
     // max capacity of this deque is what ensures that we never have more than maxParallelism
     // transactions running at the same time. We could also achieve that by using a thread pool with
@@ -238,70 +323,34 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
       // empty copy operation, and we should then end early.
       dataReceivedLatch.await();
 
-      Iterator<CopyRecord> iterator = parser.iterator();
       List<Mutation> mutations = new ArrayList<>();
-      long currentBufferByteSize = 0L;
-      // Note: iterator.hasNext() blocks if there is not enough data in the pipeline to construct a
-      // complete record. It returns false if the stream has been closed and all records have been
-      // returned.
-      while (bytesReceived.get() > 0L && !rollback.get() && iterator.hasNext()) {
-        CopyRecord record = iterator.next();
-        if (record.isEndRecord()) {
-          break;
+      if (parseInParallel) {
+        if (bytesReceived.get() > 0L) {
+          writeParsedChunks(activeCommitFutures, allCommitFutures, mutations);
         }
-        if (record.numColumns() != this.tableColumns.keySet().size()) {
-          throw PGExceptionFactory.newPGException(
-              "Invalid COPY data: Row length mismatched. Expected "
-                  + this.tableColumns.keySet().size()
-                  + " columns, but only found "
-                  + record.numColumns(),
-              SQLState.DataException);
-        }
-
-        Mutation mutation = buildMutation(record);
-        int mutationSize = calculateSize(mutation);
-        this.rowCount++;
-
-        if (transactionMode == CopyTransactionMode.ImplicitNonAtomic) {
+      } else {
+        Iterator<CopyRecord> iterator = parser.iterator();
+        long currentBufferByteSize = 0L;
+        // Note: iterator.hasNext() blocks if there is not enough data in the pipeline to construct
+        // a complete record. It returns false if the stream has been closed and all records have
+        // been returned.
+        while (bytesReceived.get() > 0L && !rollback.get() && iterator.hasNext()) {
+          CopyRecord record = iterator.next();
+          if (record.isEndRecord()) {
+            break;
+          }
+          checkColumnCount(record);
+          Mutation mutation = buildMutation(record);
           currentBufferByteSize =
-              addMutationAndMaybeFlushTransaction(
+              addMutation(
                   activeCommitFutures,
                   allCommitFutures,
                   mutations,
                   mutation,
                   currentBufferByteSize,
-                  mutationSize);
-        } else {
-          mutations.add(mutation);
-          currentBufferByteSize += mutationSize;
-          if (mutations.size() > maxAtomicBatchSize) {
-            throw SpannerExceptionFactory.newSpannerException(
-                ErrorCode.FAILED_PRECONDITION,
-                "Record count: "
-                    + mutations.size()
-                    + " has exceeded the limit: "
-                    + maxAtomicBatchSize
-                    + ".\n\nThe number of mutations per record is equal to the number of columns in the record "
-                    + "plus the number of indexed columns in the record. The maximum number of mutations "
-                    + "in one transaction is "
-                    + copySettings.getMaxAtomicMutationsLimit()
-                    + ".\n\nExecute `SET SPANNER.AUTOCOMMIT_DML_MODE='PARTITIONED_NON_ATOMIC'` before executing a large COPY operation "
-                    + "to instruct PGAdapter to automatically break large transactions into multiple smaller. "
-                    + "This will make the COPY operation non-atomic.\n\n");
-          }
-          if (currentBufferByteSize > copySettings.getMaxAtomicCommitSize()) {
-            throw SpannerExceptionFactory.newSpannerException(
-                ErrorCode.FAILED_PRECONDITION,
-                "Commit size: "
-                    + currentBufferByteSize
-                    + " has exceeded the limit: "
-                    + copySettings.getMaxAtomicCommitSize()
-                    + ".\n\nExecute `SET SPANNER.AUTOCOMMIT_DML_MODE='PARTITIONED_NON_ATOMIC'` before executing a large COPY operation "
-                    + "to instruct PGAdapter to automatically break large transactions into multiple smaller. "
-                    + "This will make the COPY operation non-atomic.\n\n");
-          }
-        }
-      } // end of iterator.hasNext()
+                  calculateSize(mutation));
+        } // end of iterator.hasNext()
+      }
 
       // There are no more CSVRecords in the pipeline.
       // Write any remaining mutations in the buffer.
@@ -314,7 +363,8 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
           // been written to Spanner.
           closedLatch.await();
           if (commit.get()) {
-            allCommitFutures.add(writeToSpannerAsync(activeCommitFutures, mutations));
+            allCommitFutures.add(
+                writeToSpannerAsync(activeCommitFutures, mutations, calculateSize(mutations)));
           }
         }
       }
@@ -341,16 +391,214 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
         throw this.exception;
       }
     } finally {
-      this.executorService.shutdown();
-      if (!this.executorService.awaitTermination(60L, TimeUnit.SECONDS)) {
-        logger.log(Level.WARNING, "Timeout while waiting for MutationWriter executor to shutdown.");
+      this.finished = true;
+      if (!this.commitQueue.awaitCompletion(60L, TimeUnit.SECONDS)) {
+        logger.log(Level.WARNING, "Timeout while waiting for MutationWriter commits to finish.");
+      }
+      if (this.ownsCommitExecutor) {
+        this.commitExecutor.shutdown();
       }
       this.payload.close();
-      parser.close();
+      if (parser != null) {
+        parser.close();
+      }
     }
     return new UpdateCount(rowCount);
   }
 
+  private void checkColumnCount(CopyRecord record) {
+    if (record.numColumns() != this.tableColumns.keySet().size()) {
+      throw PGExceptionFactory.newPGException(
+          "Invalid COPY data: Row length mismatched. Expected "
+              + this.tableColumns.keySet().size()
+              + " columns, but only found "
+              + record.numColumns(),
+          SQLState.DataException);
+    }
+  }
+
+  /**
+   * Adds a mutation to the current batch. The batch is written to Spanner if it is full and the
+   * COPY operation is non-atomic. Returns the size of the current batch in bytes.
+   */
+  private long addMutation(
+      LinkedBlockingDeque<ApiFuture<Void>> activeCommitFutures,
+      List<ApiFuture<Void>> allCommitFutures,
+      List<Mutation> mutations,
+      Mutation mutation,
+      long currentBufferByteSize,
+      int mutationSize)
+      throws Exception {
+    this.rowCount++;
+
+    if (transactionMode == CopyTransactionMode.ImplicitNonAtomic) {
+      return addMutationAndMaybeFlushTransaction(
+          activeCommitFutures,
+          allCommitFutures,
+          mutations,
+          mutation,
+          currentBufferByteSize,
+          mutationSize);
+    }
+    mutations.add(mutation);
+    currentBufferByteSize += mutationSize;
+    if (mutations.size() > maxAtomicBatchSize) {
+      throw SpannerExceptionFactory.newSpannerException(
+          ErrorCode.FAILED_PRECONDITION,
+          "Record count: "
+              + mutations.size()
+              + " has exceeded the limit: "
+              + maxAtomicBatchSize
+              + ".\n\nThe number of mutations per record is equal to the number of columns in the record "
+              + "plus the number of indexed columns in the record. The maximum number of mutations "
+              + "in one transaction is "
+              + copySettings.getMaxAtomicMutationsLimit()
+              + ".\n\nExecute `SET SPANNER.AUTOCOMMIT_DML_MODE='PARTITIONED_NON_ATOMIC'` before executing a large COPY operation "
+              + "to instruct PGAdapter to automatically break large transactions into multiple smaller. "
+              + "This will make the COPY operation non-atomic.\n\n");
+    }
+    if (currentBufferByteSize > copySettings.getMaxAtomicCommitSize()) {
+      throw SpannerExceptionFactory.newSpannerException(
+          ErrorCode.FAILED_PRECONDITION,
+          "Commit size: "
+              + currentBufferByteSize
+              + " has exceeded the limit: "
+              + copySettings.getMaxAtomicCommitSize()
+              + ".\n\nExecute `SET SPANNER.AUTOCOMMIT_DML_MODE='PARTITIONED_NON_ATOMIC'` before executing a large COPY operation "
+              + "to instruct PGAdapter to automatically break large transactions into multiple smaller. "
+              + "This will make the COPY operation non-atomic.\n\n");
+    }
+    return currentBufferByteSize;
+  }
+
+  /** The mutations and the sizes of the mutations of a parsed chunk of COPY data. */
+  private static final class ParsedChunk {
+    private final List<Mutation> mutations = new ArrayList<>();
+    private int[] sizes = new int[64];
+
+    void add(Mutation mutation, int size) {
+      if (mutations.size() == sizes.length) {
+        sizes = Arrays.copyOf(sizes, sizes.length * 2);
+      }
+      sizes[mutations.size()] = size;
+      mutations.add(mutation);
+    }
+  }
+
+  /**
+   * Splits the COPY data into chunks of complete records, and parses these chunks in parallel. Each
+   * parse thread converts the records in a chunk to mutations. The mutations are added to the
+   * batches that are written to Spanner by this thread. The chunks are added in the order that they
+   * were received, unless {@link CopySettings#isCommitInOrder()} is false and the COPY operation is
+   * non-atomic, in which case the chunks are added in the order that they were parsed.
+   */
+  private void writeParsedChunks(
+      LinkedBlockingDeque<ApiFuture<Void>> activeCommitFutures,
+      List<ApiFuture<Void>> allCommitFutures,
+      List<Mutation> mutations)
+      throws Exception {
+    int parallelism = copySettings.getParseParallelism();
+    boolean inOrder =
+        copySettings.isCommitInOrder() || transactionMode != CopyTransactionMode.ImplicitNonAtomic;
+    // Limit the number of chunks that are parsed or waiting to be added to a batch. This applies
+    // back-pressure to the stream of incoming data if the commits cannot keep up.
+    int maxPendingChunks = parallelism * 2;
+    ExecutorService parseExecutor = Executors.newFixedThreadPool(parallelism, threadFactory);
+    CompletionService<ParsedChunk> completionService =
+        new ExecutorCompletionService<>(parseExecutor);
+    Deque<Future<ParsedChunk>> pendingChunks = new ArrayDeque<>(maxPendingChunks);
+    CopyChunkSplitter splitter = new CopyChunkSplitter(copyFormat, csvFormat, payload);
+    long currentBufferByteSize = 0L;
+    try {
+      boolean endOfData = false;
+      while (!rollback.get()) {
+        while (!endOfData && pendingChunks.size() < maxPendingChunks) {
+          CopyChunk chunk = splitter.nextChunk();
+          if (chunk == null) {
+            endOfData = true;
+          } else if (inOrder) {
+            pendingChunks.add(parseExecutor.submit(() -> parseChunk(chunk)));
+          } else {
+            pendingChunks.add(completionService.submit(() -> parseChunk(chunk)));
+          }
+        }
+        if (pendingChunks.isEmpty()) {
+          break;
+        }
+        Future<ParsedChunk> future;
+        if (inOrder) {
+          future = pendingChunks.poll();
+        } else {
+          future = completionService.take();
+          pendingChunks.remove(future);
+        }
+        ParsedChunk parsedChunk = future.get();
+        for (int i = 0; i < parsedChunk.mutations.size(); i++) {
+          currentBufferByteSize =
+              addMutation(
+                  activeCommitFutures,
+                  allCommitFutures,
+                  mutations,
+                  parsedChunk.mutations.get(i),
+                  currentBufferByteSize,
+                  parsedChunk.sizes[i]);
+        }
+      }
+    } finally {
+      parseExecutor.shutdownNow();
+    }
+  }
+
+  /** Parses a chunk of COPY data and converts the records to mutations. */
+  private ParsedChunk parseChunk(CopyChunk chunk) throws IOException {
+    ParsedChunk result = new ParsedChunk();
+    CopyInParser parser =
+        CopyInParser.create(
+            copySettings.getSessionState(),
+            copyFormat,
+            csvFormat,
+            chunk.getInputStream(),
+            hasHeader,
+            chunk.getFirstLineNumber());
+    try {
+      Iterator<CopyRecord> iterator = parser.iterator();
+      while (!rollback.get() && iterator.hasNext()) {
+        CopyRecord record = iterator.next();
+        if (record.isEndRecord()) {
+          break;
+        }
+        try {
+          checkColumnCount(record);
+          Mutation mutation = buildMutation(record);
+          result.add(mutation, calculateSize(mutation));
+        } catch (Exception exception) {
+          throw withLineNumber(exception, record.getLineNumber());
+        }
+      }
+    } finally {
+      parser.close();
+    }
+    return result;
+  }
+
+  /**
+   * Converts the given exception to a {@link PGException} that includes the line number of the
+   * record that caused the error in the hints. This is the same information that PostgreSQL
+   * includes in the context of a COPY error.
+   */
+  private PGException withLineNumber(Exception exception, long lineNumber) {
+    PGException pgException = PGExceptionFactory.toPGException(exception);
+    if (lineNumber <= 0L || pgException.getHints() != null) {
+      return pgException;
+    }
+    return PGException.newBuilder(pgException.getMessage())
+        .setSeverity(pgException.getSeverity())
+        .setSQLState(pgException.getSQLState())
+        .setHints(String.format("COPY %s, line %d", qualifiedTableName, lineNumber))
+        .setCause(exception)
+        .build();
+  }
+
   private long addMutationAndMaybeFlushTransaction(
       LinkedBlockingDeque<ApiFuture<Void>> activeCommitFutures,
       List<ApiFuture<Void>> allCommitFutures,
@@ -364,7 +612,8 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
     if (!mutations.isEmpty()
         && (estimatedNextSize > commitSizeLimitForBatching
             || estimatedNextSize > copySettings.getMaxNonAtomicCommitSize())) {
-      allCommitFutures.add(writeToSpannerAsync(activeCommitFutures, mutations));
+      allCommitFutures.add(
+          writeToSpannerAsync(activeCommitFutures, mutations, currentBufferByteSize));
       mutations.clear();
       mutations.add(mutation);
       return mutationSize;
@@ -372,15 +621,24 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
 
     mutations.add(mutation);
     if (mutations.size() == nonAtomicBatchSize) {
-      allCommitFutures.add(writeToSpannerAsync(activeCommitFutures, mutations));
+      allCommitFutures.add(
+          writeToSpannerAsync(
+              activeCommitFutures, mutations, currentBufferByteSize + mutationSize));
       mutations.clear();
       return 0L; // Buffer is empty, so the batch size in bytes is now back to zero.
     }
     return currentBufferByteSize + mutationSize;
   }
 
+  /**
+   * Submits a commit with the given mutations to the commit executor. The size is the approximate
+   * number of bytes in the mutations, and is used to limit the total amount of data in commits on
+   * this server.
+   */
   private ApiFuture<Void> writeToSpannerAsync(
-      LinkedBlockingDeque<ApiFuture<Void>> activeCommitFutures, Iterable<Mutation> mutations)
+      LinkedBlockingDeque<ApiFuture<Void>> activeCommitFutures,
+      Iterable<Mutation> mutations,
+      long size)
       throws Exception {
 
     SettableApiFuture<Void> settableApiFuture = SettableApiFuture.create();
@@ -392,7 +650,7 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
     DatabaseClient dbClient = connection.getDatabaseClient();
     ImmutableList<Mutation> immutableMutations = ImmutableList.copyOf(mutations);
     ListenableFuture<Void> listenableFuture =
-        executorService.submit(
+        commitQueue.submit(
             () -> {
               Context context =
                   Context.current()
@@ -416,7 +674,8 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
                       dbClient.writeWithOptions(
                           immutableMutations, Options.priority(copySettings.getCommitPriority())));
               return null;
-            });
+            },
+            size);
     Futures.addCallback(
         listenableFuture,
         new FutureCallback<Void>() {
@@ -439,6 +698,14 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
     return settableApiFuture;
   }
 
+  private static long calculateSize(List<Mutation> mutations) {
+    long size = 0L;
+    for (Mutation mutation : mutations) {
+      size += calculateSize(mutation);
+    }
+    return size;
+  }
+
   static int calculateSize(Mutation mutation) {
     int size = 0;
     for (Value value : mutation.getValues()) {
@@ -0,0 +1,341 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.ByteArray;
+import com.google.cloud.spanner.ForwardingStructReader;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.StructReader;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.Code;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.ResultSetStats;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ResultSet} that is filled by a background thread that reads the rows of another result set
+ * ahead into a bounded ring buffer. The rows are buffered as {@link Struct}s, and the getters of
+ * this result set return the values of the current buffered row.
+ *
+ * <p>A {@link PrefetchingResultSet} is created by {@link ResultPrefetcher#prefetch(ResultSet)}. It
+ * may only be consumed by one thread. Closing a {@link PrefetchingResultSet} stops the background
+ * thread, but does not close the underlying result set, which is owned by the statement that
+ * returned it.
+ */
+@InternalApi
+public class PrefetchingResultSet extends ForwardingStructReader implements ResultSet {
+  /** Returns the current buffered row to the getters of {@link ForwardingStructReader}. */
+  private static final class CurrentRow implements Supplier<StructReader> {
+    private Struct row;
+
+    @Override
+    public StructReader get() {
+      Preconditions.checkState(row != null, "There is no current row");
+      return row;
+    }
+  }
+
+  /** The approximate number of bytes that is used for a value that is not a string or bytes. */
+  private static final int FIXED_VALUE_SIZE = 16;
+
+  private final ResultSet delegate;
+  private final ResultPrefetcher prefetcher;
+  private final Type type;
+  private final CurrentRow currentRow;
+  private final long maxBytes;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final Struct[] buffer;
+  private final long[] sizes;
+  private int head;
+  private int count;
+  private long bytes;
+  private boolean finished;
+  private Throwable error;
+  private boolean closed;
+
+  private final AtomicBoolean producerStarted = new AtomicBoolean();
+  private final CountDownLatch producerDone = new CountDownLatch(1);
+  private Future<?> producer;
+
+  PrefetchingResultSet(
+      ResultSet delegate, ResultPrefetcher prefetcher, int maxRows, long maxBytes) {
+    this(delegate, prefetcher, maxRows, maxBytes, new CurrentRow());
+  }
+
+  private PrefetchingResultSet(
+      ResultSet delegate,
+      ResultPrefetcher prefetcher,
+      int maxRows,
+      long maxBytes,
+      CurrentRow currentRow) {
+    super(currentRow);
+    this.delegate = delegate;
+    this.prefetcher = prefetcher;
+    this.currentRow = currentRow;
+    this.maxBytes = maxBytes;
+    this.buffer = new Struct[maxRows];
+    this.sizes = new long[maxRows];
+    // The underlying result set is positioned on the first row that should be returned.
+    this.currentRow.row = delegate.getCurrentRowAsStruct();
+    this.type = this.currentRow.row.getType();
+  }
+
+  void setProducer(Future<?> producer) {
+    this.producer = producer;
+  }
+
+  /** Reads the rows of the underlying result set into the buffer. This runs on its own thread. */
+  void prefetchRows() {
+    if (!producerStarted.compareAndSet(false, true)) {
+      // The result set was closed before this task started.
+      return;
+    }
+    try {
+      while (delegate.next()) {
+        Struct row = delegate.getCurrentRowAsStruct();
+        if (!put(row, estimateSize(row))) {
+          return;
+        }
+        prefetcher.recordRow();
+      }
+      finish(null);
+    } catch (Throwable throwable) {
+      finish(throwable);
+    } finally {
+      producerDone.countDown();
+    }
+  }
+
+  /** Adds a row to the buffer. Returns false if this result set has been closed. */
+  private boolean put(Struct row, long size) throws InterruptedException {
+    lock.lock();
+    try {
+      if (!closed && isFull(size)) {
+        prefetcher.recordBufferFull();
+        do {
+          notFull.await();
+        } while (!closed && isFull(size));
+      }
+      if (closed) {
+        return false;
+      }
+      int tail = (head + count) % buffer.length;
+      buffer[tail] = row;
+      sizes[tail] = size;
+      count++;
+      bytes += size;
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean isFull(long size) {
+    return count == buffer.length || (count > 0 && bytes + size > maxBytes);
+  }
+
+  private void finish(Throwable throwable) {
+    lock.lock();
+    try {
+      finished = true;
+      error = throwable;
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean next() throws SpannerException {
+    lock.lock();
+    try {
+      Preconditions.checkState(!closed, "This result set has been closed");
+      if (count == 0 && !finished) {
+        prefetcher.recordBufferEmpty();
+        do {
+          notEmpty.await();
+        } while (count == 0 && !finished);
+      }
+      if (count > 0) {
+        currentRow.row = buffer[head];
+        buffer[head] = null;
+        bytes -= sizes[head];
+        head = (head + 1) % buffer.length;
+        count--;
+        notFull.signal();
+        return true;
+      }
+      currentRow.row = null;
+      if (error != null) {
+        throw SpannerExceptionFactory.asSpannerException(error);
+      }
+      return false;
+    } catch (InterruptedException interruptedException) {
+      throw SpannerExceptionFactory.propagateInterrupt(interruptedException);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Struct getCurrentRowAsStruct() {
+    Preconditions.checkState(currentRow.row != null, "There is no current row");
+    return currentRow.row;
+  }
+
+  @Override
+  public Type getType() {
+    return type;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return type.getStructFields().size();
+  }
+
+  @Override
+  public int getColumnIndex(String columnName) {
+    return type.getFieldIndex(columnName);
+  }
+
+  @Override
+  public Type getColumnType(int columnIndex) {
+    return type.getStructFields().get(columnIndex).getType();
+  }
+
+  @Override
+  public Type getColumnType(String columnName) {
+    return getColumnType(getColumnIndex(columnName));
+  }
+
+  /** Returns the statistics of the underlying result set. */
+  @Override
+  public ResultSetStats getStats() {
+    return delegate.getStats();
+  }
+
+  @Override
+  public ResultSetMetadata getMetadata() {
+    return delegate.getMetadata();
+  }
+
+  /**
+   * Stops the background thread and discards all rows that have been read ahead. This method waits
+   * until the background thread has stopped using the underlying result set, which is not closed.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      currentRow.row = null;
+      for (int i = 0; i < count; i++) {
+        buffer[(head + i) % buffer.length] = null;
+      }
+      count = 0;
+      bytes = 0L;
+      notFull.signal();
+    } finally {
+      lock.unlock();
+    }
+    if (producerStarted.compareAndSet(false, true)) {
+      // The background thread had not yet started to read the result set.
+      producerDone.countDown();
+      if (producer != null) {
+        producer.cancel(false);
+      }
+      return;
+    }
+    if (producerDone.getCount() > 0L && producer != null) {
+      // Interrupt the background thread if it is waiting for Cloud Spanner.
+      producer.cancel(true);
+    }
+    try {
+      producerDone.await();
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the approximate number of bytes that the given row uses. The size of string and bytes
+   * values is counted as their length, and all other values are counted as a fixed size.
+   */
+  static long estimateSize(Struct row) {
+    long size = 0L;
+    for (int i = 0; i < row.getColumnCount(); i++) {
+      size += FIXED_VALUE_SIZE;
+      if (row.isNull(i)) {
+        continue;
+      }
+      Type columnType = row.getColumnType(i);
+      switch (columnType.getCode()) {
+        case STRING:
+          size += row.getString(i).length();
+          break;
+        case PG_JSONB:
+          size += row.getPgJsonb(i).length();
+          break;
+        case BYTES:
+          size += row.getBytes(i).length();
+          break;
+        case ARRAY:
+          size += estimateArraySize(row, i, columnType.getArrayElementType());
+          break;
+        default:
+          break;
+      }
+    }
+    return size;
+  }
+
+  private static long estimateArraySize(Struct row, int index, Type elementType) {
+    long size = 0L;
+    if (elementType.getCode() == Code.STRING) {
+      for (String value : row.getStringList(index)) {
+        size += FIXED_VALUE_SIZE + (value == null ? 0 : value.length());
+      }
+    } else if (elementType.getCode() == Code.BYTES) {
+      for (ByteArray value : row.getBytesList(index)) {
+        size += FIXED_VALUE_SIZE + (value == null ? 0 : value.length());
+      }
+    } else if (elementType.getCode() == Code.INT64) {
+      size += (long) FIXED_VALUE_SIZE * row.getLongList(index).size();
+    } else if (elementType.getCode() == Code.FLOAT64) {
+      size += (long) FIXED_VALUE_SIZE * row.getDoubleList(index).size();
+    } else {
+      // Other arrays are counted as a fixed number of elements.
+      size += 4L * FIXED_VALUE_SIZE;
+    }
+    return size;
+  }
+}
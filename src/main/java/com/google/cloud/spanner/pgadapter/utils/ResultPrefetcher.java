@@ -0,0 +1,146 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.common.base.Preconditions;
+import io.grpc.Context;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the rows of query results ahead on a background thread, so the connection thread can
+ * encode and send rows to the client while the next rows are received from Cloud Spanner. Each
+ * result is buffered in a bounded buffer that is limited both by a number of rows and by an
+ * approximate number of bytes.
+ *
+ * <p>One instance is shared by all connections of a server.
+ */
+@InternalApi
+public class ResultPrefetcher {
+  private final int maxRows;
+  private final long maxBytes;
+  private final ExecutorService executor;
+
+  private final LongAdder results = new LongAdder();
+  private final LongAdder rows = new LongAdder();
+  private final LongAdder bufferFullWaits = new LongAdder();
+  private final LongAdder bufferEmptyWaits = new LongAdder();
+
+  /**
+   * Creates a result prefetcher for the settings in the given options, or returns null if
+   * prefetching has been disabled.
+   */
+  @Nullable
+  public static ResultPrefetcher create(OptionsMetadata options) {
+    if (options.getResultPrefetchRows() == 0) {
+      return null;
+    }
+    return new ResultPrefetcher(
+        options.getResultPrefetchRows(),
+        options.getResultPrefetchBytes(),
+        ThreadFactories.create(
+            "spanner-postgres-adapter-result-prefetch-", options.useVirtualThreads()));
+  }
+
+  /**
+   * Creates a result prefetcher.
+   *
+   * @param maxRows the maximum number of rows that are read ahead for a result
+   * @param maxBytes the maximum approximate number of bytes that are read ahead for a result. A
+   *     single row is always read ahead, also if it is larger than this limit.
+   * @param threadFactory the factory for the threads that read the results
+   */
+  public ResultPrefetcher(int maxRows, long maxBytes, ThreadFactory threadFactory) {
+    Preconditions.checkArgument(maxRows > 0, "maxRows must be > 0");
+    Preconditions.checkArgument(maxBytes >= 0L, "maxBytes must be >= 0");
+    this.maxRows = maxRows;
+    this.maxBytes = maxBytes;
+    this.executor = Executors.newCachedThreadPool(threadFactory);
+  }
+
+  /**
+   * Starts to read the given {@link ResultSet} ahead on a background thread. The result set must
+   * be positioned on a row, which becomes the current row of the returned {@link
+   * PrefetchingResultSet}. The given result set may not be used by the caller until the returned
+   * result set has been closed.
+   */
+  public PrefetchingResultSet prefetch(ResultSet resultSet) {
+    PrefetchingResultSet prefetchingResultSet =
+        new PrefetchingResultSet(resultSet, this, maxRows, maxBytes);
+    prefetchingResultSet.setProducer(
+        executor.submit(Context.current().wrap(prefetchingResultSet::prefetchRows)));
+    results.increment();
+    return prefetchingResultSet;
+  }
+
+  /** Stops all threads that are reading results. */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  void recordRow() {
+    rows.increment();
+  }
+
+  void recordBufferFull() {
+    bufferFullWaits.increment();
+  }
+
+  void recordBufferEmpty() {
+    bufferEmptyWaits.increment();
+  }
+
+  /** Returns the maximum number of rows that are read ahead for a result. */
+  public int getMaxRows() {
+    return maxRows;
+  }
+
+  /** Returns the maximum approximate number of bytes that are read ahead for a result. */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** Returns the number of results that have been read ahead. */
+  public long getResultCount() {
+    return results.sum();
+  }
+
+  /** Returns the number of rows that have been read ahead. */
+  public long getRowCount() {
+    return rows.sum();
+  }
+
+  /**
+   * Returns the number of times that a background thread had to wait because the buffer of a result
+   * was full. A high number means that the client or the encoding of the rows is the bottleneck.
+   */
+  public long getBufferFullWaitCount() {
+    return bufferFullWaits.sum();
+  }
+
+  /**
+   * Returns the number of times that a connection had to wait because the buffer of a result was
+   * empty. A high number means that Cloud Spanner is the bottleneck.
+   */
+  public long getBufferEmptyWaitCount() {
+    return bufferEmptyWaits.sum();
+  }
+}
@@ -0,0 +1,195 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * Creates server-side {@link SSLEngine}s with the TLS settings of PGAdapter. All engines share the
+ * same {@link SSLContext}, which means that they also share the server session cache. Clients that
+ * reconnect can therefore resume a previous session instead of executing a full handshake.
+ *
+ * <p>The {@link SSLContext} is created only for PGAdapter, so the session cache settings do not
+ * change the default context of the JVM that is also used by other TLS clients in the same process,
+ * such as the Cloud Spanner client. The private key and certificate are read from the keystore that
+ * is configured with the standard javax.net.ssl.keyStore system properties.
+ */
+@InternalApi
+public class SslEngineFactory {
+  private static final Logger logger = Logger.getLogger(SslEngineFactory.class.getName());
+
+  /** The JDK system property that enables or disables stateless session resumption. */
+  public static final String SESSION_TICKETS_PROPERTY =
+      "jdk.tls.server.enableSessionTicketExtension";
+
+  private static final String KEY_STORE_PROPERTY = "javax.net.ssl.keyStore";
+  private static final String KEY_STORE_TYPE_PROPERTY = "javax.net.ssl.keyStoreType";
+  private static final String KEY_STORE_PROVIDER_PROPERTY = "javax.net.ssl.keyStoreProvider";
+  private static final String KEY_STORE_PASSWORD_PROPERTY = "javax.net.ssl.keyStorePassword";
+
+  private final SSLContext sslContext;
+  @Nullable private final String[] protocols;
+  @Nullable private final String[] cipherSuites;
+
+  /**
+   * Creates a factory for the TLS settings in the given options.
+   *
+   * @throws IllegalArgumentException if the options contain an unsupported protocol or cipher suite
+   */
+  public static SslEngineFactory create(OptionsMetadata options)
+      throws GeneralSecurityException, IOException {
+    return create(options, System.getProperties());
+  }
+
+  /**
+   * Creates a factory for the TLS settings in the given options, using the keystore that is
+   * configured in the given properties.
+   */
+  @VisibleForTesting
+  static SslEngineFactory create(OptionsMetadata options, Properties properties)
+      throws GeneralSecurityException, IOException {
+    SSLContext sslContext = createSslContext(properties);
+    SSLSessionContext sessionContext = sslContext.getServerSessionContext();
+    if (sessionContext != null) {
+      if (options.getSslSessionCacheSize() >= 0) {
+        sessionContext.setSessionCacheSize(options.getSslSessionCacheSize());
+      }
+      if (options.getSslSessionTimeoutSeconds() >= 0) {
+        sessionContext.setSessionTimeout(options.getSslSessionTimeoutSeconds());
+      }
+    }
+    SslEngineFactory factory =
+        new SslEngineFactory(
+            sslContext, toArray(options.getSslProtocols()), toArray(options.getSslCipherSuites()));
+    // Create one engine to verify that the protocols and cipher suites are supported.
+    factory.createServerEngine();
+    return factory;
+  }
+
+  /**
+   * Creates a new {@link SSLContext} with the private key and certificate in the keystore that is
+   * configured in the given properties. The properties use the same names and defaults as the
+   * javax.net.ssl system properties of the JDK.
+   */
+  private static SSLContext createSslContext(Properties properties)
+      throws GeneralSecurityException, IOException {
+    String password = properties.getProperty(KEY_STORE_PASSWORD_PROPERTY);
+    char[] passwordChars = password == null ? null : password.toCharArray();
+    String keyStorePath = properties.getProperty(KEY_STORE_PROPERTY);
+    KeyStore keyStore = null;
+    if (!Strings.isNullOrEmpty(keyStorePath) && !"NONE".equals(keyStorePath)) {
+      String type = properties.getProperty(KEY_STORE_TYPE_PROPERTY, KeyStore.getDefaultType());
+      String provider = properties.getProperty(KEY_STORE_PROVIDER_PROPERTY);
+      keyStore =
+          Strings.isNullOrEmpty(provider)
+              ? KeyStore.getInstance(type)
+              : KeyStore.getInstance(type, provider);
+      try (InputStream inputStream = new FileInputStream(keyStorePath)) {
+        keyStore.load(inputStream, passwordChars);
+      }
+    }
+    KeyManagerFactory keyManagerFactory =
+        KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagerFactory.init(keyStore, passwordChars);
+    SSLContext sslContext = SSLContext.getInstance("TLS");
+    sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+    return sslContext;
+  }
+
+  /**
+   * Verifies that the session ticket setting in the options matches the setting of the JVM. The JDK
+   * only reads the {@link #SESSION_TICKETS_PROPERTY} system property once, when TLS is initialized
+   * for the first time. This can happen before PGAdapter is started, for example by the Cloud
+   * Spanner client. PGAdapter therefore does not change the property, and logs a warning if it has
+   * not been set to the requested value on the command line of the JVM. This method does nothing if
+   * sessionTickets is null.
+   *
+   * @return true if the setting of the JVM matches the requested setting
+   */
+  public static boolean checkSessionTickets(@Nullable Boolean sessionTickets) {
+    if (sessionTickets == null) {
+      return true;
+    }
+    String value = System.getProperty(SESSION_TICKETS_PROPERTY);
+    // Session tickets are enabled by default in JDK 13 and higher.
+    boolean enabled = value == null || Boolean.parseBoolean(value.trim());
+    if (enabled != sessionTickets) {
+      logger.log(
+          Level.WARNING,
+          () ->
+              String.format(
+                  "TLS session tickets are %s in this JVM, but -ssl_session_tickets is %s. Start "
+                      + "the JVM with -D%s=%s to change this setting.",
+                  enabled ? "enabled" : "disabled",
+                  sessionTickets,
+                  SESSION_TICKETS_PROPERTY,
+                  sessionTickets));
+      return false;
+    }
+    return true;
+  }
+
+  @Nullable
+  private static String[] toArray(List<String> values) {
+    return values.isEmpty() ? null : values.toArray(new String[0]);
+  }
+
+  private SslEngineFactory(
+      SSLContext sslContext, @Nullable String[] protocols, @Nullable String[] cipherSuites) {
+    this.sslContext = sslContext;
+    this.protocols = protocols;
+    this.cipherSuites = cipherSuites;
+  }
+
+  @VisibleForTesting
+  SSLContext getSslContext() {
+    return sslContext;
+  }
+
+  /** Creates a new engine for an incoming connection. */
+  public SSLEngine createServerEngine() {
+    SSLEngine engine = sslContext.createSSLEngine();
+    engine.setUseClientMode(false);
+    SSLParameters parameters = sslContext.getDefaultSSLParameters();
+    if (protocols != null) {
+      parameters.setProtocols(protocols);
+    }
+    if (cipherSuites != null) {
+      parameters.setCipherSuites(cipherSuites);
+      // The cipher suites are given in order of preference.
+      parameters.setUseCipherSuitesOrder(true);
+    }
+    engine.setSSLParameters(parameters);
+    return engine;
+  }
+}
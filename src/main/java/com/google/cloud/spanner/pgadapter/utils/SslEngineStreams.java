@@ -0,0 +1,481 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLEngineResult.Status;
+import javax.net.ssl.SSLException;
+
+/**
+ * Encrypts and decrypts the data of a connection with an {@link SSLEngine}. The encrypted data is
+ * read from and written to a pair of streams, which can be the streams of a socket or the in-memory
+ * streams of a connection that is served by the non-blocking front end. The decrypted data is
+ * exposed as a new pair of streams.
+ *
+ * <p>The TLS handshake is executed when the input or output stream is used for the first time. The
+ * input stream supports mark/reset, so it can be used directly by a {@link
+ * com.google.cloud.spanner.pgadapter.metadata.ConnectionMetadata} without an additional buffer. One
+ * thread can read from the input stream while another thread writes to the output stream.
+ *
+ * <p>A connection that is served by the non-blocking front end uses {@link #tryDecrypt()} to
+ * execute the handshake and decrypt the input without waiting for the client. The worker thread of
+ * the connection then only reads from the input stream when a complete message has been decrypted.
+ */
+@InternalApi
+public final class SslEngineStreams {
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+  /** Returned by unwrap if a record cannot be decrypted without waiting for the client. */
+  private static final SSLEngineResult WOULD_BLOCK =
+      new SSLEngineResult(Status.BUFFER_UNDERFLOW, HandshakeStatus.NOT_HANDSHAKING, 0, 0);
+
+  private final SSLEngine engine;
+  private final InputStream rawInputStream;
+  private final OutputStream rawOutputStream;
+  private final SslInputStream inputStream = new SslInputStream();
+  private final SslOutputStream outputStream = new SslOutputStream();
+
+  /** Guards the input buffers. The read lock is always acquired before the write lock. */
+  private final Object readLock = new Object();
+
+  private final Object writeLock = new Object();
+  private boolean handshakeStarted;
+  private volatile boolean handshakeCompleted;
+
+  /** Encrypted data that has been read from the raw input stream. Always in write mode. */
+  private ByteBuffer encryptedInput;
+  /** Decrypted data that has not yet been read. Always in read mode. */
+  private ByteBuffer decryptedInput;
+  /** The number of decrypted bytes that can be read without blocking. */
+  private volatile int decryptedAvailable;
+
+  private int markPosition = -1;
+  private int markLimit;
+  private volatile boolean inputClosed;
+  /** The error that occurred while decrypting the input without blocking. */
+  private volatile IOException inputFailure;
+
+  /** Encrypted data that is written to the raw output stream. Only accessed with writeLock. */
+  private ByteBuffer encryptedOutput;
+
+  public SslEngineStreams(
+      SSLEngine engine, InputStream rawInputStream, OutputStream rawOutputStream) {
+    this.engine = engine;
+    this.rawInputStream = rawInputStream;
+    this.rawOutputStream = rawOutputStream;
+    int packetBufferSize = engine.getSession().getPacketBufferSize();
+    this.encryptedInput = ByteBuffer.allocate(packetBufferSize);
+    this.encryptedOutput = ByteBuffer.allocate(packetBufferSize);
+    this.decryptedInput = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+    this.decryptedInput.flip();
+  }
+
+  /** Returns the stream that returns the decrypted data that is received from the client. */
+  public InputStream getInputStream() {
+    return inputStream;
+  }
+
+  /** Returns the stream that encrypts all data that is written to it before sending it. */
+  public OutputStream getOutputStream() {
+    return outputStream;
+  }
+
+  /** Returns the number of decrypted bytes that can be read without reading from the client. */
+  public int getDecryptedAvailable() {
+    return decryptedAvailable;
+  }
+
+  /**
+   * Copies decrypted data that has not yet been read to the given buffer, without consuming it.
+   * Returns the number of bytes that were copied.
+   */
+  public int peekDecryptedInput(byte[] buffer) {
+    synchronized (readLock) {
+      int length = Math.min(buffer.length, decryptedInput.remaining());
+      System.arraycopy(
+          decryptedInput.array(),
+          decryptedInput.arrayOffset() + decryptedInput.position(),
+          buffer,
+          0,
+          length);
+      return length;
+    }
+  }
+
+  /**
+   * Returns true if the client has closed the input, or if decrypting the input failed. Reading
+   * from the input stream then returns the end of the stream or throws the error without blocking.
+   */
+  public boolean isInputFinished() {
+    return inputClosed || inputFailure != null;
+  }
+
+  /**
+   * Executes the next step of the handshake or decrypts the next TLS record, using only the data
+   * that is available in the raw input stream. This method never waits for the client. Returns
+   * false if no progress can be made until more data has been received. An error is thrown by the
+   * next read from the input stream.
+   */
+  public boolean tryDecrypt() {
+    synchronized (readLock) {
+      if (isInputFinished()) {
+        return false;
+      }
+      try {
+        if (!handshakeCompleted) {
+          return handshake(false);
+        }
+        SSLEngineResult result = unwrap(false);
+        if (result == WOULD_BLOCK) {
+          return false;
+        }
+        afterUnwrap(result);
+        return true;
+      } catch (IOException ioException) {
+        inputFailure = ioException;
+        return true;
+      }
+    }
+  }
+
+  /** Executes the TLS handshake if it has not yet been executed. */
+  public void handshake() throws IOException {
+    handshake(true);
+  }
+
+  /**
+   * Executes the TLS handshake if it has not yet been executed. Returns false if the handshake
+   * could not be completed without waiting for the client and block is false.
+   */
+  private boolean handshake(boolean block) throws IOException {
+    if (handshakeCompleted) {
+      return true;
+    }
+    synchronized (readLock) {
+      synchronized (writeLock) {
+        if (handshakeCompleted) {
+          return true;
+        }
+        if (!handshakeStarted) {
+          engine.beginHandshake();
+          handshakeStarted = true;
+        }
+        HandshakeStatus status = engine.getHandshakeStatus();
+        while (status != HandshakeStatus.FINISHED && status != HandshakeStatus.NOT_HANDSHAKING) {
+          switch (status) {
+            case NEED_TASK:
+              runDelegatedTasks();
+              status = engine.getHandshakeStatus();
+              break;
+            case NEED_WRAP:
+              status = wrap(EMPTY).getHandshakeStatus();
+              break;
+            default:
+              SSLEngineResult result = unwrap(block);
+              if (result == WOULD_BLOCK) {
+                // Send the handshake messages that have been produced so far to the client.
+                rawOutputStream.flush();
+                return false;
+              }
+              if (result == null || result.getStatus() == Status.CLOSED) {
+                throw new EOFException("Connection closed during TLS handshake");
+              }
+              status = result.getHandshakeStatus();
+          }
+        }
+        rawOutputStream.flush();
+        handshakeCompleted = true;
+        return true;
+      }
+    }
+  }
+
+  private void runDelegatedTasks() {
+    Runnable task;
+    while ((task = engine.getDelegatedTask()) != null) {
+      task.run();
+    }
+  }
+
+  /**
+   * Decrypts the next TLS record into the decrypted input buffer, reading from the raw input
+   * stream if necessary. Returns null if the raw input stream has been closed. Returns {@link
+   * #WOULD_BLOCK} if block is false and the raw input stream does not contain the rest of the
+   * record. Must be called while holding the read lock.
+   */
+  private SSLEngineResult unwrap(boolean block) throws IOException {
+    // Move any data that has not yet been read (or that is marked) to the start of the buffer.
+    int start = markPosition >= 0 ? markPosition : decryptedInput.position();
+    int readOffset = decryptedInput.position() - start;
+    decryptedInput.position(start);
+    decryptedInput.compact();
+    if (markPosition >= 0) {
+      markPosition = 0;
+    }
+    try {
+      while (true) {
+        encryptedInput.flip();
+        SSLEngineResult result;
+        try {
+          result = engine.unwrap(encryptedInput, decryptedInput);
+        } finally {
+          encryptedInput.compact();
+        }
+        switch (result.getStatus()) {
+          case BUFFER_UNDERFLOW:
+            int packetBufferSize = engine.getSession().getPacketBufferSize();
+            if (encryptedInput.capacity() < packetBufferSize) {
+              encryptedInput = grow(encryptedInput, packetBufferSize);
+            } else if (!encryptedInput.hasRemaining()) {
+              encryptedInput = grow(encryptedInput, encryptedInput.capacity() * 2);
+            }
+            int length =
+                block
+                    ? encryptedInput.remaining()
+                    : Math.min(encryptedInput.remaining(), rawInputStream.available());
+            if (length == 0) {
+              return WOULD_BLOCK;
+            }
+            int read =
+                rawInputStream.read(
+                    encryptedInput.array(),
+                    encryptedInput.arrayOffset() + encryptedInput.position(),
+                    length);
+            if (read == -1) {
+              return null;
+            }
+            encryptedInput.position(encryptedInput.position() + read);
+            break;
+          case BUFFER_OVERFLOW:
+            decryptedInput =
+                grow(
+                    decryptedInput,
+                    decryptedInput.position() + engine.getSession().getApplicationBufferSize());
+            break;
+          default:
+            return result;
+        }
+      }
+    } finally {
+      decryptedInput.flip();
+      decryptedInput.position(readOffset);
+      decryptedAvailable = decryptedInput.remaining();
+    }
+  }
+
+  /**
+   * Encrypts data from the given buffer and writes it to the raw output stream. Must be called
+   * while holding the write lock.
+   */
+  private SSLEngineResult wrap(ByteBuffer source) throws IOException {
+    while (true) {
+      encryptedOutput.clear();
+      SSLEngineResult result = engine.wrap(source, encryptedOutput);
+      switch (result.getStatus()) {
+        case BUFFER_OVERFLOW:
+          encryptedOutput =
+              ByteBuffer.allocate(
+                  Math.max(
+                      encryptedOutput.capacity() * 2, engine.getSession().getPacketBufferSize()));
+          break;
+        case CLOSED:
+          if (result.bytesProduced() == 0) {
+            throw new SSLException("TLS connection has been closed");
+          }
+          // fall through
+        default:
+          encryptedOutput.flip();
+          rawOutputStream.write(
+              encryptedOutput.array(),
+              encryptedOutput.arrayOffset(),
+              encryptedOutput.remaining());
+          if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+            runDelegatedTasks();
+          }
+          return result;
+      }
+    }
+  }
+
+  /**
+   * Handles the post-handshake messages, such as a TLS 1.3 key update, that the client can send
+   * after the handshake, and marks the input as closed if the client closed the connection. Must be
+   * called while holding the read lock.
+   */
+  private void afterUnwrap(SSLEngineResult result) throws IOException {
+    if (result == null || result.getStatus() == Status.CLOSED) {
+      inputClosed = true;
+      return;
+    }
+    if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+      runDelegatedTasks();
+    }
+    if (engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+      synchronized (writeLock) {
+        wrap(EMPTY);
+        rawOutputStream.flush();
+      }
+    }
+  }
+
+  private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+    ByteBuffer result = ByteBuffer.allocate(Math.max(capacity, buffer.capacity()));
+    buffer.flip();
+    result.put(buffer);
+    return result;
+  }
+
+  private final class SslInputStream extends InputStream {
+    @Override
+    public int read() throws IOException {
+      synchronized (readLock) {
+        if (!awaitDecryptedInput()) {
+          return -1;
+        }
+        int result = decryptedInput.get() & 0xff;
+        afterRead();
+        return result;
+      }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      synchronized (readLock) {
+        if (!awaitDecryptedInput()) {
+          return -1;
+        }
+        int result = Math.min(length, decryptedInput.remaining());
+        decryptedInput.get(buffer, offset, result);
+        afterRead();
+        return result;
+      }
+    }
+
+    /**
+     * Decrypts records from the raw input stream until there is decrypted data available. Returns
+     * false if the end of the stream has been reached.
+     */
+    private boolean awaitDecryptedInput() throws IOException {
+      if (!decryptedInput.hasRemaining() && inputFailure != null) {
+        throw inputFailure;
+      }
+      handshake();
+      while (!decryptedInput.hasRemaining()) {
+        if (inputClosed) {
+          return false;
+        }
+        afterUnwrap(unwrap(true));
+      }
+      return true;
+    }
+
+    private void afterRead() {
+      if (markPosition >= 0 && decryptedInput.position() - markPosition > markLimit) {
+        markPosition = -1;
+      }
+      decryptedAvailable = decryptedInput.remaining();
+    }
+
+    @Override
+    public int available() {
+      return decryptedAvailable;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+      synchronized (readLock) {
+        markPosition = decryptedInput.position();
+        markLimit = readLimit;
+      }
+    }
+
+    @Override
+    public void reset() throws IOException {
+      synchronized (readLock) {
+        if (markPosition < 0) {
+          throw new IOException("Resetting to invalid mark");
+        }
+        decryptedInput.position(markPosition);
+        decryptedAvailable = decryptedInput.remaining();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      rawInputStream.close();
+    }
+  }
+
+  private final class SslOutputStream extends OutputStream {
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+      handshake();
+      ByteBuffer source = ByteBuffer.wrap(buffer, offset, length);
+      synchronized (writeLock) {
+        while (source.hasRemaining()) {
+          SSLEngineResult result = wrap(source);
+          if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+            throw new SSLException("TLS renegotiation is not supported");
+          }
+        }
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (writeLock) {
+        rawOutputStream.flush();
+      }
+    }
+
+    /** Sends a close_notify alert to the client before closing the raw output stream. */
+    @Override
+    public void close() throws IOException {
+      try {
+        synchronized (writeLock) {
+          engine.closeOutbound();
+          if (handshakeCompleted) {
+            wrap(EMPTY);
+            rawOutputStream.flush();
+          }
+        }
+      } catch (IOException ignore) {
+        // The client might already have closed the connection.
+      } finally {
+        rawOutputStream.close();
+      }
+    }
+  }
+}
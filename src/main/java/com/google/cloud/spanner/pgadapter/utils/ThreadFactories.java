@@ -0,0 +1,121 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Creates {@link ThreadFactory}s for the threads that PGAdapter starts for connections, COPY
+ * operations and partitioned queries. The factories create virtual threads if this has been enabled
+ * and the JVM supports it (Java 21 and higher), and normal platform threads otherwise.
+ *
+ * <p>Virtual threads are created using reflection, so PGAdapter can still be compiled for and run
+ * on Java 8.
+ */
+@InternalApi
+public class ThreadFactories {
+  private static final Logger logger = Logger.getLogger(ThreadFactories.class.getName());
+
+  /**
+   * The Thread.ofVirtual() method, or null if virtual threads are not supported by the current JVM.
+   * This is resolved once, and not every time that a factory is created.
+   */
+  @Nullable private static final Method OF_VIRTUAL = findOfVirtualMethod();
+
+  private static final AtomicBoolean UNSUPPORTED_WARNING_LOGGED = new AtomicBoolean();
+
+  private ThreadFactories() {}
+
+  @Nullable
+  private static Method findOfVirtualMethod() {
+    try {
+      Method ofVirtual = Thread.class.getMethod("ofVirtual");
+      // Verify that virtual threads can actually be created. Thread.ofVirtual() throws an
+      // exception if virtual threads are only available as a preview feature that is disabled.
+      ofVirtual.invoke(null);
+      return ofVirtual;
+    } catch (Throwable ignore) {
+      return null;
+    }
+  }
+
+  /** Returns true if the current JVM supports virtual threads. */
+  public static boolean isVirtualThreadsSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Returns a {@link ThreadFactory} that creates threads with the given name prefix. The factory
+   * creates virtual threads if useVirtualThreads is true and the JVM supports virtual threads.
+   * Platform threads are created as non-daemon threads, so the JVM does not exit while they are
+   * still working. A warning is logged the first time that virtual threads are requested on a JVM
+   * that does not support them.
+   */
+  public static ThreadFactory create(String namePrefix, boolean useVirtualThreads) {
+    return create(namePrefix, false, useVirtualThreads);
+  }
+
+  /**
+   * Returns a {@link ThreadFactory} that creates daemon threads with the given name prefix. Use
+   * this for threads that only serve a client connection, as connection threads do not keep the
+   * JVM alive. Virtual threads are always daemon threads.
+   */
+  public static ThreadFactory createDaemon(String namePrefix, boolean useVirtualThreads) {
+    return create(namePrefix, true, useVirtualThreads);
+  }
+
+  private static ThreadFactory create(
+      String namePrefix, boolean daemon, boolean useVirtualThreads) {
+    if (useVirtualThreads) {
+      ThreadFactory virtualThreadFactory = createVirtualThreadFactory(namePrefix);
+      if (virtualThreadFactory != null) {
+        return virtualThreadFactory;
+      }
+      if (UNSUPPORTED_WARNING_LOGGED.compareAndSet(false, true)) {
+        logger.log(
+            Level.WARNING,
+            "Virtual threads are not supported on this JVM. Falling back to platform threads.");
+      }
+    }
+    return new ThreadFactoryBuilder().setDaemon(daemon).setNameFormat(namePrefix + "%d").build();
+  }
+
+  /**
+   * Creates a factory for virtual threads using the Thread.ofVirtual() builder. Returns null if
+   * virtual threads are not supported by the current JVM.
+   */
+  @Nullable
+  private static ThreadFactory createVirtualThreadFactory(String namePrefix) {
+    if (OF_VIRTUAL == null) {
+      return null;
+    }
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = OF_VIRTUAL.invoke(null);
+      builder =
+          builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (Throwable ignore) {
+      return null;
+    }
+  }
+}
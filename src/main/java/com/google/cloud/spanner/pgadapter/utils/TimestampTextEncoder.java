@@ -0,0 +1,168 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.parsers.TimestampParser;
+import com.google.cloud.spanner.pgadapter.wireoutput.OutputBuffer;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Writes TIMESTAMP values in the PostgreSQL text format for a fixed time zone, for example
+ * '2022-02-16 14:18:02.123456+01'. The output is the same as the output of {@link TimestampParser},
+ * but the value is written directly as digits into the output buffer.
+ *
+ * <p>The encoder keeps the offset of the time zone for the period between the two transitions
+ * around the last value that was encoded, so consecutive values in the same DST period do not need
+ * to look up the offset again. Values outside the years 1-9999 are formatted by {@link
+ * TimestampParser}.
+ */
+final class TimestampTextEncoder extends ColumnEncoder {
+  private static final int SECONDS_PER_DAY = 86400;
+  /** Java 8 does not support seconds in the timezone offset. */
+  private static final boolean INCLUDE_OFFSET_SECONDS = !OptionsMetadata.isJava8();
+
+  private final ZoneId zoneId;
+  private final ZoneRules rules;
+
+  /** The offset is valid for the epoch seconds in the range [validFrom, validUntil). */
+  private long validFrom = Long.MAX_VALUE;
+
+  private long validUntil = Long.MIN_VALUE;
+  private int offsetSeconds;
+
+  TimestampTextEncoder(ZoneId zoneId) {
+    this.zoneId = zoneId;
+    this.rules = zoneId.getRules();
+  }
+
+  @Override
+  public void encode(ResultSet resultSet, int position, OutputBuffer buffer) throws IOException {
+    encode(resultSet.getTimestamp(position), buffer);
+  }
+
+  void encode(Timestamp timestamp, OutputBuffer buffer) throws IOException {
+    long epochSecond = timestamp.getSeconds();
+    int offset = getOffsetSeconds(epochSecond);
+    long localSecond = epochSecond + offset;
+    long epochDay = Math.floorDiv(localSecond, SECONDS_PER_DAY);
+    int secondOfDay = (int) Math.floorMod(localSecond, SECONDS_PER_DAY);
+
+    // Convert the epoch day to a date in the proleptic Gregorian calendar. This is the 'civil from
+    // days' algorithm from http://howardhinnant.github.io/date_algorithms.html.
+    long z = epochDay + 719468L;
+    long era = Math.floorDiv(z, 146097L);
+    long dayOfEra = z - era * 146097L;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460L + dayOfEra / 36524L - dayOfEra / 146096L) / 365L;
+    long dayOfYear = dayOfEra - (365L * yearOfEra + yearOfEra / 4L - yearOfEra / 100L);
+    long mp = (5L * dayOfYear + 2L) / 153L;
+    int day = (int) (dayOfYear - (153L * mp + 2L) / 5L + 1L);
+    int month = (int) (mp < 10L ? mp + 3L : mp - 9L);
+    long year = yearOfEra + era * 400L + (month <= 2 ? 1L : 0L);
+    if (year < 1L || year > 9999L) {
+      buffer.writeAscii(TimestampParser.toPGString(timestamp, zoneId));
+      return;
+    }
+
+    buffer.writeAsciiDigits((int) year, 4);
+    buffer.write('-');
+    buffer.writeAsciiDigits(month, 2);
+    buffer.write('-');
+    buffer.writeAsciiDigits(day, 2);
+    buffer.write(' ');
+    buffer.writeAsciiDigits(secondOfDay / 3600, 2);
+    buffer.write(':');
+    buffer.writeAsciiDigits((secondOfDay / 60) % 60, 2);
+    buffer.write(':');
+    buffer.writeAsciiDigits(secondOfDay % 60, 2);
+    writeFraction(timestamp.getNanos(), buffer);
+    writeOffset(offset, buffer);
+  }
+
+  private int getOffsetSeconds(long epochSecond) {
+    if (epochSecond >= validFrom && epochSecond < validUntil) {
+      return offsetSeconds;
+    }
+    Instant instant = Instant.ofEpochSecond(epochSecond);
+    offsetSeconds = rules.getOffset(instant).getTotalSeconds();
+    ZoneOffsetTransition previous = rules.previousTransition(instant);
+    ZoneOffsetTransition next = rules.nextTransition(instant);
+    // previousTransition returns the transition before the given instant, so the offset after the
+    // previous transition is only known to be valid from the previous transition if it is equal to
+    // the offset that we just looked up.
+    validFrom =
+        previous == null
+            ? Long.MIN_VALUE
+            : previous.getOffsetAfter().getTotalSeconds() == offsetSeconds
+                ? previous.toEpochSecond()
+                : epochSecond;
+    validUntil = next == null ? Long.MAX_VALUE : next.toEpochSecond();
+    return offsetSeconds;
+  }
+
+  /**
+   * Writes the fraction of the second in the same way as {@link
+   * java.time.format.DateTimeFormatterBuilder#appendFraction} with a maximum width of 6. The
+   * fraction is truncated to microseconds, and trailing zeros are only removed if the value has no
+   * digits beyond microsecond precision.
+   */
+  private static void writeFraction(int nanos, OutputBuffer buffer) throws IOException {
+    if (nanos == 0) {
+      return;
+    }
+    int micros = nanos / 1000;
+    int digits = 6;
+    if (nanos % 1000 == 0) {
+      while (micros % 10 == 0) {
+        micros /= 10;
+        digits--;
+      }
+    }
+    buffer.write('.');
+    buffer.writeAsciiDigits(micros, digits);
+  }
+
+  /**
+   * Writes the offset in the format '+HH[:mm[:ss]]'. The minutes are only included if the minutes
+   * or the seconds are non-zero, and the seconds are only included if they are non-zero. A zero
+   * offset is written as '+00'.
+   */
+  private static void writeOffset(int offset, OutputBuffer buffer) throws IOException {
+    if (offset == 0) {
+      buffer.writeAscii("+00");
+      return;
+    }
+    buffer.write(offset < 0 ? '-' : '+');
+    int absOffset = Math.abs(offset);
+    int hours = absOffset / 3600;
+    int minutes = (absOffset / 60) % 60;
+    int seconds = INCLUDE_OFFSET_SECONDS ? absOffset % 60 : 0;
+    buffer.writeAsciiDigits(hours, 2);
+    if (minutes != 0 || seconds != 0) {
+      buffer.write(':');
+      buffer.writeAsciiDigits(minutes, 2);
+      if (seconds != 0) {
+        buffer.write(':');
+        buffer.writeAsciiDigits(seconds, 2);
+      }
+    }
+  }
+}
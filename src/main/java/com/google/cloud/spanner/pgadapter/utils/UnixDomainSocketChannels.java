@@ -0,0 +1,115 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.annotation.Nullable;
+
+/**
+ * Creates Unix domain socket channels using the built-in support for Unix domain sockets in {@link
+ * java.nio.channels} (Java 16 and higher). Channels that are created by this class can be served
+ * by both a selector and a normal blocking thread, and do not need a native library.
+ *
+ * <p>The channels are created using reflection, so PGAdapter can still be compiled for and run on
+ * Java 8.
+ */
+@InternalApi
+public class UnixDomainSocketChannels {
+  @Nullable private static final ProtocolFamily UNIX = getUnixProtocolFamily();
+  @Nullable private static final Method OPEN_SERVER_SOCKET_CHANNEL = getOpenServerSocketChannel();
+  @Nullable private static final Method CREATE_ADDRESS = getCreateAddressMethod();
+
+  private UnixDomainSocketChannels() {}
+
+  /** Returns true if the current JVM supports Unix domain socket channels. */
+  public static boolean isSupported() {
+    return UNIX != null && OPEN_SERVER_SOCKET_CHANNEL != null && CREATE_ADDRESS != null;
+  }
+
+  /**
+   * Opens a {@link ServerSocketChannel} that is bound to the given socket file. Any existing file
+   * with the same name is deleted first, so a socket file that was left behind by a previous
+   * process does not prevent the server from starting.
+   *
+   * @throws UnsupportedOperationException if the current JVM does not support Unix domain socket
+   *     channels
+   */
+  public static ServerSocketChannel openServerSocketChannel(File file, int backlog)
+      throws IOException {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException(
+          "Unix domain socket channels require Java 16 or higher");
+    }
+    Path path = file.toPath();
+    Files.deleteIfExists(path);
+    ServerSocketChannel channel;
+    SocketAddress address;
+    try {
+      channel = (ServerSocketChannel) OPEN_SERVER_SOCKET_CHANNEL.invoke(null, UNIX);
+      address = (SocketAddress) CREATE_ADDRESS.invoke(null, path);
+    } catch (InvocationTargetException invocationTargetException) {
+      if (invocationTargetException.getCause() instanceof IOException) {
+        throw (IOException) invocationTargetException.getCause();
+      }
+      throw new IOException(invocationTargetException.getCause());
+    } catch (IllegalAccessException illegalAccessException) {
+      throw new IOException(illegalAccessException);
+    }
+    try {
+      channel.bind(address, backlog);
+    } catch (IOException ioException) {
+      channel.close();
+      throw ioException;
+    }
+    return channel;
+  }
+
+  @Nullable
+  private static ProtocolFamily getUnixProtocolFamily() {
+    try {
+      return StandardProtocolFamily.valueOf("UNIX");
+    } catch (IllegalArgumentException ignore) {
+      return null;
+    }
+  }
+
+  @Nullable
+  private static Method getOpenServerSocketChannel() {
+    try {
+      return ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+    } catch (NoSuchMethodException ignore) {
+      return null;
+    }
+  }
+
+  @Nullable
+  private static Method getCreateAddressMethod() {
+    try {
+      return Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+    } catch (ClassNotFoundException | NoSuchMethodException ignore) {
+      return null;
+    }
+  }
+}
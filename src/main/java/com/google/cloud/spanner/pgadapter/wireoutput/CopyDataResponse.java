@@ -77,11 +77,14 @@ public class CopyDataResponse extends WireOutput {
   }
 
   @Override
-  public void send(boolean flush) throws Exception {
+  protected void writeMessage() throws Exception {
     if (converter != null) {
-      this.length = 4 + converter.convertResultSetRowToDataRowResponse();
+      // The length of the row is not known in advance, so the converter encodes the entire message
+      // and back-patches the length.
+      converter.writeRow(getIdentifier(), this.outputStream);
+    } else {
+      super.writeMessage();
     }
-    super.send(flush);
   }
 
   @Override
@@ -97,8 +100,6 @@ public class CopyDataResponse extends WireOutput {
         this.outputStream.writeShort(-1);
       } else if (this.responseType == ResponseType.TRAILER) {
         this.outputStream.writeShort(-1);
-      } else if (this.converter != null) {
-        this.converter.writeBuffer(this.outputStream);
       } else {
         // This should not happen.
         throw PGExceptionFactory.newPGException("Invalid CopyDataResponse", SQLState.InternalError);
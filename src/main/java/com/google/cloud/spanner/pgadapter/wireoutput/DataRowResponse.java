@@ -21,8 +21,6 @@ import java.io.DataOutputStream;
 /** Sends to the client specific row contents. */
 @InternalApi
 public class DataRowResponse extends WireOutput {
-  private static final int HEADER_LENGTH = 4;
-
   private final Converter converter;
 
   public DataRowResponse(DataOutputStream output, Converter converter) {
@@ -30,14 +28,16 @@ public class DataRowResponse extends WireOutput {
     this.converter = converter;
   }
 
-  public void send(boolean flush) throws Exception {
-    this.length = HEADER_LENGTH + converter.convertResultSetRowToDataRowResponse();
-    super.send(flush);
+  @Override
+  protected void writeMessage() throws Exception {
+    // The length of the row is not known in advance, so the converter encodes the entire message
+    // and back-patches the length.
+    converter.writeRow(getIdentifier(), this.outputStream);
   }
 
   @Override
-  protected void sendPayload() throws Exception {
-    converter.writeBuffer(this.outputStream);
+  protected void sendPayload() {
+    // Not used, as the converter writes the entire message.
   }
 
   @Override
@@ -0,0 +1,305 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireoutput;
+
+import com.google.api.core.InternalApi;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * Growable output buffer for a connection. This buffer replaces a {@link
+ * java.io.BufferedOutputStream} for the connection, and also allows messages to be encoded directly
+ * into the buffer. The length of a message that is encoded directly into the buffer is back-patched
+ * when the message is finished, so there is no need to encode the message into an intermediate
+ * buffer first.
+ *
+ * <p>The buffer is flushed to the underlying stream when it is full, unless a message is being
+ * encoded. The buffer then grows to fit the entire message, and shrinks back to its initial size
+ * once the message has been flushed.
+ *
+ * <p>This class is not thread-safe.
+ */
+@InternalApi
+public class OutputBuffer extends OutputStream {
+  private final OutputStream out;
+  private final int initialSize;
+  private byte[] buffer;
+  private int position;
+  /** The start position of the message that is currently being encoded, or -1 if none. */
+  private int messageStart = -1;
+  /** Counts the number of writes to the underlying stream, or null if writes are not counted. */
+  @Nullable private LongAdder writeCounter;
+
+  public OutputBuffer(OutputStream out, int size) {
+    Preconditions.checkArgument(size > 0, "Buffer size must be > 0");
+    this.out = Preconditions.checkNotNull(out);
+    this.initialSize = size;
+    this.buffer = new byte[size];
+  }
+
+  /** Sets a counter that is increased each time this buffer writes to the underlying stream. */
+  public void setWriteCounter(@Nullable LongAdder writeCounter) {
+    this.writeCounter = writeCounter;
+  }
+
+  /**
+   * Starts a new message with the given identifier. The length of the message is written to the
+   * buffer by {@link #endMessage()}.
+   */
+  public void beginMessage(byte identifier) throws IOException {
+    Preconditions.checkState(messageStart == -1, "There is already an active message");
+    ensureCapacity(5);
+    messageStart = position;
+    buffer[position++] = identifier;
+    position += 4;
+  }
+
+  /** Finishes the current message by writing its length at the start of the message. */
+  public void endMessage() throws IOException {
+    Preconditions.checkState(messageStart > -1, "There is no active message");
+    patchInt(messageStart + 1, position - messageStart - 1);
+    messageStart = -1;
+    if (position >= initialSize) {
+      flushBuffer();
+    }
+  }
+
+  /**
+   * Discards the current message. This must be called if an error occurs while a message is being
+   * encoded, so no partial message is sent to the client.
+   */
+  public void abortMessage() {
+    if (messageStart > -1) {
+      position = messageStart;
+      messageStart = -1;
+    }
+  }
+
+  /**
+   * Reserves four bytes for an int value that will be written later with {@link #patchInt(int,
+   * int)}, and returns the position of the reserved bytes.
+   */
+  public int reserveInt() throws IOException {
+    ensureCapacity(4);
+    int result = position;
+    position += 4;
+    return result;
+  }
+
+  /** Writes an int value at the given position that was reserved with {@link #reserveInt()}. */
+  public void patchInt(int at, int value) {
+    buffer[at] = (byte) (value >>> 24);
+    buffer[at + 1] = (byte) (value >>> 16);
+    buffer[at + 2] = (byte) (value >>> 8);
+    buffer[at + 3] = (byte) value;
+  }
+
+  /** Returns the number of bytes that have been written to the buffer since the given position. */
+  public int bytesSince(int at) {
+    return position - at;
+  }
+
+  /** Writes a 2-byte int value in big-endian order. */
+  public void writeShort(int value) throws IOException {
+    ensureCapacity(2);
+    buffer[position++] = (byte) (value >>> 8);
+    buffer[position++] = (byte) value;
+  }
+
+  /** Writes a 4-byte int value in big-endian order. */
+  public void writeInt(int value) throws IOException {
+    ensureCapacity(4);
+    patchInt(position, value);
+    position += 4;
+  }
+
+  /** Writes an 8-byte long value in big-endian order. */
+  public void writeLong(long value) throws IOException {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  /**
+   * Writes the given string, which may only contain ASCII characters, without any length prefix or
+   * terminator.
+   */
+  public void writeAscii(String value) throws IOException {
+    int length = value.length();
+    ensureCapacity(length);
+    for (int i = 0; i < length; i++) {
+      buffer[position++] = (byte) value.charAt(i);
+    }
+  }
+
+  /** Writes the decimal text representation of the given value as ASCII digits. */
+  public void writeAsciiLong(long value) throws IOException {
+    if (value == Long.MIN_VALUE) {
+      writeAscii("-9223372036854775808");
+      return;
+    }
+    ensureCapacity(20);
+    if (value < 0) {
+      buffer[position++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (long limit = 10L; digits < 19 && value >= limit; limit *= 10L) {
+      digits++;
+    }
+    int end = position + digits;
+    for (int i = end - 1; i >= position; i--) {
+      buffer[i] = (byte) ('0' + (value % 10L));
+      value /= 10L;
+    }
+    position = end;
+  }
+
+  /**
+   * Writes the given non-negative value as ASCII digits, left-padded with zeros to at least the
+   * given number of digits.
+   */
+  public void writeAsciiDigits(int value, int minDigits) throws IOException {
+    int digits = 1;
+    for (int limit = 10; digits < 10 && value >= limit; limit *= 10) {
+      digits++;
+    }
+    digits = Math.max(digits, minDigits);
+    ensureCapacity(digits);
+    int end = position + digits;
+    for (int i = end - 1; i >= position; i--) {
+      buffer[i] = (byte) ('0' + (value % 10));
+      value /= 10;
+    }
+    position = end;
+  }
+
+  /** Writes the given string as UTF-8 without any length prefix or terminator. */
+  public void writeUtf8(String value) throws IOException {
+    int length = value.length();
+    // A single char is encoded as at most 3 bytes. Surrogate pairs are 2 chars and 4 bytes.
+    ensureCapacity(length * 3);
+    byte[] buffer = this.buffer;
+    int position = this.position;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer[position++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[position++] = (byte) (0xc0 | (c >> 6));
+        buffer[position++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogates are replaced with '?', which is the same as String#getBytes does.
+        buffer[position++] = (byte) '?';
+      } else {
+        buffer[position++] = (byte) (0xe0 | (c >> 12));
+        buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buffer[position++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    this.position = position;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureCapacity(1);
+    buffer[position++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    if (messageStart == -1 && length >= buffer.length) {
+      // Write large chunks that are not part of a message directly to the underlying stream.
+      flushBuffer();
+      out.write(bytes, offset, length);
+      countWrite();
+      return;
+    }
+    ensureCapacity(length);
+    System.arraycopy(bytes, offset, buffer, position, length);
+    position += length;
+  }
+
+  /**
+   * Makes sure that the buffer has room for at least the given number of bytes. The buffer is
+   * flushed if it is full and there is no active message, and grows otherwise.
+   */
+  public void ensureCapacity(int length) throws IOException {
+    if (position + length <= buffer.length) {
+      return;
+    }
+    if (messageStart == -1) {
+      flushBuffer();
+      if (length <= buffer.length) {
+        return;
+      }
+    }
+    byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + length)];
+    System.arraycopy(buffer, 0, newBuffer, 0, position);
+    buffer = newBuffer;
+  }
+
+  /**
+   * Writes all buffered bytes to the underlying stream without flushing the underlying stream. This
+   * may only be called when there is no active message.
+   */
+  public void drain() throws IOException {
+    Preconditions.checkState(messageStart == -1, "Cannot drain while a message is active");
+    flushBuffer();
+  }
+
+  private void flushBuffer() throws IOException {
+    if (position > 0) {
+      out.write(buffer, 0, position);
+      position = 0;
+      countWrite();
+    }
+    if (buffer.length > initialSize) {
+      buffer = new byte[initialSize];
+    }
+  }
+
+  private void countWrite() {
+    if (writeCounter != null) {
+      writeCounter.increment();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    Preconditions.checkState(messageStart == -1, "Cannot flush while a message is active");
+    flushBuffer();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      out.close();
+    }
+  }
+}
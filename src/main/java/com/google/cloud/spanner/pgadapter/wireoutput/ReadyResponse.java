@@ -59,7 +59,7 @@ public class ReadyResponse extends WireOutput {
     IDLE('I'),
     TRANSACTION('T'),
     FAILED('E');
-    private final char c;
+    final char c;
 
     Status(char c) {
       this.c = c;
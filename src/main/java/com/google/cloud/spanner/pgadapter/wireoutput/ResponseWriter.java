@@ -0,0 +1,164 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireoutput;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.pgadapter.wireoutput.ReadyResponse.Status;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the responses that are sent for every statement that is executed with the extended query
+ * protocol without creating a {@link WireOutput} instance for each message. Messages with a fixed
+ * content are written as pre-encoded byte sequences, and command tags with a row count are encoded
+ * directly into the output stream. None of the methods in this class allocate any objects, unless
+ * FINE logging is enabled.
+ *
+ * <p>The methods in this class do not flush the output stream.
+ */
+@InternalApi
+public final class ResponseWriter {
+  private static final Logger logger = Logger.getLogger(ResponseWriter.class.getName());
+
+  private static final byte[] PARSE_COMPLETE = {'1', 0, 0, 0, 4};
+  private static final byte[] BIND_COMPLETE = {'2', 0, 0, 0, 4};
+  private static final byte[] CLOSE_COMPLETE = {'3', 0, 0, 0, 4};
+  private static final byte[] NO_DATA = {'n', 0, 0, 0, 4};
+  private static final byte[] EMPTY_QUERY = {'I', 0, 0, 0, 4};
+  private static final byte[][] READY = new byte[Status.values().length][];
+
+  static {
+    for (Status status : Status.values()) {
+      READY[status.ordinal()] = new byte[] {'Z', 0, 0, 0, 5, (byte) status.c};
+    }
+  }
+
+  /** The length of the header (the length field) and the null terminator of a command tag. */
+  private static final int COMMAND_COMPLETE_OVERHEAD = 5;
+
+  private ResponseWriter() {}
+
+  /** Writes a ParseComplete message. */
+  public static void writeParseComplete(DataOutputStream output) throws IOException {
+    write(output, PARSE_COMPLETE, "Parse Complete");
+  }
+
+  /** Writes a BindComplete message. */
+  public static void writeBindComplete(DataOutputStream output) throws IOException {
+    write(output, BIND_COMPLETE, "Bind Complete");
+  }
+
+  /** Writes a CloseComplete message. */
+  public static void writeCloseComplete(DataOutputStream output) throws IOException {
+    write(output, CLOSE_COMPLETE, "Close Complete");
+  }
+
+  /** Writes a NoData message. */
+  public static void writeNoData(DataOutputStream output) throws IOException {
+    write(output, NO_DATA, "No Data");
+  }
+
+  /** Writes an EmptyQueryResponse message. */
+  public static void writeEmptyQuery(DataOutputStream output) throws IOException {
+    write(output, EMPTY_QUERY, "EmptyQuery");
+  }
+
+  /** Writes a ReadyForQuery message with the given transaction status. */
+  public static void writeReady(DataOutputStream output, Status status) throws IOException {
+    write(output, READY[status.ordinal()], "Ready");
+  }
+
+  private static void write(DataOutputStream output, byte[] message, String name)
+      throws IOException {
+    if (logger.isLoggable(Level.FINE)) {
+      logger.log(
+          Level.FINE, "< Sending Message: ({0}) {1}", new Object[] {(char) message[0], name});
+    }
+    output.write(message);
+  }
+
+  /** Writes a CommandComplete message with the given command tag. */
+  public static void writeCommandComplete(DataOutputStream output, String tag) throws IOException {
+    writeCommandComplete(output, tag, -1L);
+  }
+
+  /**
+   * Writes a CommandComplete message with the given command tag and row count. The tag for an
+   * INSERT command is written as INSERT oid rows, where oid is always 0. oid used to be the object
+   * ID of the inserted row if rows was 1 and the target table had OIDs, but OIDs system columns are
+   * not supported anymore. A negative row count is not included in the tag.
+   */
+  public static void writeCommandComplete(DataOutputStream output, String tag, long rows)
+      throws IOException {
+    if (logger.isLoggable(Level.FINE)) {
+      logger.log(
+          Level.FINE,
+          "< Sending Message: (C) Command Complete, with Payload: '{'Command: {0}, Rows: {1}'}'",
+          new Object[] {tag, rows});
+    }
+    boolean insert = rows >= 0L && "INSERT".equals(tag);
+    // Command tags are keywords, so they are always ASCII, except for tags that are copied from
+    // statements that PGAdapter does not recognize.
+    byte[] encodedTag = isAscii(tag) ? null : tag.getBytes(StandardCharsets.UTF_8);
+    int length =
+        COMMAND_COMPLETE_OVERHEAD + (encodedTag == null ? tag.length() : encodedTag.length);
+    if (rows >= 0L) {
+      length += (insert ? 3 : 1) + countDigits(rows);
+    }
+    output.writeByte('C');
+    output.writeInt(length);
+    if (encodedTag == null) {
+      output.writeBytes(tag);
+    } else {
+      output.write(encodedTag);
+    }
+    if (rows >= 0L) {
+      output.writeBytes(insert ? " 0 " : " ");
+      writeDigits(output, rows);
+    }
+    output.writeByte(0);
+  }
+
+  private static boolean isAscii(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int countDigits(long value) {
+    int digits = 1;
+    for (long limit = 10L; digits < 19 && value >= limit; limit *= 10L) {
+      digits++;
+    }
+    return digits;
+  }
+
+  /** Writes the given non-negative value as ASCII digits. */
+  private static void writeDigits(DataOutputStream output, long value) throws IOException {
+    long divisor = 1L;
+    for (int digits = countDigits(value); digits > 1; digits--) {
+      divisor *= 10L;
+    }
+    for (; divisor > 0L; divisor /= 10L) {
+      output.writeByte((int) ('0' + (value / divisor) % 10L));
+    }
+  }
+}
@@ -64,15 +64,26 @@ public abstract class WireOutput {
    * efficient for responses that contain multiple parts, such as query results.
    */
   public void send(boolean flush) throws Exception {
-    logger.log(Level.FINE, this::toString);
+    if (logger.isLoggable(Level.FINE)) {
+      logger.log(Level.FINE, toString());
+    }
+    writeMessage();
+    if (flush) {
+      this.outputStream.flush();
+    }
+  }
+
+  /**
+   * Writes the entire message, including the identifier and the length. The default implementation
+   * writes the identifier and the length, and then calls {@link #sendPayload()}. Override this
+   * method for messages that encode themselves directly into the output buffer of the connection.
+   */
+  protected void writeMessage() throws Exception {
     this.outputStream.writeByte(this.getIdentifier());
     if (this.isCompoundResponse()) {
       this.outputStream.writeInt(this.length);
     }
     sendPayload();
-    if (flush) {
-      this.outputStream.flush();
-    }
   }
 
   /**
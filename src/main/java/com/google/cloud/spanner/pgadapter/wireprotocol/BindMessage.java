@@ -19,7 +19,7 @@ import com.google.cloud.spanner.pgadapter.ConnectionHandler;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection;
 import com.google.cloud.spanner.pgadapter.statements.IntermediatePortalStatement;
 import com.google.cloud.spanner.pgadapter.statements.IntermediatePreparedStatement;
-import com.google.cloud.spanner.pgadapter.wireoutput.BindCompleteResponse;
+import com.google.cloud.spanner.pgadapter.wireoutput.ResponseWriter;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import java.text.MessageFormat;
@@ -106,7 +106,7 @@ public class BindMessage extends AbstractQueryProtocolMessage {
   public void flush() throws Exception {
     if (isExtendedProtocol()) {
       // The simple query protocol does not expect a BindComplete response.
-      new BindCompleteResponse(this.outputStream).send(false);
+      ResponseWriter.writeBindComplete(this.outputStream);
     }
   }
 
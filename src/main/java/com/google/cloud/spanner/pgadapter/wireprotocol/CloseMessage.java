@@ -17,7 +17,7 @@ package com.google.cloud.spanner.pgadapter.wireprotocol;
 import com.google.api.core.InternalApi;
 import com.google.cloud.spanner.pgadapter.ConnectionHandler;
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
-import com.google.cloud.spanner.pgadapter.wireoutput.CloseCompleteResponse;
+import com.google.cloud.spanner.pgadapter.wireoutput.ResponseWriter;
 import java.text.MessageFormat;
 
 /** Close the designated statement. */
@@ -50,7 +50,8 @@ public class CloseMessage extends ControlMessage {
     } else {
       this.connection.closeStatement(this.name);
     }
-    new CloseCompleteResponse(this.outputStream).send();
+    ResponseWriter.writeCloseComplete(this.outputStream);
+    this.outputStream.flush();
   }
 
   @Override
@@ -38,13 +38,17 @@ import com.google.cloud.spanner.pgadapter.error.SQLState;
 import com.google.cloud.spanner.pgadapter.error.Severity;
 import com.google.cloud.spanner.pgadapter.metadata.SendResultSetState;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection.PartitionQueryResult;
+import com.google.cloud.spanner.pgadapter.statements.ClientSideResultSet;
 import com.google.cloud.spanner.pgadapter.statements.CopyToStatement;
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
 import com.google.cloud.spanner.pgadapter.utils.Converter;
-import com.google.cloud.spanner.pgadapter.wireoutput.CommandCompleteResponse;
-import com.google.cloud.spanner.pgadapter.wireoutput.EmptyQueryResponse;
+import com.google.cloud.spanner.pgadapter.utils.FlushPolicy;
+import com.google.cloud.spanner.pgadapter.utils.PrefetchingResultSet;
+import com.google.cloud.spanner.pgadapter.utils.ResultPrefetcher;
+import com.google.cloud.spanner.pgadapter.utils.ThreadFactories;
 import com.google.cloud.spanner.pgadapter.wireoutput.ErrorResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.PortalSuspendedResponse;
+import com.google.cloud.spanner.pgadapter.wireoutput.ResponseWriter;
 import com.google.cloud.spanner.pgadapter.wireoutput.WireOutput;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
@@ -64,6 +68,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import org.threeten.bp.Duration;
 
 /**
@@ -88,8 +93,22 @@ public abstract class ControlMessage extends WireMessage {
   private final ManuallyCreatedToken manuallyCreatedToken;
 
   public ControlMessage(ConnectionHandler connection) throws IOException {
+    this(connection, true);
+  }
+
+  /**
+   * Creates a control message from the connection stream. The payload of the message is read into
+   * the {@link MessageFrame} of the connection if useFrame is true, and otherwise the payload is
+   * read directly from the connection stream by the message itself.
+   */
+  protected ControlMessage(ConnectionHandler connection, boolean useFrame) throws IOException {
     super(connection, connection.getConnectionMetadata().getInputStream().readInt());
     this.manuallyCreatedToken = null;
+    MessageFrame messageFrame = connection.getConnectionMetadata().getMessageFrame();
+    if (useFrame && messageFrame != null) {
+      this.inputStream = messageFrame.fill(this.inputStream, this.length - 4);
+      this.frame = messageFrame;
+    }
   }
 
   /** Constructor for manually created Control messages. */
@@ -249,7 +268,7 @@ public abstract class ControlMessage extends WireMessage {
       throws Exception {
     String command = statement.getCommandTag();
     if (Strings.isNullOrEmpty(command)) {
-      new EmptyQueryResponse(this.outputStream).send(false);
+      ResponseWriter.writeEmptyQuery(this.outputStream);
       return;
     }
     if (statement.getStatementResult() == null) {
@@ -258,11 +277,11 @@ public abstract class ControlMessage extends WireMessage {
     switch (statement.getStatementType()) {
       case DDL:
       case UNKNOWN:
-        new CommandCompleteResponse(this.outputStream, command).send(false);
+        ResponseWriter.writeCommandComplete(this.outputStream, command);
         break;
       case CLIENT_SIDE:
         if (statement.getStatementResult().getResultType() != ResultType.RESULT_SET) {
-          new CommandCompleteResponse(this.outputStream, command).send(false);
+          ResponseWriter.writeCommandComplete(this.outputStream, command);
           break;
         }
         // fallthrough to QUERY
@@ -275,16 +294,14 @@ public abstract class ControlMessage extends WireMessage {
             new PortalSuspendedResponse(this.outputStream).send(false);
           } else {
             statement.close();
-            new CommandCompleteResponse(this.outputStream, state.getCommandAndNumRows())
-                .send(false);
+            ResponseWriter.writeCommandComplete(
+                this.outputStream, state.getCommandTag(), state.getNumberOfRowsSent());
           }
         } else {
           // For an INSERT command, the tag is INSERT oid rows, where rows is the number of rows
-          // inserted. oid used to be the object ID of the inserted row if rows was 1 and the target
-          // table had OIDs, but OIDs system columns are not supported anymore; therefore oid is
-          // always 0.
-          command += ("INSERT".equals(command) ? " 0 " : " ") + statement.getUpdateCount();
-          new CommandCompleteResponse(this.outputStream, command).send(false);
+          // inserted. oid is always 0, see ResponseWriter#writeCommandComplete.
+          ResponseWriter.writeCommandComplete(
+              this.outputStream, command, statement.getUpdateCount());
         }
         break;
       default:
@@ -355,7 +372,10 @@ public abstract class ControlMessage extends WireMessage {
     ListeningExecutorService executorService =
         MoreExecutors.listeningDecorator(
             Executors.newFixedThreadPool(
-                Math.min(8 * Runtime.getRuntime().availableProcessors(), partitions.size())));
+                Math.min(8 * Runtime.getRuntime().availableProcessors(), partitions.size()),
+                ThreadFactories.create(
+                    "spanner-postgres-adapter-partition-reader-",
+                    connection.getServer().getOptions().useVirtualThreads())));
     List<ListenableFuture<Long>> futures = new ArrayList<>(partitions.size());
     Connection spannerConnection = connection.getSpannerConnection();
     Spanner spanner = ConnectionOptionsHelper.getSpanner(spannerConnection);
@@ -420,6 +440,10 @@ public abstract class ControlMessage extends WireMessage {
     private final QueryMode mode;
     private final CountDownLatch binaryCopyHeaderSentLatch;
     private boolean hasData;
+    /** Flushes the output once after the first rows, or null if the output is not flushed early. */
+    @Nullable private final FlushPolicy flushPolicy;
+    /** Reads the rows ahead on a background thread, or null if the rows are not prefetched. */
+    @Nullable private final ResultPrefetcher resultPrefetcher;
 
     static SendResultSetRunnable forResultSet(
         IntermediateStatement describedResult,
@@ -464,6 +488,11 @@ public abstract class ControlMessage extends WireMessage {
       this.mode = mode;
       this.binaryCopyHeaderSentLatch = new CountDownLatch(0);
       this.hasData = hasData;
+      this.flushPolicy = getEarlyFlushPolicy(describedResult);
+      this.resultPrefetcher =
+          resultSet instanceof ClientSideResultSet
+              ? null
+              : describedResult.getConnectionHandler().getServer().getResultPrefetcher();
     }
 
     private SendResultSetRunnable(
@@ -480,10 +509,21 @@ public abstract class ControlMessage extends WireMessage {
       this.mode = mode;
       this.binaryCopyHeaderSentLatch = binaryCopyHeaderSentLatch;
       this.hasData = false;
+      this.flushPolicy = getEarlyFlushPolicy(describedResult);
+      this.resultPrefetcher =
+          describedResult.getConnectionHandler().getServer().getResultPrefetcher();
+    }
+
+    @Nullable
+    private static FlushPolicy getEarlyFlushPolicy(IntermediateStatement describedResult) {
+      FlushPolicy flushPolicy =
+          describedResult.getConnectionHandler().getServer().getFlushPolicy();
+      return flushPolicy != null && flushPolicy.isEarlyFlushEnabled() ? flushPolicy : null;
     }
 
     @Override
     public Long call() throws Exception {
+      PrefetchingResultSet prefetchingResultSet = null;
       try {
         if (resultSet == null && batchReadOnlyTransaction != null && partition != null) {
           // Note: It is OK not to close this result set, as the underlying transaction and session
@@ -498,7 +538,23 @@ public abstract class ControlMessage extends WireMessage {
                   resultSet,
                   false);
         }
+        if (hasData && maxRows == 0L && resultPrefetcher != null) {
+          // Read the next rows from Cloud Spanner while the current rows are encoded and sent to
+          // the client. Results that are fetched in multiple steps are not prefetched, as the
+          // underlying result set must stay positioned on the last row that was sent.
+          prefetchingResultSet = resultPrefetcher.prefetch(resultSet);
+          resultSet = prefetchingResultSet;
+          converter =
+              new Converter(
+                  describedResult,
+                  mode,
+                  describedResult.getConnectionHandler().getServer().getOptions(),
+                  resultSet,
+                  converter.isIncludeBinaryCopyHeaderInFirstRow());
+        }
         long rows = 0L;
+        long startNanos = System.nanoTime();
+        boolean flushed = flushPolicy == null;
         while (hasData) {
           WireOutput wireOutput = describedResult.createDataRowResponse(converter);
           if (!converter.isIncludeBinaryCopyHeaderInFirstRow()) {
@@ -520,9 +576,25 @@ public abstract class ControlMessage extends WireMessage {
           if (rows == maxRows) {
             break;
           }
+          if (!flushed && hasData && flushPolicy.shouldFlushEarly(rows, startNanos)) {
+            // Send the first rows of a large result to the client, instead of waiting until the
+            // output buffer is full.
+            flushed = true;
+            synchronized (describedResult) {
+              describedResult
+                  .getConnectionHandler()
+                  .getConnectionMetadata()
+                  .getOutputStream()
+                  .flush();
+            }
+            flushPolicy.recordEarlyFlush();
+          }
         }
         return rows;
       } finally {
+        if (prefetchingResultSet != null) {
+          prefetchingResultSet.close();
+        }
         if (converter != null) {
           converter.close();
         }
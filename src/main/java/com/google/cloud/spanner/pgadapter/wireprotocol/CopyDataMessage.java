@@ -36,7 +36,9 @@ public class CopyDataMessage extends ControlMessage {
   private final CopyStatement statement;
 
   public CopyDataMessage(ConnectionHandler connection) throws Exception {
-    super(connection);
+    // The payload is handed over to the COPY operation, so it is read directly into a separate
+    // array instead of into the shared message frame of the connection.
+    super(connection, false);
     // Payload byte array excluding 4 bytes containing the length of message itself
     int dataLength = this.length - 4;
     this.payload = new byte[dataLength];
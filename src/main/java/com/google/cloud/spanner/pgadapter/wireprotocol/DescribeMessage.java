@@ -22,8 +22,8 @@ import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.metadata.DescribeResult;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection;
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
-import com.google.cloud.spanner.pgadapter.wireoutput.NoDataResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.ParameterDescriptionResponse;
+import com.google.cloud.spanner.pgadapter.wireoutput.ResponseWriter;
 import com.google.cloud.spanner.pgadapter.wireoutput.RowDescriptionResponse;
 import com.google.common.annotations.VisibleForTesting;
 import java.text.MessageFormat;
@@ -159,7 +159,7 @@ public class DescribeMessage extends AbstractQueryProtocolMessage {
         // The simple query protocol does not expect a NoData response in case of a non-query
         // statement.
         if (isExtendedProtocol()) {
-          new NoDataResponse(this.outputStream).send(false);
+          ResponseWriter.writeNoData(this.outputStream);
         }
       }
     }
@@ -200,7 +200,7 @@ public class DescribeMessage extends AbstractQueryProtocolMessage {
                   this.queryMode)
               .send(false);
         } else {
-          new NoDataResponse(this.outputStream).send(false);
+          ResponseWriter.writeNoData(this.outputStream);
         }
       }
     }
@@ -0,0 +1,129 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireprotocol;
+
+import com.google.api.core.InternalApi;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable in-memory buffer for the payload of a single incoming wire-protocol message. Each
+ * connection has one {@link MessageFrame}. A message reads its entire payload from the connection
+ * into the frame in one go using the length prefix of the message, and then decodes its fields from
+ * the frame. This replaces the many small reads from the connection stream, and allows strings to
+ * be decoded directly from the buffer.
+ *
+ * <p>The contents of the frame are overwritten by the next message, so messages must decode all
+ * their fields in their constructor. The buffer is only shrunk if a message that was larger than
+ * {@link #MAX_RETAINED_SIZE} is followed by a smaller message.
+ */
+@InternalApi
+public final class MessageFrame extends InputStream {
+  static final int INITIAL_SIZE = 1 << 10;
+  static final int MAX_RETAINED_SIZE = 1 << 16;
+
+  private final DataInputStream dataInputStream = new DataInputStream(this);
+  private byte[] buffer = new byte[INITIAL_SIZE];
+  private int position;
+  private int limit;
+
+  /**
+   * Reads exactly length bytes from the given source into this frame, and returns a {@link
+   * DataInputStream} that reads from the frame.
+   */
+  public DataInputStream fill(DataInputStream source, int length) throws IOException {
+    if (length > buffer.length) {
+      buffer = new byte[Math.max(length, Math.min(buffer.length * 2, MAX_RETAINED_SIZE))];
+    } else if (buffer.length > MAX_RETAINED_SIZE && length <= MAX_RETAINED_SIZE) {
+      buffer = new byte[Math.max(length, INITIAL_SIZE)];
+    }
+    source.readFully(buffer, 0, length);
+    this.position = 0;
+    this.limit = length;
+    return dataInputStream;
+  }
+
+  @Override
+  public int read() {
+    if (position == limit) {
+      return -1;
+    }
+    return buffer[position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+    if (position == limit) {
+      return -1;
+    }
+    int result = Math.min(len, limit - position);
+    System.arraycopy(buffer, position, b, off, result);
+    position += result;
+    return result;
+  }
+
+  @Override
+  public long skip(long n) {
+    int result = (int) Math.max(0L, Math.min(n, limit - position));
+    position += result;
+    return result;
+  }
+
+  @Override
+  public int available() {
+    return limit - position;
+  }
+
+  /**
+   * Reads a null-terminated string from the frame. The string is decoded directly from the buffer.
+   *
+   * @throws EOFException if no null-terminator is found before the end of the message.
+   */
+  public String readNullTerminatedString() throws EOFException {
+    for (int index = position; index < limit; index++) {
+      if (buffer[index] == 0) {
+        String result = new String(buffer, position, index - position, StandardCharsets.UTF_8);
+        position = index + 1;
+        return result;
+      }
+    }
+    throw new EOFException("String was not null-terminated before the end of the message");
+  }
+
+  /**
+   * Reads a null-terminated string with a known length from the frame. The length includes the
+   * null-terminator.
+   *
+   * @throws IOException if the string is not null-terminated, or if the string is longer than the
+   *     remaining part of the message.
+   */
+  public String readString(int length) throws IOException {
+    if (length < 1 || length > limit - position) {
+      throw new EOFException("String is longer than the remaining part of the message");
+    }
+    if (buffer[position + length - 1] != 0) {
+      throw new IOException("String was not null-terminated");
+    }
+    String result = new String(buffer, position, length - 1, StandardCharsets.UTF_8);
+    position += length;
+    return result;
+  }
+}
@@ -14,45 +14,34 @@
 
 package com.google.cloud.spanner.pgadapter.wireprotocol;
 
-import static com.google.cloud.spanner.pgadapter.statements.SimpleParser.isCommand;
-import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.COPY;
-import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.DEALLOCATE;
-import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.EXECUTE;
-import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.PREPARE;
-import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.RELEASE;
-import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.ROLLBACK;
-import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.SAVEPOINT;
-import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.TRUNCATE;
-import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.VACUUM;
-
 import com.google.api.core.InternalApi;
-import com.google.cloud.spanner.Dialect;
 import com.google.cloud.spanner.Statement;
-import com.google.cloud.spanner.connection.AbstractStatementParser;
 import com.google.cloud.spanner.connection.AbstractStatementParser.ParsedStatement;
-import com.google.cloud.spanner.connection.AbstractStatementParser.StatementType;
 import com.google.cloud.spanner.pgadapter.ConnectionHandler;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement;
 import com.google.cloud.spanner.pgadapter.statements.DeallocateStatement;
 import com.google.cloud.spanner.pgadapter.statements.ExecuteStatement;
 import com.google.cloud.spanner.pgadapter.statements.IntermediatePreparedStatement;
 import com.google.cloud.spanner.pgadapter.statements.InvalidStatement;
+import com.google.cloud.spanner.pgadapter.statements.ParsedStatementCache;
+import com.google.cloud.spanner.pgadapter.statements.ParsedStatementCache.CachedStatement;
+import com.google.cloud.spanner.pgadapter.statements.ParsedStatementCache.StatementKind;
 import com.google.cloud.spanner.pgadapter.statements.PrepareStatement;
 import com.google.cloud.spanner.pgadapter.statements.ReleaseStatement;
 import com.google.cloud.spanner.pgadapter.statements.RollbackToStatement;
 import com.google.cloud.spanner.pgadapter.statements.SavepointStatement;
 import com.google.cloud.spanner.pgadapter.statements.TruncateStatement;
 import com.google.cloud.spanner.pgadapter.statements.VacuumStatement;
-import com.google.cloud.spanner.pgadapter.wireoutput.ParseCompleteResponse;
+import com.google.cloud.spanner.pgadapter.wireoutput.ResponseWriter;
 import com.google.common.base.Strings;
 import java.text.MessageFormat;
+import javax.annotation.Nullable;
 
 /** Creates a prepared statement. */
 @InternalApi
 public class ParseMessage extends AbstractQueryProtocolMessage {
-  private static final AbstractStatementParser PARSER =
-      AbstractStatementParser.getInstance(Dialect.POSTGRESQL);
   protected static final char IDENTIFIER = 'P';
 
   private final String name;
@@ -63,14 +52,23 @@ public class ParseMessage extends AbstractQueryProtocolMessage {
     super(connection);
     this.name = this.readString();
     Statement originalStatement = Statement.of(this.readString());
-    ParsedStatement parsedStatement = PARSER.parse(originalStatement);
+    CachedStatement cachedStatement =
+        ParsedStatementCache.parse(
+            connection, connection.getServer().getOptions(), originalStatement.getSql());
     short numberOfParameters = this.inputStream.readShort();
     this.parameterDataTypes = new int[numberOfParameters];
     for (int i = 0; i < numberOfParameters; i++) {
       parameterDataTypes[i] = this.inputStream.readInt();
     }
     this.statement =
-        createStatement(connection, name, parsedStatement, originalStatement, parameterDataTypes);
+        createStatement(
+            connection,
+            name,
+            cachedStatement.getKind(),
+            cachedStatement.getOriginalParsedStatement(),
+            cachedStatement,
+            originalStatement,
+            parameterDataTypes);
     connection.maybeDetermineWellKnownClient(this);
   }
 
@@ -82,6 +80,29 @@ public class ParseMessage extends AbstractQueryProtocolMessage {
     this(connection, "", new int[0], parsedStatement, originalStatement);
   }
 
+  /**
+   * Constructor for manually created Parse messages that originate from the simple query protocol
+   * for a statement that was taken from the {@link ParsedStatementCache}.
+   */
+  public ParseMessage(
+      ConnectionHandler connection, CachedStatement cachedStatement, Statement originalStatement) {
+    super(
+        connection,
+        5 + cachedStatement.getOriginalParsedStatement().getSqlWithoutComments().length(),
+        ManuallyCreatedToken.MANUALLY_CREATED_TOKEN);
+    this.name = "";
+    this.parameterDataTypes = new int[0];
+    this.statement =
+        createStatement(
+            connection,
+            name,
+            cachedStatement.getKind(),
+            cachedStatement.getOriginalParsedStatement(),
+            cachedStatement,
+            originalStatement,
+            parameterDataTypes);
+  }
+
   /** Constructor for manually created Parse messages that originate from a PREPARE statement. */
   public ParseMessage(
       ConnectionHandler connection,
@@ -105,90 +126,76 @@ public class ParseMessage extends AbstractQueryProtocolMessage {
       ParsedStatement parsedStatement,
       Statement originalStatement,
       int[] parameterDataTypes) {
+    return createStatement(
+        connectionHandler,
+        name,
+        ParsedStatementCache.classify(originalStatement.getSql(), parsedStatement),
+        parsedStatement,
+        null,
+        originalStatement,
+        parameterDataTypes);
+  }
+
+  static IntermediatePreparedStatement createStatement(
+      ConnectionHandler connectionHandler,
+      String name,
+      StatementKind kind,
+      ParsedStatement parsedStatement,
+      @Nullable CachedStatement cachedStatement,
+      Statement originalStatement,
+      int[] parameterDataTypes) {
+    OptionsMetadata options = connectionHandler.getServer().getOptions();
     try {
-      if (isCommand(COPY, originalStatement.getSql())) {
-        return CopyStatement.create(
-            connectionHandler,
-            connectionHandler.getServer().getOptions(),
-            name,
-            parsedStatement,
-            originalStatement);
-      } else if (isCommand(PREPARE, originalStatement.getSql())) {
-        return new PrepareStatement(
-            connectionHandler,
-            connectionHandler.getServer().getOptions(),
-            name,
-            parsedStatement,
-            originalStatement);
-      } else if (isCommand(EXECUTE, originalStatement.getSql())) {
-        return new ExecuteStatement(
-            connectionHandler,
-            connectionHandler.getServer().getOptions(),
-            name,
-            parsedStatement,
-            originalStatement);
-      } else if (isCommand(DEALLOCATE, originalStatement.getSql())) {
-        return new DeallocateStatement(
-            connectionHandler,
-            connectionHandler.getServer().getOptions(),
-            name,
-            parsedStatement,
-            originalStatement);
-      } else if (isCommand(VACUUM, originalStatement.getSql())) {
-        return new VacuumStatement(
-            connectionHandler,
-            connectionHandler.getServer().getOptions(),
-            name,
-            parsedStatement,
-            originalStatement);
-      } else if (isCommand(TRUNCATE, originalStatement.getSql())) {
-        return new TruncateStatement(
-            connectionHandler,
-            connectionHandler.getServer().getOptions(),
-            name,
-            parsedStatement,
-            originalStatement);
-      } else if (isCommand(SAVEPOINT, originalStatement.getSql())) {
-        return new SavepointStatement(
-            connectionHandler,
-            connectionHandler.getServer().getOptions(),
-            name,
-            parsedStatement,
-            originalStatement);
-      } else if (isCommand(RELEASE, originalStatement.getSql())) {
-        return new ReleaseStatement(
-            connectionHandler,
-            connectionHandler.getServer().getOptions(),
-            name,
-            parsedStatement,
-            originalStatement);
-      } else if (isCommand(ROLLBACK, originalStatement.getSql())
-          && parsedStatement.getType() == StatementType.UNKNOWN) {
-        // ROLLBACK [WORK | TRANSACTION] TO [SAVEPOINT] savepoint_name is not recognized by the
-        // Connection API as any known statement.
-        return new RollbackToStatement(
-            connectionHandler,
-            connectionHandler.getServer().getOptions(),
-            name,
-            parsedStatement,
-            originalStatement);
-      } else {
-        return new IntermediatePreparedStatement(
-            connectionHandler,
-            connectionHandler.getServer().getOptions(),
-            name,
-            parameterDataTypes,
-            parsedStatement,
-            originalStatement);
+      switch (kind) {
+        case COPY:
+          return CopyStatement.create(
+              connectionHandler, options, name, parsedStatement, originalStatement);
+        case PREPARE:
+          return new PrepareStatement(
+              connectionHandler, options, name, parsedStatement, originalStatement);
+        case EXECUTE:
+          return new ExecuteStatement(
+              connectionHandler, options, name, parsedStatement, originalStatement);
+        case DEALLOCATE:
+          return new DeallocateStatement(
+              connectionHandler, options, name, parsedStatement, originalStatement);
+        case VACUUM:
+          return new VacuumStatement(
+              connectionHandler, options, name, parsedStatement, originalStatement);
+        case TRUNCATE:
+          return new TruncateStatement(
+              connectionHandler, options, name, parsedStatement, originalStatement);
+        case SAVEPOINT:
+          return new SavepointStatement(
+              connectionHandler, options, name, parsedStatement, originalStatement);
+        case RELEASE:
+          return new ReleaseStatement(
+              connectionHandler, options, name, parsedStatement, originalStatement);
+        case ROLLBACK_TO:
+          return new RollbackToStatement(
+              connectionHandler, options, name, parsedStatement, originalStatement);
+        case OTHER:
+        default:
+          if (cachedStatement != null) {
+            return new IntermediatePreparedStatement(
+                connectionHandler,
+                options,
+                name,
+                parameterDataTypes,
+                cachedStatement,
+                originalStatement);
+          }
+          return new IntermediatePreparedStatement(
+              connectionHandler,
+              options,
+              name,
+              parameterDataTypes,
+              parsedStatement,
+              originalStatement);
       }
     } catch (Exception exception) {
       return new InvalidStatement(
-          connectionHandler,
-          connectionHandler.getServer().getOptions(),
-          name,
-          parsedStatement,
-          originalStatement,
-          exception);
+          connectionHandler, options, name, parsedStatement, originalStatement, exception);
     }
   }
 
@@ -206,7 +213,7 @@ public class ParseMessage extends AbstractQueryProtocolMessage {
       handleError(statement.getException());
     } else if (isExtendedProtocol()) {
       // The simple query protocol does not need the ParseComplete response.
-      new ParseCompleteResponse(this.outputStream).send(false);
+      ResponseWriter.writeParseComplete(this.outputStream);
     }
   }
 
@@ -40,7 +40,7 @@ public class SkipMessage extends ControlMessage {
 
   private SkipMessage(ConnectionHandler connectionHandler, boolean streamIsPotentiallyInvalid)
       throws IOException {
-    super(connectionHandler);
+    super(connectionHandler, false);
     int skipLength = this.length - 4;
     int skipped = 0;
     // Read and skip bytes until we have reached the total message length.
@@ -16,7 +16,7 @@ package com.google.cloud.spanner.pgadapter.wireprotocol;
 
 import com.google.api.core.InternalApi;
 import com.google.cloud.spanner.pgadapter.ConnectionHandler;
-import com.google.cloud.spanner.pgadapter.wireoutput.ReadyResponse;
+import com.google.cloud.spanner.pgadapter.wireoutput.ResponseWriter;
 import java.text.MessageFormat;
 
 /**
@@ -39,14 +39,14 @@ public class SyncMessage extends ControlMessage {
   @Override
   protected void sendPayload() throws Exception {
     connection.getExtendedQueryProtocolHandler().sync();
-    new ReadyResponse(
-            this.outputStream,
-            connection
-                .getExtendedQueryProtocolHandler()
-                .getBackendConnection()
-                .getConnectionState()
-                .getReadyResponseStatus())
-        .send();
+    ResponseWriter.writeReady(
+        this.outputStream,
+        connection
+            .getExtendedQueryProtocolHandler()
+            .getBackendConnection()
+            .getConnectionState()
+            .getReadyResponseStatus());
+    connection.flushAfterSync();
   }
 
   @Override
@@ -25,6 +25,7 @@ import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 /** Generic representation for a wire message, generally executed by calling send. */
 @InternalApi
@@ -34,6 +35,12 @@ public abstract class WireMessage {
 
   protected int length;
   protected DataInputStream inputStream;
+  /**
+   * The frame that contains the payload of this message, or null if the payload is read directly
+   * from the connection.
+   */
+  @Nullable protected MessageFrame frame;
+
   protected DataOutputStream outputStream;
   protected ConnectionHandler connection;
 
@@ -138,6 +145,9 @@ public abstract class WireMessage {
    *     is found at the end of the string.
    */
   public String read(int length) throws IOException {
+    if (this.frame != null) {
+      return this.frame.readString(length);
+    }
     byte[] buffer = new byte[length - 1];
     this.inputStream.readFully(buffer);
     byte zero = inputStream.readByte();
@@ -158,6 +168,9 @@ public abstract class WireMessage {
    *     is found before the end of the stream.
    */
   public String readString() throws IOException {
+    if (this.frame != null) {
+      return this.frame.readNullTerminatedString();
+    }
     byte[] buffer = new byte[128];
     int index = 0;
     while (true) {
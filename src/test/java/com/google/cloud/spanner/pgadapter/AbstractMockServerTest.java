@@ -922,6 +922,16 @@ public abstract class AbstractMockServerTest {
       String defaultDatabase,
       Iterable<String> extraPGAdapterOptions)
       throws Exception {
+    doStartMockSpannerAndPgAdapterServers(
+        mockSpannerService, defaultDatabase, extraPGAdapterOptions, Collections.emptyList());
+  }
+
+  protected static void doStartMockSpannerAndPgAdapterServers(
+      MockSpannerServiceImpl mockSpannerService,
+      String defaultDatabase,
+      Iterable<String> extraPGAdapterOptions,
+      Iterable<ServerInterceptor> extraSpannerInterceptors)
+      throws Exception {
     mockSpanner = mockSpannerService;
     mockSpanner.setAbortProbability(0.0D); // We don't want any unpredictable aborted transactions.
     mockSpanner.putStatementResult(
@@ -949,7 +959,7 @@ public abstract class AbstractMockServerTest {
     mockInstanceAdmin = new MockInstanceAdminImpl();
 
     InetSocketAddress address = new InetSocketAddress("localhost", 0);
-    spannerServer =
+    NettyServerBuilder spannerServerBuilder =
         NettyServerBuilder.forAddress(address)
             .addService(mockSpanner)
             .addService(mockDatabaseAdmin)
@@ -975,9 +985,11 @@ public abstract class AbstractMockServerTest {
                     return Contexts.interceptCall(
                         Context.current(), serverCall, metadata, serverCallHandler);
                   }
-                })
-            .build()
-            .start();
+                });
+    for (ServerInterceptor interceptor : extraSpannerInterceptors) {
+      spannerServerBuilder.intercept(interceptor);
+    }
+    spannerServer = spannerServerBuilder.build().start();
 
     ImmutableList.Builder<String> argsListBuilder =
         ImmutableList.<String>builder().add("-p", "p", "-i", "i");
@@ -1071,6 +1083,9 @@ public abstract class AbstractMockServerTest {
     mockInstanceAdmin.reset();
     if (pgServer != null) {
       pgServer.clearDebugMessages();
+      if (pgServer.getDescribeResultCache() != null) {
+        pgServer.getDescribeResultCache().invalidateAll();
+      }
     }
   }
 
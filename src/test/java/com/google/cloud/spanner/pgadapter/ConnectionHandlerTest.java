@@ -339,26 +339,26 @@ public class ConnectionHandlerTest {
   }
 
   @Test
-  public void testRestartConnectionWithSsl_CreatesSslSocket() {
+  public void testRestartConnectionWithSsl_StartsSsl() {
     ProxyServer server = mock(ProxyServer.class);
     Socket socket = mock(Socket.class);
     InetAddress address = mock(InetAddress.class);
     when(socket.getInetAddress()).thenReturn(address);
-    AtomicBoolean calledCreateSSLSocket = new AtomicBoolean();
+    AtomicBoolean calledStartSsl = new AtomicBoolean();
     ConnectionHandler connection =
         new ConnectionHandler(server, socket) {
           @Override
-          void createSSLSocket() {
-            calledCreateSSLSocket.set(true);
+          void startSsl() {
+            calledStartSsl.set(true);
           }
         };
     connection.restartConnectionWithSsl();
 
-    assertTrue(calledCreateSSLSocket.get());
+    assertTrue(calledStartSsl.get());
   }
 
   @Test
-  public void testRestartConnectionWithSsl_SslSocketCreationFailureIsConvertedToPGException() {
+  public void testRestartConnectionWithSsl_SslStartFailureIsConvertedToPGException() {
     ProxyServer server = mock(ProxyServer.class);
     Socket socket = mock(Socket.class);
     InetAddress address = mock(InetAddress.class);
@@ -366,17 +366,17 @@ public class ConnectionHandlerTest {
     ConnectionHandler connection =
         new ConnectionHandler(server, socket) {
           @Override
-          void createSSLSocket() throws IOException {
+          void startSsl() throws IOException {
             throw new IOException();
           }
         };
     PGException exception = assertThrows(PGException.class, connection::restartConnectionWithSsl);
-    assertEquals("Failed to create SSL socket: java.io.IOException", exception.getMessage());
+    assertEquals("Failed to start SSL: java.io.IOException", exception.getMessage());
   }
 
   @Test
   public void
-      testRestartConnectionWithSsl_SslSocketCreationFailureIsConvertedToPGExceptionWithMessage() {
+      testRestartConnectionWithSsl_SslStartFailureIsConvertedToPGExceptionWithMessage() {
     ProxyServer server = mock(ProxyServer.class);
     Socket socket = mock(Socket.class);
     InetAddress address = mock(InetAddress.class);
@@ -384,12 +384,12 @@ public class ConnectionHandlerTest {
     ConnectionHandler connection =
         new ConnectionHandler(server, socket) {
           @Override
-          void createSSLSocket() throws IOException {
+          void startSsl() throws IOException {
             throw new IOException("test error");
           }
         };
     PGException exception = assertThrows(PGException.class, connection::restartConnectionWithSsl);
-    assertEquals("Failed to create SSL socket: test error", exception.getMessage());
+    assertEquals("Failed to start SSL: test error", exception.getMessage());
   }
 
   @Test
@@ -402,7 +402,7 @@ public class ConnectionHandlerTest {
     ConnectionHandler connection =
         new ConnectionHandler(server, socket) {
           @Override
-          void createSSLSocket() throws IOException {
+          void startSsl() throws IOException {
             throw new IOException("test exception");
           }
 
@@ -426,7 +426,7 @@ public class ConnectionHandlerTest {
     ConnectionHandler connection =
         new ConnectionHandler(server, socket) {
           @Override
-          void createSSLSocket() throws IOException {
+          void startSsl() throws IOException {
             throw new IOException("test exception");
           }
 
@@ -0,0 +1,137 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static com.google.cloud.spanner.pgadapter.CopyInMockServerTest.setupCopyInformationSchemaResults;
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.base.Stopwatch;
+import com.google.spanner.v1.CommitRequest;
+import com.google.spanner.v1.Mutation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+/** Tests COPY FROM STDIN with large amounts of data. */
+@RunWith(JUnit4.class)
+public class CopyInThroughputMockServerTest extends AbstractMockServerTest {
+
+  @BeforeClass
+  public static void loadPgJdbcDriver() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+  }
+
+  private static String createUrl() {
+    return String.format("jdbc:postgresql://localhost:%d/", pgServer.getLocalPort());
+  }
+
+  private static byte[] createCopyData(int numRows) {
+    StringBuilder builder = new StringBuilder(numRows * 32);
+    for (int i = 0; i < numRows; i++) {
+      builder.append(i).append('\t').append(i % 100).append("\tname ").append(i).append('\n');
+    }
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static long countInsertedRows() {
+    long rows = 0L;
+    for (CommitRequest request : mockSpanner.getRequestsOfType(CommitRequest.class)) {
+      for (Mutation mutation : request.getMutationsList()) {
+        rows += mutation.getInsert().getValuesCount();
+      }
+    }
+    return rows;
+  }
+
+  @Test
+  public void testCopyInWithSmallBuffer() throws SQLException {
+    setupCopyInformationSchemaResults(mockSpanner, "public", "all_types", true);
+    int numRows = 20_000;
+    byte[] data = createCopyData(numRows);
+
+    // Use the smallest possible buffer, so the connection regularly has to wait for the COPY data
+    // to be parsed. The buffer size is read when the connection is created.
+    System.setProperty("copy_in_pipe_buffer_size", "1024");
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection
+          .createStatement()
+          .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+      CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+      CopyIn copyIn = copyManager.copyIn("COPY users FROM STDIN");
+      // Send the data in messages of different sizes, including messages that are larger than the
+      // buffer.
+      int offset = 0;
+      int size = 1;
+      while (offset < data.length) {
+        int length = Math.min(size, data.length - offset);
+        copyIn.writeToCopy(data, offset, length);
+        offset += length;
+        size = size > 4096 ? 1 : size * 3;
+      }
+      assertEquals(numRows, copyIn.endCopy());
+    } finally {
+      System.clearProperty("copy_in_pipe_buffer_size");
+    }
+    assertEquals(numRows, countInsertedRows());
+  }
+
+  @Ignore("Only used for manual performance testing")
+  @Test
+  public void testCopyInThroughput() throws SQLException, IOException {
+    setupCopyInformationSchemaResults(mockSpanner, "public", "all_types", true);
+    int numRows = 2_000_000;
+    int numRuns = 5;
+    byte[] data = createCopyData(numRows);
+
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection
+          .createStatement()
+          .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+      CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+      // Warm up.
+      copyManager.copyIn("COPY users FROM STDIN", new ByteArrayInputStream(data), 1 << 16);
+      for (int bufferSize : new int[] {1 << 13, 1 << 16}) {
+        Stopwatch watch = Stopwatch.createStarted();
+        for (int run = 0; run < numRuns; run++) {
+          assertEquals(
+              numRows,
+              copyManager.copyIn(
+                  "COPY users FROM STDIN", new ByteArrayInputStream(data), bufferSize));
+        }
+        long millis = Math.max(watch.elapsed(TimeUnit.MILLISECONDS) / numRuns, 1L);
+        System.out.printf(
+            "Message size: %d, avg elapsed: %dms, throughput: %.1f MB/s, %d rows/s\n",
+            bufferSize,
+            millis,
+            data.length / 1000d / millis,
+            numRows * 1000L / millis);
+        mockSpanner.clearRequests();
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.Date;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.common.collect.ImmutableList;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.ExecuteSqlRequest.QueryMode;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.Type;
+import com.google.spanner.v1.TypeCode;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.postgresql.jdbc.PgStatement;
+
+/** Tests sharing the results of auto-described statements between connections. */
+@RunWith(JUnit4.class)
+public class DescribeCacheMockServerTest extends AbstractMockServerTest {
+  private static final String JDBC_SQL = "select col_date from all_types where col_date=?";
+  private static final String PG_SQL = "select col_date from all_types where col_date=$1";
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+    doStartMockSpannerAndPgAdapterServers("d", ImmutableList.of("-describe_cache"));
+
+    ResultSetMetadata metadata =
+        ALL_TYPES_METADATA
+            .toBuilder()
+            .setUndeclaredParameters(
+                StructType.newBuilder()
+                    .addFields(
+                        Field.newBuilder()
+                            .setName("p1")
+                            .setType(Type.newBuilder().setCode(TypeCode.DATE).build())
+                            .build())
+                    .build())
+            .build();
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of(PG_SQL), ALL_TYPES_RESULTSET.toBuilder().setMetadata(metadata).build()));
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(PG_SQL).bind("p1").to(Date.parseDate("2022-03-29")).build(),
+            ALL_TYPES_RESULTSET));
+  }
+
+  private static String createUrl() {
+    return String.format("jdbc:postgresql://localhost:%d/", pgServer.getLocalPort());
+  }
+
+  /** Executes the test query with an unnamed statement, so it is auto-described by PGAdapter. */
+  private static void executeQuery(Connection connection) throws SQLException {
+    try (PreparedStatement preparedStatement = connection.prepareStatement(JDBC_SQL)) {
+      preparedStatement.unwrap(PgStatement.class).setPrepareThreshold(0);
+      preparedStatement.setDate(1, new java.sql.Date(2022 - 1900, Calendar.MARCH, 29));
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        assertTrue(resultSet.next());
+        assertFalse(resultSet.next());
+      }
+    }
+  }
+
+  @Test
+  public void testAutoDescribedStatementsAreSharedBetweenConnections() throws SQLException {
+    addDdlResponseToSpannerAdmin();
+    long savedRoundTrips = pgServer.getDescribeResultCache().getSavedRoundTrips();
+
+    // The second connection should reuse the result of the first connection. The third connection
+    // must describe the statement again, as the schema was changed by the second connection.
+    for (int attempt : new int[] {1, 2, 3}) {
+      try (Connection connection = DriverManager.getConnection(createUrl())) {
+        executeQuery(connection);
+        List<ExecuteSqlRequest> requests = mockSpanner.getRequestsOfType(ExecuteSqlRequest.class);
+        assertEquals(attempt == 2 ? 1 : 2, requests.size());
+        assertEquals(QueryMode.NORMAL, requests.get(requests.size() - 1).getQueryMode());
+
+        if (attempt == 2) {
+          connection.createStatement().execute("create table foo (id bigint primary key)");
+        }
+        mockSpanner.clearRequests();
+      }
+    }
+    assertEquals(savedRoundTrips + 1L, pgServer.getDescribeResultCache().getSavedRoundTrips());
+  }
+
+  @Test
+  public void testSharedResultIsCopiedToConnection() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      executeQuery(connection);
+    }
+    mockSpanner.clearRequests();
+    long savedRoundTrips = pgServer.getDescribeResultCache().getSavedRoundTrips();
+
+    // Only the first execution on this connection uses the shared cache. The later executions use
+    // the cache of the connection, and are not counted as saved round trips again.
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      for (int i = 0; i < 3; i++) {
+        executeQuery(connection);
+      }
+    }
+    List<ExecuteSqlRequest> requests = mockSpanner.getRequestsOfType(ExecuteSqlRequest.class);
+    assertEquals(3, requests.size());
+    for (ExecuteSqlRequest request : requests) {
+      assertEquals(QueryMode.NORMAL, request.getQueryMode());
+    }
+    assertEquals(savedRoundTrips + 1L, pgServer.getDescribeResultCache().getSavedRoundTrips());
+  }
+}
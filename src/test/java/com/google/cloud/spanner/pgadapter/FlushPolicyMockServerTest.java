@@ -0,0 +1,212 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.MockSpannerServiceImpl.SimulatedExecutionTime;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.pgadapter.utils.FlushPolicy;
+import com.google.cloud.spanner.pgadapter.wireprotocol.StartupMessage;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Value;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.Type;
+import com.google.spanner.v1.TypeCode;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the flush policy of PGAdapter. */
+@RunWith(JUnit4.class)
+public class FlushPolicyMockServerTest extends AbstractMockServerTest {
+  private static final int NUM_ROWS = 250;
+  private static final Statement SELECT_MANY_ROWS = Statement.of("SELECT * FROM many_rows");
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+    doStartMockSpannerAndPgAdapterServers(
+        "d",
+        ImmutableList.of("-output_corking", "-early_flush_rows", "100", "-early_flush_ms", "10"));
+  }
+
+  private static com.google.spanner.v1.ResultSet createManyRowsResultSet() {
+    com.google.spanner.v1.ResultSet.Builder builder =
+        com.google.spanner.v1.ResultSet.newBuilder()
+            .setMetadata(
+                ResultSetMetadata.newBuilder()
+                    .setRowType(
+                        StructType.newBuilder()
+                            .addFields(
+                                Field.newBuilder()
+                                    .setName("id")
+                                    .setType(Type.newBuilder().setCode(TypeCode.INT64).build())
+                                    .build())
+                            .build())
+                    .build());
+    for (int i = 0; i < NUM_ROWS; i++) {
+      builder.addRows(
+          ListValue.newBuilder()
+              .addValues(Value.newBuilder().setStringValue(String.valueOf(i)).build())
+              .build());
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testEarlyFlushForLargeResult() throws Exception {
+    mockSpanner.putStatementResult(
+        StatementResult.query(SELECT_MANY_ROWS, createManyRowsResultSet()));
+    FlushPolicy flushPolicy = pgServer.getFlushPolicy();
+    long earlyFlushes = flushPolicy.getEarlyFlushCount();
+
+    try (Connection connection =
+        DriverManager.getConnection(
+            String.format("jdbc:postgresql://localhost:%d/", pgServer.getLocalPort()))) {
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery(SELECT_MANY_ROWS.getSql())) {
+        int count = 0;
+        while (resultSet.next()) {
+          assertEquals(count, resultSet.getLong(1));
+          count++;
+        }
+        assertEquals(NUM_ROWS, count);
+      }
+      // A small result is not flushed early.
+      try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+        assertTrue(resultSet.next());
+        assertFalse(resultSet.next());
+      }
+    }
+    assertEquals(earlyFlushes + 1, flushPolicy.getEarlyFlushCount());
+    assertTrue(flushPolicy.getQueryCount() > 0L);
+    assertTrue(flushPolicy.getSocketWritesPerQuery() > 0d);
+  }
+
+  @Test
+  public void testCorkPipelinedSyncs() throws Exception {
+    FlushPolicy flushPolicy = pgServer.getFlushPolicy();
+    long corkedSyncs = flushPolicy.getCorkedSyncCount();
+    int numQueries = 10;
+
+    try (Socket socket = new Socket("localhost", pgServer.getLocalPort())) {
+      DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+      DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+      startup(inputStream, outputStream);
+
+      // Send all queries at once. Each query is executed with an implicit Sync.
+      for (int i = 0; i < numQueries; i++) {
+        writeQuery(outputStream, "SELECT 1");
+      }
+      outputStream.flush();
+      for (int i = 0; i < numQueries; i++) {
+        skipUntilReadyForQuery(inputStream);
+      }
+      terminate(outputStream);
+    }
+    // The output of all queries except the last was held back, unless the queries were not yet
+    // received when a query finished.
+    assertTrue(flushPolicy.getCorkedSyncCount() > corkedSyncs);
+  }
+
+  @Test
+  public void testCorkedOutputIsFlushedBeforeNextQuery() throws Exception {
+    int executionTimeMillis = 500;
+
+    try (Socket socket = new Socket("localhost", pgServer.getLocalPort())) {
+      DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+      DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+      startup(inputStream, outputStream);
+
+      mockSpanner.setExecuteStreamingSqlExecutionTime(
+          SimulatedExecutionTime.ofMinimumAndRandomTime(executionTimeMillis, 0));
+      try {
+        // Send two queries at once, so the output of the first query is held back. That output
+        // must be sent to the client before the second query is executed on Cloud Spanner, and
+        // not together with the output of the second query.
+        writeQuery(outputStream, "SELECT 1");
+        writeQuery(outputStream, "SELECT 1");
+        outputStream.flush();
+        skipUntilReadyForQuery(inputStream);
+        Stopwatch watch = Stopwatch.createStarted();
+        skipUntilReadyForQuery(inputStream);
+        long millisBetweenResults = watch.elapsed(TimeUnit.MILLISECONDS);
+        assertTrue(
+            "ReadyForQuery of the first query was received "
+                + millisBetweenResults
+                + "ms before the second query finished",
+            millisBetweenResults >= executionTimeMillis / 2);
+      } finally {
+        mockSpanner.setExecuteStreamingSqlExecutionTime(SimulatedExecutionTime.none());
+      }
+      terminate(outputStream);
+    }
+  }
+
+  static void startup(DataInputStream inputStream, DataOutputStream outputStream)
+      throws Exception {
+    outputStream.writeInt(17);
+    outputStream.writeInt(StartupMessage.IDENTIFIER);
+    outputStream.writeBytes("user");
+    outputStream.writeByte(0);
+    outputStream.writeBytes("foo");
+    outputStream.writeByte(0);
+    outputStream.flush();
+    skipUntilReadyForQuery(inputStream);
+  }
+
+  static void writeQuery(DataOutputStream outputStream, String query) throws Exception {
+    byte[] sql = query.getBytes(StandardCharsets.UTF_8);
+    outputStream.writeByte('Q');
+    outputStream.writeInt(4 + sql.length + 1);
+    outputStream.write(sql);
+    outputStream.writeByte(0);
+  }
+
+  static void terminate(DataOutputStream outputStream) throws Exception {
+    outputStream.writeByte('X');
+    outputStream.writeInt(4);
+    outputStream.flush();
+  }
+
+  static void skipUntilReadyForQuery(DataInputStream inputStream) throws Exception {
+    while (true) {
+      byte message = inputStream.readByte();
+      int length = inputStream.readInt();
+      inputStream.readFully(new byte[length - 4]);
+      if (message == 'Z') {
+        return;
+      }
+    }
+  }
+}
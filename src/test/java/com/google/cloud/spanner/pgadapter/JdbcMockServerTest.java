@@ -832,8 +832,10 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
         // However, the legacy date type will never use BINARY transfer and will always be sent with
         // unspecified type by the JDBC driver the first time. This means that we need 2 round trips
         // in all cases, as the statement will either use an explicit DESCRIBE message, or it will
-        // be auto-described by PGAdapter.
-        int expectedRequestCount = 2;
+        // be auto-described by PGAdapter. Threshold 0 re-uses the auto-described parameter types
+        // from the connection with threshold 5, as auto-described statements are shared by all
+        // connections to the same database.
+        int expectedRequestCount = preparedThreshold == 0 ? 1 : 2;
         assertEquals(
             "Prepare threshold: " + preparedThreshold, expectedRequestCount, requests.size());
 
@@ -3793,7 +3795,7 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
           }
           count++;
         }
-        assertEquals(359, count);
+        assertEquals(361, count);
       }
     }
   }
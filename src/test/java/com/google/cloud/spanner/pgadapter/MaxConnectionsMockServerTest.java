@@ -0,0 +1,114 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.error.SQLState;
+import com.google.cloud.spanner.pgadapter.utils.ConnectionAdmissionController;
+import com.google.common.collect.ImmutableList;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests PGAdapter with a limit on the number of connections. */
+@RunWith(JUnit4.class)
+public class MaxConnectionsMockServerTest extends AbstractMockServerTest {
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+    doStartMockSpannerAndPgAdapterServers(
+        "d", ImmutableList.of("-max_connections", "1", "-max_connection_wait_ms", "500"));
+  }
+
+  private String createUrl() {
+    return String.format("jdbc:postgresql://localhost:%d/", pgServer.getLocalPort());
+  }
+
+  private static void awaitActiveConnections(int count) throws InterruptedException {
+    ConnectionAdmissionController controller = pgServer.getConnectionAdmissionController();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+    while (controller.getActiveConnections() != count && System.nanoTime() < deadline) {
+      Thread.sleep(1L);
+    }
+    assertEquals(count, controller.getActiveConnections());
+  }
+
+  private static void selectOne(Connection connection) throws SQLException {
+    try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+      assertTrue(resultSet.next());
+      assertEquals(1L, resultSet.getLong(1));
+    }
+  }
+
+  @Test
+  public void testRejectsConnectionAfterTimeout() throws Exception {
+    ConnectionAdmissionController controller = pgServer.getConnectionAdmissionController();
+    assertNotNull(controller);
+    long rejected = controller.getRejectedConnections();
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      selectOne(connection);
+      SQLException exception =
+          assertThrows(SQLException.class, () -> DriverManager.getConnection(createUrl()));
+      assertEquals(SQLState.TooManyConnections.toString(), exception.getSQLState());
+      assertEquals(rejected + 1, controller.getRejectedConnections());
+      // The existing connection can still be used.
+      selectOne(connection);
+    }
+    awaitActiveConnections(0);
+  }
+
+  @Test
+  public void testAdmitsWaitingConnection() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Void> waiting;
+      try (Connection connection = DriverManager.getConnection(createUrl())) {
+        selectOne(connection);
+        waiting =
+            executor.submit(
+                () -> {
+                  try (Connection waitingConnection = DriverManager.getConnection(createUrl())) {
+                    selectOne(waitingConnection);
+                  }
+                  return null;
+                });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (pgServer.getConnectionAdmissionController().getQueueDepth() == 0
+            && System.nanoTime() < deadline) {
+          Thread.sleep(1L);
+        }
+      }
+      waiting.get();
+      awaitActiveConnections(0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
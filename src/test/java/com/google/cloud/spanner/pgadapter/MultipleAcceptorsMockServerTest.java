@@ -0,0 +1,87 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.nio.channels.ServerSocketChannel;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests PGAdapter with multiple threads accepting TCP connections. */
+@RunWith(JUnit4.class)
+public class MultipleAcceptorsMockServerTest extends AbstractMockServerTest {
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+    doStartMockSpannerAndPgAdapterServers("d", ImmutableList.of("-acceptor_threads", "4"));
+  }
+
+  private String createUrl() {
+    return String.format("jdbc:postgresql://localhost:%d/", pgServer.getLocalPort());
+  }
+
+  @Test
+  public void testReusePortIsSupportedOnLinux() throws Exception {
+    assumeTrue(System.getProperty("os.name").toLowerCase(Locale.ENGLISH).contains("linux"));
+    try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+      assertNotNull(ProxyServer.getReusePortOption(channel));
+    }
+  }
+
+  @Test
+  public void testManyConcurrentConnections() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < 40; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  try (Connection connection = DriverManager.getConnection(createUrl());
+                      ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+                    assertTrue(resultSet.next());
+                    assertEquals(1L, resultSet.getLong(1));
+                    assertFalse(resultSet.next());
+                  }
+                  return null;
+                }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
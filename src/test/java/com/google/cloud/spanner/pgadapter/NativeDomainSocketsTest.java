@@ -0,0 +1,134 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.cloud.spanner.pgadapter.utils.UnixDomainSocketChannels;
+import com.google.common.collect.ImmutableList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+
+/** Tests Unix domain sockets that use the built-in Unix domain socket channels of the JDK. */
+@RunWith(JUnit4.class)
+public class NativeDomainSocketsTest extends AbstractMockServerTest {
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    // Hide the implementation in the base class to prevent PGAdapter to be started for the test
+    // class.
+    assumeFalse(
+        "Domain sockets are disabled by default on Windows",
+        System.getProperty("os.name", "").toLowerCase().startsWith("windows"));
+    assumeTrue(
+        "Unix domain socket channels require Java 16 or higher",
+        UnixDomainSocketChannels.isSupported());
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+  }
+
+  @Before
+  @Override
+  public void clearRequests() {}
+
+  private String createUrl() {
+    return "jdbc:postgresql://localhost/?"
+        + "socketFactory=org.newsclub.net.unix.AFUNIXSocketFactory$FactoryArg"
+        + "&socketFactoryArg=./.s.PGSQL.%d";
+  }
+
+  private void verifySelectOne() throws Exception {
+    for (int i = 0; i < 2; i++) {
+      try (Connection connection =
+          DriverManager.getConnection(String.format(createUrl(), pgServer.getLocalPort()))) {
+        for (int j = 0; j < 3; j++) {
+          try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+            assertTrue(resultSet.next());
+            assertEquals(1L, resultSet.getLong(1));
+            assertFalse(resultSet.next());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testNativeDomainSocket() throws Exception {
+    doStartMockSpannerAndPgAdapterServers(
+        null, ImmutableList.of("-dir", "./", "-native_domain_sockets"));
+    try {
+      verifySelectOne();
+    } finally {
+      stopMockSpannerAndPgAdapterServers();
+    }
+  }
+
+  @Test
+  public void testNativeDomainSocketWithNonBlockingIO() throws Exception {
+    doStartMockSpannerAndPgAdapterServers(
+        null, ImmutableList.of("-dir", "./", "-native_domain_sockets", "-nio_threads", "2"));
+    try {
+      verifySelectOne();
+    } finally {
+      stopMockSpannerAndPgAdapterServers();
+    }
+  }
+
+  @Test
+  public void testNativeDomainSocketWithOutputCorking() throws Exception {
+    doStartMockSpannerAndPgAdapterServers(
+        null, ImmutableList.of("-dir", "./", "-native_domain_sockets", "-output_corking"));
+    try {
+      int numQueries = 10;
+      try (AFUNIXSocket socket = AFUNIXSocket.newInstance()) {
+        socket.connect(
+            AFUNIXSocketAddress.of(
+                new File(String.format("./.s.PGSQL.%d", pgServer.getLocalPort()))));
+        DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+        DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+        FlushPolicyMockServerTest.startup(inputStream, outputStream);
+
+        for (int i = 0; i < numQueries; i++) {
+          FlushPolicyMockServerTest.writeQuery(outputStream, "SELECT 1");
+        }
+        outputStream.flush();
+        for (int i = 0; i < numQueries; i++) {
+          FlushPolicyMockServerTest.skipUntilReadyForQuery(inputStream);
+        }
+        FlushPolicyMockServerTest.terminate(outputStream);
+      }
+      // The connection is served by the non-blocking front end, which knows whether the client has
+      // already sent more messages.
+      assertTrue(pgServer.getFlushPolicy().getCorkedSyncCount() > 0L);
+    } finally {
+      stopMockSpannerAndPgAdapterServers();
+    }
+  }
+}
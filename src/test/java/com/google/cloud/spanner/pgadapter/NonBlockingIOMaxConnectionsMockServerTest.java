@@ -0,0 +1,103 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.error.SQLState;
+import com.google.cloud.spanner.pgadapter.utils.ConnectionAdmissionController;
+import com.google.common.collect.ImmutableList;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the limit on the number of connections with the non-blocking I/O front end. */
+@RunWith(JUnit4.class)
+public class NonBlockingIOMaxConnectionsMockServerTest extends AbstractMockServerTest {
+  private static final int WORKER_THREADS = 2;
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+    doStartMockSpannerAndPgAdapterServers(
+        "d",
+        ImmutableList.of(
+            "-nio_threads",
+            "1",
+            "-nio_worker_threads",
+            String.valueOf(WORKER_THREADS),
+            "-max_connections",
+            "1",
+            "-max_connection_wait_ms",
+            "60000"));
+  }
+
+  private String createUrl() {
+    return String.format("jdbc:postgresql://localhost:%d/", pgServer.getLocalPort());
+  }
+
+  private static void selectOne(Connection connection) throws SQLException {
+    try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+      assertTrue(resultSet.next());
+      assertEquals(1L, resultSet.getLong(1));
+    }
+  }
+
+  @Test
+  public void testRejectsMoreWaitersThanWorkersWithoutWaiting() throws Exception {
+    ConnectionAdmissionController controller = pgServer.getConnectionAdmissionController();
+    long rejected = controller.getRejectedConnections();
+    int waiters = WORKER_THREADS * 4;
+    ExecutorService executor = Executors.newFixedThreadPool(waiters);
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      selectOne(connection);
+      List<Future<SQLException>> futures = new ArrayList<>();
+      for (int i = 0; i < waiters; i++) {
+        futures.add(
+            executor.submit(
+                () ->
+                    assertThrows(
+                        SQLException.class, () -> DriverManager.getConnection(createUrl()))));
+      }
+      // The existing connection can be used while the new connections are being rejected, as the
+      // rejected connections do not wait on a worker thread.
+      selectOne(connection);
+      for (Future<SQLException> future : futures) {
+        // The connections are rejected long before -max_connection_wait_ms.
+        SQLException exception = future.get(30L, TimeUnit.SECONDS);
+        assertEquals(SQLState.TooManyConnections.toString(), exception.getSQLState());
+      }
+      selectOne(connection);
+      assertEquals(rejected + waiters, controller.getRejectedConnections());
+      assertEquals(0, controller.getQueueDepth());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
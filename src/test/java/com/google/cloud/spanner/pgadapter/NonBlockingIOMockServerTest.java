@@ -0,0 +1,142 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+/** Tests PGAdapter with the non-blocking I/O front end enabled. */
+@RunWith(JUnit4.class)
+public class NonBlockingIOMockServerTest extends AbstractMockServerTest {
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+    doStartMockSpannerAndPgAdapterServers(
+        "d", ImmutableList.of("-nio_threads", "2", "-nio_worker_threads", "4"));
+  }
+
+  private String createUrl() {
+    return String.format("jdbc:postgresql://localhost:%d/", pgServer.getLocalPort());
+  }
+
+  @Test
+  public void testQuery() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+        assertTrue(resultSet.next());
+        assertEquals(1L, resultSet.getLong(1));
+        assertFalse(resultSet.next());
+      }
+    }
+    assertEquals(1, mockSpanner.countRequestsOfType(ExecuteSqlRequest.class));
+  }
+
+  @Test
+  public void testInvalidQuery() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      assertThrows(
+          SQLException.class, () -> connection.createStatement().executeQuery("SELECT foo"));
+      // The connection should still be usable.
+      try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+        assertTrue(resultSet.next());
+        assertEquals(1L, resultSet.getLong(1));
+        assertFalse(resultSet.next());
+      }
+    }
+  }
+
+  @Test
+  public void testMoreConnectionsThanWorkers() throws SQLException {
+    List<Connection> connections = new ArrayList<>();
+    try {
+      for (int i = 0; i < 20; i++) {
+        connections.add(DriverManager.getConnection(createUrl()));
+      }
+      for (int n = 0; n < 5; n++) {
+        for (Connection connection : connections) {
+          try (PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            try (ResultSet resultSet = statement.executeQuery()) {
+              assertTrue(resultSet.next());
+              assertEquals(1L, resultSet.getLong(1));
+              assertFalse(resultSet.next());
+            }
+          }
+        }
+      }
+    } finally {
+      for (Connection connection : connections) {
+        connection.close();
+      }
+    }
+  }
+
+  @Test(timeout = 60_000)
+  public void testMoreCopyOperationsThanWorkers() throws SQLException {
+    CopyInMockServerTest.setupCopyInformationSchemaResults(
+        mockSpanner, "public", "all_types", true);
+    byte[] row = "5\t5\t5\n".getBytes(StandardCharsets.UTF_8);
+    List<Connection> connections = new ArrayList<>();
+    List<CopyIn> copyOperations = new ArrayList<>();
+    try {
+      // Start more COPY operations than there are workers. Each COPY operation keeps a worker busy
+      // until it has finished.
+      for (int i = 0; i < 6; i++) {
+        Connection connection = DriverManager.getConnection(createUrl());
+        connections.add(connection);
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        CopyIn copyIn = copyManager.copyIn("COPY users FROM STDIN");
+        copyIn.writeToCopy(row, 0, row.length);
+        copyIn.flushCopy();
+        copyOperations.add(copyIn);
+      }
+      // Other connections can still execute queries.
+      try (Connection connection = DriverManager.getConnection(createUrl());
+          ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+        assertTrue(resultSet.next());
+        assertEquals(1L, resultSet.getLong(1));
+        assertFalse(resultSet.next());
+      }
+      for (CopyIn copyIn : copyOperations) {
+        assertEquals(1L, copyIn.endCopy());
+      }
+    } finally {
+      for (Connection connection : connections) {
+        connection.close();
+      }
+    }
+  }
+}
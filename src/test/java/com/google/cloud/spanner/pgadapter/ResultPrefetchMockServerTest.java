@@ -0,0 +1,284 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.MockSpannerServiceImpl;
+import com.google.cloud.spanner.MockSpannerServiceImpl.SimulatedExecutionTime;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.utils.ResultPrefetcher;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Value;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.SpannerGrpc;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.Type;
+import com.google.spanner.v1.TypeCode;
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests reading query results ahead on a background thread. */
+@RunWith(JUnit4.class)
+public class ResultPrefetchMockServerTest extends AbstractMockServerTest {
+  private static final int NUM_ROWS = 5_000;
+  private static final Statement SELECT_MANY_ROWS = Statement.of("SELECT * FROM many_rows");
+
+  /**
+   * The mock server sends each row in a separate PartialResultSet. The interceptor simulates the
+   * latency of a chunk of rows by waiting once every {@link #ROWS_PER_CHUNK} messages.
+   */
+  private static final int ROWS_PER_CHUNK = 1000;
+
+  private static volatile long chunkLatencyNanos;
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+    doStartMockSpannerAndPgAdapterServers(
+        new MockSpannerServiceImpl(),
+        "d",
+        ImmutableList.of("-result_prefetch_rows", "64", "-result_prefetch_bytes", "65536"),
+        ImmutableList.of(createChunkLatencyInterceptor()));
+  }
+
+  private static ServerInterceptor createChunkLatencyInterceptor() {
+    return new ServerInterceptor() {
+      @Override
+      public <ReqT, RespT> Listener<ReqT> interceptCall(
+          ServerCall<ReqT, RespT> serverCall,
+          Metadata metadata,
+          ServerCallHandler<ReqT, RespT> serverCallHandler) {
+        if (!SpannerGrpc.getExecuteStreamingSqlMethod()
+            .getFullMethodName()
+            .equals(serverCall.getMethodDescriptor().getFullMethodName())) {
+          return serverCallHandler.startCall(serverCall, metadata);
+        }
+        return serverCallHandler.startCall(
+            new SimpleForwardingServerCall<ReqT, RespT>(serverCall) {
+              private int messages;
+
+              @Override
+              public void sendMessage(RespT message) {
+                long latency = chunkLatencyNanos;
+                if (latency > 0L && ++messages % ROWS_PER_CHUNK == 0) {
+                  LockSupport.parkNanos(latency);
+                }
+                super.sendMessage(message);
+              }
+            },
+            metadata);
+      }
+    };
+  }
+
+  private static com.google.spanner.v1.ResultSet createManyRowsResultSet(int numRows) {
+    com.google.spanner.v1.ResultSet.Builder builder =
+        com.google.spanner.v1.ResultSet.newBuilder()
+            .setMetadata(
+                ResultSetMetadata.newBuilder()
+                    .setRowType(
+                        StructType.newBuilder()
+                            .addFields(
+                                Field.newBuilder()
+                                    .setName("id")
+                                    .setType(Type.newBuilder().setCode(TypeCode.INT64).build())
+                                    .build())
+                            .addFields(
+                                Field.newBuilder()
+                                    .setName("value")
+                                    .setType(Type.newBuilder().setCode(TypeCode.FLOAT64).build())
+                                    .build())
+                            .addFields(
+                                Field.newBuilder()
+                                    .setName("name")
+                                    .setType(Type.newBuilder().setCode(TypeCode.STRING).build())
+                                    .build())
+                            .build())
+                    .build());
+    for (int i = 0; i < numRows; i++) {
+      builder.addRows(
+          ListValue.newBuilder()
+              .addValues(Value.newBuilder().setStringValue(String.valueOf(i)).build())
+              .addValues(Value.newBuilder().setNumberValue(i / 2d).build())
+              .addValues(Value.newBuilder().setStringValue("name " + i).build())
+              .build());
+    }
+    return builder.build();
+  }
+
+  private static String createUrl(ProxyServer server) {
+    return String.format("jdbc:postgresql://localhost:%d/", server.getLocalPort());
+  }
+
+  private static void selectManyRows(ProxyServer server, int numRows) throws SQLException {
+    long count = 0L;
+    try (Connection connection = DriverManager.getConnection(createUrl(server))) {
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery(SELECT_MANY_ROWS.getSql())) {
+        while (resultSet.next()) {
+          assertEquals(count, resultSet.getLong(1));
+          assertEquals(count / 2d, resultSet.getDouble(2), 0d);
+          assertEquals("name " + count, resultSet.getString(3));
+          count++;
+        }
+      }
+    }
+    assertEquals(numRows, count);
+  }
+
+  @Test
+  public void testPrefetchLargeResult() throws Exception {
+    mockSpanner.putStatementResult(
+        StatementResult.query(SELECT_MANY_ROWS, createManyRowsResultSet(NUM_ROWS)));
+    ResultPrefetcher prefetcher = pgServer.getResultPrefetcher();
+    assertNotNull(prefetcher);
+    long results = prefetcher.getResultCount();
+    long rows = prefetcher.getRowCount();
+
+    selectManyRows(pgServer, NUM_ROWS);
+
+    assertEquals(results + 1, prefetcher.getResultCount());
+    // The first row is read before the result is prefetched.
+    assertEquals(rows + NUM_ROWS - 1, prefetcher.getRowCount());
+  }
+
+  @Test
+  public void testPrefetchPropagatesErrors() throws Exception {
+    mockSpanner.putStatementResult(
+        StatementResult.query(SELECT_MANY_ROWS, createManyRowsResultSet(NUM_ROWS)));
+    mockSpanner.setExecuteStreamingSqlExecutionTime(
+        SimulatedExecutionTime.ofStreamException(
+            Status.INVALID_ARGUMENT.withDescription("test error").asRuntimeException(),
+            NUM_ROWS / 2));
+    try (Connection connection = DriverManager.getConnection(createUrl(pgServer))) {
+      // The JDBC driver reads the entire result before executeQuery returns.
+      SQLException exception =
+          assertThrows(
+              SQLException.class,
+              () -> connection.createStatement().executeQuery(SELECT_MANY_ROWS.getSql()));
+      assertTrue(exception.getMessage(), exception.getMessage().contains("test error"));
+      // Verify that the connection can still be used.
+      try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+        assertTrue(resultSet.next());
+        assertEquals(1L, resultSet.getLong(1));
+      }
+    } finally {
+      mockSpanner.setExecuteStreamingSqlExecutionTime(SimulatedExecutionTime.none());
+    }
+  }
+
+  @Test
+  public void testResultWithFetchSizeIsNotPrefetched() throws Exception {
+    mockSpanner.putStatementResult(
+        StatementResult.query(SELECT_MANY_ROWS, createManyRowsResultSet(NUM_ROWS)));
+    ResultPrefetcher prefetcher = pgServer.getResultPrefetcher();
+    long results = prefetcher.getResultCount();
+
+    try (Connection connection = DriverManager.getConnection(createUrl(pgServer))) {
+      // The JDBC driver only fetches rows in multiple steps in a transaction.
+      connection.setAutoCommit(false);
+      try (java.sql.Statement statement = connection.createStatement()) {
+        statement.setFetchSize(100);
+        try (ResultSet resultSet = statement.executeQuery(SELECT_MANY_ROWS.getSql())) {
+          int count = 0;
+          while (resultSet.next()) {
+            assertEquals(count, resultSet.getLong(1));
+            count++;
+          }
+          assertEquals(NUM_ROWS, count);
+        }
+      }
+      connection.commit();
+    }
+    assertEquals(results, prefetcher.getResultCount());
+  }
+
+  @Ignore("Only used for manual performance testing")
+  @Test
+  public void testPrefetchPerformance() throws Exception {
+    int numRows = 1_000_000;
+    int numRuns = 5;
+    mockSpanner.putStatementResult(
+        StatementResult.query(SELECT_MANY_ROWS, createManyRowsResultSet(numRows)));
+    ProxyServer serverWithoutPrefetch =
+        new ProxyServer(
+            new OptionsMetadata(
+                new String[] {
+                  "-p",
+                  "p",
+                  "-i",
+                  "i",
+                  "-d",
+                  "d",
+                  "-c",
+                  "",
+                  "-s",
+                  "0",
+                  "-e",
+                  String.format("localhost:%d", spannerServer.getPort()),
+                  "-r",
+                  "usePlainText=true;"
+                }));
+    serverWithoutPrefetch.startServer();
+    try {
+      for (long latencyMicros : new long[] {0L, 500L, 2_000L}) {
+        chunkLatencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        for (ProxyServer server : new ProxyServer[] {serverWithoutPrefetch, pgServer}) {
+          // Warm up.
+          selectManyRows(server, numRows);
+          Stopwatch watch = Stopwatch.createStarted();
+          for (int run = 0; run < numRuns; run++) {
+            selectManyRows(server, numRows);
+          }
+          System.out.printf(
+              "Prefetch: %s, latency per %d rows: %dus, avg elapsed: %dms\n",
+              server.getResultPrefetcher() != null,
+              ROWS_PER_CHUNK,
+              latencyMicros,
+              watch.elapsed(TimeUnit.MILLISECONDS) / numRuns);
+        }
+      }
+    } finally {
+      chunkLatencyNanos = 0L;
+      serverWithoutPrefetch.stopServer();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.utils.ThreadFactories;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ConnectionMetadataTest {
+
+  @Test
+  public void testPeekNextByteWithoutWaiter() throws Exception {
+    try (ConnectionMetadata connectionMetadata =
+        new ConnectionMetadata(
+            new ByteArrayInputStream(new byte[] {'S'}), new ByteArrayOutputStream())) {
+      assertEquals('S', connectionMetadata.peekNextByte(1000L));
+      assertEquals('S', connectionMetadata.getInputStream().readByte());
+      // There is no more data, and the stream does not support waiting.
+      assertEquals(0, connectionMetadata.peekNextByte(1000L));
+    }
+  }
+
+  @Test
+  public void testPeekNextByteOnSocket() throws Exception {
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Socket client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        Socket server = serverSocket.accept();
+        ConnectionMetadata connectionMetadata = ConnectionMetadata.createForSocket(server)) {
+      OutputStream clientOutput = client.getOutputStream();
+
+      // No data is sent, so the wait times out without consuming anything.
+      assertEquals(0, connectionMetadata.peekNextByte(0L));
+      assertEquals(0, connectionMetadata.peekNextByte(5L));
+      assertEquals(0, server.getSoTimeout());
+
+      // Data that is sent during the wait is returned without being consumed.
+      executor.schedule(
+          () -> {
+            clientOutput.write('S');
+            return null;
+          },
+          10L,
+          TimeUnit.MILLISECONDS);
+      assertEquals('S', connectionMetadata.peekNextByte(10_000L));
+      assertEquals('S', connectionMetadata.peekNextByte(0L));
+      assertEquals('S', connectionMetadata.getInputStream().readByte());
+      assertEquals(0, server.getSoTimeout());
+
+      // The end of the stream is returned as no data.
+      client.shutdownOutput();
+      assertEquals(0, connectionMetadata.peekNextByte(10_000L));
+      assertEquals(-1, connectionMetadata.getInputStream().read());
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void testPeekNextByteOnSocketWithReadAhead() throws Exception {
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Socket client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        Socket server = serverSocket.accept();
+        ConnectionMetadata connectionMetadata = ConnectionMetadata.createForSocket(server)) {
+      OutputStream clientOutput = client.getOutputStream();
+      clientOutput.write('P');
+      assertEquals('P', connectionMetadata.getInputStream().readByte());
+      connectionMetadata.startReadAhead(1024, ThreadFactories.create("test-read-ahead-", false));
+
+      assertEquals(0, connectionMetadata.peekNextByte(5L));
+      executor.schedule(
+          () -> {
+            clientOutput.write(new byte[] {'B', 'E', 'S'});
+            return null;
+          },
+          10L,
+          TimeUnit.MILLISECONDS);
+      assertEquals('B', connectionMetadata.peekNextByte(10_000L));
+      assertEquals('B', connectionMetadata.getInputStream().readByte());
+      assertEquals('E', connectionMetadata.getInputStream().readByte());
+      assertEquals('S', connectionMetadata.peekNextByte(10_000L));
+      assertEquals('S', connectionMetadata.getInputStream().readByte());
+      // The read-ahead thread does not use a read timeout.
+      assertEquals(0, server.getSoTimeout());
+
+      client.shutdownOutput();
+      assertEquals(0, connectionMetadata.peekNextByte(10_000L));
+      assertEquals(-1, connectionMetadata.getInputStream().read());
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+    }
+  }
+}
@@ -0,0 +1,129 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import com.google.cloud.spanner.DatabaseId;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import java.time.Duration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.postgresql.core.Oid;
+
+@RunWith(JUnit4.class)
+public class DescribeResultCacheTest {
+  private static final DatabaseId DATABASE_1 = DatabaseId.of("p", "i", "d1");
+  private static final DatabaseId DATABASE_2 = DatabaseId.of("p", "i", "d2");
+  private static final String SQL = "select * from foo where id=$1";
+
+  @Test
+  public void testCacheHit() throws Exception {
+    DescribeResultCache cache = new DescribeResultCache(10L, Duration.ofMinutes(1L));
+    DescribeResult result = new DescribeResult(new int[] {Oid.INT8}, null);
+    cache.put(DATABASE_1, SQL, new int[] {Oid.UNSPECIFIED}, Futures.immediateFuture(result));
+
+    assertSame(result, cache.get(DATABASE_1, SQL, new int[] {Oid.UNSPECIFIED}).get());
+    assertSame(result, cache.get(DATABASE_1, SQL, new int[] {Oid.UNSPECIFIED}).get());
+    assertEquals(2L, cache.getSavedRoundTrips());
+    assertEquals(1L, cache.size());
+  }
+
+  @Test
+  public void testWithoutTimeToLive() throws Exception {
+    DescribeResultCache cache = new DescribeResultCache(10L, Duration.ZERO);
+    DescribeResult result = new DescribeResult(new int[] {Oid.INT8}, null);
+    cache.put(DATABASE_1, SQL, new int[] {}, Futures.immediateFuture(result));
+
+    assertSame(result, cache.get(DATABASE_1, SQL, new int[] {}).get());
+    cache.invalidate(DATABASE_1);
+    assertNull(cache.get(DATABASE_1, SQL, new int[] {}));
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new DescribeResultCache(10L, Duration.ofSeconds(-1L)));
+  }
+
+  @Test
+  public void testKeyIncludesDatabaseAndParameterTypes() {
+    DescribeResultCache cache = new DescribeResultCache(10L, Duration.ofMinutes(1L));
+    cache.put(
+        DATABASE_1,
+        SQL,
+        new int[] {Oid.UNSPECIFIED},
+        Futures.immediateFuture(new DescribeResult(new int[] {Oid.INT8}, null)));
+
+    assertNull(cache.get(DATABASE_2, SQL, new int[] {Oid.UNSPECIFIED}));
+    assertNull(cache.get(DATABASE_1, SQL, new int[] {Oid.VARCHAR}));
+    assertNull(cache.get(DATABASE_1, SQL, new int[] {}));
+    assertNull(cache.get(DATABASE_1, "select 1", new int[] {Oid.UNSPECIFIED}));
+    assertEquals(0L, cache.getSavedRoundTrips());
+  }
+
+  @Test
+  public void testInvalidate() {
+    DescribeResultCache cache = new DescribeResultCache(10L, Duration.ofMinutes(1L));
+    cache.put(
+        DATABASE_1,
+        SQL,
+        new int[] {},
+        Futures.immediateFuture(new DescribeResult(new int[] {Oid.INT8}, null)));
+    cache.put(
+        DATABASE_2,
+        SQL,
+        new int[] {},
+        Futures.immediateFuture(new DescribeResult(new int[] {Oid.INT8}, null)));
+    long generation = cache.getGeneration();
+
+    cache.invalidate(DATABASE_1);
+
+    assertEquals(generation + 1, cache.getGeneration());
+    assertNull(cache.get(DATABASE_1, SQL, new int[] {}));
+    assertNotNull(cache.get(DATABASE_2, SQL, new int[] {}));
+  }
+
+  @Test
+  public void testOnlySuccessfulResultsAreCached() {
+    DescribeResultCache cache = new DescribeResultCache(10L, Duration.ofMinutes(1L));
+    SettableFuture<DescribeResult> pending = SettableFuture.create();
+    cache.put(DATABASE_1, SQL, new int[] {}, pending);
+    assertNull(cache.get(DATABASE_1, SQL, new int[] {}));
+
+    pending.setException(new IllegalStateException("test"));
+    assertNull(cache.get(DATABASE_1, SQL, new int[] {}));
+
+    SettableFuture<DescribeResult> succeeded = SettableFuture.create();
+    cache.put(DATABASE_1, SQL, new int[] {}, succeeded);
+    succeeded.set(new DescribeResult(new int[] {}, null));
+    assertNotNull(cache.get(DATABASE_1, SQL, new int[] {}));
+  }
+
+  @Test
+  public void testResultsThatStartedBeforeInvalidationAreNotCached() {
+    DescribeResultCache cache = new DescribeResultCache(10L, Duration.ofMinutes(1L));
+    SettableFuture<DescribeResult> pending = SettableFuture.create();
+    cache.put(DATABASE_1, SQL, new int[] {}, pending);
+    cache.invalidate(DATABASE_1);
+    pending.set(new DescribeResult(new int[] {}, null));
+
+    assertNull(cache.get(DATABASE_1, SQL, new int[] {}));
+  }
+}
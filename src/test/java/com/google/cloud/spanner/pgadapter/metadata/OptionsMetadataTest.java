@@ -18,12 +18,14 @@ import static com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.parseS
 import static com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.toServerVersionNum;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import com.google.cloud.spanner.ErrorCode;
 import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.SslMode;
+import com.google.common.collect.ImmutableList;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
@@ -76,6 +78,393 @@ public class OptionsMetadataTest {
     assertEquals(100, options.getMaxBacklog());
   }
 
+  @Test
+  public void testNonBlockingIO() {
+    OptionsMetadata options =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertFalse(options.isNonBlockingIOEnabled());
+    assertEquals(0, options.getNumNioThreads());
+
+    options =
+        new OptionsMetadata(
+            new String[] {
+              "-p",
+              "p",
+              "-i",
+              "i",
+              "-c",
+              "credentials.json",
+              "-nio_threads",
+              "2",
+              "-nio_worker_threads",
+              "8"
+            });
+    assertTrue(options.isNonBlockingIOEnabled());
+    assertEquals(2, options.getNumNioThreads());
+    assertEquals(8, options.getNumNioWorkerThreads());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-nio_threads", "-1"
+                }));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-nio_worker_threads", "0"
+                }));
+    // Non-blocking I/O can be combined with SSL.
+    assertTrue(
+        new OptionsMetadata(
+                new String[] {
+                  "-p",
+                  "p",
+                  "-i",
+                  "i",
+                  "-c",
+                  "credentials.json",
+                  "-nio_threads",
+                  "1",
+                  "-ssl",
+                  "enable"
+                })
+            .isNonBlockingIOEnabled());
+  }
+
+  @Test
+  public void testSslSettings() {
+    OptionsMetadata defaultOptions =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertEquals(ImmutableList.of(), defaultOptions.getSslProtocols());
+    assertEquals(ImmutableList.of(), defaultOptions.getSslCipherSuites());
+    assertEquals(-1, defaultOptions.getSslSessionCacheSize());
+    assertEquals(-1, defaultOptions.getSslSessionTimeoutSeconds());
+    assertNull(defaultOptions.getSslSessionTickets());
+
+    OptionsMetadata options =
+        new OptionsMetadata(
+            new String[] {
+              "-p",
+              "p",
+              "-i",
+              "i",
+              "-c",
+              "credentials.json",
+              "-ssl_protocols",
+              "TLSv1.3, TLSv1.2",
+              "-ssl_ciphers",
+              "TLS_AES_128_GCM_SHA256,TLS_AES_256_GCM_SHA384",
+              "-ssl_session_cache_size",
+              "50000",
+              "-ssl_session_timeout",
+              "3600",
+              "-ssl_session_tickets",
+              "false"
+            });
+    assertEquals(ImmutableList.of("TLSv1.3", "TLSv1.2"), options.getSslProtocols());
+    assertEquals(
+        ImmutableList.of("TLS_AES_128_GCM_SHA256", "TLS_AES_256_GCM_SHA384"),
+        options.getSslCipherSuites());
+    assertEquals(50000, options.getSslSessionCacheSize());
+    assertEquals(3600, options.getSslSessionTimeoutSeconds());
+    assertEquals(Boolean.FALSE, options.getSslSessionTickets());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-ssl_session_timeout", "-1"
+                }));
+  }
+
+  @Test
+  public void testVirtualThreads() {
+    assertFalse(
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"})
+            .useVirtualThreads());
+    assertTrue(
+        new OptionsMetadata(
+                new String[] {"-p", "p", "-i", "i", "-c", "credentials.json", "-virtual_threads"})
+            .useVirtualThreads());
+  }
+
+  @Test
+  public void testNativeDomainSockets() {
+    assertFalse(
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"})
+            .useNativeDomainSockets());
+    assertTrue(
+        new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-native_domain_sockets"
+                })
+            .useNativeDomainSockets());
+  }
+
+  @Test
+  public void testStatementCacheSize() {
+    assertEquals(
+        10000,
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"})
+            .getStatementCacheSize());
+    assertEquals(
+        0,
+        new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-statement_cache_size", "0"
+                })
+            .getStatementCacheSize());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-statement_cache_size", "-1"
+                }));
+  }
+
+  @Test
+  public void testDescribeCache() {
+    assertFalse(
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"})
+            .isDescribeCacheEnabled());
+    assertTrue(
+        new OptionsMetadata(
+                new String[] {"-p", "p", "-i", "i", "-c", "credentials.json", "-describe_cache"})
+            .isDescribeCacheEnabled());
+  }
+
+  @Test
+  public void testDescribeCacheTtl() {
+    assertEquals(
+        0,
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"})
+            .getDescribeCacheTtlSeconds());
+    assertEquals(
+        1800,
+        new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-describe_cache_ttl", "1800"
+                })
+            .getDescribeCacheTtlSeconds());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-describe_cache_ttl", "-1"
+                }));
+  }
+
+  @Test
+  public void testFlushLookaheadMillis() {
+    assertEquals(
+        2,
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"})
+            .getFlushLookaheadMillis());
+    assertEquals(
+        0,
+        new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-flush_lookahead_ms", "0"
+                })
+            .getFlushLookaheadMillis());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-flush_lookahead_ms", "-1"
+                }));
+  }
+
+  @Test
+  public void testReadAheadBytes() {
+    assertEquals(
+        0,
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"})
+            .getReadAheadBytes());
+    assertEquals(
+        65536,
+        new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-read_ahead_bytes", "65536"
+                })
+            .getReadAheadBytes());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-read_ahead_bytes", "-1"
+                }));
+  }
+
+  @Test
+  public void testFlushSettings() {
+    OptionsMetadata defaultOptions =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertFalse(defaultOptions.isOutputCorkingEnabled());
+    assertEquals(0, defaultOptions.getEarlyFlushRows());
+    assertEquals(0, defaultOptions.getEarlyFlushMillis());
+
+    OptionsMetadata options =
+        new OptionsMetadata(
+            new String[] {
+              "-p",
+              "p",
+              "-i",
+              "i",
+              "-c",
+              "credentials.json",
+              "-output_corking",
+              "-early_flush_rows",
+              "100",
+              "-early_flush_ms",
+              "50"
+            });
+    assertTrue(options.isOutputCorkingEnabled());
+    assertEquals(100, options.getEarlyFlushRows());
+    assertEquals(50, options.getEarlyFlushMillis());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-early_flush_rows", "-1"
+                }));
+  }
+
+  @Test
+  public void testResultPrefetchSettings() {
+    OptionsMetadata defaultOptions =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertEquals(0, defaultOptions.getResultPrefetchRows());
+    assertEquals(1 << 22, defaultOptions.getResultPrefetchBytes());
+
+    OptionsMetadata options =
+        new OptionsMetadata(
+            new String[] {
+              "-p",
+              "p",
+              "-i",
+              "i",
+              "-c",
+              "credentials.json",
+              "-result_prefetch_rows",
+              "1000",
+              "-result_prefetch_bytes",
+              "65536"
+            });
+    assertEquals(1000, options.getResultPrefetchRows());
+    assertEquals(65536, options.getResultPrefetchBytes());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-result_prefetch_rows", "-1"
+                }));
+  }
+
+  @Test
+  public void testAcceptorThreads() {
+    assertEquals(
+        1,
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"})
+            .getNumAcceptorThreads());
+    assertEquals(
+        4,
+        new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-acceptor_threads", "4"
+                })
+            .getNumAcceptorThreads());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-c", "credentials.json", "-acceptor_threads", "0"
+                }));
+  }
+
+  @Test
+  public void testMaxConnections() {
+    OptionsMetadata defaultOptions =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertEquals(0, defaultOptions.getMaxConnections());
+    assertEquals(1000, defaultOptions.getMaxConnectionQueue());
+    assertEquals(10_000, defaultOptions.getMaxConnectionWaitMillis());
+
+    OptionsMetadata options =
+        new OptionsMetadata(
+            new String[] {
+              "-p",
+              "p",
+              "-i",
+              "i",
+              "-c",
+              "credentials.json",
+              "-max_connections",
+              "100",
+              "-max_connection_queue",
+              "10",
+              "-max_connection_wait_ms",
+              "0"
+            });
+    assertEquals(100, options.getMaxConnections());
+    assertEquals(10, options.getMaxConnectionQueue());
+    assertEquals(0, options.getMaxConnectionWaitMillis());
+
+    for (String option :
+        new String[] {"-max_connections", "-max_connection_queue", "-max_connection_wait_ms"}) {
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              new OptionsMetadata(
+                  new String[] {"-p", "p", "-i", "i", "-c", "credentials.json", option, "-1"}));
+    }
+  }
+
+  @Test
+  public void testCopyCommitSettings() {
+    OptionsMetadata defaultOptions =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertEquals(128, defaultOptions.getMaxCopyCommits());
+    assertEquals(1 << 28, defaultOptions.getMaxCopyCommitBytes());
+
+    OptionsMetadata options =
+        new OptionsMetadata(
+            new String[] {
+              "-p",
+              "p",
+              "-i",
+              "i",
+              "-c",
+              "credentials.json",
+              "-max_copy_commits",
+              "16",
+              "-max_copy_commit_bytes",
+              "0"
+            });
+    assertEquals(16, options.getMaxCopyCommits());
+    assertEquals(0, options.getMaxCopyCommitBytes());
+
+    for (String option : new String[] {"-max_copy_commits", "-max_copy_commit_bytes"}) {
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              new OptionsMetadata(
+                  new String[] {"-p", "p", "-i", "i", "-c", "credentials.json", option, "-1"}));
+    }
+  }
+
   @Test
   public void testDatabaseName() {
     assertFalse(
@@ -0,0 +1,179 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.utils.ThreadFactories;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.SequenceInputStream;
+import java.util.concurrent.ThreadFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ReadAheadInputStreamTest {
+  private static final ThreadFactory THREAD_FACTORY =
+      ThreadFactories.create("test-read-ahead-", false);
+
+  private static byte[] createData(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) i;
+    }
+    return data;
+  }
+
+  @Test
+  public void testReadsFromSourceBeforeStart() throws IOException {
+    ReadAheadInputStream inputStream =
+        new ReadAheadInputStream(new ByteArrayInputStream(new byte[] {1, 2, 3}));
+    assertFalse(inputStream.isStarted());
+    assertEquals(3, inputStream.available());
+    assertEquals(1, inputStream.read());
+    // Nothing has been read ahead.
+    assertEquals(2, inputStream.available());
+  }
+
+  @Test
+  public void testReadsAheadAfterStart() throws IOException {
+    byte[] data = createData(100);
+    ReadAheadInputStream inputStream = new ReadAheadInputStream(new ByteArrayInputStream(data));
+    assertEquals(0, inputStream.read());
+    inputStream.start(1024, THREAD_FACTORY);
+    assertTrue(inputStream.isStarted());
+
+    // Wait until all data has been read ahead without consuming anything.
+    assertTrue(inputStream.awaitInput(10_000L));
+    while (inputStream.available() < 99) {
+      Thread.yield();
+    }
+    byte[] rest = ByteStreams.toByteArray(inputStream);
+    assertEquals(99, rest.length);
+    assertEquals(1, rest[0]);
+    assertEquals(99, rest[98]);
+    assertEquals(-1, inputStream.read());
+  }
+
+  @Test
+  public void testWrapsAroundSmallBuffer() throws IOException {
+    byte[] data = createData(10_000);
+    ReadAheadInputStream inputStream = new ReadAheadInputStream(new ByteArrayInputStream(data));
+    inputStream.start(7, THREAD_FACTORY);
+
+    byte[] result = new byte[data.length];
+    int offset = 0;
+    while (offset < result.length) {
+      // Alternate between single byte reads and reads that span the end of the ring buffer.
+      if (offset % 3 == 0) {
+        result[offset++] = (byte) inputStream.read();
+      } else {
+        offset += inputStream.read(result, offset, Math.min(5, result.length - offset));
+      }
+    }
+    assertArrayEquals(data, result);
+    assertEquals(-1, inputStream.read());
+  }
+
+  @Test
+  public void testFailureIsReturnedAfterData() throws IOException {
+    IOException failure = new IOException("connection reset");
+    InputStream failing =
+        new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw failure;
+          }
+        };
+    ReadAheadInputStream inputStream =
+        new ReadAheadInputStream(
+            new SequenceInputStream(new ByteArrayInputStream(new byte[] {1, 2}), failing));
+    inputStream.start(16, THREAD_FACTORY);
+
+    assertEquals(1, inputStream.read());
+    assertEquals(2, inputStream.read());
+    assertSame(failure, assertThrows(IOException.class, inputStream::read));
+    assertSame(failure, assertThrows(IOException.class, inputStream::read));
+  }
+
+  @Test
+  public void testAwaitInput() throws Exception {
+    PipedOutputStream output = new PipedOutputStream();
+    ReadAheadInputStream inputStream = new ReadAheadInputStream(new PipedInputStream(output));
+    inputStream.start(16, THREAD_FACTORY);
+
+    assertFalse(inputStream.awaitInput(0L));
+    assertFalse(inputStream.awaitInput(5L));
+    output.write('S');
+    output.flush();
+    assertTrue(inputStream.awaitInput(10_000L));
+    assertEquals('S', inputStream.read());
+
+    output.close();
+    assertFalse(inputStream.awaitInput(10_000L));
+    assertEquals(-1, inputStream.read());
+  }
+
+  @Test
+  public void testReadIgnoresInterrupts() throws Exception {
+    PipedOutputStream output = new PipedOutputStream();
+    ReadAheadInputStream inputStream = new ReadAheadInputStream(new PipedInputStream(output));
+    inputStream.start(16, THREAD_FACTORY);
+
+    Thread reader = Thread.currentThread();
+    Thread writer =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(20L);
+                reader.interrupt();
+                Thread.sleep(20L);
+                output.write('Q');
+                output.flush();
+              } catch (Exception ignore) {
+                // Ignore and let the test fail.
+              }
+            });
+    writer.start();
+    try {
+      assertEquals('Q', inputStream.read());
+      // The interrupt is not lost.
+      assertTrue(Thread.interrupted());
+    } finally {
+      writer.join();
+    }
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    PipedOutputStream output = new PipedOutputStream();
+    ReadAheadInputStream inputStream = new ReadAheadInputStream(new PipedInputStream(output));
+    inputStream.start(16, THREAD_FACTORY);
+    inputStream.close();
+
+    assertThrows(IOException.class, inputStream::read);
+  }
+}
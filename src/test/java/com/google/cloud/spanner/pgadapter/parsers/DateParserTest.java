@@ -58,4 +58,19 @@ public class DateParserTest {
     assertEquals("0001-01-01", DateParser.toString(Date.fromYearMonthDay(1, 1, 1)));
     assertEquals("+10000-01-01", DateParser.toString(Date.fromYearMonthDay(10000, 1, 1)));
   }
+
+  @Test
+  public void testTextParse() {
+    for (String value : new String[] {"2022-07-08", "2022-07-08 +01", "2022-07-08 10:00"}) {
+      assertEquals(
+          value,
+          Date.fromYearMonthDay(2022, 7, 8),
+          new DateParser(value.getBytes(StandardCharsets.UTF_8), FormatCode.TEXT).getItem());
+    }
+    assertEquals(
+        Date.fromYearMonthDay(1, 1, 1),
+        new DateParser("0001-01-01".getBytes(StandardCharsets.UTF_8), FormatCode.TEXT).getItem());
+    assertNull(DateTimeScanner.parseDatePrefix("2022-02-30"));
+    assertNull(DateTimeScanner.parseDatePrefix("2022-7-08 "));
+  }
 }
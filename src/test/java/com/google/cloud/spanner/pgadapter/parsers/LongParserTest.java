@@ -47,6 +47,13 @@ public class LongParserTest {
     ByteConverter.int4(data, 0, i);
     assertEquals(i, LongParser.toLong(data));
 
+    // A value can also be read from a part of a larger buffer.
+    data = new byte[16];
+    ByteConverter.int8(data, 4, l);
+    assertEquals(l, LongParser.toLong(data, 4, 8));
+    ByteConverter.int4(data, 2, i);
+    assertEquals(i, LongParser.toLong(data, 2, 4));
+
     SpannerException spannerException =
         assertThrows(SpannerException.class, () -> LongParser.toLong(new byte[2]));
     assertEquals(ErrorCode.INVALID_ARGUMENT, spannerException.getErrorCode());
@@ -0,0 +1,179 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.parsers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.pgadapter.parsers.Parser.FormatCode;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.postgresql.core.Oid;
+import org.postgresql.util.ByteConverter;
+
+@RunWith(JUnit4.class)
+public class ParameterBinderTest {
+  private static final SessionState SESSION_STATE = mock(SessionState.class);
+
+  private static byte[] text(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] int2(short value) {
+    byte[] result = new byte[2];
+    ByteConverter.int2(result, 0, value);
+    return result;
+  }
+
+  private static byte[] int4(int value) {
+    byte[] result = new byte[4];
+    ByteConverter.int4(result, 0, value);
+    return result;
+  }
+
+  private static byte[] int8(long value) {
+    byte[] result = new byte[8];
+    ByteConverter.int8(result, 0, value);
+    return result;
+  }
+
+  private static byte[] float8(double value) {
+    byte[] result = new byte[8];
+    ByteConverter.float8(result, 0, value);
+    return result;
+  }
+
+  /** Binds the value with both a binder and a parser and verifies that the results are equal. */
+  private static void assertSameAsParser(int oid, FormatCode formatCode, byte[] value) {
+    Statement.Builder expected = Statement.newBuilder("select $1");
+    RuntimeException expectedException = null;
+    try {
+      Parser.create(SESSION_STATE, value, oid, formatCode).bind(expected, "p1");
+    } catch (RuntimeException exception) {
+      expectedException = exception;
+    }
+    Statement.Builder actual = Statement.newBuilder("select $1");
+    ParameterBinder binder = ParameterBinder.create(oid, formatCode);
+    if (expectedException == null) {
+      binder.bind(actual, "p1", value, SESSION_STATE);
+      assertEquals(
+          oid + "/" + formatCode + "/" + Arrays.toString(value), expected.build(), actual.build());
+    } else {
+      RuntimeException actualException =
+          assertThrows(
+              RuntimeException.class, () -> binder.bind(actual, "p1", value, SESSION_STATE));
+      assertEquals(expectedException.getClass(), actualException.getClass());
+      assertEquals(expectedException.getMessage(), actualException.getMessage());
+    }
+  }
+
+  @Test
+  public void testIntegers() {
+    List<String> values =
+        Arrays.asList(
+            "0",
+            "-0",
+            "1",
+            "-1",
+            "123456789",
+            "32767",
+            "-32768",
+            "32768",
+            "2147483647",
+            "-2147483648",
+            "2147483648",
+            "999999999999999999",
+            "-999999999999999999",
+            "9223372036854775807",
+            "-9223372036854775808",
+            "9223372036854775808",
+            "1.5",
+            "-1.5",
+            "1e3",
+            "+1",
+            " 1",
+            "",
+            "-",
+            "abc",
+            "1a");
+    for (int oid : new int[] {Oid.INT2, Oid.INT4, Oid.INT8}) {
+      assertSameAsParser(oid, FormatCode.TEXT, null);
+      assertSameAsParser(oid, FormatCode.BINARY, null);
+      for (String value : values) {
+        assertSameAsParser(oid, FormatCode.TEXT, text(value));
+      }
+    }
+    assertSameAsParser(Oid.INT2, FormatCode.BINARY, int2(Short.MIN_VALUE));
+    assertSameAsParser(Oid.INT4, FormatCode.BINARY, int4(Integer.MAX_VALUE));
+    assertSameAsParser(Oid.INT8, FormatCode.BINARY, int8(Long.MIN_VALUE));
+    assertSameAsParser(Oid.INT8, FormatCode.BINARY, int4(-1));
+    assertSameAsParser(Oid.INT8, FormatCode.BINARY, new byte[3]);
+  }
+
+  @Test
+  public void testOtherTypes() {
+    for (String value : Arrays.asList("true", "FALSE", "t", "on", "0", "yes", "invalid")) {
+      assertSameAsParser(Oid.BOOL, FormatCode.TEXT, text(value));
+    }
+    assertSameAsParser(Oid.BOOL, FormatCode.BINARY, new byte[] {1});
+    assertSameAsParser(Oid.BOOL, FormatCode.BINARY, new byte[0]);
+    assertSameAsParser(Oid.BOOL, FormatCode.BINARY, null);
+
+    for (String value : Arrays.asList("3.14", "-1e10", "Infinity", "invalid")) {
+      assertSameAsParser(Oid.FLOAT8, FormatCode.TEXT, text(value));
+    }
+    assertSameAsParser(Oid.FLOAT8, FormatCode.BINARY, float8(3.14d));
+    assertSameAsParser(Oid.FLOAT8, FormatCode.BINARY, new byte[4]);
+    assertSameAsParser(Oid.FLOAT8, FormatCode.TEXT, null);
+
+    for (int oid : new int[] {Oid.TEXT, Oid.VARCHAR, Oid.UNSPECIFIED}) {
+      for (FormatCode formatCode : FormatCode.values()) {
+        assertSameAsParser(oid, formatCode, text("test ünïcödé"));
+        assertSameAsParser(oid, formatCode, text(""));
+        assertSameAsParser(oid, formatCode, null);
+      }
+    }
+
+    assertSameAsParser(Oid.NUMERIC, FormatCode.TEXT, text("3.14"));
+    assertSameAsParser(Oid.DATE, FormatCode.TEXT, text("2022-10-09"));
+    assertSameAsParser(Oid.BYTEA, FormatCode.BINARY, new byte[] {1, 2, 3});
+  }
+
+  @Test
+  public void testSessionStateDependence() {
+    assertTrue(ParameterBinder.create(Oid.INT8, FormatCode.TEXT).isIndependentOfSessionState());
+    assertTrue(
+        ParameterBinder.create(Oid.VARCHAR, FormatCode.BINARY).isIndependentOfSessionState());
+    assertFalse(
+        ParameterBinder.create(Oid.TIMESTAMPTZ, FormatCode.TEXT).isIndependentOfSessionState());
+  }
+
+  @Test
+  public void testParameterNames() {
+    assertEquals("p1", ParameterBinder.getParameterName(0));
+    assertEquals("p64", ParameterBinder.getParameterName(63));
+    assertEquals("p65", ParameterBinder.getParameterName(64));
+    assertEquals("p1000", ParameterBinder.getParameterName(999));
+  }
+}
@@ -179,4 +179,69 @@ public class TimestampParserTest {
         TimestampParser.toTimestamp(
             "\t\n( \"  2011-11-04 00:05:23.123456+00:00  \n\t\" )", ZoneId.of("UTC")));
   }
+
+  @Test
+  public void testScannerMatchesFormatter() {
+    Random random = new Random();
+    String[] zones =
+        new String[] {"UTC", "Europe/Oslo", "America/New_York", "Asia/Kolkata", "-09:00"};
+    String[] offsets = new String[] {"", "Z", "+00", "+01", "-08", "+05:30", "-03:30", "+14:00"};
+    for (int i = 0; i < 2000; i++) {
+      int year = random.nextInt(9998) + 2;
+      int month = random.nextInt(12) + 1;
+      int day = random.nextInt(28) + 1;
+      StringBuilder value = new StringBuilder(String.format("%04d-%02d-%02d", year, month, day));
+      int shape = random.nextInt(4);
+      if (shape > 0) {
+        value
+            .append(random.nextBoolean() ? ' ' : 'T')
+            .append(String.format("%02d:%02d", random.nextInt(24), random.nextInt(60)));
+      }
+      if (shape > 1) {
+        value.append(String.format(":%02d", random.nextInt(60)));
+        if (random.nextBoolean()) {
+          String nanos = String.format("%09d", random.nextInt(1_000_000_000));
+          value.append('.').append(nanos, 0, random.nextInt(9) + 1);
+        }
+        if (shape > 2) {
+          value.append(offsets[random.nextInt(offsets.length)]);
+        }
+      }
+      ZoneId zoneId = ZoneId.of(zones[random.nextInt(zones.length)]);
+
+      Timestamp timestamp = DateTimeScanner.parseTimestamp(value.toString(), zoneId);
+      assertEquals(
+          value + " " + zoneId,
+          TimestampParser.parseWithFormatter(value.toString(), zoneId),
+          timestamp);
+    }
+  }
+
+  @Test
+  public void testScannerFallsBackForUnrecognizedValues() {
+    ZoneId zoneId = ZoneId.of("UTC");
+    for (String value :
+        new String[] {
+          "2022",
+          "2022-02-30",
+          "2022-13-01",
+          "0000-01-01",
+          "2022-01-01 24:00:00",
+          "2022-01-01 10:00+02:00",
+          "2022-01-01 10:00:00.",
+          "2022-01-01 10:00:00.1234567891",
+          "2022-01-01 10:00:00+19",
+          "2022-01-01 10:00:00+0100",
+          "2022-01-01 10:00:00 +01",
+          "2022-01-01 10:00:00z",
+          "0001-01-01 00:00:00+01",
+          "+10000-01-01"
+        }) {
+      assertNull(value, DateTimeScanner.parseTimestamp(value, zoneId));
+    }
+    // The formatters still handle values that are not recognized by the scanner.
+    assertEquals(
+        Timestamp.parseTimestamp("2022-01-01T08:00:00Z"),
+        TimestampParser.toTimestamp("2022-01-01 10:00+02:00", zoneId));
+  }
 }
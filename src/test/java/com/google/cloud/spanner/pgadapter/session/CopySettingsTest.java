@@ -47,6 +47,19 @@ public class CopySettingsTest {
     assertEquals(copySettings.getMaxParallelism(), 256);
   }
 
+  @Test
+  public void testParseParallelism() {
+    SessionState sessionState = new SessionState(mock(OptionsMetadata.class));
+    CopySettings copySettings = new CopySettings(sessionState);
+    assertEquals(1, copySettings.getParseParallelism());
+    assertTrue(copySettings.isCommitInOrder());
+
+    sessionState.set("spanner", "copy_parse_parallelism", "8");
+    sessionState.set("spanner", "copy_commit_in_order", "false");
+    assertEquals(8, copySettings.getParseParallelism());
+    assertFalse(copySettings.isCommitInOrder());
+  }
+
   @Test
   public void testUpsert() {
     try {
@@ -0,0 +1,116 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.statements;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.statements.ParsedStatementCache.CachedStatement;
+import com.google.cloud.spanner.pgadapter.statements.ParsedStatementCache.StatementKind;
+import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
+import com.google.cloud.spanner.pgadapter.utils.PgJdbcCatalog;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ParsedStatementCacheTest {
+
+  @Test
+  public void testCacheHitsAndMisses() {
+    ParsedStatementCache cache = new ParsedStatementCache(mock(OptionsMetadata.class), 10);
+    CachedStatement first = cache.get(WellKnownClient.UNSPECIFIED, "select * from foo");
+    CachedStatement second = cache.get(WellKnownClient.UNSPECIFIED, "select * from foo");
+    CachedStatement otherClient = cache.get(WellKnownClient.PSQL, "select * from foo");
+
+    assertSame(first, second);
+    assertNotSame(first, otherClient);
+    assertEquals(1L, cache.getStats().hitCount());
+    assertEquals(2L, cache.getStats().missCount());
+    assertEquals(2L, cache.size());
+
+    assertEquals("SELECT", first.getCommand());
+    assertEquals(StatementKind.OTHER, first.getKind());
+    assertFalse(first.isReplaced());
+    assertSame(first.getOriginalParsedStatement(), first.getParsedStatement());
+    Statement statement = Statement.of("select * from foo");
+    assertSame(statement, first.getStatement(statement));
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    ParsedStatementCache cache = new ParsedStatementCache(mock(OptionsMetadata.class), 10);
+    for (int i = 0; i < 100; i++) {
+      cache.get(WellKnownClient.UNSPECIFIED, "select " + i);
+    }
+    assertTrue(cache.size() <= 10L);
+  }
+
+  @Test
+  public void testReplacedStatement() {
+    ParsedStatementCache cache = new ParsedStatementCache(mock(OptionsMetadata.class), 10);
+    String sql = PgJdbcCatalog.PG_JDBC_GET_EDB_REDWOOD_DATE_QUERY;
+
+    CachedStatement unspecified = cache.get(WellKnownClient.UNSPECIFIED, sql);
+    assertFalse(unspecified.isReplaced());
+
+    CachedStatement jdbc = cache.get(WellKnownClient.JDBC, sql);
+    assertTrue(jdbc.isReplaced());
+    assertEquals(
+        PgJdbcCatalog.PG_JDBC_GET_EDB_REDWOOD_DATE_REPLACEMENT,
+        jdbc.getStatement(Statement.of(sql)).getSql());
+    assertEquals(
+        PgJdbcCatalog.PG_JDBC_GET_EDB_REDWOOD_DATE_REPLACEMENT,
+        jdbc.getParsedStatement().getSqlWithoutComments());
+    assertEquals(sql, jdbc.getOriginalParsedStatement().getSqlWithoutComments());
+  }
+
+  @Test
+  public void testClassify() {
+    ParsedStatementCache cache = new ParsedStatementCache(mock(OptionsMetadata.class), 100);
+    assertEquals(
+        StatementKind.COPY,
+        cache.get(WellKnownClient.UNSPECIFIED, "copy foo from stdin").getKind());
+    assertEquals(
+        StatementKind.PREPARE,
+        cache.get(WellKnownClient.UNSPECIFIED, "prepare foo as select 1").getKind());
+    assertEquals(
+        StatementKind.EXECUTE, cache.get(WellKnownClient.UNSPECIFIED, "execute foo").getKind());
+    assertEquals(
+        StatementKind.DEALLOCATE,
+        cache.get(WellKnownClient.UNSPECIFIED, "deallocate foo").getKind());
+    assertEquals(
+        StatementKind.VACUUM, cache.get(WellKnownClient.UNSPECIFIED, "vacuum foo").getKind());
+    assertEquals(
+        StatementKind.TRUNCATE, cache.get(WellKnownClient.UNSPECIFIED, "truncate foo").getKind());
+    assertEquals(
+        StatementKind.SAVEPOINT, cache.get(WellKnownClient.UNSPECIFIED, "savepoint foo").getKind());
+    assertEquals(
+        StatementKind.RELEASE, cache.get(WellKnownClient.UNSPECIFIED, "release foo").getKind());
+    assertEquals(
+        StatementKind.ROLLBACK_TO,
+        cache.get(WellKnownClient.UNSPECIFIED, "rollback to savepoint foo").getKind());
+    assertEquals(StatementKind.OTHER, cache.get(WellKnownClient.UNSPECIFIED, "rollback").getKind());
+    assertEquals(
+        StatementKind.OTHER,
+        cache.get(WellKnownClient.UNSPECIFIED, "insert into foo values (1)").getKind());
+  }
+}
@@ -20,7 +20,9 @@ import static com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.EMPTY_
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -391,6 +393,60 @@ public class StatementTest {
         boundStatement.getParameters().get("p1"));
   }
 
+  @Test
+  public void testPreparedStatementReusesBoundStatementForSameValues() {
+    when(connectionHandler.getConnectionMetadata()).thenReturn(connectionMetadata);
+    ExtendedQueryProtocolHandler extendedQueryProtocolHandler =
+        mock(ExtendedQueryProtocolHandler.class);
+    when(connectionHandler.getExtendedQueryProtocolHandler())
+        .thenReturn(extendedQueryProtocolHandler);
+    when(extendedQueryProtocolHandler.getBackendConnection()).thenReturn(backendConnection);
+    SessionState sessionState = mock(SessionState.class);
+    when(backendConnection.getSessionState()).thenReturn(sessionState);
+
+    String sqlStatement = "SELECT * FROM users WHERE id = $1 AND name = $2";
+    Statement statement = Statement.of(sqlStatement);
+    IntermediatePreparedStatement intermediateStatement =
+        new IntermediatePreparedStatement(
+            connectionHandler,
+            options,
+            "",
+            new int[] {Oid.INT8, Oid.VARCHAR},
+            parse(sqlStatement),
+            statement);
+
+    Statement first =
+        intermediateStatement
+            .createPortal(
+                "",
+                new byte[][] {"1".getBytes(), "foo".getBytes()},
+                ImmutableList.of(),
+                ImmutableList.of())
+            .bind(statement);
+    Statement second =
+        intermediateStatement
+            .createPortal(
+                "",
+                new byte[][] {"1".getBytes(), "foo".getBytes()},
+                ImmutableList.of(),
+                ImmutableList.of())
+            .bind(statement);
+    Statement third =
+        intermediateStatement
+            .createPortal(
+                "",
+                new byte[][] {"2".getBytes(), "foo".getBytes()},
+                ImmutableList.of(),
+                ImmutableList.of())
+            .bind(statement);
+
+    assertSame(first, second);
+    assertNotSame(first, third);
+    assertEquals(Value.int64(1L), first.getParameters().get("p1"));
+    assertEquals(Value.string("foo"), first.getParameters().get("p2"));
+    assertEquals(Value.int64(2L), third.getParameters().get("p1"));
+  }
+
   @Test
   public void testPreparedStatementDescribeDoesNotThrowException() {
     when(connectionHandler.getSpannerConnection()).thenReturn(connection);
@@ -21,12 +21,15 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import com.google.cloud.ByteArray;
 import com.google.cloud.spanner.ErrorCode;
 import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.Type;
 import com.google.cloud.spanner.Value;
-import com.google.cloud.spanner.pgadapter.utils.BinaryCopyParser.BinaryField;
 import com.google.cloud.spanner.pgadapter.utils.BinaryCopyParser.BinaryRecord;
+import com.google.common.base.Strings;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PipedInputStream;
@@ -354,8 +357,10 @@ public class BinaryCopyParserTest {
 
   @Test
   public void testBinaryRecord() {
-    BinaryRecord record = new BinaryRecord(new BinaryField[1]);
+    BinaryRecord record = new BinaryRecord(1);
     assertFalse(record.hasColumnNames());
+    assertTrue(record.isNull(0));
+    assertEquals(Value.int64(null), record.getValue(Type.int64(), 0));
     assertThrows(
         UnsupportedOperationException.class, () -> record.getValue(Type.string(), "column_name"));
     assertThrows(IllegalArgumentException.class, () -> record.getValue(Type.string(), 10));
@@ -424,4 +429,45 @@ public class BinaryCopyParserTest {
 
     assertFalse(iterator.hasNext());
   }
+
+  @Test
+  public void testRowsLargerThanBuffer() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(output);
+    data.write(COPY_BINARY_HEADER);
+    data.writeInt(0);
+    data.writeInt(0);
+    int numRows = 100;
+    for (int row = 0; row < numRows; row++) {
+      data.writeShort(3);
+      data.writeInt(8);
+      data.writeLong(row);
+      byte[] value = Strings.repeat(String.valueOf(row), row).getBytes(StandardCharsets.UTF_8);
+      data.writeInt(value.length);
+      data.write(value);
+      data.writeInt(value.length);
+      data.write(value);
+    }
+    data.writeShort(-1);
+
+    // Use a buffer that is smaller than most rows, so the parser has to both compact and grow the
+    // buffer.
+    BinaryCopyParser parser =
+        new BinaryCopyParser(new ByteArrayInputStream(output.toByteArray()), 1L, 16);
+    Iterator<CopyRecord> iterator = parser.iterator();
+    for (int row = 0; row < numRows; row++) {
+      assertTrue(iterator.hasNext());
+      CopyRecord record = iterator.next();
+      // The record stays valid until the next call to next(), also if hasNext() reads more data.
+      assertEquals(row < numRows - 1, iterator.hasNext());
+      String value = Strings.repeat(String.valueOf(row), row);
+      assertEquals(row + 1, record.getLineNumber());
+      assertEquals(Value.int64(row), record.getValue(Type.int64(), 0));
+      assertEquals(Value.string(value), record.getValue(Type.string(), 1));
+      assertEquals(
+          Value.bytes(ByteArray.copyFrom(value.getBytes(StandardCharsets.UTF_8))),
+          record.getValue(Type.bytes(), 2));
+    }
+    assertFalse(iterator.hasNext());
+  }
 }
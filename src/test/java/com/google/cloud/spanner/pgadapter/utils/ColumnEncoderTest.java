@@ -0,0 +1,296 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
+import com.google.cloud.spanner.pgadapter.parsers.TimestampParser;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.wireoutput.OutputBuffer;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ColumnEncoderTest {
+
+  static final Type ROW_TYPE =
+      Type.struct(
+          StructField.of("bool", Type.bool()),
+          StructField.of("bytes", Type.bytes()),
+          StructField.of("date", Type.date()),
+          StructField.of("float64", Type.float64()),
+          StructField.of("int64", Type.int64()),
+          StructField.of("numeric", Type.pgNumeric()),
+          StructField.of("string", Type.string()),
+          StructField.of("timestamp", Type.timestamp()),
+          StructField.of("jsonb", Type.pgJsonb()),
+          StructField.of("int64_array", Type.array(Type.int64())));
+
+  static ResultSet createResultSet() {
+    return ResultSets.forRows(
+        ROW_TYPE,
+        ImmutableList.of(
+            Struct.newBuilder()
+                .set("bool")
+                .to(true)
+                .set("bytes")
+                .to(ByteArray.copyFrom("test"))
+                .set("date")
+                .to(Date.parseDate("2022-03-29"))
+                .set("float64")
+                .to(3.14d)
+                .set("int64")
+                .to(100L)
+                .set("numeric")
+                .to(Value.pgNumeric("6.626"))
+                .set("string")
+                .to("test ø €")
+                .set("timestamp")
+                .to(Timestamp.parseTimestamp("2022-02-16T13:18:02.123456789Z"))
+                .set("jsonb")
+                .to(Value.pgJsonb("{\"key\": \"value\"}"))
+                .set("int64_array")
+                .toInt64Array(Arrays.asList(1L, null, 2L))
+                .build(),
+            Struct.newBuilder()
+                .set("bool")
+                .to(false)
+                .set("bytes")
+                .to(ByteArray.copyFrom(new byte[0]))
+                .set("date")
+                .to(Date.parseDate("0001-01-01"))
+                .set("float64")
+                .to(Double.NaN)
+                .set("int64")
+                .to(Long.MIN_VALUE)
+                .set("numeric")
+                .to(Value.pgNumeric("NaN"))
+                .set("string")
+                .to("")
+                .set("timestamp")
+                .to(Timestamp.parseTimestamp("0001-01-01T00:00:00Z"))
+                .set("jsonb")
+                .to(Value.pgJsonb("[]"))
+                .set("int64_array")
+                .toInt64Array(Arrays.asList())
+                .build()));
+  }
+
+  @Test
+  public void testEncodersMatchConverter() throws IOException {
+    SessionState sessionState = mock(SessionState.class);
+    when(sessionState.getTimezone()).thenReturn(ZoneId.of("Europe/Oslo"));
+    for (DataFormat format : DataFormat.values()) {
+      ResultSet resultSet = createResultSet();
+      while (resultSet.next()) {
+        for (int index = 0; index < resultSet.getColumnCount(); index++) {
+          ColumnEncoder encoder =
+              ColumnEncoder.create(resultSet.getColumnType(index), format, sessionState);
+          ByteArrayOutputStream out = new ByteArrayOutputStream();
+          OutputBuffer buffer = new OutputBuffer(out, 16);
+          encoder.encode(resultSet, index, buffer);
+          buffer.flush();
+
+          assertArrayEquals(
+              format + " " + resultSet.getType().getStructFields().get(index).getName(),
+              Converter.convertToPG(resultSet, index, format, sessionState),
+              out.toByteArray());
+        }
+      }
+    }
+  }
+
+  private static void assertTextEncodersMatchConverter(Type type, List<Value> values)
+      throws IOException {
+    SessionState sessionState = mock(SessionState.class);
+    List<Struct> rows = new ArrayList<>(values.size());
+    for (Value value : values) {
+      rows.add(Struct.newBuilder().set("col").to(value).build());
+    }
+    for (DataFormat format : new DataFormat[] {DataFormat.POSTGRESQL_TEXT, DataFormat.SPANNER}) {
+      ColumnEncoder encoder = ColumnEncoder.create(type, format, sessionState);
+      ResultSet resultSet = ResultSets.forRows(Type.struct(StructField.of("col", type)), rows);
+      while (resultSet.next()) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputBuffer buffer = new OutputBuffer(out, 4);
+        encoder.encode(resultSet, 0, buffer);
+        buffer.flush();
+        assertArrayEquals(
+            resultSet.getValue(0).toString(),
+            Converter.convertToPG(resultSet, 0, format, sessionState),
+            out.toByteArray());
+      }
+    }
+  }
+
+  @Test
+  public void testInt64TextEncoder() throws IOException {
+    List<Value> values =
+        new ArrayList<>(
+            Arrays.asList(
+                Value.int64(0L),
+                Value.int64(1L),
+                Value.int64(-1L),
+                Value.int64(9L),
+                Value.int64(10L),
+                Value.int64(Long.MAX_VALUE),
+                Value.int64(Long.MIN_VALUE),
+                Value.int64(Long.MIN_VALUE + 1),
+                Value.int64(999_999_999_999_999_999L),
+                Value.int64(1_000_000_000_000_000_000L)));
+    Random random = new Random();
+    for (int i = 0; i < 1000; i++) {
+      values.add(Value.int64(random.nextLong() >> random.nextInt(64)));
+    }
+    assertTextEncodersMatchConverter(Type.int64(), values);
+  }
+
+  @Test
+  public void testFloat64TextEncoder() throws IOException {
+    List<Value> values =
+        new ArrayList<>(
+            Arrays.asList(
+                Value.float64(0d),
+                Value.float64(-0d),
+                Value.float64(1d),
+                Value.float64(-1d),
+                Value.float64(0.001d),
+                Value.float64(0.0001d),
+                Value.float64(9_999_999d),
+                Value.float64(10_000_000d),
+                Value.float64(-9_999_999d),
+                Value.float64(3.14d),
+                Value.float64(Double.NaN),
+                Value.float64(Double.POSITIVE_INFINITY),
+                Value.float64(Double.NEGATIVE_INFINITY),
+                Value.float64(Double.MIN_VALUE),
+                Value.float64(Double.MAX_VALUE)));
+    Random random = new Random();
+    for (int i = 0; i < 1000; i++) {
+      values.add(Value.float64(random.nextInt(20_000_000) - 10_000_000));
+      values.add(Value.float64(random.nextDouble() * Math.pow(10, random.nextInt(20) - 5)));
+      values.add(Value.float64(Double.longBitsToDouble(random.nextLong())));
+    }
+    assertTextEncodersMatchConverter(Type.float64(), values);
+  }
+
+  @Test
+  public void testBoolTextEncoder() throws IOException {
+    assertTextEncodersMatchConverter(
+        Type.bool(), Arrays.asList(Value.bool(true), Value.bool(false)));
+  }
+
+  @Test
+  public void testDateTextEncoder() throws IOException {
+    List<Value> values =
+        new ArrayList<>(
+            Arrays.asList(
+                Value.date(Date.fromYearMonthDay(1, 1, 1)),
+                Value.date(Date.fromYearMonthDay(999, 12, 31)),
+                Value.date(Date.fromYearMonthDay(1000, 1, 1)),
+                Value.date(Date.fromYearMonthDay(9999, 12, 31)),
+                Value.date(Date.fromYearMonthDay(2022, 10, 9))));
+    Random random = new Random();
+    for (int i = 0; i < 1000; i++) {
+      values.add(
+          Value.date(
+              Date.fromYearMonthDay(
+                  random.nextInt(9999) + 1, random.nextInt(12) + 1, random.nextInt(28) + 1)));
+    }
+    assertTextEncodersMatchConverter(Type.date(), values);
+  }
+
+  @Test
+  public void testTimestampTextEncoder() throws IOException {
+    long minSeconds = Timestamp.MIN_VALUE.getSeconds();
+    long maxSeconds = Timestamp.MAX_VALUE.getSeconds();
+    List<Timestamp> timestamps =
+        new ArrayList<>(
+            Arrays.asList(
+                Timestamp.MIN_VALUE,
+                Timestamp.MAX_VALUE,
+                Timestamp.ofTimeSecondsAndNanos(0L, 0),
+                Timestamp.ofTimeSecondsAndNanos(-1L, 999_999_999),
+                Timestamp.parseTimestamp("2022-02-16T13:18:02.123456789Z"),
+                Timestamp.parseTimestamp("2022-02-16T13:18:02.1Z"),
+                Timestamp.parseTimestamp("2022-02-16T13:18:02.000001Z"),
+                Timestamp.parseTimestamp("2022-02-16T13:18:02.000000999Z"),
+                Timestamp.parseTimestamp("2000-02-29T23:59:59Z"),
+                Timestamp.parseTimestamp("1900-03-01T00:00:00Z"),
+                Timestamp.parseTimestamp("1850-06-01T12:00:00Z")));
+    Random random = new Random();
+    // Consecutive values that cross DST transitions.
+    long seconds = Timestamp.parseTimestamp("2021-01-01T00:00:00Z").getSeconds();
+    for (int i = 0; i < 1000; i++) {
+      seconds += random.nextInt(24 * 60 * 60);
+      timestamps.add(Timestamp.ofTimeSecondsAndNanos(seconds, random.nextInt(1_000_000_000)));
+    }
+    for (int i = 0; i < 1000; i++) {
+      timestamps.add(
+          Timestamp.ofTimeSecondsAndNanos(
+              minSeconds + (long) (random.nextDouble() * (maxSeconds - minSeconds)),
+              random.nextInt(1_000_000_000)));
+    }
+    for (String zone :
+        new String[] {
+          "UTC",
+          "Europe/Oslo",
+          "America/New_York",
+          "America/Sao_Paulo",
+          "Asia/Kolkata",
+          "Australia/Lord_Howe",
+          "Pacific/Chatham",
+          "Pacific/Kiritimati",
+          "Africa/Monrovia",
+          "-00:30",
+          "+14:00"
+        }) {
+      ZoneId zoneId = ZoneId.of(zone);
+      TimestampTextEncoder encoder = new TimestampTextEncoder(zoneId);
+      for (Timestamp timestamp : timestamps) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputBuffer buffer = new OutputBuffer(out, 8);
+        encoder.encode(timestamp, buffer);
+        buffer.flush();
+        assertArrayEquals(
+            zone + " " + timestamp,
+            TimestampParser.toPGString(timestamp, zoneId).getBytes(StandardCharsets.UTF_8),
+            out.toByteArray());
+      }
+    }
+  }
+}
@@ -0,0 +1,177 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.InetAddresses;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ConnectionAdmissionControllerTest {
+  private static final InetAddress CLIENT_A = InetAddress.getLoopbackAddress();
+  private static final InetAddress CLIENT_B = InetAddresses.forString("10.0.0.1");
+
+  private static void awaitQueueDepth(ConnectionAdmissionController controller, int depth)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+    while (controller.getQueueDepth() != depth && System.nanoTime() < deadline) {
+      Thread.sleep(1L);
+    }
+    assertEquals(depth, controller.getQueueDepth());
+  }
+
+  @Test
+  public void testInvalidArguments() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ConnectionAdmissionController(0, 1, Duration.ofSeconds(1L)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ConnectionAdmissionController(1, -1, Duration.ofSeconds(1L)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ConnectionAdmissionController(1, 1, Duration.ofSeconds(-1L)));
+  }
+
+  @Test
+  public void testAdmitsUpToMaxConnections() {
+    ConnectionAdmissionController controller =
+        new ConnectionAdmissionController(2, 0, Duration.ofSeconds(10L));
+    assertTrue(controller.tryAcquire(CLIENT_A));
+    assertTrue(controller.tryAcquire(CLIENT_A));
+    // The queue has size zero, so the connection is rejected without waiting.
+    assertFalse(controller.tryAcquire(CLIENT_A));
+    assertEquals(2, controller.getActiveConnections());
+    assertEquals(2, controller.getAdmittedConnections());
+    assertEquals(1, controller.getRejectedConnections());
+
+    controller.release();
+    assertEquals(1, controller.getActiveConnections());
+    assertTrue(controller.tryAcquire(CLIENT_A));
+  }
+
+  @Test
+  public void testRejectsAfterTimeout() {
+    ConnectionAdmissionController controller =
+        new ConnectionAdmissionController(1, 10, Duration.ofMillis(20L));
+    assertTrue(controller.tryAcquire(CLIENT_A));
+    assertFalse(controller.tryAcquire(CLIENT_A));
+    assertEquals(0, controller.getQueueDepth());
+    assertEquals(1, controller.getQueuedConnections());
+    assertEquals(1, controller.getRejectedConnections());
+    assertTrue(controller.getMaxWaitTime().toMillis() >= 20L);
+
+    // The timed out connection did not take the slot.
+    controller.release();
+    assertEquals(0, controller.getActiveConnections());
+  }
+
+  @Test
+  public void testRejectsWithoutWaiting() {
+    ConnectionAdmissionController controller =
+        new ConnectionAdmissionController(1, 10, Duration.ofSeconds(10L));
+    assertTrue(controller.tryAcquire(CLIENT_A, false));
+    long start = System.nanoTime();
+    assertFalse(controller.tryAcquire(CLIENT_A, false));
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5L));
+    assertEquals(0, controller.getQueueDepth());
+    assertEquals(0, controller.getQueuedConnections());
+    assertEquals(1, controller.getRejectedConnections());
+
+    controller.release();
+    assertTrue(controller.tryAcquire(CLIENT_A, false));
+  }
+
+  @Test
+  public void testRejectsWhenQueueIsFull() throws Exception {
+    ConnectionAdmissionController controller =
+        new ConnectionAdmissionController(1, 1, Duration.ofSeconds(10L));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      assertTrue(controller.tryAcquire(CLIENT_A));
+      Future<Boolean> waiting = executor.submit(() -> controller.tryAcquire(CLIENT_A));
+      awaitQueueDepth(controller, 1);
+      assertFalse(controller.tryAcquire(CLIENT_B));
+
+      controller.release();
+      assertTrue(waiting.get());
+      assertEquals(1, controller.getActiveConnections());
+      assertEquals(0, controller.getQueueDepth());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRoundRobinAcrossClients() throws Exception {
+    ConnectionAdmissionController controller =
+        new ConnectionAdmissionController(1, 10, Duration.ofSeconds(10L));
+    ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      assertTrue(controller.tryAcquire(CLIENT_A));
+      List<String> admitted = new ArrayList<>();
+      List<Future<?>> futures = new ArrayList<>();
+      // Client A queues three connections before client B queues one.
+      for (String name : ImmutableList.of("a1", "a2", "a3", "b1")) {
+        InetAddress client = name.startsWith("a") ? CLIENT_A : CLIENT_B;
+        futures.add(
+            executor.submit(
+                () -> {
+                  assertTrue(controller.tryAcquire(client));
+                  synchronized (admitted) {
+                    admitted.add(name);
+                  }
+                }));
+        awaitQueueDepth(controller, futures.size());
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        controller.release();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (System.nanoTime() < deadline) {
+          synchronized (admitted) {
+            if (admitted.size() == i + 1) {
+              break;
+            }
+          }
+          Thread.sleep(1L);
+        }
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      assertEquals(ImmutableList.of("a1", "b1", "a2", "a3"), admitted);
+      assertEquals(1, controller.getActiveConnections());
+      assertEquals(4, controller.getQueuedConnections());
+      assertEquals(0, controller.getRejectedConnections());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
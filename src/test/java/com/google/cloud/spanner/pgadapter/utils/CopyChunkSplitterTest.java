@@ -0,0 +1,196 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static com.google.cloud.spanner.pgadapter.statements.CopyToStatement.COPY_BINARY_HEADER;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.statements.CopyStatement.Format;
+import com.google.cloud.spanner.pgadapter.utils.CopyChunkSplitter.CopyChunk;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.apache.commons.csv.CSVFormat;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CopyChunkSplitterTest {
+
+  /** Splits the data and returns each chunk as '<first line number>:<data>'. */
+  private static List<String> split(CSVFormat format, String data, int chunkSize)
+      throws IOException {
+    CopyChunkSplitter splitter =
+        new CopyChunkSplitter(
+            Format.TEXT,
+            format,
+            new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)),
+            chunkSize);
+    ImmutableList.Builder<String> chunks = ImmutableList.builder();
+    CopyChunk chunk;
+    while ((chunk = splitter.nextChunk()) != null) {
+      byte[] bytes = ByteStreams.toByteArray(chunk.getInputStream());
+      chunks.add(chunk.getFirstLineNumber() + ":" + new String(bytes, StandardCharsets.UTF_8));
+    }
+    return chunks.build();
+  }
+
+  @Test
+  public void testIsSupported() {
+    assertTrue(CopyChunkSplitter.isSupported(Format.TEXT, CSVFormat.POSTGRESQL_TEXT));
+    assertTrue(CopyChunkSplitter.isSupported(Format.CSV, CSVFormat.POSTGRESQL_CSV));
+    assertTrue(CopyChunkSplitter.isSupported(Format.BINARY, null));
+    assertFalse(
+        CopyChunkSplitter.isSupported(
+            Format.CSV, CSVFormat.POSTGRESQL_CSV.builder().setDelimiter("||").build()));
+  }
+
+  @Test
+  public void testSplitText() throws IOException {
+    CSVFormat format = CSVFormat.POSTGRESQL_TEXT;
+    assertEquals(
+        ImmutableList.of("1:1\tOne\n", "2:2\tTwo\n", "3:3\tThree"),
+        split(format, "1\tOne\n2\tTwo\n3\tThree", 1));
+    // A chunk ends at the first record boundary after the chunk size.
+    assertEquals(
+        ImmutableList.of("1:1\tOne\n2\tTwo\n", "3:3\tThree\n"),
+        split(format, "1\tOne\n2\tTwo\n3\tThree\n", 10));
+    // Quoted and escaped line breaks do not end a record.
+    assertEquals(
+        ImmutableList.of("1:\"a\nb\"\t1\n", "3:c\\\nd\t2\n", "4:3\t3\n"),
+        split(format, "\"a\nb\"\t1\nc\\\nd\t2\n3\t3\n", 1));
+    // A chunk ends after a LF, or after a CR that is not followed by a LF.
+    assertEquals(
+        ImmutableList.of("1:1\r", "2:2\r\n", "3:3\n"), split(format, "1\r2\r\n3\n", 1));
+    assertEquals(ImmutableList.of(), split(format, "", 1));
+  }
+
+  @Test
+  public void testSplitCarriageReturnLineEndings() throws IOException {
+    CSVFormat format = CSVFormat.POSTGRESQL_TEXT;
+    assertEquals(
+        ImmutableList.of("1:1\tOne\r", "2:2\tTwo\r", "3:3\tThree\r"),
+        split(format, "1\tOne\r2\tTwo\r3\tThree\r", 1));
+    // Quoted and escaped CRs do not end a record.
+    assertEquals(
+        ImmutableList.of("1:\"a\rb\"\t1\r", "3:c\\\rd\t2\r", "4:3\t3"),
+        split(format, "\"a\rb\"\t1\rc\\\rd\t2\r3\t3", 1));
+    format = CSVFormat.POSTGRESQL_CSV.builder().setHeader().build();
+    assertEquals(
+        ImmutableList.of("1:id,name\r1,One\r", "2:id,name\r2,Two\r"),
+        split(format, "id,name\r1,One\r2,Two\r", 10));
+
+    // Data with only CR line endings is split into chunks of the requested size, and is not
+    // buffered until the end of the stream.
+    StringBuilder data = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      data.append(i).append("\tvalue ").append(i).append('\r');
+    }
+    List<String> chunks = split(CSVFormat.POSTGRESQL_TEXT, data.toString(), 64);
+    assertTrue(chunks.size() > 100);
+    long expectedLineNumber = 1L;
+    StringBuilder joined = new StringBuilder();
+    for (String chunk : chunks) {
+      int separator = chunk.indexOf(':');
+      assertEquals(expectedLineNumber, Long.parseLong(chunk.substring(0, separator)));
+      String content = chunk.substring(separator + 1);
+      assertTrue(content.length() < 64 + 20);
+      expectedLineNumber += content.chars().filter(c -> c == '\r').count();
+      joined.append(content);
+    }
+    assertEquals(data.toString(), joined.toString());
+  }
+
+  @Test
+  public void testSplitCsv() throws IOException {
+    CSVFormat format = CSVFormat.POSTGRESQL_CSV;
+    assertEquals(
+        ImmutableList.of("1:\"a\"\"\nb\",1\n", "3:\\,\"x\"\n"),
+        split(format, "\"a\"\"\nb\",1\n\\,\"x\"\n", 1));
+    // A quote that is not at the start of a field does not start a quoted field.
+    assertEquals(ImmutableList.of("1:a\"b,1\n", "2:c,2\n"), split(format, "a\"b,1\nc,2\n", 1));
+  }
+
+  @Test
+  public void testSplitWithHeader() throws IOException {
+    CSVFormat format = CSVFormat.POSTGRESQL_CSV.builder().setHeader().build();
+    // The header record is added to all chunks after the first chunk. The first line number is
+    // corrected for the number of lines in the header.
+    assertEquals(
+        ImmutableList.of("1:\"id\n\",name\n1,One\n", "2:\"id\n\",name\n2,Two\n"),
+        split(format, "\"id\n\",name\n1,One\n2,Two\n", 12));
+    // Column names in the format do not use a header record.
+    format = CSVFormat.POSTGRESQL_CSV.builder().setHeader("id", "name").build();
+    assertEquals(ImmutableList.of("1:1,One\n", "2:2,Two\n"), split(format, "1,One\n2,Two\n", 1));
+  }
+
+  @Test
+  public void testStopsAtEndMarker() throws IOException {
+    CSVFormat format = CSVFormat.POSTGRESQL_TEXT;
+    assertEquals(ImmutableList.of("1:1\n2\n", "3:\\.\n"), split(format, "1\n2\n\\.\n3\n", 3));
+    assertEquals(ImmutableList.of("1:1\n", "2:\\.\r"), split(format, "1\n\\.\r\n3\n", 1));
+  }
+
+  @Test
+  public void testSplitBinary() throws IOException {
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(header);
+    output.write(COPY_BINARY_HEADER);
+    output.writeInt(0);
+    output.writeInt(0);
+    ByteArrayOutputStream tuples = new ByteArrayOutputStream();
+    output = new DataOutputStream(tuples);
+    for (int row = 0; row < 3; row++) {
+      output.writeShort(2);
+      output.writeInt(4);
+      output.writeInt(row);
+      output.writeInt(-1);
+    }
+    int tupleLength = tuples.size() / 3;
+    output.writeShort(-1);
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    data.write(header.toByteArray());
+    data.write(tuples.toByteArray());
+
+    CopyChunkSplitter splitter =
+        new CopyChunkSplitter(
+            Format.BINARY, null, new ByteArrayInputStream(data.toByteArray()), tupleLength + 1);
+    for (int row = 0; row < 3; row += 2) {
+      CopyChunk chunk = splitter.nextChunk();
+      assertEquals(row + 1, chunk.getFirstLineNumber());
+      // Each chunk starts with the header, and contains two complete tuples, except the last chunk.
+      byte[] expected = new byte[header.size() + tupleLength * (row == 0 ? 2 : 1)];
+      System.arraycopy(header.toByteArray(), 0, expected, 0, header.size());
+      System.arraycopy(
+          tuples.toByteArray(),
+          row * tupleLength,
+          expected,
+          header.size(),
+          expected.length - header.size());
+      assertArrayEquals(expected, ByteStreams.toByteArray(chunk.getInputStream()));
+    }
+    assertNull(splitter.nextChunk());
+  }
+}
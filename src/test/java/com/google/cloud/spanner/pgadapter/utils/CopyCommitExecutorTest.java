@@ -0,0 +1,230 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.utils.CopyCommitExecutor.CommitQueue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CopyCommitExecutorTest {
+
+  private static CopyCommitExecutor createExecutor(int maxConcurrentCommits, long maxBytes) {
+    return new CopyCommitExecutor(maxConcurrentCommits, maxBytes, Executors.defaultThreadFactory());
+  }
+
+  @Test
+  public void testLimitsConcurrentCommits() throws Exception {
+    CopyCommitExecutor executor = createExecutor(2, 0L);
+    try {
+      CommitQueue queue = executor.newQueue();
+      CountDownLatch started = new CountDownLatch(2);
+      CountDownLatch release = new CountDownLatch(1);
+      List<ListenableFuture<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        futures.add(
+            queue.submit(
+                () -> {
+                  started.countDown();
+                  release.await();
+                  return null;
+                },
+                10L));
+      }
+      assertTrue(started.await(10L, TimeUnit.SECONDS));
+      assertEquals(2, executor.getInFlightCommitCount());
+      assertEquals(3, executor.getQueuedCommitCount());
+      assertEquals(20L, executor.getInFlightBytes());
+      assertEquals(30L, executor.getQueuedBytes());
+      assertFalse(queue.awaitCompletion(10L, TimeUnit.MILLISECONDS));
+
+      release.countDown();
+      for (ListenableFuture<Void> future : futures) {
+        future.get(10L, TimeUnit.SECONDS);
+      }
+      assertTrue(queue.awaitCompletion(10L, TimeUnit.SECONDS));
+      assertEquals(0, executor.getInFlightCommitCount());
+      assertEquals(0, executor.getQueuedCommitCount());
+      assertEquals(0L, executor.getInFlightBytes());
+      assertEquals(5L, executor.getCommitCount());
+      assertEquals(50L, executor.getCommittedBytes());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testRoundRobin() throws Exception {
+    CopyCommitExecutor executor = createExecutor(1, 0L);
+    try {
+      CommitQueue queue1 = executor.newQueue();
+      CommitQueue queue2 = executor.newQueue();
+      List<String> order = Collections.synchronizedList(new ArrayList<>());
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      queue1.submit(
+          () -> {
+            started.countDown();
+            release.await();
+            order.add("1-1");
+            return null;
+          },
+          1L);
+      assertTrue(started.await(10L, TimeUnit.SECONDS));
+      // The first queue submits all its commits before the second queue, but both queues get a
+      // turn when the running commit has finished.
+      for (String name : new String[] {"1-2", "1-3"}) {
+        queue1.submit(
+            () -> {
+              order.add(name);
+              return null;
+            },
+            1L);
+      }
+      for (String name : new String[] {"2-1", "2-2"}) {
+        queue2.submit(
+            () -> {
+              order.add(name);
+              return null;
+            },
+            1L);
+      }
+      release.countDown();
+      assertTrue(queue1.awaitCompletion(10L, TimeUnit.SECONDS));
+      assertTrue(queue2.awaitCompletion(10L, TimeUnit.SECONDS));
+      assertEquals(ImmutableList.of("1-1", "1-2", "2-1", "1-3", "2-2"), order);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testByteLimit() throws Exception {
+    CopyCommitExecutor executor = createExecutor(0, 100L);
+    try {
+      CommitQueue queue1 = executor.newQueue();
+      CommitQueue queue2 = executor.newQueue();
+      CountDownLatch release = new CountDownLatch(1);
+      queue1.submit(
+          () -> {
+            release.await();
+            return null;
+          },
+          60L);
+      queue1.submit(
+          () -> {
+            release.await();
+            return null;
+          },
+          40L);
+      // The limit has been reached. Both new commits and new data must wait.
+      Future<ListenableFuture<Void>> submit =
+          executor.getExecutor().submit(() -> queue2.submit(() -> null, 10L));
+      Future<Void> awaitCapacity =
+          executor
+              .getExecutor()
+              .submit(
+                  () -> {
+                    queue2.awaitCapacity();
+                    return null;
+                  });
+      assertThrows(TimeoutException.class, () -> submit.get(50L, TimeUnit.MILLISECONDS));
+      assertThrows(TimeoutException.class, () -> awaitCapacity.get(50L, TimeUnit.MILLISECONDS));
+      assertEquals(100L, executor.getInFlightBytes());
+
+      release.countDown();
+      submit.get(10L, TimeUnit.SECONDS).get(10L, TimeUnit.SECONDS);
+      awaitCapacity.get(10L, TimeUnit.SECONDS);
+      assertEquals(2L, executor.getBackpressureWaitCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testAcceptsLargeCommitWhenEmpty() throws Exception {
+    CopyCommitExecutor executor = createExecutor(0, 100L);
+    try {
+      CommitQueue queue = executor.newQueue();
+      queue.submit(() -> null, 1000L).get(10L, TimeUnit.SECONDS);
+      assertEquals(0L, executor.getBackpressureWaitCount());
+      assertEquals(1000L, executor.getCommittedBytes());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailedCommit() throws Exception {
+    CopyCommitExecutor executor = createExecutor(1, 0L);
+    try {
+      CommitQueue queue = executor.newQueue();
+      ListenableFuture<Void> future =
+          queue.submit(
+              () -> {
+                throw new IllegalStateException("commit failed");
+              },
+              1L);
+      ExecutionException exception =
+          assertThrows(ExecutionException.class, () -> future.get(10L, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof IllegalStateException);
+      // The slot of the failed commit is released.
+      queue.submit(() -> null, 1L).get(10L, TimeUnit.SECONDS);
+      assertEquals(2L, executor.getCommitCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testShutdownFailsWaitingCommits() throws Exception {
+    CopyCommitExecutor executor = createExecutor(1, 0L);
+    CommitQueue queue = executor.newQueue();
+    CountDownLatch started = new CountDownLatch(1);
+    queue.submit(
+        () -> {
+          started.countDown();
+          Thread.sleep(Long.MAX_VALUE);
+          return null;
+        },
+        1L);
+    assertTrue(started.await(10L, TimeUnit.SECONDS));
+    ListenableFuture<Void> waiting = queue.submit(() -> null, 1L);
+    executor.shutdown();
+
+    ExecutionException exception =
+        assertThrows(ExecutionException.class, () -> waiting.get(10L, TimeUnit.SECONDS));
+    assertTrue(exception.getCause() instanceof RejectedExecutionException);
+    assertTrue(queue.awaitCompletion(10L, TimeUnit.SECONDS));
+  }
+}
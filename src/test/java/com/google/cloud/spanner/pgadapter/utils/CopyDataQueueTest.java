@@ -0,0 +1,140 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CopyDataQueueTest {
+
+  @Test
+  public void testReadsAllDataInOrder() throws Exception {
+    CopyDataQueue queue = new CopyDataQueue(100L, 3);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> producer =
+          executor.submit(
+              () -> {
+                for (int i = 0; i < 1000; i++) {
+                  byte[] payload = new byte[i % 150];
+                  for (int j = 0; j < payload.length; j++) {
+                    payload[j] = (byte) (i + j);
+                  }
+                  queue.add(payload);
+                }
+                queue.finish();
+                return null;
+              });
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[37];
+      int read;
+      while ((read = queue.read(buffer, 0, buffer.length)) > -1) {
+        output.write(buffer, 0, read);
+      }
+      producer.get();
+
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      for (int i = 0; i < 1000; i++) {
+        for (int j = 0; j < i % 150; j++) {
+          expected.write((byte) (i + j));
+        }
+      }
+      assertArrayEquals(expected.toByteArray(), output.toByteArray());
+      assertEquals(-1, queue.read());
+      assertEquals(0L, queue.getQueuedBytes());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testAcceptsLargePayloadWhenEmpty() throws IOException {
+    CopyDataQueue queue = new CopyDataQueue(10L, 4);
+    queue.add(new byte[100]);
+    assertEquals(100L, queue.getQueuedBytes());
+    assertEquals(100, queue.available());
+    queue.finish();
+    assertEquals(100, queue.read(new byte[200], 0, 200));
+    assertEquals(-1, queue.read());
+  }
+
+  @Test
+  public void testAddAfterFinish() throws IOException {
+    CopyDataQueue queue = new CopyDataQueue(10);
+    queue.finish();
+    assertThrows(IOException.class, () -> queue.add(new byte[1]));
+  }
+
+  @Test
+  public void testCloseReleasesProducer() throws Exception {
+    CopyDataQueue queue = new CopyDataQueue(10L, 4);
+    queue.add(new byte[10]);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> producer =
+          executor.submit(
+              () -> {
+                queue.add(new byte[10]);
+                return null;
+              });
+      // The producer is blocked, as the queue is full.
+      Thread.sleep(10L);
+      assertFalse(producer.isDone());
+      queue.close();
+      Exception exception =
+          assertThrows(Exception.class, () -> producer.get(10L, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof IOException);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testInterruptProducer() throws Exception {
+    CopyDataQueue queue = new CopyDataQueue(10L, 4);
+    queue.add(new byte[10]);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> producer =
+          executor.submit(
+              () -> {
+                queue.add(new byte[10]);
+                return null;
+              });
+      Thread.sleep(10L);
+      executor.shutdownNow();
+      Exception exception =
+          assertThrows(Exception.class, () -> producer.get(10L, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof InterruptedIOException);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
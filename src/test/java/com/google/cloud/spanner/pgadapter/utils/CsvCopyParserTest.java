@@ -20,6 +20,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.google.cloud.ByteArray;
 import com.google.cloud.Date;
@@ -30,11 +31,13 @@ import com.google.cloud.spanner.Type.StructField;
 import com.google.cloud.spanner.Value;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.utils.CsvCopyParser.CsvCopyRecord;
+import java.io.ByteArrayInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
 import java.util.Iterator;
 import org.apache.commons.csv.CSVFormat;
 import org.junit.Test;
@@ -351,4 +354,103 @@ public class CsvCopyParserTest {
     assertFalse(iterator.hasNext());
     parser.close();
   }
+
+  @Test
+  public void testScannedRecordValues() throws IOException {
+    SessionState sessionState = mock(SessionState.class);
+    when(sessionState.getTimezone()).thenReturn(ZoneId.of("UTC"));
+    String data =
+        "1\t-2.5\tt\t2022-08-17\t2022-08-17 10:11:12.123+02\tone\n"
+            + "-9223372036854775808\t1e3\toff\t2022-08-18\t2022-08-17 10:11:12\t\\N\n"
+            + "\\N\t\\N\t\\N\t\\N\t\\N\t\n";
+    CsvCopyParser parser =
+        new CsvCopyParser(
+            sessionState,
+            CSVFormat.POSTGRESQL_TEXT,
+            new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)),
+            false);
+    Iterator<CopyRecord> iterator = parser.iterator();
+
+    assertTrue(iterator.hasNext());
+    CopyRecord record = iterator.next();
+    assertEquals(6, record.numColumns());
+    assertEquals(Value.int64(1L), record.getValue(Type.int64(), 0));
+    assertEquals(Value.float64(-2.5d), record.getValue(Type.float64(), 1));
+    assertEquals(Value.bool(true), record.getValue(Type.bool(), 2));
+    assertEquals(Value.date(Date.parseDate("2022-08-17")), record.getValue(Type.date(), 3));
+    assertEquals(
+        Value.timestamp(Timestamp.parseTimestamp("2022-08-17T08:11:12.123Z")),
+        record.getValue(Type.timestamp(), 4));
+    assertEquals(Value.string("one"), record.getValue(Type.string(), 5));
+
+    assertTrue(iterator.hasNext());
+    record = iterator.next();
+    assertEquals(Value.int64(Long.MIN_VALUE), record.getValue(Type.int64(), 0));
+    assertEquals(Value.float64(1000d), record.getValue(Type.float64(), 1));
+    assertEquals(Value.bool(false), record.getValue(Type.bool(), 2));
+    assertEquals(Value.date(Date.parseDate("2022-08-18")), record.getValue(Type.date(), 3));
+    assertEquals(
+        Value.timestamp(Timestamp.parseTimestamp("2022-08-17T10:11:12Z")),
+        record.getValue(Type.timestamp(), 4));
+    assertTrue(record.isNull(5));
+    assertEquals(Value.string(null), record.getValue(Type.string(), 5));
+
+    assertTrue(iterator.hasNext());
+    record = iterator.next();
+    assertEquals(Value.int64(null), record.getValue(Type.int64(), 0));
+    assertEquals(Value.float64(null), record.getValue(Type.float64(), 1));
+    assertEquals(Value.bool(null), record.getValue(Type.bool(), 2));
+    assertEquals(Value.date(null), record.getValue(Type.date(), 3));
+    assertEquals(Value.timestamp(null), record.getValue(Type.timestamp(), 4));
+    assertEquals(Value.string(""), record.getValue(Type.string(), 5));
+
+    assertFalse(iterator.hasNext());
+    parser.close();
+  }
+
+  @Test
+  public void testScannedRecordInvalidValues() throws IOException {
+    CsvCopyParser parser =
+        new CsvCopyParser(
+            mock(SessionState.class),
+            CSVFormat.POSTGRESQL_TEXT,
+            new ByteArrayInputStream(
+                "9223372036854775808\tvalue\n".getBytes(StandardCharsets.UTF_8)),
+            false);
+    Iterator<CopyRecord> iterator = parser.iterator();
+    assertTrue(iterator.hasNext());
+    CopyRecord record = iterator.next();
+    assertThrows(SpannerException.class, () -> record.getValue(Type.int64(), 0));
+    assertThrows(SpannerException.class, () -> record.getValue(Type.float64(), 1));
+    assertThrows(SpannerException.class, () -> record.getValue(Type.bool(), 1));
+    assertThrows(SpannerException.class, () -> record.getValue(Type.date(), 1));
+    parser.close();
+  }
+
+  @Test
+  public void testScannedRecordWithHeader() throws IOException {
+    String data = "name,id\n\"One\",1\nTwo,2\n";
+    CsvCopyParser parser =
+        new CsvCopyParser(
+            mock(SessionState.class),
+            CSVFormat.POSTGRESQL_CSV.builder().setHeader().build(),
+            new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)),
+            true);
+    Iterator<CopyRecord> iterator = parser.iterator();
+
+    assertTrue(iterator.hasNext());
+    CopyRecord record = iterator.next();
+    assertTrue(record.hasColumnNames());
+    assertEquals(Value.int64(1L), record.getValue(Type.int64(), "id"));
+    assertEquals(Value.string("One"), record.getValue(Type.string(), "name"));
+    assertThrows(SpannerException.class, () -> record.getValue(Type.string(), "foo"));
+
+    assertTrue(iterator.hasNext());
+    CopyRecord secondRecord = iterator.next();
+    assertEquals(Value.int64(2L), secondRecord.getValue(Type.int64(), "id"));
+    assertEquals(Value.string("Two"), secondRecord.getValue(Type.string(), "name"));
+
+    assertFalse(iterator.hasNext());
+    parser.close();
+  }
 }
@@ -0,0 +1,230 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.error.PGException;
+import com.google.common.base.Stopwatch;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CsvCopyScannerTest {
+
+  /**
+   * Scans the given data with all buffer sizes from 1 to 32 bytes, verifies that the result is the
+   * same for all buffer sizes, and returns the result as a string. Each record is returned as one
+   * line that starts with the line number of the record. Null values are returned as {@code
+   * <null>}, and all other values are enclosed in square brackets.
+   */
+  private static String scan(CSVFormat format, String data) throws IOException {
+    String result = null;
+    for (int bufferSize = 1; bufferSize <= 32; bufferSize++) {
+      String scanned = scan(format, data, bufferSize);
+      if (result != null) {
+        assertEquals("buffer size: " + bufferSize, result, scanned);
+      }
+      result = scanned;
+    }
+    return result;
+  }
+
+  private static String scan(CSVFormat format, String data, int bufferSize) throws IOException {
+    CsvCopyScanner scanner =
+        new CsvCopyScanner(
+            format,
+            new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)),
+            bufferSize,
+            1L);
+    StringBuilder result = new StringBuilder();
+    while (scanner.nextRecord()) {
+      result.append(scanner.getLineNumber()).append(':');
+      for (int i = 0; i < scanner.getFieldCount(); i++) {
+        String value = scanner.getString(i);
+        result.append(i > 0 ? "|" : "").append(value == null ? "<null>" : "[" + value + "]");
+      }
+      result.append('\n');
+    }
+    return result.toString();
+  }
+
+  @Test
+  public void testIsSupported() {
+    assertTrue(CsvCopyScanner.isSupported(CSVFormat.POSTGRESQL_TEXT));
+    assertTrue(CsvCopyScanner.isSupported(CSVFormat.POSTGRESQL_CSV));
+    assertTrue(
+        CsvCopyScanner.isSupported(CSVFormat.POSTGRESQL_CSV.builder().setDelimiter('|').build()));
+    assertFalse(
+        CsvCopyScanner.isSupported(CSVFormat.POSTGRESQL_CSV.builder().setDelimiter('§').build()));
+    assertFalse(
+        CsvCopyScanner.isSupported(CSVFormat.POSTGRESQL_CSV.builder().setDelimiter("||").build()));
+    assertFalse(
+        CsvCopyScanner.isSupported(
+            CSVFormat.POSTGRESQL_TEXT.builder().setIgnoreEmptyLines(true).build()));
+  }
+
+  @Test
+  public void testText() throws IOException {
+    CSVFormat format = CSVFormat.POSTGRESQL_TEXT;
+    assertEquals("1:[1]|[One]\n2:[2]|[Two]\n", scan(format, "1\tOne\n2\tTwo\n"));
+    assertEquals("1:[1]|[One]\n2:[2]|[Two]\n", scan(format, "1\tOne\n2\tTwo"));
+    assertEquals(
+        "1:[1]|[One]\n2:[2]|[Two]\n3:[3]|[]\n", scan(format, "1\tOne\r\n2\tTwo\r3\t\n"));
+    assertEquals("1:[]\n2:[]\n", scan(format, "\n\n"));
+    assertEquals("1:[h\u00e9llo]|[\u20ac]\n", scan(format, "h\u00e9llo\t\u20ac\n"));
+    assertEquals("", scan(format, ""));
+  }
+
+  @Test
+  public void testTextEscapesAndNulls() throws IOException {
+    CSVFormat format = CSVFormat.POSTGRESQL_TEXT;
+    // An escaped backslash followed by N is not null.
+    assertEquals("1:<null>|[\\N]|[a\tb\\N]\n", scan(format, "\\N\t\\\\N\ta\\tb\\N\n"));
+    assertEquals("1:[a\tb]|[c]\n", scan(format, "a\\\tb\tc\n"));
+    assertEquals("1:[line1\nline2]|[\r]\n", scan(format, "line1\\nline2\t\\r\n"));
+    assertEquals("1:[\\.]\n", scan(format, "\\.\n"));
+  }
+
+  @Test
+  public void testQuotes() throws IOException {
+    CSVFormat format = CSVFormat.POSTGRESQL_TEXT;
+    assertEquals(
+        "1:[value1]|<null>\n2:[a\"b]|[x\"y]\n",
+        scan(format, "\"value1\"\t\\N\n\"a\"\"b\"\tx\"y\n"));
+    assertEquals("1:[multi\nline]|[1]\n3:[2]|[3]\n", scan(format, "\"multi\nline\"\t1\n2\t3\n"));
+    assertEquals("1:[q]|[c]\n", scan(format, "\"q\"  \tc\n"));
+    // A quoted value that is equal to the null string is not null.
+    assertEquals("1:[\\N]\n", scan(format, "\"\\\\N\"\n"));
+  }
+
+  @Test
+  public void testCsv() throws IOException {
+    CSVFormat format = CSVFormat.POSTGRESQL_CSV;
+    assertEquals("1:[1]|<null>|[]|[a,b]\n", scan(format, "1,,\"\",\"a,b\"\n"));
+    assertEquals("1:[x\"y]|[\\N]\n", scan(format, "\"x\"\"y\",\\N\r\n"));
+    assertEquals(
+        "1:[1]|<null>\n",
+        scan(CSVFormat.POSTGRESQL_CSV.builder().setNullString("NULL").build(), "1,NULL\n"));
+  }
+
+  @Test
+  public void testInvalidData() {
+    CSVFormat format = CSVFormat.POSTGRESQL_TEXT;
+    PGException exception = assertThrows(PGException.class, () -> scan(format, "1\t2\n\"abc"));
+    assertEquals(
+        "Invalid COPY data at line 2: EOF reached before quoted field finished",
+        exception.getMessage());
+    exception = assertThrows(PGException.class, () -> scan(format, "\"abc\"x\t1\n"));
+    assertEquals(
+        "Invalid COPY data at line 1: Invalid character between quoted field and delimiter",
+        exception.getMessage());
+    exception = assertThrows(PGException.class, () -> scan(format, "abc\\"));
+    assertEquals(
+        "Invalid COPY data at line 1: EOF reached while processing escape sequence",
+        exception.getMessage());
+  }
+
+  private static byte[] createCopyData(CSVFormat format, int numRows) {
+    char delimiter = format.getDelimiterString().charAt(0);
+    StringBuilder builder = new StringBuilder(numRows * 48);
+    for (int i = 0; i < numRows; i++) {
+      builder
+          .append(i)
+          .append(delimiter)
+          .append(i % 100)
+          .append(delimiter)
+          .append("\"name ")
+          .append(i)
+          .append(delimiter)
+          .append(" value\"")
+          .append(delimiter)
+          .append("2022-10-01 12:30:00+00")
+          .append('\n');
+    }
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Parses the data with a commons-csv parser and returns the total length of all fields. */
+  private static long parseWithCommonsCsv(CSVFormat format, byte[] data) throws IOException {
+    long length = 0L;
+    try (CSVParser parser =
+        CSVParser.parse(
+            new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8),
+            format)) {
+      for (CSVRecord record : parser) {
+        for (int i = 0; i < record.size(); i++) {
+          length += record.get(i).length();
+        }
+      }
+    }
+    return length;
+  }
+
+  /** Scans the data with a {@link CsvCopyScanner} and returns the total length of all fields. */
+  private static long scanWithCsvCopyScanner(CSVFormat format, byte[] data) throws IOException {
+    long length = 0L;
+    CsvCopyScanner scanner = new CsvCopyScanner(format, new ByteArrayInputStream(data));
+    while (scanner.nextRecord()) {
+      for (int i = 0; i < scanner.getFieldCount(); i++) {
+        length += scanner.getFieldLength(i);
+      }
+    }
+    return length;
+  }
+
+  @Ignore("Only used for manual performance testing")
+  @Test
+  public void testThroughput() throws IOException {
+    int numRows = 2_000_000;
+    int numRuns = 5;
+    for (CSVFormat format : new CSVFormat[] {CSVFormat.POSTGRESQL_TEXT, CSVFormat.POSTGRESQL_CSV}) {
+      byte[] data = createCopyData(format, numRows);
+      // Warm up, and verify that both parsers return the same fields.
+      assertEquals(parseWithCommonsCsv(format, data), scanWithCsvCopyScanner(format, data));
+
+      Stopwatch watch = Stopwatch.createStarted();
+      for (int run = 0; run < numRuns; run++) {
+        parseWithCommonsCsv(format, data);
+      }
+      long commonsCsvMillis = Math.max(watch.elapsed(TimeUnit.MILLISECONDS) / numRuns, 1L);
+      watch.reset().start();
+      for (int run = 0; run < numRuns; run++) {
+        scanWithCsvCopyScanner(format, data);
+      }
+      long scannerMillis = Math.max(watch.elapsed(TimeUnit.MILLISECONDS) / numRuns, 1L);
+      System.out.printf(
+          "Format: %s, commons-csv: %dms (%.1f MB/s), scanner: %dms (%.1f MB/s)\n",
+          format == CSVFormat.POSTGRESQL_TEXT ? "text" : "csv",
+          commonsCsvMillis,
+          data.length / 1000d / commonsCsvMillis,
+          scannerMillis,
+          data.length / 1000d / scannerMillis);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.wireoutput.OutputBuffer;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FlushPolicyTest {
+
+  @Test
+  public void testShouldFlushEarly() {
+    FlushPolicy rowsPolicy = new FlushPolicy(true, 10L, Duration.ZERO);
+    assertTrue(rowsPolicy.isEarlyFlushEnabled());
+    long now = System.nanoTime();
+    assertFalse(rowsPolicy.shouldFlushEarly(9L, now - Duration.ofHours(1L).toNanos()));
+    assertTrue(rowsPolicy.shouldFlushEarly(10L, now));
+
+    FlushPolicy timePolicy = new FlushPolicy(true, 0L, Duration.ofMillis(10L));
+    assertTrue(timePolicy.isEarlyFlushEnabled());
+    assertFalse(timePolicy.shouldFlushEarly(1_000_000L, System.nanoTime()));
+    assertTrue(timePolicy.shouldFlushEarly(1L, now - Duration.ofSeconds(1L).toNanos()));
+
+    FlushPolicy disabled = new FlushPolicy(false, 0L, Duration.ZERO);
+    assertFalse(disabled.isCorkPipelinedSyncs());
+    assertFalse(disabled.isEarlyFlushEnabled());
+    assertFalse(disabled.shouldFlushEarly(1_000_000L, now - Duration.ofHours(1L).toNanos()));
+
+    assertThrows(IllegalArgumentException.class, () -> new FlushPolicy(true, -1L, Duration.ZERO));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new FlushPolicy(true, 1L, Duration.ofMillis(-1L)));
+  }
+
+  @Test
+  public void testStatistics() throws Exception {
+    FlushPolicy policy = new FlushPolicy(true, 100L, Duration.ofMillis(10L));
+    assertEquals(0d, policy.getSocketWritesPerQuery(), 0d);
+
+    OutputBuffer buffer = new OutputBuffer(new ByteArrayOutputStream(), 16);
+    buffer.setWriteCounter(policy.getSocketWriteCounter());
+    // Flushing an empty buffer does not write anything.
+    buffer.flush();
+    assertEquals(0L, policy.getSocketWriteCount());
+    buffer.write(new byte[] {1, 2, 3});
+    buffer.flush();
+    assertEquals(1L, policy.getSocketWriteCount());
+    // Writing a chunk that is larger than the buffer writes the chunk directly.
+    buffer.write(new byte[] {1});
+    buffer.write(new byte[32]);
+    assertEquals(3L, policy.getSocketWriteCount());
+
+    policy.recordQuery();
+    policy.recordQuery();
+    policy.recordCorkedSync();
+    policy.recordEarlyFlush();
+    assertEquals(2L, policy.getQueryCount());
+    assertEquals(1L, policy.getCorkedSyncCount());
+    assertEquals(1L, policy.getEarlyFlushCount());
+    assertEquals(1.5d, policy.getSocketWritesPerQuery(), 0d);
+  }
+}
@@ -39,6 +39,7 @@ import com.google.cloud.spanner.Value;
 import com.google.cloud.spanner.connection.Connection;
 import com.google.cloud.spanner.connection.StatementResult;
 import com.google.cloud.spanner.pgadapter.error.PGException;
+import com.google.cloud.spanner.pgadapter.error.SQLState;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement.Format;
@@ -54,13 +55,17 @@ import java.io.PipedOutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
@@ -276,6 +281,160 @@ public class MutationWriterTest {
     }
   }
 
+  @Test
+  public void testWriteMutations_SharedCommitExecutor() throws Exception {
+    Map<String, Type> tableColumns = ImmutableMap.of("number", Type.int64(), "name", Type.string());
+    SessionState sessionState = new SessionState(mock(OptionsMetadata.class));
+    // 6 == 2 mutations per batch, as we have 2 columns + 1 indexed column.
+    sessionState.set("spanner", "copy_batch_size", "6");
+    sessionState.commit();
+    Connection connection = mock(Connection.class);
+    DatabaseClient databaseClient = mock(DatabaseClient.class);
+    when(connection.getDatabaseClient()).thenReturn(databaseClient);
+    AtomicInteger activeCommits = new AtomicInteger();
+    AtomicInteger maxActiveCommits = new AtomicInteger();
+    when(databaseClient.writeWithOptions(anyIterable(), any()))
+        .thenAnswer(
+            invocation -> {
+              maxActiveCommits.accumulateAndGet(activeCommits.incrementAndGet(), Math::max);
+              Thread.sleep(1L);
+              activeCommits.decrementAndGet();
+              return null;
+            });
+    // Both COPY operations share an executor that only allows one commit at a time.
+    CopyCommitExecutor commitExecutor =
+        new CopyCommitExecutor(1, 0L, Executors.defaultThreadFactory());
+    try {
+      List<Future<StatementResult>> results = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        MutationWriter mutationWriter =
+            new MutationWriter(
+                sessionState,
+                CopyTransactionMode.ImplicitNonAtomic,
+                connection,
+                "numbers",
+                tableColumns,
+                /* indexedColumnsCount = */ 1,
+                Format.TEXT,
+                CSVFormat.POSTGRESQL_TEXT,
+                false,
+                Executors.defaultThreadFactory(),
+                commitExecutor);
+        results.add(commitExecutor.getExecutor().submit(mutationWriter));
+        commitExecutor
+            .getExecutor()
+            .submit(
+                () -> {
+                  mutationWriter.addCopyData(
+                      "1\tOne\n2\tTwo\n3\tThree\n4\tFour\n5\tFive\n"
+                          .getBytes(StandardCharsets.UTF_8));
+                  mutationWriter.commit();
+                  mutationWriter.close();
+                  return null;
+                });
+      }
+      for (Future<StatementResult> result : results) {
+        assertEquals(5L, result.get().getUpdateCount().longValue());
+      }
+      assertEquals(1, maxActiveCommits.get());
+      assertEquals(6L, commitExecutor.getCommitCount());
+      assertEquals(0, commitExecutor.getInFlightCommitCount());
+    } finally {
+      commitExecutor.shutdown();
+    }
+  }
+
+  @Test
+  public void testWriteMutations_ParallelParsing() throws Exception {
+    Map<String, Type> tableColumns = ImmutableMap.of("number", Type.int64(), "name", Type.string());
+    SessionState sessionState = new SessionState(mock(OptionsMetadata.class));
+    sessionState.set("spanner", "copy_parse_parallelism", "4");
+    sessionState.commit();
+    Connection connection = mock(Connection.class);
+    DatabaseClient databaseClient = mock(DatabaseClient.class);
+    when(connection.getDatabaseClient()).thenReturn(databaseClient);
+    Set<Long> numbers = ConcurrentHashMap.newKeySet();
+    when(databaseClient.writeWithOptions(anyIterable(), any()))
+        .thenAnswer(
+            invocation -> {
+              Iterable<Mutation> mutations = invocation.getArgument(0);
+              for (Mutation mutation : mutations) {
+                numbers.add(mutation.asMap().get("number").getInt64());
+              }
+              return null;
+            });
+
+    MutationWriter mutationWriter =
+        new MutationWriter(
+            sessionState,
+            CopyTransactionMode.ImplicitNonAtomic,
+            connection,
+            "numbers",
+            tableColumns,
+            /* indexedColumnsCount = */ 1,
+            Format.TEXT,
+            CSVFormat.POSTGRESQL_TEXT,
+            false);
+    // Generate enough data to fill multiple chunks.
+    int numRows = 50_000;
+    StringBuilder data = new StringBuilder();
+    for (int i = 0; i < numRows; i++) {
+      data.append(i).append("\t\"Name ").append(i).append("\"\n");
+    }
+    executor.submit(
+        () -> {
+          mutationWriter.addCopyData(data.toString().getBytes(StandardCharsets.UTF_8));
+          mutationWriter.commit();
+          mutationWriter.close();
+          return null;
+        });
+
+    StatementResult updateCount = mutationWriter.call();
+
+    assertEquals(numRows, updateCount.getUpdateCount().longValue());
+    assertEquals(numRows, numbers.size());
+  }
+
+  @Test
+  public void testWriteMutations_ParallelParsingReportsLineNumber() throws Exception {
+    Map<String, Type> tableColumns = ImmutableMap.of("number", Type.int64(), "name", Type.string());
+    SessionState sessionState = new SessionState(mock(OptionsMetadata.class));
+    sessionState.set("spanner", "copy_parse_parallelism", "4");
+    sessionState.commit();
+    Connection connection = mock(Connection.class);
+    DatabaseClient databaseClient = mock(DatabaseClient.class);
+    when(connection.getDatabaseClient()).thenReturn(databaseClient);
+
+    MutationWriter mutationWriter =
+        new MutationWriter(
+            sessionState,
+            CopyTransactionMode.ImplicitNonAtomic,
+            connection,
+            "numbers",
+            tableColumns,
+            /* indexedColumnsCount = */ 1,
+            Format.TEXT,
+            CSVFormat.POSTGRESQL_TEXT,
+            false);
+    // Add an invalid row after a multi-line value in a chunk that is not the first chunk.
+    int numRows = 20_000;
+    StringBuilder data = new StringBuilder("1\t\"multi\nline\"\n");
+    for (int i = 1; i < numRows; i++) {
+      data.append(i).append(i == numRows - 10 ? "\tName\tExtra\n" : "\tName\n");
+    }
+    executor.submit(
+        () -> {
+          mutationWriter.addCopyData(data.toString().getBytes(StandardCharsets.UTF_8));
+          mutationWriter.close();
+          return null;
+        });
+
+    PGException exception = assertThrows(PGException.class, mutationWriter::call);
+    assertEquals(SQLState.DataException, exception.getSQLState());
+    // The first row spans two lines.
+    assertEquals("COPY numbers, line " + (numRows - 10 + 2), exception.getHints());
+  }
+
   @Test
   public void testWriteMutations_FailsForLargeCommit() throws Exception {
     System.setProperty("copy_in_commit_limit", "30");
@@ -0,0 +1,157 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.ForwardingResultSet;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PrefetchingResultSetTest {
+  private static final Type TYPE =
+      Type.struct(StructField.of("id", Type.int64()), StructField.of("value", Type.string()));
+
+  private ResultPrefetcher prefetcher;
+
+  @After
+  public void shutdownPrefetcher() {
+    if (prefetcher != null) {
+      prefetcher.shutdown();
+    }
+  }
+
+  private void createPrefetcher(int maxRows, long maxBytes) {
+    prefetcher =
+        new ResultPrefetcher(maxRows, maxBytes, ThreadFactories.create("test-prefetch-", false));
+  }
+
+  private static List<Struct> createRows(int numRows) {
+    List<Struct> rows = new ArrayList<>(numRows);
+    for (int i = 0; i < numRows; i++) {
+      rows.add(Struct.newBuilder().set("id").to(i).set("value").to("value " + i).build());
+    }
+    return rows;
+  }
+
+  /** Returns a result set that is positioned on its first row. */
+  private static ResultSet createResultSet(int numRows) {
+    ResultSet resultSet = ResultSets.forRows(TYPE, createRows(numRows));
+    assertTrue(resultSet.next());
+    return resultSet;
+  }
+
+  @Test
+  public void testReturnsAllRowsInOrder() {
+    for (long maxBytes : new long[] {0L, 100L, 1L << 20}) {
+      createPrefetcher(3, maxBytes);
+      try (ResultSet resultSet = prefetcher.prefetch(createResultSet(100))) {
+        assertEquals(TYPE, resultSet.getType());
+        assertEquals(2, resultSet.getColumnCount());
+        assertEquals(Type.string(), resultSet.getColumnType("value"));
+        int count = 0;
+        do {
+          assertEquals(count, resultSet.getLong(0));
+          assertEquals("value " + count, resultSet.getString("value"));
+          assertEquals(count, resultSet.getCurrentRowAsStruct().getLong("id"));
+          count++;
+        } while (resultSet.next());
+        assertEquals(100, count);
+        assertFalse(resultSet.next());
+      }
+      assertEquals(1L, prefetcher.getResultCount());
+      assertEquals(99L, prefetcher.getRowCount());
+      prefetcher.shutdown();
+    }
+  }
+
+  @Test
+  public void testPropagatesErrors() {
+    createPrefetcher(10, 1L << 20);
+    AtomicInteger rowCount = new AtomicInteger(1);
+    ResultSet failingResultSet =
+        new ForwardingResultSet(createResultSet(100)) {
+          @Override
+          public boolean next() {
+            if (rowCount.incrementAndGet() > 5) {
+              throw SpannerExceptionFactory.newSpannerException(
+                  ErrorCode.UNAVAILABLE, "test error");
+            }
+            return super.next();
+          }
+        };
+    try (ResultSet resultSet = prefetcher.prefetch(failingResultSet)) {
+      for (int i = 1; i < 5; i++) {
+        assertTrue(resultSet.next());
+        assertEquals(i, resultSet.getLong(0));
+      }
+      SpannerException exception = assertThrows(SpannerException.class, resultSet::next);
+      assertEquals(ErrorCode.UNAVAILABLE, exception.getErrorCode());
+    }
+  }
+
+  @Test
+  public void testCloseStopsPrefetching() throws InterruptedException {
+    createPrefetcher(2, 1L << 20);
+    AtomicInteger rowCount = new AtomicInteger(1);
+    ResultSet countingResultSet =
+        new ForwardingResultSet(createResultSet(10_000)) {
+          @Override
+          public boolean next() {
+            rowCount.incrementAndGet();
+            return super.next();
+          }
+        };
+    ResultSet resultSet = prefetcher.prefetch(countingResultSet);
+    assertTrue(resultSet.next());
+    // Wait until the background thread is blocked on the full buffer.
+    while (prefetcher.getBufferFullWaitCount() == 0L) {
+      Thread.sleep(1L);
+    }
+    resultSet.close();
+    int rowsAfterClose = rowCount.get();
+    // The buffer holds at most 2 rows, so the background thread can not have read all rows.
+    assertTrue(rowsAfterClose < 10_000);
+    // The background thread has stopped when close() returns.
+    assertEquals(rowsAfterClose, rowCount.get());
+    assertThrows(IllegalStateException.class, resultSet::next);
+  }
+
+  @Test
+  public void testEstimateSize() {
+    Struct row = Struct.newBuilder().set("id").to(1L).set("value").to("0123456789").build();
+    assertEquals(42L, PrefetchingResultSet.estimateSize(row));
+    Struct nullRow =
+        Struct.newBuilder().set("id").to((Long) null).set("value").to((String) null).build();
+    assertEquals(32L, PrefetchingResultSet.estimateSize(nullRow));
+  }
+}
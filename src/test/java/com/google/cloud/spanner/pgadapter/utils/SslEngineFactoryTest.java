@@ -0,0 +1,119 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import java.io.File;
+import java.util.Properties;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSessionContext;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SslEngineFactoryTest {
+
+  private static String generateKeyStore() throws Exception {
+    File keystore = File.createTempFile("sslenginefactory", ".p12");
+    keystore.deleteOnExit();
+    // Delete the temp file as keytool does not allow overwriting an existing file.
+    assertTrue(keystore.delete());
+    int result;
+    try {
+      result =
+          new ProcessBuilder(
+                  "keytool",
+                  "-genkey",
+                  "-storetype",
+                  "PKCS12",
+                  "-keypass",
+                  "password",
+                  "-storepass",
+                  "password",
+                  "-keystore",
+                  keystore.getAbsolutePath(),
+                  "-keyalg",
+                  "RSA",
+                  "-dname",
+                  "CN=localhost")
+              .start()
+              .waitFor();
+    } catch (Exception exception) {
+      result = -1;
+    }
+    assumeTrue("This test requires keytool to be installed", result == 0);
+    return keystore.getAbsolutePath();
+  }
+
+  @Test
+  public void testUsesDedicatedSslContext() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("javax.net.ssl.keyStore", generateKeyStore());
+    properties.setProperty("javax.net.ssl.keyStoreType", "PKCS12");
+    properties.setProperty("javax.net.ssl.keyStorePassword", "password");
+    OptionsMetadata options =
+        new OptionsMetadata(
+            new String[] {
+              "-p",
+              "p",
+              "-i",
+              "i",
+              "-c",
+              "credentials.json",
+              "-ssl_protocols",
+              "TLSv1.2",
+              "-ssl_session_cache_size",
+              "7",
+              "-ssl_session_timeout",
+              "60"
+            });
+    SSLSessionContext defaultSessionContext = SSLContext.getDefault().getServerSessionContext();
+    int defaultCacheSize = defaultSessionContext.getSessionCacheSize();
+    int defaultTimeout = defaultSessionContext.getSessionTimeout();
+
+    SslEngineFactory factory = SslEngineFactory.create(options, properties);
+    assertNotSame(SSLContext.getDefault(), factory.getSslContext());
+    SSLSessionContext sessionContext = factory.getSslContext().getServerSessionContext();
+    assertEquals(7, sessionContext.getSessionCacheSize());
+    assertEquals(60, sessionContext.getSessionTimeout());
+    // The default context of the JVM is not changed.
+    assertEquals(defaultCacheSize, defaultSessionContext.getSessionCacheSize());
+    assertEquals(defaultTimeout, defaultSessionContext.getSessionTimeout());
+
+    SSLEngine engine = factory.createServerEngine();
+    assertFalse(engine.getUseClientMode());
+    assertArrayEquals(new String[] {"TLSv1.2"}, engine.getEnabledProtocols());
+  }
+
+  @Test
+  public void testCheckSessionTickets() {
+    assertTrue(SslEngineFactory.checkSessionTickets(null));
+    String value = System.getProperty(SslEngineFactory.SESSION_TICKETS_PROPERTY);
+    boolean enabled = value == null || Boolean.parseBoolean(value.trim());
+    assertTrue(SslEngineFactory.checkSessionTickets(enabled));
+    assertFalse(SslEngineFactory.checkSessionTickets(!enabled));
+    // The check does not change the setting of the JVM.
+    assertEquals(value, System.getProperty(SslEngineFactory.SESSION_TICKETS_PROPERTY));
+  }
+}
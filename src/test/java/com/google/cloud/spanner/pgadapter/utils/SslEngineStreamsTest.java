@@ -0,0 +1,273 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SslEngineStreamsTest {
+  private static SSLContext serverContext;
+  private static SSLContext clientContext;
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void createSslContexts() throws Exception {
+    File keystore = File.createTempFile("sslenginestreams", ".p12");
+    // Delete the temp file as keytool does not allow overwriting an existing file.
+    assertTrue(keystore.delete());
+    int result;
+    try {
+      result =
+          new ProcessBuilder(
+                  "keytool",
+                  "-genkey",
+                  "-storetype",
+                  "PKCS12",
+                  "-keypass",
+                  "password",
+                  "-storepass",
+                  "password",
+                  "-keystore",
+                  keystore.getAbsolutePath(),
+                  "-keyalg",
+                  "RSA",
+                  "-dname",
+                  "CN=localhost")
+              .start()
+              .waitFor();
+    } catch (Exception exception) {
+      result = -1;
+    }
+    assumeTrue("This test requires keytool to be installed", result == 0);
+
+    KeyStore keyStore = KeyStore.getInstance("PKCS12");
+    try (InputStream inputStream = new FileInputStream(keystore)) {
+      keyStore.load(inputStream, "password".toCharArray());
+    }
+    KeyManagerFactory keyManagerFactory =
+        KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagerFactory.init(keyStore, "password".toCharArray());
+    serverContext = SSLContext.getInstance("TLS");
+    serverContext.init(keyManagerFactory.getKeyManagers(), null, null);
+
+    clientContext = SSLContext.getInstance("TLS");
+    clientContext.init(
+        null,
+        new TrustManager[] {
+          new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+              return new X509Certificate[0];
+            }
+          }
+        },
+        null);
+    executor = Executors.newCachedThreadPool();
+    assertTrue(keystore.delete());
+  }
+
+  @AfterClass
+  public static void shutdownExecutor() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Accepts one connection and echoes the first length bytes that it receives. The server then
+   * reads two ints and returns the sum as a single byte.
+   */
+  private static Future<Boolean> startEchoServer(ServerSocket serverSocket, int length) {
+    return executor.submit(
+        () -> {
+          try (Socket socket = serverSocket.accept()) {
+            SSLEngine engine = serverContext.createSSLEngine();
+            engine.setUseClientMode(false);
+            SslEngineStreams streams =
+                new SslEngineStreams(engine, socket.getInputStream(), socket.getOutputStream());
+            DataInputStream inputStream = new DataInputStream(streams.getInputStream());
+            // Verify that mark/reset works.
+            inputStream.mark(1);
+            int first = inputStream.read();
+            inputStream.reset();
+            byte[] buffer = new byte[length];
+            inputStream.readFully(buffer);
+            assertEquals(first, buffer[0] & 0xff);
+            streams.getOutputStream().write(buffer);
+            streams.getOutputStream().flush();
+
+            int sum = inputStream.readInt() + inputStream.readInt();
+            streams.getOutputStream().write(sum);
+            streams.getOutputStream().flush();
+            // The client closes the connection after receiving the sum.
+            boolean endOfStream = inputStream.read() == -1;
+            streams.getOutputStream().close();
+            return endOfStream;
+          }
+        });
+  }
+
+  private static void runClient(int port, String protocol, int length) throws Exception {
+    try (SSLSocket socket =
+        (SSLSocket) clientContext.getSocketFactory().createSocket("localhost", port)) {
+      socket.setEnabledProtocols(new String[] {protocol});
+      byte[] data = new byte[length];
+      new Random().nextBytes(data);
+      socket.getOutputStream().write(data);
+      byte[] echoed = new byte[length];
+      new DataInputStream(socket.getInputStream()).readFully(echoed);
+      assertArrayEquals(data, echoed);
+
+      // Send two messages at once.
+      DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+      outputStream.writeInt(3);
+      outputStream.writeInt(4);
+      outputStream.flush();
+      assertEquals(7, socket.getInputStream().read());
+      assertEquals(protocol, socket.getSession().getProtocol());
+    }
+  }
+
+  @Test
+  public void testTls13() throws Exception {
+    try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      Future<Boolean> server = startEchoServer(serverSocket, 100_000);
+      runClient(serverSocket.getLocalPort(), "TLSv1.3", 100_000);
+      assertTrue(server.get());
+    }
+  }
+
+  @Test
+  public void testTls12() throws Exception {
+    try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      Future<Boolean> server = startEchoServer(serverSocket, 10);
+      runClient(serverSocket.getLocalPort(), "TLSv1.2", 10);
+      assertTrue(server.get());
+    }
+  }
+
+  @Test
+  public void testSessionResumption() throws Exception {
+    try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      byte[] sessionId = null;
+      for (int i = 0; i < 2; i++) {
+        Future<Boolean> server = startEchoServer(serverSocket, 1);
+        try (SSLSocket socket =
+            (SSLSocket)
+                clientContext
+                    .getSocketFactory()
+                    .createSocket("localhost", serverSocket.getLocalPort())) {
+          socket.setEnabledProtocols(new String[] {"TLSv1.2"});
+          socket.getOutputStream().write(new byte[] {1, 0, 0, 0, 1, 0, 0, 0, 2});
+          assertEquals(1, socket.getInputStream().read());
+          assertEquals(3, socket.getInputStream().read());
+          if (sessionId == null) {
+            sessionId = socket.getSession().getId();
+          } else {
+            assertArrayEquals(sessionId, socket.getSession().getId());
+          }
+        }
+        assertTrue(server.get());
+      }
+    }
+  }
+
+  @Test
+  public void testTryDecryptDoesNotBlock() throws Exception {
+    try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      Future<?> client =
+          executor.submit(
+              () -> {
+                try (SSLSocket socket =
+                    (SSLSocket)
+                        clientContext
+                            .getSocketFactory()
+                            .createSocket("localhost", serverSocket.getLocalPort())) {
+                  socket.startHandshake();
+                  // Wait a while before sending the data, so the server has to try to decrypt it
+                  // before it has been received.
+                  Thread.sleep(100L);
+                  socket.getOutputStream().write(new byte[] {1, 2, 3, 4});
+                  socket.getOutputStream().flush();
+                  assertEquals(10, socket.getInputStream().read());
+                }
+                return null;
+              });
+      try (Socket socket = serverSocket.accept()) {
+        SSLEngine engine = serverContext.createSSLEngine();
+        engine.setUseClientMode(false);
+        SslEngineStreams streams =
+            new SslEngineStreams(engine, socket.getInputStream(), socket.getOutputStream());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (streams.getDecryptedAvailable() < 4) {
+          assertTrue(System.nanoTime() < deadline);
+          if (!streams.tryDecrypt()) {
+            Thread.sleep(1L);
+          }
+        }
+        assertFalse(streams.isInputFinished());
+        byte[] header = new byte[2];
+        assertEquals(2, streams.peekDecryptedInput(header));
+        assertArrayEquals(new byte[] {1, 2}, header);
+        byte[] data = new byte[4];
+        new DataInputStream(streams.getInputStream()).readFully(data);
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, data);
+        // There is no more data, and trying to decrypt more returns immediately.
+        assertFalse(streams.tryDecrypt());
+
+        streams.getOutputStream().write(10);
+        streams.getOutputStream().flush();
+        client.get();
+      }
+    }
+  }
+}
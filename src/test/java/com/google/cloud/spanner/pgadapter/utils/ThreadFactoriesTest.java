@@ -0,0 +1,100 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ThreadFactoriesTest {
+
+  @Test
+  public void testPlatformThreads() {
+    ThreadFactory factory = ThreadFactories.create("test-thread-", false);
+    Thread first = factory.newThread(() -> {});
+    Thread second = factory.newThread(() -> {});
+    assertEquals("test-thread-0", first.getName());
+    assertEquals("test-thread-1", second.getName());
+    assertFalse(first.isDaemon());
+  }
+
+  @Test
+  public void testDaemonPlatformThreads() {
+    ThreadFactory factory = ThreadFactories.createDaemon("test-daemon-thread-", false);
+    Thread thread = factory.newThread(() -> {});
+    assertEquals("test-daemon-thread-0", thread.getName());
+    assertTrue(thread.isDaemon());
+  }
+
+  @Test
+  public void testVirtualThreads() throws InterruptedException {
+    // This falls back to platform threads if the JVM does not support virtual threads.
+    ThreadFactory factory = ThreadFactories.create("test-virtual-thread-", true);
+    AtomicBoolean executed = new AtomicBoolean();
+    Thread thread = factory.newThread(() -> executed.set(true));
+    assertEquals("test-virtual-thread-0", thread.getName());
+    thread.start();
+    thread.join(TimeUnit.SECONDS.toMillis(10L));
+    assertTrue(executed.get());
+  }
+
+  @Test
+  public void testUnsupportedVirtualThreadsWarningIsLoggedOnce() {
+    Logger logger = Logger.getLogger(ThreadFactories.class.getName());
+    AtomicInteger warnings = new AtomicInteger();
+    Handler handler =
+        new Handler() {
+          @Override
+          public void publish(LogRecord record) {
+            if (record.getLevel() == Level.WARNING) {
+              warnings.incrementAndGet();
+            }
+          }
+
+          @Override
+          public void flush() {}
+
+          @Override
+          public void close() {}
+        };
+    logger.addHandler(handler);
+    try {
+      for (int i = 0; i < 3; i++) {
+        ThreadFactories.create("test-virtual-thread-", true);
+      }
+    } finally {
+      logger.removeHandler(handler);
+    }
+    // The warning is only logged if the JVM does not support virtual threads, and at most once for
+    // the lifetime of the JVM.
+    assertTrue(warnings.get() <= 1);
+    if (ThreadFactories.isVirtualThreadsSupported()) {
+      assertEquals(0, warnings.get());
+    }
+  }
+}
@@ -0,0 +1,91 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireoutput;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class OutputBufferTest {
+
+  @Test
+  public void testMessageLengthIsBackPatched() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OutputBuffer buffer = new OutputBuffer(out, 16);
+    buffer.beginMessage((byte) 'D');
+    buffer.writeShort(1);
+    int lengthPosition = buffer.reserveInt();
+    buffer.writeUtf8("foo");
+    buffer.patchInt(lengthPosition, buffer.bytesSince(lengthPosition) - 4);
+    buffer.endMessage();
+    buffer.flush();
+
+    assertArrayEquals(
+        new byte[] {'D', 0, 0, 0, 13, 0, 1, 0, 0, 0, 3, 'f', 'o', 'o'}, out.toByteArray());
+  }
+
+  @Test
+  public void testBufferGrowsForLargeMessages() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OutputBuffer buffer = new OutputBuffer(out, 8);
+    buffer.beginMessage((byte) 'd');
+    for (int i = 0; i < 100; i++) {
+      buffer.writeInt(i);
+    }
+    // Nothing may be written to the underlying stream while the message is active.
+    assertEquals(0, out.size());
+    buffer.endMessage();
+    assertEquals(405, out.size());
+
+    byte[] bytes = out.toByteArray();
+    assertEquals('d', bytes[0]);
+    assertEquals(404, ((bytes[3] & 0xff) << 8) | (bytes[4] & 0xff));
+  }
+
+  @Test
+  public void testAbortMessage() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OutputBuffer buffer = new OutputBuffer(out, 64);
+    buffer.write('Z');
+    buffer.beginMessage((byte) 'D');
+    buffer.writeLong(1L);
+    buffer.abortMessage();
+    buffer.flush();
+
+    assertArrayEquals(new byte[] {'Z'}, out.toByteArray());
+  }
+
+  @Test
+  public void testWriteUtf8() throws IOException {
+    String[] values =
+        new String[] {
+          "", "ascii", "æøå", "€100", "😀 smiley", "unpaired \uD83D surrogate", "\uDE00"
+        };
+    for (String value : values) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      OutputBuffer buffer = new OutputBuffer(out, 4);
+      buffer.writeUtf8(value);
+      buffer.flush();
+      assertArrayEquals(value, value.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+  }
+}
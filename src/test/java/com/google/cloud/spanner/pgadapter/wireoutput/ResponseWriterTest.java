@@ -0,0 +1,136 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireoutput;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.cloud.spanner.pgadapter.wireoutput.ReadyResponse.Status;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ResponseWriterTest {
+
+  private interface Writer {
+    void write(DataOutputStream output) throws Exception;
+  }
+
+  private static byte[] write(Writer writer) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    writer.write(new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  /** Returns the expected bytes of a message with the given identifier and payload. */
+  private static byte[] message(char identifier, byte... payload) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeByte(identifier);
+    output.writeInt(4 + payload.length);
+    output.write(payload);
+    return bytes.toByteArray();
+  }
+
+  /** Returns the expected bytes of a CommandComplete message with the given command tag. */
+  private static byte[] commandComplete(String tag) throws Exception {
+    byte[] encoded = tag.getBytes(StandardCharsets.UTF_8);
+    byte[] payload = new byte[encoded.length + 1];
+    System.arraycopy(encoded, 0, payload, 0, encoded.length);
+    return message('C', payload);
+  }
+
+  @Test
+  public void testConstantMessages() throws Exception {
+    assertArrayEquals(message('1'), write(ResponseWriter::writeParseComplete));
+    assertArrayEquals(message('2'), write(ResponseWriter::writeBindComplete));
+    assertArrayEquals(message('3'), write(ResponseWriter::writeCloseComplete));
+    assertArrayEquals(message('n'), write(ResponseWriter::writeNoData));
+    assertArrayEquals(message('I'), write(ResponseWriter::writeEmptyQuery));
+    for (Status status : Status.values()) {
+      assertArrayEquals(
+          message('Z', (byte) status.c),
+          write(output -> ResponseWriter.writeReady(output, status)));
+      assertArrayEquals(
+          write(output -> new ReadyResponse(output, status).send(false)),
+          write(output -> ResponseWriter.writeReady(output, status)));
+    }
+  }
+
+  @Test
+  public void testCommandComplete() throws Exception {
+    assertArrayEquals(
+        commandComplete("CREATE"),
+        write(output -> ResponseWriter.writeCommandComplete(output, "CREATE")));
+    assertArrayEquals(
+        commandComplete("INSERT 0 1"),
+        write(output -> ResponseWriter.writeCommandComplete(output, "INSERT", 1L)));
+    assertArrayEquals(
+        commandComplete("SELECT 0"),
+        write(output -> ResponseWriter.writeCommandComplete(output, "SELECT", 0L)));
+    assertArrayEquals(
+        commandComplete("UPDATE 1234567890"),
+        write(output -> ResponseWriter.writeCommandComplete(output, "UPDATE", 1234567890L)));
+    assertArrayEquals(
+        commandComplete("DELETE " + Long.MAX_VALUE),
+        write(output -> ResponseWriter.writeCommandComplete(output, "DELETE", Long.MAX_VALUE)));
+    assertArrayEquals(
+        commandComplete("ÆØÅ 10"),
+        write(output -> ResponseWriter.writeCommandComplete(output, "ÆØÅ", 10L)));
+  }
+
+  @Test
+  public void testExtendedQueryResponsesDoNotAllocate() throws Exception {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+    assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+    allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+    DataOutputStream output =
+        new DataOutputStream(new OutputBuffer(ByteStreams.nullOutputStream(), 8192));
+    long threadId = Thread.currentThread().getId();
+    int cycles = 100_000;
+    // Warm up the cycle, so it has been compiled before the allocations are measured.
+    writeExtendedQueryResponses(output, cycles);
+    long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+    writeExtendedQueryResponses(output, cycles);
+    long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+    // Allow some room for allocations by the measurement itself. Allocating even a single object
+    // per cycle would exceed this limit.
+    assertTrue("Allocated " + allocated + " bytes", allocated < 16 * 1024);
+  }
+
+  /** Writes the responses for the given number of Parse/Bind/Execute/Sync cycles. */
+  private static void writeExtendedQueryResponses(DataOutputStream output, int cycles)
+      throws Exception {
+    for (int i = 0; i < cycles; i++) {
+      ResponseWriter.writeParseComplete(output);
+      ResponseWriter.writeBindComplete(output);
+      ResponseWriter.writeCommandComplete(output, "UPDATE", i);
+      ResponseWriter.writeReady(output, Status.IDLE);
+    }
+    output.flush();
+  }
+}
@@ -0,0 +1,89 @@
+// Copyright 2022 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireprotocol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.primitives.Bytes;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MessageFrameTest {
+
+  private static DataInputStream source(byte[]... parts) {
+    return new DataInputStream(new ByteArrayInputStream(Bytes.concat(parts)));
+  }
+
+  @Test
+  public void testReadFields() throws IOException {
+    MessageFrame frame = new MessageFrame();
+    DataInputStream source =
+        source(
+            "näme\0".getBytes(StandardCharsets.UTF_8),
+            new byte[] {0, 0, 0, 42, 0, 7},
+            "select 1\0".getBytes(StandardCharsets.UTF_8),
+            new byte[] {99});
+
+    DataInputStream input = frame.fill(source, 21);
+    assertEquals("näme", frame.readNullTerminatedString());
+    assertEquals(42, input.readInt());
+    assertEquals(7, input.readShort());
+    assertEquals("select 1", frame.readString(9));
+    assertEquals(0, frame.available());
+    assertEquals(-1, frame.read());
+    // The frame does not read beyond the given length.
+    assertEquals(99, source.read());
+  }
+
+  @Test
+  public void testStringErrors() throws IOException {
+    MessageFrame frame = new MessageFrame();
+    frame.fill(source("abc".getBytes(StandardCharsets.UTF_8)), 3);
+    assertThrows(EOFException.class, frame::readNullTerminatedString);
+    assertThrows(IOException.class, () -> frame.readString(3));
+    assertThrows(EOFException.class, () -> frame.readString(4));
+
+    DataInputStream input = frame.fill(source(new byte[] {1, 2}), 2);
+    assertThrows(EOFException.class, input::readInt);
+  }
+
+  @Test
+  public void testFillFailsForShortSource() {
+    MessageFrame frame = new MessageFrame();
+    assertThrows(EOFException.class, () -> frame.fill(source(new byte[] {1, 2}), 3));
+  }
+
+  @Test
+  public void testBufferIsReusedAndShrunk() throws IOException {
+    MessageFrame frame = new MessageFrame();
+    byte[] large = new byte[MessageFrame.MAX_RETAINED_SIZE * 2];
+    large[large.length - 1] = 5;
+    DataInputStream input = frame.fill(source(large), large.length);
+    assertEquals(large.length - 1, input.skip(large.length - 1));
+    assertEquals(5, input.read());
+
+    input = frame.fill(source(new byte[] {0, 1}), 2);
+    assertEquals(1, input.readShort());
+    assertEquals(0, frame.available());
+  }
+}
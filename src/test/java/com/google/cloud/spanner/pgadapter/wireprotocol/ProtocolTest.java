@@ -18,6 +18,7 @@ import static com.google.cloud.spanner.pgadapter.wireprotocol.ControlMessage.MAX
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -966,6 +967,54 @@ public class ProtocolTest {
     verify(connectionHandler).cleanUp(intermediatePortalStatement);
   }
 
+  @Test
+  public void testFramedExecuteMessage() throws Exception {
+    byte[] messageMetadata = {'E'};
+    String statementName = "some portal\0";
+    int totalRows = 99999;
+    byte[] length = intToBytes(4 + statementName.length() + 4);
+    byte[] value =
+        Bytes.concat(
+            messageMetadata,
+            length,
+            statementName.getBytes(),
+            intToBytes(totalRows),
+            new byte[] {'S', 0, 0, 0, 4});
+
+    DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(value));
+    MessageFrame messageFrame = new MessageFrame();
+    when(connectionHandler.getPortal(anyString())).thenReturn(intermediatePortalStatement);
+    when(connectionHandler.getConnectionMetadata()).thenReturn(connectionMetadata);
+    when(connectionMetadata.getInputStream()).thenReturn(inputStream);
+    when(connectionMetadata.getOutputStream()).thenReturn(outputStream);
+    when(connectionMetadata.getMessageFrame()).thenReturn(messageFrame);
+
+    WireMessage message = ControlMessage.create(connectionHandler);
+    assertEquals(ExecuteMessage.class, message.getClass());
+    assertEquals("some portal", ((ExecuteMessage) message).getName());
+    assertEquals(totalRows, ((ExecuteMessage) message).getMaxRows());
+    assertSame(messageFrame, message.frame);
+
+    assertEquals(SyncMessage.class, ControlMessage.create(connectionHandler).getClass());
+    assertEquals(0, inputStream.available());
+  }
+
+  @Test
+  public void testFramedQueryMessageFailsWhenNotNullTerminated() {
+    byte[] messageMetadata = {'Q', 0, 0, 0, 23};
+    String payload = "SELECT * FROM users";
+    byte[] value = Bytes.concat(messageMetadata, payload.getBytes());
+
+    DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(value));
+
+    when(connectionHandler.getConnectionMetadata()).thenReturn(connectionMetadata);
+    when(connectionMetadata.getInputStream()).thenReturn(inputStream);
+    when(connectionMetadata.getOutputStream()).thenReturn(outputStream);
+    when(connectionMetadata.getMessageFrame()).thenReturn(new MessageFrame());
+
+    assertThrows(IOException.class, () -> ControlMessage.create(connectionHandler));
+  }
+
   @Test
   public void testExecuteMessageWithException() throws Exception {
     byte[] messageMetadata = {'E'};